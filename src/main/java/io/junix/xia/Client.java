@@ -1,22 +1,71 @@
 package io.junix.xia;
 
+import io.junix.xia.client.ClientConfig;
+import io.junix.xia.client.RpcClient;
+import io.junix.xia.enc.NodeIdentity;
+import io.junix.xia.outbox.Outbox;
+
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * 向本机服务端流水线发送一批请求并打印响应；设置 {@code xia.outbox.dir} 时改为经发件箱存储转发，
+ * 设置 {@code xia.secure=true} 时以临时生成的身份与服务端握手并加密，设置 {@code xia.mux=true} 时每个请求占用一个复用流
+ *
+ * @author wulogn
+ */
 public class Client {
 
     public static void main(String[] args) throws IOException {
-        SocketChannel client = SocketChannel.open();
-//        client.configureBlocking(false);
-        client.connect(new InetSocketAddress("localhost", 8080));
-        System.out.println(client.getLocalAddress());
-        System.out.println("Connect to server...");
-        if (client.isConnected()) {
-            System.out.println("Connected.");
-            client.close();
+        InetSocketAddress server = new InetSocketAddress("localhost", Integer.getInteger("xia.port", 8080));
+        String outboxDir = System.getProperty("xia.outbox.dir");
+        if (outboxDir != null) {
+            sendViaOutbox(server, Path.of(outboxDir));
+            return;
+        }
+        try (RpcClient client = new RpcClient(clientConfig())) {
+            List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                responses.add(client.request(server, ("order-" + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            for (CompletableFuture<byte[]> response : responses) {
+                System.out.println(new String(response.join(), StandardCharsets.UTF_8));
+            }
         }
         System.out.println("Over.");
     }
 
+    /**
+     * 经发件箱发送，落盘即返回；服务端不在线时消息留在发件箱中，下次启动后继续投递
+     */
+    private static void sendViaOutbox(InetSocketAddress server, Path directory) throws IOException {
+        try (RpcClient client = new RpcClient(clientConfig());
+             Outbox outbox = new Outbox(directory, client)) {
+            List<CompletableFuture<Long>> stored = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                stored.add(outbox.send(server, ("order-" + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            CompletableFuture.allOf(stored.toArray(CompletableFuture[]::new)).join();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (outbox.pending() > 0 && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            }
+            System.out.println(outbox.pending() + " message(s) pending delivery.");
+        }
+    }
+
+    private static ClientConfig clientConfig() {
+        ClientConfig config = ClientConfig.fromSystemProperties();
+        if (Boolean.getBoolean("xia.secure")) {
+            config.setIdentity(NodeIdentity.generate());
+        }
+        return config;
+    }
 }
@@ -1,81 +1,363 @@
 package io.junix.xia;
 
+import io.junix.xia.client.ClientConfig;
+import io.junix.xia.client.RpcClient;
+import io.junix.xia.cluster.ClusterPlugin;
+import io.junix.xia.cluster.MemberState;
+import io.junix.xia.cluster.Membership;
+import io.junix.xia.cluster.MembershipConfig;
+import io.junix.xia.cluster.RpcGossipTransport;
+import io.junix.xia.codec.FrameStage;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.enc.HandshakeHandler;
+import io.junix.xia.enc.HandshakeResponder;
+import io.junix.xia.enc.NodeIdentity;
+import io.junix.xia.enc.SessionCache;
+import io.junix.xia.enc.SessionCipher;
+import io.junix.xia.enc.SessionCipherStage;
+import io.junix.xia.metrics.Metrics;
+import io.junix.xia.metrics.MetricsEndpoint;
+import io.junix.xia.mux.MuxHandler;
+import io.junix.xia.net.EventLoop;
+import io.junix.xia.net.BlockingHandler;
+import io.junix.xia.net.ChannelHandler;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+import io.junix.xia.net.ServerMode;
+import io.junix.xia.net.VirtualThreadServer;
+import io.junix.xia.peer.PeerRecord;
+import io.junix.xia.peer.PeerRegistry;
+import io.junix.xia.peer.Trust;
+import io.junix.xia.plugin.PluginContainer;
+import io.junix.xia.plugin.PluginException;
+import io.junix.xia.plugin.PluginWatcher;
+import io.junix.xia.rpc.Envelope;
+import io.junix.xia.rpc.RequestHandler;
+import io.junix.xia.rpc.RpcServerHandler;
+import io.junix.xia.rpc.RpcStreamAcceptor;
+
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.nio.channels.*;
-import java.util.Iterator;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 /**
  * @author wulogn
  */
 public class Main {
 
-    public static void main(String[] args) {
-        try (ServerSocketChannel channel = ServerSocketChannel.open();
-             Selector selector = Selector.open()) {
-
-            channel.bind(new InetSocketAddress(8080));
-            channel.configureBlocking(false);
-
-            SelectionKey selectionKey = channel.register(selector, SelectionKey.OP_ACCEPT);
-            System.out.println("Server channel returned: "
-                    + selectionKey.channel().getClass().getCanonicalName() + " "
-                    + selectionKey.channel().hashCode());
+    private static final System.Logger LOG = System.getLogger(Main.class.getName());
 
-            while (true) {
-                int i = selector.select();
-                System.out.println("Some operation occur: " + i);
+    /**
+     * 启动时从对端登记表中取出作为种子的最近在线对端数
+     */
+    private static final int REMEMBERED_SEEDS = 16;
 
-                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
-                while (iterator.hasNext()) {
-                    SelectionKey selectionKey1 = iterator.next();
-                    iterator.remove();
-
-                    System.out.println("Current interest ops: " + selectionKey1.interestOps());
-
-                    if (selectionKey1.interestOps() == SelectionKey.OP_ACCEPT) {
-                        ServerSocketChannel serverChannel = (ServerSocketChannel) selectionKey1.channel();
-                        try {
-                            SocketChannel clientChannel = serverChannel.accept();
-                            clientChannel.configureBlocking(false);
-
-                            System.out.println("Selection key returned: "
-                                    + clientChannel.getClass().getCanonicalName() + " "
-                                    + clientChannel.hashCode());
+    public static void main(String[] args) {
+        ServerConfig config = ServerConfig.fromSystemProperties();
+        if (config.getMode() == ServerMode.VIRTUAL_THREAD) {
+            runVirtualThreadServer(config);
+        } else {
+            runReactorServer(config);
+        }
+    }
 
-                            if (selectionKey1.isAcceptable()) {
+    private static void runReactorServer(ServerConfig config) {
+        // 指定插件目录时按路由分发给插件并热部署，启用集群时成员协议作为内置插件挂在同一分发器上，
+        // 两者都未启用时原样返回请求体；-Dxia.secure=true 时连接先以本节点身份完成握手，之后加密；
+        // -Dxia.mux=true 时每个请求/响应占用一个复用流，按优先级分块交错发送，客户端须同样启用
+        String pluginDirectory = System.getProperty("xia.plugin.dir");
+        String seeds = System.getProperty("xia.cluster.seeds");
+        boolean clustered = seeds != null || Boolean.getBoolean("xia.cluster.enabled");
+        boolean secure = Boolean.getBoolean("xia.secure");
+        boolean multiplexed = Boolean.getBoolean("xia.mux");
+        PluginContainer plugins = null;
+        PluginWatcher watcher = null;
+        RequestHandler handler = (connection, request) -> {
+            byte[] body = new byte[request.remaining()];
+            request.get(body);
+            return CompletableFuture.completedFuture(body);
+        };
+        if (pluginDirectory != null || clustered) {
+            try {
+                plugins = new PluginContainer();
+                if (pluginDirectory != null) {
+                    watcher = new PluginWatcher(plugins, Path.of(pluginDirectory));
+                    watcher.deployAll();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            if (watcher != null) {
+                watcher.start(Long.getLong("xia.plugin.scanMillis", PluginWatcher.DEFAULT_SCAN_INTERVAL_MILLIS));
+            }
+            handler = plugins.dispatcher();
+        }
+        PeerRegistry peerRegistry = null;
+        String peersFile = System.getProperty("xia.peers.file");
+        if (clustered && peersFile != null) {
+            try {
+                peerRegistry = PeerRegistry.open(Path.of(peersFile), Integer.getInteger("xia.peers.capacity", 65_536));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+        // 握手与成员协议共用同一身份和信任策略；对端按公钥登记和封禁，
+        // 指定 -Dxia.identity.file 时身份跨重启保持不变，否则每次启动生成新身份
+        NodeIdentity identity;
+        String identityFile = System.getProperty("xia.identity.file");
+        try {
+            identity = identityFile == null ? NodeIdentity.generate() : NodeIdentity.loadOrGenerate(Path.of(identityFile));
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeQuietly(peerRegistry);
+            return;
+        }
+        PeerRegistry registry = peerRegistry;
+        Predicate<PublicKey> trustPolicy = registry == null ? key -> true : key -> registry.trust(key) != Trust.BLOCKED;
+        SessionCache sessions = secure ? new SessionCache() : null;
+        RequestHandler requestHandler = handler;
+        Server server = new Server(config, () -> {
+            ChannelHandler protocol = multiplexed
+                    ? new MuxHandler(false, new RpcStreamAcceptor(requestHandler, config.getMaxFrameSize()))
+                    : new RpcServerHandler(requestHandler);
+            FrameStage[] stages = config.getCompression().newStages(config.getMaxFrameSize());
+            if (!secure) {
+                return new FramingHandler(protocol, config.getMaxFrameSize(), stages);
+            }
+            // 加密作为最外层阶段，握手完成后才开始生效
+            SessionCipherStage cipher = new SessionCipherStage();
+            FrameStage[] secured = new FrameStage[stages.length + 1];
+            secured[0] = cipher;
+            System.arraycopy(stages, 0, secured, 1, stages.length);
+            return new FramingHandler(
+                    new HandshakeHandler(new HandshakeResponder(identity, sessions, trustPolicy), cipher, protocol),
+                    config.getMaxFrameSize() + SessionCipher.TAG_LENGTH, secured);
+        });
+        try {
+            server.start();
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeQuietly(peerRegistry);
+            return;
+        }
+        Server metricsServer;
+        try {
+            metricsServer = startMetricsEndpoint(server);
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeQuietly(peerRegistry);
+            server.close();
+            return;
+        }
+        RpcClient gossipClient = null;
+        Membership membership = null;
+        if (clustered) {
+            try {
+                ClientConfig clientConfig = ClientConfig.fromSystemProperties();
+                if (secure) {
+                    clientConfig.setIdentity(identity).setTrustPolicy(trustPolicy);
+                }
+                gossipClient = new RpcClient(clientConfig);
+                membership = startMembership(config, plugins, gossipClient, seeds, identity, trustPolicy,
+                        peerRegistry);
+            } catch (IOException | PluginException e) {
+                e.printStackTrace();
+                if (gossipClient != null) {
+                    gossipClient.close();
+                }
+                closeQuietly(peerRegistry);
+                if (metricsServer != null) {
+                    metricsServer.close();
+                }
+                server.close();
+                return;
+            }
+        }
+        PluginContainer container = plugins;
+        PluginWatcher pluginWatcher = watcher;
+        RpcClient client = gossipClient;
+        Membership cluster = membership;
+        PeerRegistry peers = peerRegistry;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (cluster != null) {
+                cluster.close();
+                client.close();
+                closeQuietly(peers);
+            }
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            server.close();
+            if (pluginWatcher != null) {
+                pluginWatcher.close();
+            }
+            if (container != null) {
+                container.close();
+            }
+        }, "xia-shutdown"));
+        try {
+            server.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-                                try {
-                                    clientChannel.register(selector, SelectionKey.OP_READ);
-                                } catch (ClosedChannelException e) {
-                                    throw new RuntimeException(e);
-                                }
-                            }
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
+    /**
+     * 登记服务器的读数；指定 {@code -Dxia.metrics.port} 时在该端口以纯文本输出所有指标，未指定时返回 {@code null}
+     */
+    private static Server startMetricsEndpoint(Server server) throws IOException {
+        Metrics.gauge("xia_connections", "Open connections", () -> server.workers().connectionCount());
+        Metrics.gauge("xia_pending_write_bytes", "Bytes queued but not yet written", () -> {
+            long pending = 0;
+            for (EventLoop loop : server.workers().loops()) {
+                pending += loop.pendingWriteBytes();
+            }
+            return pending;
+        });
+        Integer port = Integer.getInteger("xia.metrics.port");
+        if (port == null) {
+            return null;
+        }
+        Server endpoint = new Server(new ServerConfig()
+                .setPort(port)
+                .setWorkerThreads(1)
+                .setIdleTimeoutMillis(60_000)
+                .setMaxConnections(64)
+                .setInstrumented(false),
+                () -> new MetricsEndpoint(Metrics.registry()));
+        endpoint.start();
+        return endpoint;
+    }
 
-                    } else if (selectionKey1.interestOps() == SelectionKey.OP_READ) {
-                        SocketChannel clientChannel = (SocketChannel) selectionKey1.channel();
+    /**
+     * 以 {@code -Dxia.cluster.advertise}（默认 {@code 127.0.0.1:端口}）为本节点地址加入
+     * {@code -Dxia.cluster.seeds} 列出的种子节点（逗号分隔的 {@code host:port}），
+     * 节点身份与握手共用，由 {@code -Dxia.identity.file} 持久化，未指定时在每次启动时新生成
+     * <p>
+     * 指定 {@code -Dxia.peers.file} 时，见过的成员记入对端登记表，重启后以最近在线的成员作为额外的种子，
+     * 标记为 {@link Trust#BLOCKED} 的公钥不被接纳为成员。
+     */
+    private static Membership startMembership(ServerConfig config, PluginContainer plugins, RpcClient client,
+                                              String seeds, NodeIdentity identity, Predicate<PublicKey> trustPolicy,
+                                              PeerRegistry peers) throws PluginException {
+        InetSocketAddress advertised = parseAddress(System.getProperty("xia.cluster.advertise",
+                "127.0.0.1:" + config.getPort()));
+        Membership membership = new Membership(identity, advertised, new RpcGossipTransport(client),
+                MembershipConfig.fromSystemProperties(), () -> System.nanoTime() / 1_000_000, trustPolicy,
+                new Random());
+        plugins.deploy(new ClusterPlugin(membership));
+        Metrics.gauge("xia_cluster_members", "Alive or suspected cluster members",
+                () -> membership.activeMembers().size());
+        List<InetSocketAddress> seedAddresses = new ArrayList<>();
+        if (peers != null) {
+            rememberMembers(membership, peers);
+            peers.peers().stream()
+                    .filter(peer -> peer.trust() != Trust.BLOCKED && !peer.addresses().isEmpty())
+                    .sorted(Comparator.comparingLong(PeerRecord::lastSeenMillis).reversed())
+                    .limit(REMEMBERED_SEEDS)
+                    .forEach(peer -> seedAddresses.add(peer.addresses().get(0)));
+        }
+        membership.start();
+        if (seeds != null) {
+            for (String seed : seeds.split(",")) {
+                if (!seed.isBlank()) {
+                    seedAddresses.add(parseAddress(seed.trim()));
+                }
+            }
+        }
+        if (!seedAddresses.isEmpty()) {
+            membership.join(seedAddresses);
+        }
+        return membership;
+    }
 
-                        long bytes = clientChannel.read(ByteBuffer.allocate(1024));
-                        if (bytes == -1) {
-                            System.out.println("Remote is closed.");
-                            clientChannel.close();
-                        }
-                    } else {
-                        System.out.println("other");
+    /**
+     * 成员每次转为 ALIVE 时登记其公钥和地址；回调持有成员协议的锁，登记只写映射内存，不会阻塞
+     */
+    private static void rememberMembers(Membership membership, PeerRegistry peers) {
+        membership.addListener((member, previous) -> {
+            if (member.state() != MemberState.ALIVE || previous == MemberState.ALIVE) {
+                return;
+            }
+            byte[] key = membership.publicKey(member.id());
+            if (key == null) {
+                return;
+            }
+            try {
+                peers.register(key, List.of(member.address()), System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "Failed to record peer " + member.id(), e);
+            }
+        });
+    }
 
-                    }
+    private static void closeQuietly(PeerRegistry peers) {
+        if (peers == null) {
+            return;
+        }
+        try {
+            peers.close();
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Failed to close peer registry", e);
+        }
+    }
 
-                    System.out.println("next loop");
+    private static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        return InetSocketAddress.createUnresolved(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1)));
+    }
 
-                }
+    private static void runVirtualThreadServer(ServerConfig config) {
+        // 阻塞模式没有握手、加密和复用阶段，宁可拒绝启动也不以明文提供本应加密的服务
+        if (Boolean.getBoolean("xia.secure") || Boolean.getBoolean("xia.mux")) {
+            throw new IllegalStateException("xia.secure and xia.mux are not supported in virtual-thread mode, "
+                    + "use -Dxia.server.mode=reactor");
+        }
+        if (System.getProperty("xia.plugin.dir") != null || System.getProperty("xia.cluster.seeds") != null
+                || Boolean.getBoolean("xia.cluster.enabled")) {
+            LOG.log(System.Logger.Level.WARNING, "Plugins, clustering and the metrics endpoint are only available "
+                    + "in reactor mode and are ignored in virtual-thread mode");
+        }
+        // 与 Reactor 模式相同的回显协议，以阻塞方式逐帧处理
+        BlockingHandler echo = connection -> {
+            ByteBuffer frame;
+            while ((frame = connection.readFrame()) != null) {
+                int correlationId = Envelope.readCorrelationId(frame);
+                connection.markEstablished();
+                byte[] body = new byte[frame.remaining()];
+                frame.get(body);
+                connection.writeFrame(Envelope.responsePayload(correlationId, Envelope.STATUS_OK, body));
             }
-
+        };
+        VirtualThreadServer server = new VirtualThreadServer(config, echo);
+        try {
+            server.start();
+        } catch (UnsupportedOperationException e) {
+            // 运行在 Java 21 以下，退回 Reactor 模式而不是让启动线程带着异常退出
+            LOG.log(System.Logger.Level.WARNING, "Virtual threads are not available on Java {0}, "
+                    + "falling back to the NIO reactor", Runtime.version().feature());
+            runReactorServer(config);
+            return;
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "xia-shutdown"));
+        try {
+            server.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
@@ -0,0 +1,163 @@
+package io.junix.xia.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 单线程缓冲区域，每个大小等级维护一个空闲栈
+ * <p>
+ * {@link #acquire(int)} 只能在所属线程调用；{@link #release(ByteBuffer)} 可在任意线程调用，
+ * 非所属线程归还的缓冲先进入转交队列，由所属线程在下次申请时回收。
+ *
+ * @author wulogn
+ */
+public class BufferArena {
+
+    private final BufferPool pool;
+    private final Thread owner;
+    private final int minShift;
+    private final List<ArrayDeque<ByteBuffer>> freeLists;
+    private final Queue<ByteBuffer> foreignReleases = new ConcurrentLinkedQueue<>();
+    private final LeakDetector leakDetector;
+
+    // 仅所属线程写入，其他线程读取统计时可能略有滞后
+    private volatile long hits;
+    private volatile long misses;
+    private volatile long unpooled;
+    private volatile long cachedBytes;
+
+    BufferArena(BufferPool pool, Thread owner) {
+        this.pool = pool;
+        this.owner = owner;
+        this.minShift = Integer.numberOfTrailingZeros(pool.minSize());
+        int classes = Integer.numberOfTrailingZeros(pool.maxSize()) - minShift + 1;
+        this.freeLists = new ArrayList<>(classes);
+        for (int i = 0; i < classes; i++) {
+            freeLists.add(new ArrayDeque<>());
+        }
+        this.leakDetector = pool.leakDetector();
+    }
+
+    /**
+     * 申请容量不小于 {@code minCapacity} 的直接缓冲，返回时 position 为 0、limit 为容量
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        checkOwner();
+        ByteBuffer buffer;
+        if (minCapacity > pool.maxSize()) {
+            unpooled++;
+            buffer = ByteBuffer.allocateDirect(minCapacity);
+        } else {
+            int index = sizeClass(minCapacity);
+            buffer = freeLists.get(index).pollFirst();
+            if (buffer == null) {
+                drainForeignReleases();
+                buffer = freeLists.get(index).pollFirst();
+            }
+            if (buffer != null) {
+                hits++;
+                cachedBytes -= buffer.capacity();
+                buffer.clear();
+            } else {
+                misses++;
+                buffer = ByteBuffer.allocateDirect(pool.minSize() << index);
+            }
+        }
+        if (leakDetector != null) {
+            leakDetector.track(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲，归还后调用方不得再使用该缓冲
+     */
+    public void release(ByteBuffer buffer) {
+        if (leakDetector != null) {
+            leakDetector.untrack(buffer);
+        }
+        if (Thread.currentThread() != owner) {
+            foreignReleases.offer(buffer);
+            return;
+        }
+        recycle(buffer);
+    }
+
+    private void recycle(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || Integer.bitCount(capacity) != 1
+                || capacity < pool.minSize() || capacity > pool.maxSize()) {
+            // 非池化缓冲交给 GC 回收
+            return;
+        }
+        int index = Integer.numberOfTrailingZeros(capacity) - minShift;
+        ArrayDeque<ByteBuffer> freeList = freeLists.get(index);
+        if (freeList.size() < maxCached(capacity)) {
+            freeList.addFirst(buffer);
+            cachedBytes += capacity;
+        }
+    }
+
+    /**
+     * 丢弃超过当前缓存上限的空闲缓冲，交给 GC 回收，只能在所属线程调用
+     */
+    public void trim() {
+        checkOwner();
+        drainForeignReleases();
+        for (int i = 0; i < freeLists.size(); i++) {
+            int size = pool.minSize() << i;
+            int limit = maxCached(size);
+            ArrayDeque<ByteBuffer> freeList = freeLists.get(i);
+            while (freeList.size() > limit) {
+                freeList.pollLast();
+                cachedBytes -= size;
+            }
+        }
+    }
+
+    private int maxCached(int size) {
+        // 上限可在运行时调整，每个等级至少保留一个缓冲
+        return Math.max(1, pool.maxCachedBytesPerClass() / size);
+    }
+
+    private void drainForeignReleases() {
+        ByteBuffer buffer;
+        while ((buffer = foreignReleases.poll()) != null) {
+            recycle(buffer);
+        }
+    }
+
+    private int sizeClass(int capacity) {
+        if (capacity <= pool.minSize()) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - minShift;
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Arena owned by " + owner.getName()
+                    + " accessed from " + Thread.currentThread().getName());
+        }
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+
+    long unpooled() {
+        return unpooled;
+    }
+
+    long cachedBytes() {
+        return cachedBytes;
+    }
+}
@@ -0,0 +1,119 @@
+package io.junix.xia.buffer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 直接内存缓冲池
+ * <p>
+ * 缓冲按 2 的幂划分大小等级（{@code minSize} 到 {@code maxSize}），每个事件循环持有一个独立的
+ * {@link BufferArena}，热路径上的申请与归还无需同步。超过最大等级的申请直接分配、不做缓存。
+ *
+ * @author wulogn
+ */
+public class BufferPool {
+
+    public static final int DEFAULT_MIN_SIZE = 256;
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_CACHED_BYTES_PER_CLASS = 1024 * 1024;
+
+    private final int minSize;
+    private final int maxSize;
+    private volatile int maxCachedBytesPerClass;
+    private final LeakDetector leakDetector;
+    private final List<BufferArena> arenas = new CopyOnWriteArrayList<>();
+
+    public BufferPool(int minSize, int maxSize, int maxCachedBytesPerClass, boolean leakDetection) {
+        if (Integer.bitCount(minSize) != 1 || Integer.bitCount(maxSize) != 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Sizes must be powers of two with minSize <= maxSize: "
+                    + minSize + ", " + maxSize);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxCachedBytesPerClass = maxCachedBytesPerClass;
+        this.leakDetector = leakDetection ? new LeakDetector() : null;
+    }
+
+    /**
+     * 使用默认大小等级，{@code -Dxia.buffer.leakDetection=true} 时开启泄漏检测
+     */
+    public static BufferPool fromSystemProperties() {
+        return new BufferPool(
+                Integer.getInteger("xia.buffer.minSize", DEFAULT_MIN_SIZE),
+                Integer.getInteger("xia.buffer.maxSize", DEFAULT_MAX_SIZE),
+                Integer.getInteger("xia.buffer.maxCachedBytesPerClass", DEFAULT_MAX_CACHED_BYTES_PER_CLASS),
+                Boolean.getBoolean("xia.buffer.leakDetection"));
+    }
+
+    /**
+     * 为指定线程创建一个缓冲区域，该线程之外归还的缓冲会经由队列转交回去
+     */
+    public BufferArena newArena(Thread owner) {
+        BufferArena arena = new BufferArena(this, owner);
+        arenas.add(arena);
+        return arena;
+    }
+
+    public int maxCachedBytesPerClass() {
+        return maxCachedBytesPerClass;
+    }
+
+    /**
+     * 调整每个大小等级缓存的空闲字节上限，新上限在各区域下次归还或 {@link BufferArena#trim()} 时生效
+     */
+    public void setMaxCachedBytesPerClass(int maxCachedBytesPerClass) {
+        if (maxCachedBytesPerClass < 0) {
+            throw new IllegalArgumentException("maxCachedBytesPerClass must not be negative: "
+                    + maxCachedBytesPerClass);
+        }
+        this.maxCachedBytesPerClass = maxCachedBytesPerClass;
+    }
+
+    public int minSize() {
+        return minSize;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 未开启泄漏检测时返回 {@code null}
+     */
+    public LeakDetector leakDetector() {
+        return leakDetector;
+    }
+
+    /**
+     * 汇总所有区域的命中统计
+     */
+    public Metrics metrics() {
+        long hits = 0;
+        long misses = 0;
+        long unpooled = 0;
+        long cachedBytes = 0;
+        for (BufferArena arena : arenas) {
+            hits += arena.hits();
+            misses += arena.misses();
+            unpooled += arena.unpooled();
+            cachedBytes += arena.cachedBytes();
+        }
+        return new Metrics(hits, misses, unpooled, cachedBytes);
+    }
+
+    /**
+     * 缓冲池统计快照
+     *
+     * @param hits        从缓存中直接取得缓冲的次数
+     * @param misses      缓存为空、需要新分配的次数
+     * @param unpooled    超过最大等级、不经缓存分配的次数
+     * @param cachedBytes 当前缓存中空闲缓冲的总字节数
+     */
+    public record Metrics(long hits, long misses, long unpooled, long cachedBytes) {
+
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
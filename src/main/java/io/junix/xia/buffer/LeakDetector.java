@@ -0,0 +1,43 @@
+package io.junix.xia.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓冲泄漏检测器，记录每个未归还缓冲的申请位置
+ * <p>
+ * 每次申请都会记录调用栈，开销较大，只应在测试或排查问题时开启。
+ *
+ * @author wulogn
+ */
+public class LeakDetector {
+
+    private final Map<ByteBuffer, Throwable> outstanding = new IdentityHashMap<>();
+
+    synchronized void track(ByteBuffer buffer) {
+        outstanding.put(buffer, new Throwable("Buffer acquired here"));
+    }
+
+    synchronized void untrack(ByteBuffer buffer) {
+        if (outstanding.remove(buffer) == null) {
+            throw new IllegalStateException("Buffer released twice or not acquired from this pool");
+        }
+    }
+
+    /**
+     * 当前未归还的缓冲数量
+     */
+    public synchronized int outstandingCount() {
+        return outstanding.size();
+    }
+
+    /**
+     * 返回所有未归还缓冲的申请调用栈
+     */
+    public synchronized List<Throwable> leaks() {
+        return new ArrayList<>(outstanding.values());
+    }
+}
@@ -0,0 +1,208 @@
+package io.junix.xia.client;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.compress.CompressionPolicy;
+import io.junix.xia.enc.NodeIdentity;
+
+import java.security.PublicKey;
+import java.util.function.Predicate;
+
+/**
+ * 客户端配置，默认值均可通过 {@code -Dxia.client.*} 系统属性覆盖
+ *
+ * @author wulogn
+ */
+public class ClientConfig {
+
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+    private int maxConnectionsPerPeer = 2;
+    private int maxPendingPerConnection = 256;
+    private long connectTimeoutMillis = 5_000;
+    private long requestTimeoutMillis = 30_000;
+    private long idleTimeoutMillis = 60_000;
+    private int readBufferSize = 4096;
+    private int maxFrameSize = 1024 * 1024;
+    private CompressionPolicy compression = CompressionPolicy.none();
+    private BufferPool bufferPool;
+    private NodeIdentity identity;
+    private Predicate<PublicKey> trustPolicy = key -> true;
+    private boolean multiplexed;
+
+    /**
+     * 从系统属性读取配置，未设置的项使用默认值
+     */
+    public static ClientConfig fromSystemProperties() {
+        ClientConfig config = new ClientConfig();
+        config.ioThreads = Integer.getInteger("xia.client.ioThreads", config.ioThreads);
+        config.maxConnectionsPerPeer = Integer.getInteger("xia.client.maxConnectionsPerPeer",
+                config.maxConnectionsPerPeer);
+        config.maxPendingPerConnection = Integer.getInteger("xia.client.maxPendingPerConnection",
+                config.maxPendingPerConnection);
+        config.connectTimeoutMillis = Long.getLong("xia.client.connectTimeoutMillis", config.connectTimeoutMillis);
+        config.requestTimeoutMillis = Long.getLong("xia.client.requestTimeoutMillis", config.requestTimeoutMillis);
+        config.idleTimeoutMillis = Long.getLong("xia.client.idleTimeoutMillis", config.idleTimeoutMillis);
+        config.readBufferSize = Integer.getInteger("xia.client.readBufferSize", config.readBufferSize);
+        config.maxFrameSize = Integer.getInteger("xia.client.maxFrameSize", config.maxFrameSize);
+        config.compression = CompressionPolicy.fromSystemProperties();
+        config.multiplexed = Boolean.parseBoolean(System.getProperty("xia.mux", "false"));
+        return config;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * 事件循环线程数，所有对端的连接共享这些线程
+     */
+    public ClientConfig setIoThreads(int ioThreads) {
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("ioThreads must be positive: " + ioThreads);
+        }
+        this.ioThreads = ioThreads;
+        return this;
+    }
+
+    public int getMaxConnectionsPerPeer() {
+        return maxConnectionsPerPeer;
+    }
+
+    public ClientConfig setMaxConnectionsPerPeer(int maxConnectionsPerPeer) {
+        if (maxConnectionsPerPeer < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerPeer must be positive: " + maxConnectionsPerPeer);
+        }
+        this.maxConnectionsPerPeer = maxConnectionsPerPeer;
+        return this;
+    }
+
+    public int getMaxPendingPerConnection() {
+        return maxPendingPerConnection;
+    }
+
+    /**
+     * 单个连接上未完成请求数达到该值时，若未达到连接数上限则为该对端新建连接；
+     * 已达上限时请求继续流水线发送到最空闲的连接
+     */
+    public ClientConfig setMaxPendingPerConnection(int maxPendingPerConnection) {
+        if (maxPendingPerConnection < 1) {
+            throw new IllegalArgumentException("maxPendingPerConnection must be positive: " + maxPendingPerConnection);
+        }
+        this.maxPendingPerConnection = maxPendingPerConnection;
+        return this;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public ClientConfig setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public ClientConfig setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        return this;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * 连接没有未完成请求的时间超过该值后被关闭并移出连接池
+     */
+    public ClientConfig setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("idleTimeoutMillis must be positive: " + idleTimeoutMillis);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        return this;
+    }
+
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public ClientConfig setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+        return this;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public ClientConfig setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    public CompressionPolicy getCompression() {
+        return compression;
+    }
+
+    /**
+     * 帧压缩策略，服务端须使用相同的压缩设置（是否启用）
+     */
+    public ClientConfig setCompression(CompressionPolicy compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * 未显式设置时按系统属性创建
+     */
+    public BufferPool getBufferPool() {
+        if (bufferPool == null) {
+            bufferPool = BufferPool.fromSystemProperties();
+        }
+        return bufferPool;
+    }
+
+    public ClientConfig setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        return this;
+    }
+
+    public NodeIdentity getIdentity() {
+        return identity;
+    }
+
+    /**
+     * 设置后每个连接先以该身份完成握手再发送请求，之后的帧以会话密钥加密，服务端须同样启用握手；默认不握手
+     */
+    public ClientConfig setIdentity(NodeIdentity identity) {
+        this.identity = identity;
+        return this;
+    }
+
+    public Predicate<PublicKey> getTrustPolicy() {
+        return trustPolicy;
+    }
+
+    /**
+     * 握手时判断服务端长期公钥是否可信，默认全部接受
+     */
+    public ClientConfig setTrustPolicy(Predicate<PublicKey> trustPolicy) {
+        this.trustPolicy = trustPolicy;
+        return this;
+    }
+
+    public boolean isMultiplexed() {
+        return multiplexed;
+    }
+
+    /**
+     * 每个请求/响应占用连接上的一个复用流，按请求的 {@link io.junix.xia.mux.StreamPriority} 调度，
+     * 紧急请求不必排在大响应之后；服务端须同样启用复用（{@code -Dxia.mux=true}）。默认按关联 ID 整帧收发
+     */
+    public ClientConfig setMultiplexed(boolean multiplexed) {
+        this.multiplexed = multiplexed;
+        return this;
+    }
+}
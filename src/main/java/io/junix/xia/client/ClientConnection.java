@@ -0,0 +1,322 @@
+package io.junix.xia.client;
+
+import io.junix.xia.codec.CorruptedFrameException;
+import io.junix.xia.codec.FrameStage;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.enc.HandshakeHandler;
+import io.junix.xia.enc.HandshakeInitiator;
+import io.junix.xia.enc.SessionCipher;
+import io.junix.xia.enc.SessionCipherStage;
+import io.junix.xia.mux.MuxHandler;
+import io.junix.xia.mux.MuxStream;
+import io.junix.xia.mux.StreamHandler;
+import io.junix.xia.mux.StreamPriority;
+import io.junix.xia.net.ChannelHandler;
+import io.junix.xia.net.Connection;
+import io.junix.xia.net.EventLoop;
+import io.junix.xia.net.Timeout;
+import io.junix.xia.rpc.Envelope;
+import io.junix.xia.rpc.RemoteException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池中的一条连接，请求在其上流水线发送，按关联 ID 匹配响应
+ * <p>
+ * 未完成请求表、等待连接的请求队列和关联 ID 计数只在事件循环线程中访问，无需加锁；
+ * 未完成请求数 {@link #inFlight()} 供连接池在调用方线程中选择连接。
+ * 配置了节点身份时连接先经 {@link HandshakeHandler} 完成握手，握手完成前请求同样排队，之后的帧都经过加密。
+ * 复用模式下帧交给 {@link MuxHandler}，每个请求打开一个流，请求体和响应分块按优先级调度，流 ID 代替关联 ID。
+ *
+ * @author wulogn
+ */
+final class ClientConnection implements ChannelHandler {
+
+    private final PeerPool pool;
+    private final EventLoop eventLoop;
+    private final FramingHandler framing;
+    private final HandshakeHandler handshake;
+    private final MuxHandler mux;
+    private final long connectTimeoutMillis;
+    private volatile CompletableFuture<Connection> connected;
+    private final Map<Integer, CompletableFuture<byte[]>> pending = new HashMap<>();
+    private final ArrayDeque<Waiting> waiting = new ArrayDeque<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastUsedNanos = System.nanoTime();
+    private Connection connection;
+    private Throwable connectFailure;
+    private int nextCorrelationId;
+    private boolean inactive;
+
+    ClientConnection(PeerPool pool, EventLoop eventLoop, ClientConfig config) {
+        this.pool = pool;
+        this.eventLoop = eventLoop;
+        FrameStage[] stages = config.getCompression().newStages(config.getMaxFrameSize());
+        if (config.getIdentity() == null) {
+            this.handshake = null;
+            this.framing = new FramingHandler(this, config.getMaxFrameSize(), stages);
+        } else {
+            // 加密作为最外层阶段，握手完成后才开始生效
+            SessionCipherStage cipher = new SessionCipherStage();
+            this.handshake = new HandshakeHandler(
+                    new HandshakeInitiator(config.getIdentity(), pool.ticket(), config.getTrustPolicy()), cipher, this);
+            FrameStage[] secured = new FrameStage[stages.length + 1];
+            secured[0] = cipher;
+            System.arraycopy(stages, 0, secured, 1, stages.length);
+            this.framing = new FramingHandler(handshake, config.getMaxFrameSize() + SessionCipher.TAG_LENGTH, secured);
+        }
+        // 客户端不接受服务端主动打开的流
+        this.mux = config.isMultiplexed() ? new MuxHandler(true, stream -> null) : null;
+        this.connectTimeoutMillis = config.getConnectTimeoutMillis();
+    }
+
+    /**
+     * 发起非阻塞连接，须在加入连接池之后调用，保证连接失败时能从池中移除
+     */
+    void connect(SocketAddress address) {
+        CompletableFuture<Connection> future = eventLoop.connect(address, framing);
+        connected = future;
+        Timeout timeout = eventLoop.schedule(() -> future.completeExceptionally(
+                new TimeoutException("Connect timed out after " + connectTimeoutMillis + " ms")),
+                connectTimeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((connection, cause) -> {
+            timeout.cancel();
+            if (cause != null) {
+                pool.remove(this);
+                eventLoop.execute(() -> failWaiting(cause));
+            }
+        });
+    }
+
+    /**
+     * 为即将发出的请求占位，由连接池在选中本连接时调用
+     */
+    void reserve() {
+        inFlight.incrementAndGet();
+        lastUsedNanos = System.nanoTime();
+    }
+
+    /**
+     * 发送请求，调用前须已 {@link #reserve()}
+     * <p>
+     * 发送统一投递到事件循环线程执行，同一调用方先后发出的请求按序写出；连接尚未建立时请求排队，建立后依次发出。
+     */
+    CompletableFuture<byte[]> request(byte[] body, StreamPriority priority, long timeoutMillis) {
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        eventLoop.execute(() -> {
+            // 超时挂在事件循环的时间轮上，大量未完成请求不会堆积到公共调度线程
+            Timeout timeout = eventLoop.schedule(() -> response.completeExceptionally(
+                    new TimeoutException("Request timed out after " + timeoutMillis + " ms")),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            response.whenComplete((result, cause) -> timeout.cancel());
+            send(body, priority, response);
+        });
+        response.whenComplete((result, cause) -> {
+            lastUsedNanos = System.nanoTime();
+            inFlight.decrementAndGet();
+        });
+        return response;
+    }
+
+    private void send(byte[] body, StreamPriority priority, CompletableFuture<byte[]> response) {
+        if (response.isDone()) {
+            // 发出前已超时
+            return;
+        }
+        if (connectFailure != null) {
+            response.completeExceptionally(connectFailure);
+            return;
+        }
+        if (inactive) {
+            response.completeExceptionally(new ClosedChannelException());
+            return;
+        }
+        if (connection == null) {
+            waiting.add(new Waiting(body, priority, response));
+            return;
+        }
+        if (mux != null) {
+            MuxStream stream = mux.openStream(priority, new ResponseStream(response));
+            // 超时的请求重置流，服务端不再发送剩余的响应
+            response.whenComplete((result, cause) -> {
+                if (cause != null) {
+                    stream.reset();
+                }
+            });
+            stream.write(ByteBuffer.wrap(body), true);
+            return;
+        }
+        int correlationId = nextCorrelationId++;
+        pending.put(correlationId, response);
+        response.whenComplete((result, cause) -> {
+            if (cause != null) {
+                // 超时的请求不再等待响应，迟到的响应按未知 ID 丢弃
+                eventLoop.execute(() -> pending.remove(correlationId));
+            }
+        });
+        framing.writeFrame(connection, Envelope.requestPayload(correlationId, body));
+    }
+
+    private void failWaiting(Throwable cause) {
+        connectFailure = cause;
+        Waiting next;
+        while ((next = waiting.poll()) != null) {
+            next.response().completeExceptionally(cause);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    void close() {
+        if (!connected.completeExceptionally(new ClosedChannelException())) {
+            connected.thenAccept(Connection::close);
+        }
+    }
+
+    @Override
+    public void channelActive(Connection connection) {
+        if (mux != null) {
+            mux.channelActive(connection);
+        }
+        this.connection = connection;
+        if (handshake != null) {
+            pool.setTicket(handshake.result().ticket());
+        }
+        Waiting next;
+        while ((next = waiting.poll()) != null) {
+            send(next.body(), next.priority(), next.response());
+        }
+    }
+
+    @Override
+    public void channelRead(Connection connection, ByteBuffer frame) {
+        if (mux != null) {
+            mux.channelRead(connection, frame);
+            return;
+        }
+        int correlationId;
+        byte status;
+        try {
+            correlationId = Envelope.readCorrelationId(frame);
+            status = Envelope.readStatus(frame);
+        } catch (CorruptedFrameException e) {
+            exceptionCaught(connection, e);
+            return;
+        }
+        CompletableFuture<byte[]> response = pending.remove(correlationId);
+        if (response == null) {
+            return;
+        }
+        byte[] body = new byte[frame.remaining()];
+        frame.get(body);
+        if (status == Envelope.STATUS_OK) {
+            response.complete(body);
+        } else {
+            response.completeExceptionally(new RemoteException(new String(body, StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Override
+    public void channelFlushed(Connection connection) {
+        if (mux != null) {
+            mux.channelFlushed(connection);
+        }
+    }
+
+    @Override
+    public void channelInactive(Connection connection) {
+        inactive = true;
+        pool.remove(this);
+        if (mux != null) {
+            mux.channelInactive(connection);
+        }
+        if (this.connection == null) {
+            // 握手未完成就断开，排队的请求不会再发出
+            failWaiting(new ClosedChannelException());
+        }
+        List<CompletableFuture<byte[]>> outstanding = new ArrayList<>(pending.values());
+        pending.clear();
+        for (CompletableFuture<byte[]> response : outstanding) {
+            response.completeExceptionally(new ClosedChannelException());
+        }
+    }
+
+    /**
+     * 等待连接建立的请求
+     */
+    private record Waiting(byte[] body, StreamPriority priority, CompletableFuture<byte[]> response) {
+    }
+
+    /**
+     * 复用模式下收集一个流上的响应：状态字节加响应体，对端结束流时完成
+     */
+    private static final class ResponseStream implements StreamHandler {
+
+        private final CompletableFuture<byte[]> response;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        ResponseStream(CompletableFuture<byte[]> response) {
+            this.response = response;
+        }
+
+        @Override
+        public void onData(MuxStream stream, ByteBuffer data, boolean end) {
+            if (response.isDone()) {
+                // 已超时，等待重置生效
+                return;
+            }
+            if (data.hasArray()) {
+                received.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            } else {
+                byte[] chunk = new byte[data.remaining()];
+                data.get(chunk);
+                received.writeBytes(chunk);
+            }
+            if (!end) {
+                return;
+            }
+            ByteBuffer payload = ByteBuffer.wrap(received.toByteArray());
+            byte status;
+            try {
+                status = Envelope.readStatus(payload);
+            } catch (CorruptedFrameException e) {
+                response.completeExceptionally(e);
+                return;
+            }
+            byte[] body = new byte[payload.remaining()];
+            payload.get(body);
+            if (status == Envelope.STATUS_OK) {
+                response.complete(body);
+            } else {
+                response.completeExceptionally(new RemoteException(new String(body, StandardCharsets.UTF_8)));
+            }
+        }
+
+        @Override
+        public void onReset(MuxStream stream, int errorCode) {
+            response.completeExceptionally(errorCode == MuxStream.CONNECTION_CLOSED
+                    ? new ClosedChannelException()
+                    : new IOException("Stream reset by peer with error code " + errorCode));
+        }
+    }
+}
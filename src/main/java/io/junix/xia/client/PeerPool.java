@@ -0,0 +1,105 @@
+package io.junix.xia.client;
+
+import io.junix.xia.enc.SessionTicket;
+import io.junix.xia.mux.StreamPriority;
+import io.junix.xia.net.EventLoopGroup;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个对端的连接池：请求优先流水线发送到未完成请求最少的连接，
+ * 所有连接都达到 {@link ClientConfig#getMaxPendingPerConnection()} 个未完成请求 且未达连接数上限时才新建连接
+ *
+ * @author wulogn
+ */
+final class PeerPool {
+
+    private final SocketAddress address;
+    private final ClientConfig config;
+    private final EventLoopGroup loops;
+    private final List<ClientConnection> connections = new ArrayList<>();
+    private volatile SessionTicket ticket;
+
+    PeerPool(SocketAddress address, ClientConfig config, EventLoopGroup loops) {
+        this.address = address;
+        this.config = config;
+        this.loops = loops;
+    }
+
+    CompletableFuture<byte[]> request(byte[] body, StreamPriority priority) {
+        return select().request(body, priority, config.getRequestTimeoutMillis());
+    }
+
+    private synchronized ClientConnection select() {
+        ClientConnection best = null;
+        for (ClientConnection connection : connections) {
+            if (best == null || connection.inFlight() < best.inFlight()) {
+                best = connection;
+            }
+        }
+        if (best == null || (best.inFlight() >= config.getMaxPendingPerConnection()
+                && connections.size() < config.getMaxConnectionsPerPeer())) {
+            best = new ClientConnection(this, loops.next(), config);
+            connections.add(best);
+            best.connect(address);
+        }
+        // 占位与空闲回收在同一把锁下进行，选中的连接不会被同时回收
+        best.reserve();
+        return best;
+    }
+
+    /**
+     * 最近一次握手得到的票据，新连接用它做恢复握手
+     */
+    SessionTicket ticket() {
+        return ticket;
+    }
+
+    void setTicket(SessionTicket ticket) {
+        this.ticket = ticket;
+    }
+
+    synchronized void remove(ClientConnection connection) {
+        connections.remove(connection);
+    }
+
+    synchronized int size() {
+        return connections.size();
+    }
+
+    /**
+     * 关闭空闲超时的连接，返回关闭的连接数
+     */
+    int evictIdle(long nowNanos) {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        List<ClientConnection> idle = new ArrayList<>();
+        synchronized (this) {
+            connections.removeIf(connection -> {
+                if (connection.inFlight() == 0 && nowNanos - connection.lastUsedNanos() > idleNanos) {
+                    idle.add(connection);
+                    return true;
+                }
+                return false;
+            });
+        }
+        for (ClientConnection connection : idle) {
+            connection.close();
+        }
+        return idle.size();
+    }
+
+    void close() {
+        List<ClientConnection> all;
+        synchronized (this) {
+            all = new ArrayList<>(connections);
+            connections.clear();
+        }
+        for (ClientConnection connection : all) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.junix.xia.client;
+
+import io.junix.xia.mux.StreamPriority;
+import io.junix.xia.net.EventLoopGroup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 非阻塞请求/响应客户端，线程安全
+ * <p>
+ * 所有对端的连接共享少量事件循环线程，连接以非阻塞方式建立；每个对端维护一个连接池，
+ * 请求按关联 ID 在连接上流水线发送，因此大量对端、大量并发请求都不需要为每个对端占用线程。
+ * 返回的 future 默认在事件循环线程中完成，耗时的后续处理应使用 {@code *Async} 方法切换线程。
+ *
+ * @author wulogn
+ */
+public class RpcClient implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(RpcClient.class.getName());
+
+    private final ClientConfig config;
+    private final EventLoopGroup loops;
+    private final ConcurrentHashMap<SocketAddress, PeerPool> pools = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reaper;
+    private volatile boolean closed;
+
+    public RpcClient(ClientConfig config) throws IOException {
+        this.config = config;
+        this.loops = new EventLoopGroup(config.getIoThreads(), "xia-client", config.getBufferPool());
+        loops.setReadBufferSize(config.getReadBufferSize());
+        if (config.getIdentity() != null) {
+            // 握手未在连接超时内完成的连接被关闭，排队的请求随之失败
+            loops.setConnectionTimeouts(0, config.getConnectTimeoutMillis(), 0, TimeUnit.MILLISECONDS);
+        }
+        loops.start();
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "xia-client-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, config.getIdleTimeoutMillis() / 2);
+        reaper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 向 {@code peer} 发送一个请求，返回其响应体
+     * <p>
+     * 对端处理失败时以 {@link io.junix.xia.rpc.RemoteException} 异常完成，
+     * 连接失败、连接断开或超时时以相应的 {@link IOException} 或 {@link java.util.concurrent.TimeoutException} 异常完成，
+     * {@code peer} 是未解析的地址时立即以 {@link UnknownHostException} 异常完成。
+     */
+    public CompletableFuture<byte[]> request(SocketAddress peer, byte[] body) {
+        return request(peer, body, StreamPriority.NORMAL);
+    }
+
+    /**
+     * 以指定优先级发送请求，响应沿用同一优先级
+     * <p>
+     * 只在 {@link ClientConfig#setMultiplexed 复用}模式下生效：同一连接上优先级高的请求和响应分块插到低优先级的前面；
+     * 非复用模式下按发出顺序整帧写出，优先级被忽略。
+     */
+    public CompletableFuture<byte[]> request(SocketAddress peer, byte[] body, StreamPriority priority) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new ClosedChannelException());
+        }
+        if (peer instanceof InetSocketAddress inet && inet.isUnresolved()) {
+            // 无法连接，也不为它建立连接池
+            return CompletableFuture.failedFuture(new UnknownHostException(inet.getHostString()));
+        }
+        return pools.computeIfAbsent(peer, address -> new PeerPool(address, config, loops)).request(body, priority);
+    }
+
+    /**
+     * 当前到 {@code peer} 的连接数（含正在建立的连接）
+     */
+    public int connectionCount(SocketAddress peer) {
+        PeerPool pool = pools.get(peer);
+        return pool == null ? 0 : pool.size();
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (PeerPool pool : pools.values()) {
+            int evicted = pool.evictIdle(now);
+            if (evicted > 0) {
+                LOG.log(System.Logger.Level.DEBUG, "Evicted " + evicted + " idle connections");
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reaper.shutdownNow();
+        for (PeerPool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
+        // 事件循环退出时关闭剩余连接，未完成的请求随之以异常结束
+        loops.shutdown();
+        try {
+            if (!loops.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.log(System.Logger.Level.WARNING, "Client event loops did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
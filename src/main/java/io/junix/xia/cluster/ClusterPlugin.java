@@ -0,0 +1,51 @@
+package io.junix.xia.cluster;
+
+import io.junix.xia.plugin.RouteRegistry;
+import io.junix.xia.plugin.ServicePlugin;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 内置插件，在 {@link #ROUTE} 上接收成员协议消息并交给 {@link Membership}
+ *
+ * @author wulogn
+ */
+public class ClusterPlugin implements ServicePlugin {
+
+    public static final String ROUTE = "xia.cluster.gossip";
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Membership membership;
+
+    public ClusterPlugin(Membership membership) {
+        this.membership = membership;
+    }
+
+    @Override
+    public String name() {
+        return "xia-cluster";
+    }
+
+    @Override
+    public void register(RouteRegistry routes) {
+        routes.route(ROUTE, (connection, request) -> {
+            byte[] message = new byte[request.remaining()];
+            request.get(message);
+            membership.receive(message, source(connection.remoteAddress()));
+            return CompletableFuture.completedFuture(EMPTY);
+        });
+    }
+
+    /**
+     * 以对端 IP 作为限速的来源，同一主机上的多个端口共享配额
+     */
+    private static String source(SocketAddress address) {
+        if (address instanceof InetSocketAddress inet && inet.getAddress() != null) {
+            return inet.getAddress().getHostAddress();
+        }
+        return String.valueOf(address);
+    }
+}
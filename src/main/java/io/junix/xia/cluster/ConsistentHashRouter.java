@@ -0,0 +1,142 @@
+package io.junix.xia.cluster;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一致性哈希请求路由：带虚拟节点的哈希环，并可按有界负载分配请求
+ * <p>
+ * 环以写时复制的方式更新：增删节点在锁内生成新的 {@link HashRing} 并以 volatile 写发布，
+ * 查找只读取当前环并二分搜索，O(log n) 且不加锁。节点变化时只有新节点接管（或离开节点原有）的区间内的键改变归属，
+ * 比例约为 1/n。
+ * <p>
+ * {@link #route} 返回键的固定归属节点，适合按键分片的状态；{@link #acquire} 实现有界负载的一致性哈希：
+ * 每个节点同时承担的请求数不超过 {@code ceil((1 + ε) * 平均负载)}，
+ * 归属节点已满时沿环顺时针交给下一个未满的节点，热点键因此被分摊，而负载不高时仍落在固定节点上。
+ * <p>
+ * 作为 {@link MembershipListener} 注册到 {@link Membership} 后随成员变化自动增删节点：
+ * 成员变为 ALIVE 时加入，DEAD 或 LEFT 时移除，SUSPECT 期间保留。本节点需另行调用 {@link #addNode}。
+ *
+ * @author wulogn
+ */
+public class ConsistentHashRouter implements MembershipListener {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    public static final double DEFAULT_LOAD_EPSILON = 0.25;
+
+    private final int virtualNodes;
+    private final double loadEpsilon;
+    private final LongAdder inFlight = new LongAdder();
+    private volatile HashRing ring = HashRing.EMPTY;
+
+    public ConsistentHashRouter() {
+        this(DEFAULT_VIRTUAL_NODES, DEFAULT_LOAD_EPSILON);
+    }
+
+    /**
+     * @param virtualNodes 每个节点在环上的虚拟节点数，越多分布越均匀，环越大
+     * @param loadEpsilon  有界负载的松弛系数 ε，节点容量为平均负载的 {@code 1 + ε} 倍
+     */
+    public ConsistentHashRouter(int virtualNodes, double loadEpsilon) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        if (!(loadEpsilon > 0)) {
+            throw new IllegalArgumentException("loadEpsilon must be positive: " + loadEpsilon);
+        }
+        this.virtualNodes = virtualNodes;
+        this.loadEpsilon = loadEpsilon;
+    }
+
+    /**
+     * 加入节点，已存在同一标识的节点时不做任何事
+     *
+     * @return 是否加入
+     */
+    public synchronized boolean addNode(String id, InetSocketAddress address) {
+        if (ring.node(id) != null) {
+            return false;
+        }
+        ring = ring.withNode(new RouteNode(id, address), virtualNodes);
+        return true;
+    }
+
+    /**
+     * 移除节点，已分配给它的请求仍须 {@link #release}
+     *
+     * @return 是否存在该节点
+     */
+    public synchronized boolean removeNode(String id) {
+        RouteNode node = ring.node(id);
+        if (node == null) {
+            return false;
+        }
+        ring = ring.withoutNode(node);
+        return true;
+    }
+
+    public List<RouteNode> nodes() {
+        return ring.nodes();
+    }
+
+    /**
+     * 键的归属节点，环为空时返回 {@code null}
+     */
+    public RouteNode route(byte[] key) {
+        HashRing current = ring;
+        int index = current.indexOf(HashRing.hash(key));
+        return index < 0 ? null : current.ownerAt(index);
+    }
+
+    public RouteNode route(String key) {
+        return route(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 按有界负载为键选择节点并计入其负载，请求完成后必须调用 {@link #release}；环为空时返回 {@code null}
+     * <p>
+     * 容量按调用时的总负载计算，并发分配可能使个别节点短暂超出一个请求。
+     */
+    public RouteNode acquire(byte[] key) {
+        HashRing current = ring;
+        int index = current.indexOf(HashRing.hash(key));
+        if (index < 0) {
+            return null;
+        }
+        int capacity = (int) Math.ceil((1 + loadEpsilon) * (inFlight.sum() + 1) / current.nodeCount());
+        int size = current.size();
+        for (int i = 0; i < size; i++) {
+            RouteNode node = current.ownerAt((index + i) % size);
+            if (node.tryAcquire(capacity)) {
+                inFlight.increment();
+                return node;
+            }
+        }
+        // 并发释放和分配交错时可能全部判满，退回归属节点
+        RouteNode owner = current.ownerAt(index);
+        owner.forceAcquire();
+        inFlight.increment();
+        return owner;
+    }
+
+    public RouteNode acquire(String key) {
+        return acquire(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void release(RouteNode node) {
+        node.release();
+        inFlight.decrement();
+    }
+
+    @Override
+    public void onChange(Member member, MemberState previous) {
+        if (member.state() == MemberState.ALIVE && (previous == null || !previous.isActive())) {
+            addNode(member.id(), member.address());
+        } else if (!member.state().isActive()) {
+            removeNode(member.id());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.junix.xia.cluster;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 待捎带的更新：每条更新最多发送 {@code limit} 次，每次优先选取发送次数最少的更新
+ * <p>
+ * 同一成员只保留最新的一条，旧更新被替换时发送计数清零。
+ * 非线程安全，由 {@link Membership} 在锁内使用。
+ *
+ * @author wulogn
+ */
+final class DisseminationQueue {
+
+    private static final Comparator<Pending> BY_TRANSMISSIONS =
+            Comparator.comparingInt((Pending pending) -> pending.transmissions).thenComparingLong(pending -> pending.order);
+
+    private final Map<ByteBuffer, Pending> pending = new HashMap<>();
+    private long order;
+
+    void add(MembershipUpdate update) {
+        pending.put(ByteBuffer.wrap(update.subject()), new Pending(update, order++));
+    }
+
+    /**
+     * 取出至多 {@code max} 条更新并计一次发送，达到 {@code limit} 次的更新移出队列
+     */
+    List<MembershipUpdate> take(int max, int limit) {
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<Pending> candidates = new ArrayList<>(pending.values());
+        candidates.sort(BY_TRANSMISSIONS);
+        int n = Math.min(max, candidates.size());
+        List<MembershipUpdate> updates = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Pending candidate = candidates.get(i);
+            updates.add(candidate.update);
+            if (++candidate.transmissions >= limit) {
+                pending.remove(ByteBuffer.wrap(candidate.update.subject()));
+            }
+        }
+        return updates;
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    private static final class Pending {
+
+        final MembershipUpdate update;
+        final long order;
+        int transmissions;
+
+        Pending(MembershipUpdate update, long order) {
+            this.update = update;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.junix.xia.cluster;
+
+import io.junix.xia.message.FieldDecoder;
+import io.junix.xia.message.MalformedMessageException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.junix.xia.message.FieldEncoder.*;
+import static io.junix.xia.message.WireFormat.LENGTH_DELIMITED;
+import static io.junix.xia.message.WireFormat.fieldNumber;
+
+/**
+ * 成员协议消息
+ * <pre>
+ * message Gossip {
+ *   int32 type = 1;
+ *   uint64 sequence = 2;
+ *   bytes sender = 3;
+ *   string sender_address = 4;
+ *   bytes target = 5;           // PING_REQ 的探测对象；经中转的 ACK 中为被确认的成员
+ *   string target_address = 6;  // 仅 PING_REQ
+ *   repeated Update updates = 7;
+ *   bool introduce = 8;         // 接收方不认识发送方，请求对方发来自己的 ALIVE
+ * }
+ * </pre>
+ * 消息本身不签名：伪造的 PING/ACK 至多推迟一次怀疑，而改变成员视图的只有各自签名的 {@link MembershipUpdate}。
+ *
+ * @author wulogn
+ */
+record GossipMessage(int type, long sequence, byte[] sender, String senderAddress,
+                     byte[] target, String targetAddress, List<MembershipUpdate> updates, boolean introduce) {
+
+    static final int PING = 1;
+    static final int ACK = 2;
+    static final int PING_REQ = 3;
+    /**
+     * 新成员向种子节点请求完整视图
+     */
+    static final int JOIN = 4;
+    /**
+     * 对 JOIN 的回复，携带每个已知成员最新的更新
+     */
+    static final int SYNC = 5;
+
+    byte[] encode() {
+        byte[] senderAddressBytes = senderAddress.getBytes(StandardCharsets.UTF_8);
+        byte[] targetAddressBytes = targetAddress == null ? null : targetAddress.getBytes(StandardCharsets.UTF_8);
+        int size = sizeOfInt32(1, type) + sizeOfBytes(3, sender) + sizeOfBytes(4, senderAddressBytes);
+        if (sequence != 0) {
+            size += sizeOfUInt64(2, sequence);
+        }
+        if (target != null) {
+            size += sizeOfBytes(5, target);
+        }
+        if (targetAddressBytes != null) {
+            size += sizeOfBytes(6, targetAddressBytes);
+        }
+        for (MembershipUpdate update : updates) {
+            size += sizeOfLengthDelimited(7, update.serializedSize());
+        }
+        if (introduce) {
+            size += sizeOfBool(8);
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        writeInt32(out, 1, type);
+        if (sequence != 0) {
+            writeUInt64(out, 2, sequence);
+        }
+        writeBytes(out, 3, sender);
+        writeBytes(out, 4, senderAddressBytes);
+        if (target != null) {
+            writeBytes(out, 5, target);
+        }
+        if (targetAddressBytes != null) {
+            writeBytes(out, 6, targetAddressBytes);
+        }
+        for (MembershipUpdate update : updates) {
+            writeTag(out, 7, LENGTH_DELIMITED);
+            writeVarint64(out, update.serializedSize());
+            update.writeTo(out);
+        }
+        if (introduce) {
+            writeBool(out, 8, true);
+        }
+        return out.array();
+    }
+
+    static GossipMessage decode(ByteBuffer in) throws MalformedMessageException {
+        int type = 0;
+        long sequence = 0;
+        byte[] sender = null;
+        String senderAddress = null;
+        byte[] target = null;
+        String targetAddress = null;
+        List<MembershipUpdate> updates = new ArrayList<>();
+        boolean introduce = false;
+        int tag;
+        while ((tag = FieldDecoder.readTag(in)) != 0) {
+            switch (fieldNumber(tag)) {
+                case 1 -> type = FieldDecoder.readInt32(in);
+                case 2 -> sequence = FieldDecoder.readUInt64(in);
+                case 3 -> sender = FieldDecoder.readBytes(in);
+                case 4 -> senderAddress = new String(FieldDecoder.readBytes(in), StandardCharsets.UTF_8);
+                case 5 -> target = FieldDecoder.readBytes(in);
+                case 6 -> targetAddress = new String(FieldDecoder.readBytes(in), StandardCharsets.UTF_8);
+                case 7 -> {
+                    int length = FieldDecoder.readLength(in);
+                    int limit = in.limit();
+                    in.limit(in.position() + length);
+                    try {
+                        updates.add(MembershipUpdate.decode(in));
+                    } finally {
+                        in.limit(limit);
+                    }
+                }
+                case 8 -> introduce = FieldDecoder.readBool(in);
+                default -> FieldDecoder.skipField(in, tag);
+            }
+        }
+        if (type < PING || type > SYNC || sender == null || senderAddress == null) {
+            throw new MalformedMessageException("Malformed gossip message of type " + type);
+        }
+        if (type == PING_REQ && (target == null || targetAddress == null)) {
+            throw new MalformedMessageException("Indirect probe without target");
+        }
+        return new GossipMessage(type, sequence, sender, senderAddress, target, targetAddress, updates, introduce);
+    }
+}
@@ -0,0 +1,18 @@
+package io.junix.xia.cluster;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 单向投递成员协议消息，投递失败时静默丢弃，由协议自身的超时处理
+ * <p>
+ * 接收端把收到的字节交给 {@link Membership#receive(byte[])}。
+ *
+ * @author wulogn
+ */
+public interface GossipTransport {
+
+    /**
+     * 发送一条消息，不得阻塞调用线程；{@code message} 交给实现后不再被修改
+     */
+    void send(InetSocketAddress to, byte[] message);
+}
@@ -0,0 +1,150 @@
+package io.junix.xia.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 不可变的哈希环：按哈希值排序的虚拟节点，查找为二分搜索
+ * <p>
+ * 增删节点生成新环：只插入或移除该节点自己的虚拟节点，其余虚拟节点的相对顺序不变，
+ * 因此只有新节点接管的区间（或被移除节点原有的区间）内的键改变归属。
+ *
+ * @author wulogn
+ */
+final class HashRing {
+
+    static final HashRing EMPTY = new HashRing(new long[0], new RouteNode[0], new RouteNode[0]);
+
+    private final long[] points;
+    private final RouteNode[] owners;
+    private final RouteNode[] nodes;
+
+    private HashRing(long[] points, RouteNode[] owners, RouteNode[] nodes) {
+        this.points = points;
+        this.owners = owners;
+        this.nodes = nodes;
+    }
+
+    int size() {
+        return points.length;
+    }
+
+    int nodeCount() {
+        return nodes.length;
+    }
+
+    List<RouteNode> nodes() {
+        return List.of(nodes);
+    }
+
+    RouteNode node(String id) {
+        for (RouteNode node : nodes) {
+            if (node.id().equals(id)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 顺时针方向第一个不小于 {@code hash} 的虚拟节点的下标，越过末尾时回到 0；环为空时返回 -1
+     */
+    int indexOf(long hash) {
+        if (points.length == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = points.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (points[mid] < hash) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low == points.length ? 0 : low;
+    }
+
+    RouteNode ownerAt(int index) {
+        return owners[index];
+    }
+
+    /**
+     * 与已排序的虚拟节点数组归并，O(总虚拟节点数)
+     */
+    HashRing withNode(RouteNode node, int virtualNodes) {
+        long[] added = new long[virtualNodes];
+        long base = hash(node.id().getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < virtualNodes; i++) {
+            added[i] = mix(base + (i + 1) * 0x9E3779B97F4A7C15L);
+        }
+        Arrays.sort(added);
+        long[] mergedPoints = new long[points.length + virtualNodes];
+        RouteNode[] mergedOwners = new RouteNode[mergedPoints.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < mergedPoints.length; k++) {
+            // 哈希值相同时按节点标识排序，使结果与增删顺序无关
+            if (j == virtualNodes || i < points.length && (points[i] < added[j]
+                    || points[i] == added[j] && owners[i].id().compareTo(node.id()) < 0)) {
+                mergedPoints[k] = points[i];
+                mergedOwners[k] = owners[i++];
+            } else {
+                mergedPoints[k] = added[j++];
+                mergedOwners[k] = node;
+            }
+        }
+        RouteNode[] mergedNodes = Arrays.copyOf(nodes, nodes.length + 1);
+        mergedNodes[nodes.length] = node;
+        return new HashRing(mergedPoints, mergedOwners, mergedNodes);
+    }
+
+    HashRing withoutNode(RouteNode node) {
+        int removed = 0;
+        for (RouteNode owner : owners) {
+            if (owner == node) {
+                removed++;
+            }
+        }
+        long[] remainingPoints = new long[points.length - removed];
+        RouteNode[] remainingOwners = new RouteNode[remainingPoints.length];
+        int k = 0;
+        for (int i = 0; i < points.length; i++) {
+            if (owners[i] != node) {
+                remainingPoints[k] = points[i];
+                remainingOwners[k++] = owners[i];
+            }
+        }
+        RouteNode[] remainingNodes = new RouteNode[nodes.length - 1];
+        k = 0;
+        for (RouteNode existing : nodes) {
+            if (existing != node) {
+                remainingNodes[k++] = existing;
+            }
+        }
+        return new HashRing(remainingPoints, remainingOwners, remainingNodes);
+    }
+
+    /**
+     * 64 位 FNV-1a，再经 MurmurHash3 的终结混合使高低位都均匀分布
+     */
+    static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
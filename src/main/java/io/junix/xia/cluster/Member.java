@@ -0,0 +1,15 @@
+package io.junix.xia.cluster;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 成员视图快照
+ *
+ * @param id          公钥指纹的十六进制形式
+ * @param address     成员的 RPC 监听地址
+ * @param state       当前已知状态
+ * @param incarnation 成员自己维护的版本号，只有成员本人能够增大
+ * @author wulogn
+ */
+public record Member(String id, InetSocketAddress address, MemberState state, long incarnation) {
+}
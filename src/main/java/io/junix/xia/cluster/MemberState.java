@@ -0,0 +1,44 @@
+package io.junix.xia.cluster;
+
+/**
+ * 成员状态，线上以 {@link #code()} 表示
+ *
+ * @author wulogn
+ */
+public enum MemberState {
+
+    ALIVE(1),
+    /**
+     * 探测失败，等待怀疑超时或成员以更高的 incarnation 反驳
+     */
+    SUSPECT(2),
+    DEAD(3),
+    /**
+     * 成员主动离开，与 {@link #DEAD} 一样不再被探测
+     */
+    LEFT(4);
+
+    private final int code;
+
+    MemberState(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public boolean isActive() {
+        return this == ALIVE || this == SUSPECT;
+    }
+
+    static MemberState fromCode(int code) {
+        return switch (code) {
+            case 1 -> ALIVE;
+            case 2 -> SUSPECT;
+            case 3 -> DEAD;
+            case 4 -> LEFT;
+            default -> null;
+        };
+    }
+}
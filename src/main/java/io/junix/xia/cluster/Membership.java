@@ -0,0 +1,723 @@
+package io.junix.xia.cluster;
+
+import io.junix.xia.enc.NodeIdentity;
+import io.junix.xia.enc.PeerKeyCache;
+import io.junix.xia.limit.PeerRateLimiter;
+import io.junix.xia.message.MalformedMessageException;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * SWIM 成员协议
+ * <p>
+ * 每个协议周期按随机轮转的顺序直接探测一个成员；{@code pingTimeout} 内未确认时委托 k 个成员间接探测，
+ * 周期结束仍未确认则将其标记为 SUSPECT。被怀疑的成员过了超时下限且 Phi 累积检测器的 phi 超过阈值，
+ * 或到达超时上限时判定 DEAD；在此之前成员可以用更大的 incarnation 反驳。
+ * 下限随成员数按对数增长，phi 使最近仍有消息往来的成员获得更长的反驳时间。
+ * <p>
+ * 状态更新不单独发送，而是捎带在探测消息上，每条更新发送 {@code λ·log(n)} 次。
+ * 每个节点每周期发送的消息数和捎带的更新数都有常数上限，因此单节点带宽不随集群规模线性增长，
+ * 只有新成员加入时向种子节点拉取一次完整视图。传播偶尔遗漏的成员在它探测本节点时补齐：
+ * 对不认识的发送方，确认消息请求其发来自己的 ALIVE；对已判定死亡的发送方，确认消息附上其死亡消息以便反驳。
+ * <p>
+ * 成员以公钥指纹标识，每条更新都由其来源签名：ALIVE 和 LEFT 只接受成员本人的签名，
+ * SUSPECT 和 DEAD 只接受已知成员的签名。只有会改变本地视图的更新才验签，重复的捎带不产生验签开销。
+ * <p>
+ * 线程安全：{@link #tick()} 由定时线程或模拟器驱动，{@link #receive(byte[])} 可在任意线程调用。
+ *
+ * @author wulogn
+ */
+public class Membership implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(Membership.class.getName());
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final int DETECTOR_WINDOW = 32;
+
+    /**
+     * DEAD/LEFT 成员的墓碑保留的协议周期数，期间旧的 ALIVE 更新不会使其复活
+     */
+    private static final int TOMBSTONE_PERIODS = 300;
+
+    /**
+     * 按来源限速时同时跟踪的来源数上限
+     */
+    private static final int MAX_TRACKED_SENDERS = 65_536;
+
+    private final NodeIdentity identity;
+    private final byte[] selfId;
+    private final String selfKey;
+    private final InetSocketAddress selfAddress;
+    private final GossipTransport transport;
+    private final MembershipConfig config;
+    private final LongSupplier clock;
+    private final Predicate<PublicKey> trustPolicy;
+    private final Random random;
+    private final PeerKeyCache peerKeys = PeerKeyCache.defaultCache();
+    private final PeerRateLimiter<String> senderLimiter;
+
+    private final Map<String, MemberRecord> members = new HashMap<>();
+    private final List<MemberRecord> probeOrder = new ArrayList<>();
+    private final DisseminationQueue dissemination = new DisseminationQueue();
+    private final Map<Long, Relay> relays = new HashMap<>();
+    private final List<MembershipListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<InetSocketAddress> seeds = new ArrayList<>();
+
+    private int probeIndex;
+    private Probe probe;
+    private long periodStart;
+    private long sequence;
+    private long incarnation;
+    private MembershipUpdate selfUpdate;
+    private boolean left;
+
+    private long messagesSent;
+    private long bytesSent;
+    private long rejectedUpdates;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 使用单调时钟，接受任何合法公钥的成员
+     */
+    public Membership(NodeIdentity identity, InetSocketAddress address, GossipTransport transport,
+                      MembershipConfig config) {
+        this(identity, address, transport, config, () -> System.nanoTime() / 1_000_000, key -> true, new Random());
+    }
+
+    /**
+     * @param clock       毫秒时钟，模拟时可使用虚拟时间
+     * @param trustPolicy 决定是否接纳持有该公钥的新成员
+     */
+    public Membership(NodeIdentity identity, InetSocketAddress address, GossipTransport transport,
+                      MembershipConfig config, LongSupplier clock, Predicate<PublicKey> trustPolicy, Random random) {
+        this.identity = identity;
+        this.selfId = PeerKeyCache.fingerprint(identity.encodedPublicKey());
+        this.selfKey = HEX.formatHex(selfId);
+        this.selfAddress = InetSocketAddress.createUnresolved(address.getHostString(), address.getPort());
+        this.transport = transport;
+        this.config = config;
+        this.clock = clock;
+        this.trustPolicy = trustPolicy;
+        this.random = random;
+        int perPeriod = config.getMaxMessagesPerPeer();
+        this.senderLimiter = perPeriod == 0 ? null : new PeerRateLimiter<>(
+                perPeriod * 1000.0 / config.getProtocolPeriodMillis(), perPeriod, MAX_TRACKED_SENDERS);
+        // 随机错开各节点的周期起点
+        this.periodStart = clock.getAsLong() - random.nextLong(config.getProtocolPeriodMillis());
+        this.selfUpdate = sign(new MembershipUpdate(MemberState.ALIVE, selfId, 0,
+                MembershipUpdate.format(selfAddress), identity.encodedPublicKey(), selfId, null));
+        dissemination.add(selfUpdate);
+    }
+
+    /**
+     * 本节点的成员标识：公钥指纹的十六进制形式
+     */
+    public String id() {
+        return selfKey;
+    }
+
+    public InetSocketAddress address() {
+        return selfAddress;
+    }
+
+    public synchronized long incarnation() {
+        return incarnation;
+    }
+
+    public void addListener(MembershipListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 向种子节点请求完整视图；之后本节点看不到任何活跃成员时，每个周期重新向种子节点请求
+     */
+    public synchronized void join(Collection<InetSocketAddress> seedAddresses) {
+        for (InetSocketAddress seed : seedAddresses) {
+            InetSocketAddress address = InetSocketAddress.createUnresolved(seed.getHostString(), seed.getPort());
+            if (!address.equals(selfAddress) && !seeds.contains(address)) {
+                seeds.add(address);
+            }
+        }
+        requestSync();
+    }
+
+    /**
+     * 推进协议：发起间接探测、结束协议周期、检查怀疑超时；应以明显短于 {@code pingTimeout} 的间隔调用
+     */
+    public synchronized void tick() {
+        if (left) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (probe != null && !probe.acked && !probe.indirect && now - probe.startedAt >= config.getPingTimeoutMillis()) {
+            probe.indirect = true;
+            probeIndirectly(probe);
+        }
+        long period = config.getProtocolPeriodMillis();
+        if (now - periodStart >= period) {
+            if (probe != null && !probe.acked && probe.target.state == MemberState.ALIVE) {
+                suspect(probe.target, now);
+            }
+            probe = null;
+            relays.values().removeIf(relay -> now - relay.startedAt >= period);
+            periodStart = now;
+            pruneTombstones(now);
+            if (probeOrder.isEmpty() && !seeds.isEmpty()) {
+                requestSync();
+            }
+            MemberRecord target = nextProbeTarget();
+            if (target != null) {
+                probe = new Probe(target, nextSequence(), now);
+                send(target.address, GossipMessage.PING, probe.sequence, null, null, piggyback());
+            }
+        }
+        checkSuspicions(now);
+    }
+
+    /**
+     * 处理一条来源可信、不受限速的消息，例如进程内投递，见 {@link #receive(byte[], String)}
+     */
+    public void receive(byte[] message) {
+        receive(message, null);
+    }
+
+    /**
+     * 处理一条收到的消息，格式错误的消息被丢弃
+     * <p>
+     * 同一来源超出 {@link MembershipConfig#getMaxMessagesPerPeer()} 的消息在取锁和验签之前丢弃，
+     * 单个对端的洪泛不会占满验签开销和成员表的锁。限速按传输层的来源而不是消息中的发送方指纹计，
+     * 指纹此时尚未验证，按指纹计会让冒名者耗尽被冒名者的配额，使其真实消息被丢弃而遭误判死亡。
+     * 共用同一出口地址的成员共享配额。
+     *
+     * @param source 传输层来源，通常是对端 IP；{@code null} 表示来源可信，不限速
+     */
+    public void receive(byte[] message, String source) {
+        GossipMessage gossip;
+        InetSocketAddress replyTo;
+        try {
+            gossip = GossipMessage.decode(ByteBuffer.wrap(message));
+            replyTo = MembershipUpdate.parse(gossip.senderAddress());
+        } catch (MalformedMessageException e) {
+            LOG.log(System.Logger.Level.DEBUG, "Dropped malformed gossip message", e);
+            return;
+        }
+        if (senderLimiter != null && source != null && !senderLimiter.tryAcquire(source,
+                TimeUnit.MILLISECONDS.toNanos(clock.getAsLong()))) {
+            return;
+        }
+        synchronized (this) {
+            if (!left) {
+                handle(gossip, replyTo);
+            }
+        }
+    }
+
+    /**
+     * 广播本节点离开集群并停止参与协议
+     */
+    public synchronized void leave() {
+        if (left) {
+            return;
+        }
+        MembershipUpdate leave = sign(new MembershipUpdate(MemberState.LEFT, selfId, incarnation, null, null,
+                selfId, null));
+        List<MemberRecord> targets = randomMembers(retransmitLimit(), null);
+        for (MemberRecord target : targets) {
+            send(target.address, GossipMessage.PING, nextSequence(), null, null, List.of(leave));
+        }
+        left = true;
+    }
+
+    /**
+     * 已知的其他成员，包括 DEAD/LEFT 墓碑
+     */
+    public synchronized List<Member> members() {
+        List<Member> snapshot = new ArrayList<>(members.size());
+        for (MemberRecord record : members.values()) {
+            snapshot.add(record.snapshot());
+        }
+        return snapshot;
+    }
+
+    /**
+     * 处于 ALIVE 或 SUSPECT 状态的其他成员
+     */
+    public synchronized List<Member> activeMembers() {
+        List<Member> snapshot = new ArrayList<>(probeOrder.size());
+        for (MemberRecord record : probeOrder) {
+            snapshot.add(record.snapshot());
+        }
+        return snapshot;
+    }
+
+    public synchronized Member member(String id) {
+        MemberRecord record = members.get(id);
+        return record == null ? null : record.snapshot();
+    }
+
+    /**
+     * 成员的 X.509 编码公钥，未知成员返回 {@code null}
+     */
+    public synchronized byte[] publicKey(String id) {
+        MemberRecord record = members.get(id);
+        return record == null || record.publicKey == null ? null : record.publicKey.clone();
+    }
+
+    public synchronized long messagesSent() {
+        return messagesSent;
+    }
+
+    public synchronized long bytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * 因签名无效、签名者未知或公钥不受信任而丢弃的更新数
+     */
+    public synchronized long rejectedUpdates() {
+        return rejectedUpdates;
+    }
+
+    /**
+     * 因来源超出速率而丢弃的消息数
+     */
+    public long throttledMessages() {
+        return senderLimiter == null ? 0 : senderLimiter.rejectedCount();
+    }
+
+    /**
+     * 以 {@code pingTimeout} 的四分之一为间隔在后台线程中驱动 {@link #tick()}
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            throw new IllegalStateException("Membership already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "xia-membership");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, Math.min(config.getPingTimeoutMillis(), config.getProtocolPeriodMillis()) / 4);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "Membership protocol tick failed", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 离开集群并停止后台线程
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            leave();
+            executor = scheduler;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(GossipMessage gossip, InetSocketAddress replyTo) {
+        long now = clock.getAsLong();
+        boolean rumorAboutSelf = false;
+        for (MembershipUpdate update : gossip.updates()) {
+            if (Arrays.equals(update.subject(), selfId)) {
+                rumorAboutSelf |= update.state() != MemberState.ALIVE;
+                refute(update);
+            } else {
+                applyRemote(update, now);
+            }
+        }
+        MemberRecord sender = members.get(HEX.formatHex(gossip.sender()));
+        if (sender != null && sender.state.isActive()) {
+            sender.detector.heartbeat(now);
+        }
+        // 发送方不认识本节点，或仍持有关于本节点的过时怀疑/死亡消息（其 incarnation 可能低于当前值，
+        // 不会触发反驳，也不会再被其他成员纠正），直接发给它本节点当前的 ALIVE
+        if (gossip.introduce() || rumorAboutSelf) {
+            send(replyTo, GossipMessage.SYNC, 0, null, null, List.of(selfUpdate), false);
+        }
+        switch (gossip.type()) {
+            case GossipMessage.PING -> {
+                List<MembershipUpdate> updates = piggyback();
+                if (sender != null && sender.state == MemberState.DEAD) {
+                    updates = new ArrayList<>(updates);
+                    updates.add(sender.update);
+                }
+                send(replyTo, GossipMessage.ACK, gossip.sequence(), null, null, updates, sender == null);
+            }
+            case GossipMessage.ACK -> acknowledge(gossip, now);
+            case GossipMessage.PING_REQ -> {
+                InetSocketAddress target;
+                try {
+                    target = MembershipUpdate.parse(gossip.targetAddress());
+                } catch (MalformedMessageException e) {
+                    return;
+                }
+                long relaySequence = nextSequence();
+                relays.put(relaySequence, new Relay(replyTo, gossip.sequence(), gossip.target(), now));
+                send(target, GossipMessage.PING, relaySequence, null, null, piggyback());
+            }
+            case GossipMessage.JOIN -> send(replyTo, GossipMessage.SYNC, 0, null, null, fullState());
+            default -> {
+                // SYNC 携带的更新已在上面处理
+            }
+        }
+    }
+
+    private void acknowledge(GossipMessage ack, long now) {
+        byte[] acked = ack.target() != null ? ack.target() : ack.sender();
+        if (probe != null && ack.sequence() == probe.sequence) {
+            if (Arrays.equals(acked, probe.target.id)) {
+                probe.acked = true;
+                probe.target.detector.heartbeat(now);
+            }
+            return;
+        }
+        Relay relay = relays.get(ack.sequence());
+        if (relay != null && Arrays.equals(acked, relay.target)) {
+            relays.remove(ack.sequence());
+            send(relay.requester, GossipMessage.ACK, relay.sequence, relay.target, null, piggyback());
+        }
+    }
+
+    private void probeIndirectly(Probe probe) {
+        String targetAddress = MembershipUpdate.format(probe.target.address);
+        for (MemberRecord relay : randomMembers(config.getIndirectProbes(), probe.target)) {
+            send(relay.address, GossipMessage.PING_REQ, probe.sequence, probe.target.id, targetAddress, piggyback());
+        }
+    }
+
+    private void requestSync() {
+        for (InetSocketAddress seed : seeds) {
+            send(seed, GossipMessage.JOIN, 0, null, null, List.of(selfUpdate));
+        }
+    }
+
+    private void applyRemote(MembershipUpdate update, long now) {
+        MemberRecord record = members.get(HEX.formatHex(update.subject()));
+        if (!supersedes(update, record)) {
+            return;
+        }
+        if (!verify(update, record)) {
+            rejectedUpdates++;
+            LOG.log(System.Logger.Level.DEBUG, "Rejected " + update.state() + " update about "
+                    + shortId(update.subject()) + " signed by " + shortId(update.origin()));
+            return;
+        }
+        if (apply(update, record, now)) {
+            dissemination.add(update);
+        }
+    }
+
+    /**
+     * 关于本节点的怀疑或死亡消息（以及来自本节点前一次运行的旧状态）以更大的 incarnation 反驳。
+     * 不验签：伪造的怀疑只会让本节点多广播一次 ALIVE。
+     */
+    private void refute(MembershipUpdate update) {
+        boolean stale = update.incarnation() < incarnation
+                || update.incarnation() == incarnation && update.state() == MemberState.ALIVE;
+        if (stale) {
+            return;
+        }
+        incarnation = update.incarnation() + 1;
+        selfUpdate = sign(new MembershipUpdate(MemberState.ALIVE, selfId, incarnation,
+                MembershipUpdate.format(selfAddress), identity.encodedPublicKey(), selfId, null));
+        dissemination.add(selfUpdate);
+        LOG.log(System.Logger.Level.DEBUG, "Refuted " + update.state() + " about self by " + shortId(update.origin())
+                + " with incarnation " + incarnation);
+    }
+
+    /**
+     * 更新是否带来新信息：更大的 incarnation 优先，同一 incarnation 下 DEAD/LEFT 优先于 SUSPECT 优先于 ALIVE
+     */
+    private static boolean supersedes(MembershipUpdate update, MemberRecord record) {
+        if (record == null) {
+            return update.state() == MemberState.ALIVE;
+        }
+        return switch (update.state()) {
+            case ALIVE -> update.incarnation() > record.incarnation;
+            case SUSPECT -> record.state == MemberState.ALIVE && update.incarnation() >= record.incarnation
+                    || record.state == MemberState.SUSPECT && update.incarnation() > record.incarnation;
+            case DEAD, LEFT -> record.state.isActive() && update.incarnation() >= record.incarnation;
+        };
+    }
+
+    private boolean verify(MembershipUpdate update, MemberRecord record) {
+        byte[] encodedKey;
+        byte[] signer;
+        if (update.state() == MemberState.ALIVE || update.state() == MemberState.LEFT) {
+            if (!Arrays.equals(update.origin(), update.subject())) {
+                return false;
+            }
+            encodedKey = update.state() == MemberState.ALIVE ? update.publicKey() : record.publicKey;
+            signer = update.subject();
+        } else {
+            // 签名者尚未知时丢弃，该更新还会从其他成员处再次到达
+            MemberRecord origin = members.get(HEX.formatHex(update.origin()));
+            if (origin == null) {
+                return false;
+            }
+            encodedKey = origin.publicKey;
+            signer = update.origin();
+        }
+        PeerKeyCache.Entry key;
+        try {
+            key = peerKeys.resolve(encodedKey);
+        } catch (InvalidKeyException e) {
+            return false;
+        }
+        if (!Arrays.equals(key.fingerprint(), signer)) {
+            return false;
+        }
+        if (update.state() == MemberState.ALIVE && record == null && !trustPolicy.test(key.publicKey())) {
+            return false;
+        }
+        return key.verifier().verify(update.signedContent(), update.signature());
+    }
+
+    /**
+     * @return 本地视图是否改变
+     */
+    private boolean apply(MembershipUpdate update, MemberRecord record, long now) {
+        MemberState previous = record == null ? null : record.state;
+        if (update.state() == MemberState.ALIVE) {
+            InetSocketAddress address;
+            try {
+                address = MembershipUpdate.parse(update.address());
+            } catch (MalformedMessageException e) {
+                return false;
+            }
+            if (record == null) {
+                record = new MemberRecord(update.subject());
+                members.put(HEX.formatHex(update.subject()), record);
+            }
+            record.address = address;
+            record.publicKey = update.publicKey();
+            record.aliveUpdate = update;
+        }
+        record.state = update.state();
+        record.incarnation = update.incarnation();
+        record.update = update;
+        record.changedAt = now;
+        if (update.state() == MemberState.SUSPECT) {
+            record.suspectedAt = now;
+        }
+        boolean wasActive = previous != null && previous.isActive();
+        if (!wasActive && record.state.isActive()) {
+            int index = random.nextInt(probeOrder.size() + 1);
+            probeOrder.add(index, record);
+            if (index < probeIndex) {
+                probeIndex++;
+            }
+            // 新加入或复活的成员从现在起重新积累心跳历史
+            record.detector = newDetector(now);
+        } else if (wasActive && !record.state.isActive()) {
+            int index = probeOrder.indexOf(record);
+            probeOrder.remove(index);
+            if (index < probeIndex) {
+                probeIndex--;
+            }
+        }
+        if (previous != record.state) {
+            LOG.log(record.state.isActive() ? System.Logger.Level.DEBUG : System.Logger.Level.INFO,
+                    "Member " + shortId(record.id) + " at " + MembershipUpdate.format(record.address) + " is "
+                            + record.state + " (incarnation " + record.incarnation + ")");
+            Member member = record.snapshot();
+            for (MembershipListener listener : listeners) {
+                listener.onChange(member, previous);
+            }
+        }
+        return true;
+    }
+
+    private void suspect(MemberRecord record, long now) {
+        MembershipUpdate update = sign(new MembershipUpdate(MemberState.SUSPECT, record.id, record.incarnation,
+                null, null, selfId, null));
+        apply(update, record, now);
+        dissemination.add(update);
+    }
+
+    private void checkSuspicions(long now) {
+        long minTimeout = (long) (config.getSuspicionMultiplier() * Math.max(1, Math.log10(probeOrder.size() + 1))
+                * config.getProtocolPeriodMillis());
+        long maxTimeout = minTimeout * config.getSuspicionMaxFactor();
+        for (MemberRecord record : List.copyOf(probeOrder)) {
+            if (record.state != MemberState.SUSPECT) {
+                continue;
+            }
+            long elapsed = now - record.suspectedAt;
+            if (elapsed >= maxTimeout
+                    || elapsed >= minTimeout && record.detector.phi(now) >= config.getPhiThreshold()) {
+                MembershipUpdate update = sign(new MembershipUpdate(MemberState.DEAD, record.id, record.incarnation,
+                        null, null, selfId, null));
+                apply(update, record, now);
+                dissemination.add(update);
+            }
+        }
+    }
+
+    private void pruneTombstones(long now) {
+        long retention = TOMBSTONE_PERIODS * config.getProtocolPeriodMillis();
+        Iterator<MemberRecord> iterator = members.values().iterator();
+        while (iterator.hasNext()) {
+            MemberRecord record = iterator.next();
+            if (!record.state.isActive() && now - record.changedAt >= retention) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private MemberRecord nextProbeTarget() {
+        if (probeOrder.isEmpty()) {
+            return null;
+        }
+        if (probeIndex >= probeOrder.size()) {
+            Collections.shuffle(probeOrder, random);
+            probeIndex = 0;
+        }
+        return probeOrder.get(probeIndex++);
+    }
+
+    /**
+     * 随机选取至多 {@code count} 个 ALIVE 成员
+     */
+    private List<MemberRecord> randomMembers(int count, MemberRecord excluded) {
+        List<MemberRecord> candidates = new ArrayList<>(probeOrder.size());
+        for (MemberRecord record : probeOrder) {
+            if (record != excluded && record.state == MemberState.ALIVE) {
+                candidates.add(record);
+            }
+        }
+        Collections.shuffle(candidates, random);
+        return candidates.subList(0, Math.min(count, candidates.size()));
+    }
+
+    private List<MembershipUpdate> piggyback() {
+        return dissemination.take(config.getMaxPiggybackUpdates(), retransmitLimit());
+    }
+
+    private int retransmitLimit() {
+        return config.getRetransmitMultiplier() * (int) Math.ceil(Math.log10(probeOrder.size() + 2));
+    }
+
+    /**
+     * 每个已知成员最新的 ALIVE 更新及其后的状态更新，以及本节点自己的 ALIVE
+     */
+    private List<MembershipUpdate> fullState() {
+        List<MembershipUpdate> updates = new ArrayList<>(members.size() + 1);
+        updates.add(selfUpdate);
+        for (MemberRecord record : members.values()) {
+            updates.add(record.aliveUpdate);
+            if (record.update != record.aliveUpdate) {
+                updates.add(record.update);
+            }
+        }
+        return updates;
+    }
+
+    private void send(InetSocketAddress to, int type, long sequence, byte[] target, String targetAddress,
+                      List<MembershipUpdate> updates) {
+        send(to, type, sequence, target, targetAddress, updates, false);
+    }
+
+    private void send(InetSocketAddress to, int type, long sequence, byte[] target, String targetAddress,
+                      List<MembershipUpdate> updates, boolean introduce) {
+        byte[] message = new GossipMessage(type, sequence, selfId, MembershipUpdate.format(selfAddress),
+                target, targetAddress, updates, introduce).encode();
+        messagesSent++;
+        bytesSent += message.length;
+        transport.send(to, message);
+    }
+
+    private MembershipUpdate sign(MembershipUpdate update) {
+        try {
+            return update.withSignature(identity.signer().sign(update.signedContent()));
+        } catch (SignatureException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long nextSequence() {
+        return ++sequence;
+    }
+
+    private PhiAccrualDetector newDetector(long now) {
+        long period = config.getProtocolPeriodMillis();
+        return new PhiAccrualDetector(DETECTOR_WINDOW, period, Math.max(1, period / 10), now);
+    }
+
+    private static String shortId(byte[] id) {
+        return HEX.formatHex(id, 0, Math.min(id.length, 4));
+    }
+
+    private static final class MemberRecord {
+
+        final byte[] id;
+        PhiAccrualDetector detector;
+        InetSocketAddress address;
+        byte[] publicKey;
+        MemberState state;
+        long incarnation;
+        MembershipUpdate aliveUpdate;
+        MembershipUpdate update;
+        long suspectedAt;
+        long changedAt;
+
+        MemberRecord(byte[] id) {
+            this.id = id;
+        }
+
+        Member snapshot() {
+            return new Member(HEX.formatHex(id), address, state, incarnation);
+        }
+    }
+
+    private static final class Probe {
+
+        final MemberRecord target;
+        final long sequence;
+        final long startedAt;
+        boolean acked;
+        boolean indirect;
+
+        Probe(MemberRecord target, long sequence, long startedAt) {
+            this.target = target;
+            this.sequence = sequence;
+            this.startedAt = startedAt;
+        }
+    }
+
+    /**
+     * 代为探测的请求：收到目标的确认后以请求方的序号转发
+     */
+    private record Relay(InetSocketAddress requester, long sequence, byte[] target, long startedAt) {
+    }
+}
@@ -0,0 +1,178 @@
+package io.junix.xia.cluster;
+
+/**
+ * 成员协议配置，默认值均可通过 {@code -Dxia.cluster.*} 系统属性覆盖
+ *
+ * @author wulogn
+ */
+public class MembershipConfig {
+
+    private long protocolPeriodMillis = 1000;
+    private long pingTimeoutMillis = 300;
+    private int indirectProbes = 3;
+    private int retransmitMultiplier = 4;
+    private int maxPiggybackUpdates = 8;
+    private int suspicionMultiplier = 4;
+    private int suspicionMaxFactor = 3;
+    private double phiThreshold = 8;
+    private int maxMessagesPerPeer = 20;
+
+    /**
+     * 从系统属性读取配置，未设置的项使用默认值
+     */
+    public static MembershipConfig fromSystemProperties() {
+        MembershipConfig config = new MembershipConfig();
+        config.setProtocolPeriodMillis(Long.getLong("xia.cluster.protocolPeriodMillis", config.protocolPeriodMillis));
+        config.setPingTimeoutMillis(Long.getLong("xia.cluster.pingTimeoutMillis", config.pingTimeoutMillis));
+        config.setIndirectProbes(Integer.getInteger("xia.cluster.indirectProbes", config.indirectProbes));
+        config.setRetransmitMultiplier(Integer.getInteger("xia.cluster.retransmitMultiplier",
+                config.retransmitMultiplier));
+        config.setMaxPiggybackUpdates(Integer.getInteger("xia.cluster.maxPiggybackUpdates",
+                config.maxPiggybackUpdates));
+        config.setSuspicionMultiplier(Integer.getInteger("xia.cluster.suspicionMultiplier",
+                config.suspicionMultiplier));
+        config.setSuspicionMaxFactor(Integer.getInteger("xia.cluster.suspicionMaxFactor", config.suspicionMaxFactor));
+        config.setMaxMessagesPerPeer(Integer.getInteger("xia.cluster.maxMessagesPerPeer", config.maxMessagesPerPeer));
+        String phi = System.getProperty("xia.cluster.phiThreshold");
+        if (phi != null) {
+            config.setPhiThreshold(Double.parseDouble(phi));
+        }
+        return config;
+    }
+
+    public long getProtocolPeriodMillis() {
+        return protocolPeriodMillis;
+    }
+
+    /**
+     * 协议周期，每个周期探测一个成员
+     */
+    public MembershipConfig setProtocolPeriodMillis(long protocolPeriodMillis) {
+        if (protocolPeriodMillis < 1) {
+            throw new IllegalArgumentException("protocolPeriodMillis must be positive: " + protocolPeriodMillis);
+        }
+        this.protocolPeriodMillis = protocolPeriodMillis;
+        return this;
+    }
+
+    public long getPingTimeoutMillis() {
+        return pingTimeoutMillis;
+    }
+
+    /**
+     * 直接探测未在该时间内确认时改为经其他成员间接探测，应小于协议周期
+     */
+    public MembershipConfig setPingTimeoutMillis(long pingTimeoutMillis) {
+        if (pingTimeoutMillis < 1) {
+            throw new IllegalArgumentException("pingTimeoutMillis must be positive: " + pingTimeoutMillis);
+        }
+        this.pingTimeoutMillis = pingTimeoutMillis;
+        return this;
+    }
+
+    public int getIndirectProbes() {
+        return indirectProbes;
+    }
+
+    /**
+     * 间接探测时委托的成员数
+     */
+    public MembershipConfig setIndirectProbes(int indirectProbes) {
+        if (indirectProbes < 0) {
+            throw new IllegalArgumentException("indirectProbes must not be negative: " + indirectProbes);
+        }
+        this.indirectProbes = indirectProbes;
+        return this;
+    }
+
+    public int getRetransmitMultiplier() {
+        return retransmitMultiplier;
+    }
+
+    /**
+     * 每条更新捎带发送 {@code retransmitMultiplier * ceil(log10(n + 1))} 次，n 为成员数
+     */
+    public MembershipConfig setRetransmitMultiplier(int retransmitMultiplier) {
+        if (retransmitMultiplier < 1) {
+            throw new IllegalArgumentException("retransmitMultiplier must be positive: " + retransmitMultiplier);
+        }
+        this.retransmitMultiplier = retransmitMultiplier;
+        return this;
+    }
+
+    public int getMaxPiggybackUpdates() {
+        return maxPiggybackUpdates;
+    }
+
+    /**
+     * 单条消息捎带的更新数上限，决定每个节点每周期的带宽上限
+     */
+    public MembershipConfig setMaxPiggybackUpdates(int maxPiggybackUpdates) {
+        if (maxPiggybackUpdates < 1) {
+            throw new IllegalArgumentException("maxPiggybackUpdates must be positive: " + maxPiggybackUpdates);
+        }
+        this.maxPiggybackUpdates = maxPiggybackUpdates;
+        return this;
+    }
+
+    public int getSuspicionMultiplier() {
+        return suspicionMultiplier;
+    }
+
+    /**
+     * 怀疑超时的下限为 {@code suspicionMultiplier * max(1, log10(n)) * 协议周期}
+     */
+    public MembershipConfig setSuspicionMultiplier(int suspicionMultiplier) {
+        if (suspicionMultiplier < 1) {
+            throw new IllegalArgumentException("suspicionMultiplier must be positive: " + suspicionMultiplier);
+        }
+        this.suspicionMultiplier = suspicionMultiplier;
+        return this;
+    }
+
+    public int getSuspicionMaxFactor() {
+        return suspicionMaxFactor;
+    }
+
+    /**
+     * 怀疑超时的上限为下限的该倍数，phi 一直未超过阈值时到达上限也判定死亡
+     */
+    public MembershipConfig setSuspicionMaxFactor(int suspicionMaxFactor) {
+        if (suspicionMaxFactor < 1) {
+            throw new IllegalArgumentException("suspicionMaxFactor must be positive: " + suspicionMaxFactor);
+        }
+        this.suspicionMaxFactor = suspicionMaxFactor;
+        return this;
+    }
+
+    public double getPhiThreshold() {
+        return phiThreshold;
+    }
+
+    /**
+     * 被怀疑的成员过了超时下限且 phi 超过该值时判定死亡
+     */
+    public MembershipConfig setPhiThreshold(double phiThreshold) {
+        if (!(phiThreshold > 0)) {
+            throw new IllegalArgumentException("phiThreshold must be positive: " + phiThreshold);
+        }
+        this.phiThreshold = phiThreshold;
+        return this;
+    }
+
+    public int getMaxMessagesPerPeer() {
+        return maxMessagesPerPeer;
+    }
+
+    /**
+     * 每个协议周期内最多处理同一来源地址的消息数，超出的消息在验签之前丢弃，0 表示不限制；
+     * 正常协议下每个周期来自同一成员的消息只有几条
+     */
+    public MembershipConfig setMaxMessagesPerPeer(int maxMessagesPerPeer) {
+        if (maxMessagesPerPeer < 0) {
+            throw new IllegalArgumentException("maxMessagesPerPeer must not be negative: " + maxMessagesPerPeer);
+        }
+        this.maxMessagesPerPeer = maxMessagesPerPeer;
+        return this;
+    }
+}
@@ -0,0 +1,17 @@
+package io.junix.xia.cluster;
+
+/**
+ * 成员状态变化回调，在持有 {@link Membership} 锁的线程上调用，实现不得阻塞
+ *
+ * @author wulogn
+ */
+@FunctionalInterface
+public interface MembershipListener {
+
+    /**
+     * 成员加入或状态变化
+     *
+     * @param previous 变化前的状态，新成员为 {@code null}
+     */
+    void onChange(Member member, MemberState previous);
+}
@@ -0,0 +1,137 @@
+package io.junix.xia.cluster;
+
+import io.junix.xia.message.FieldDecoder;
+import io.junix.xia.message.MalformedMessageException;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static io.junix.xia.message.FieldEncoder.*;
+import static io.junix.xia.message.WireFormat.fieldNumber;
+
+/**
+ * 经签名的成员状态更新，随协议消息捎带传播
+ * <pre>
+ * message Update {
+ *   int32 state = 1;
+ *   bytes subject = 2;      // 被描述成员的公钥指纹
+ *   uint64 incarnation = 3;
+ *   string address = 4;     // 仅 ALIVE
+ *   bytes public_key = 5;   // 仅 ALIVE，X.509 编码
+ *   bytes origin = 6;       // 签名者的公钥指纹
+ *   bytes signature = 7;
+ * }
+ * </pre>
+ * 签名覆盖域分隔前缀和字段 1～6 的编码。ALIVE 和 LEFT 只能由成员本人签名，
+ * SUSPECT 和 DEAD 由任一已知成员签名。
+ *
+ * @author wulogn
+ */
+record MembershipUpdate(MemberState state, byte[] subject, long incarnation, String address,
+                        byte[] publicKey, byte[] origin, byte[] signature) {
+
+    private static final byte[] DOMAIN = "xia-membership-v1".getBytes(StandardCharsets.US_ASCII);
+
+    MembershipUpdate withSignature(byte[] signature) {
+        return new MembershipUpdate(state, subject, incarnation, address, publicKey, origin, signature);
+    }
+
+    byte[] signedContent() {
+        ByteBuffer out = ByteBuffer.allocate(DOMAIN.length + unsignedSize());
+        out.put(DOMAIN);
+        writeUnsigned(out);
+        return out.array();
+    }
+
+    int serializedSize() {
+        return unsignedSize() + sizeOfBytes(7, signature);
+    }
+
+    void writeTo(ByteBuffer out) {
+        writeUnsigned(out);
+        writeBytes(out, 7, signature);
+    }
+
+    private int unsignedSize() {
+        int size = sizeOfInt32(1, state.code()) + sizeOfBytes(2, subject) + sizeOfBytes(6, origin);
+        if (incarnation != 0) {
+            size += sizeOfUInt64(3, incarnation);
+        }
+        if (address != null) {
+            size += sizeOfBytes(4, address.getBytes(StandardCharsets.UTF_8));
+        }
+        if (publicKey != null) {
+            size += sizeOfBytes(5, publicKey);
+        }
+        return size;
+    }
+
+    private void writeUnsigned(ByteBuffer out) {
+        writeInt32(out, 1, state.code());
+        writeBytes(out, 2, subject);
+        if (incarnation != 0) {
+            writeUInt64(out, 3, incarnation);
+        }
+        if (address != null) {
+            writeBytes(out, 4, address.getBytes(StandardCharsets.UTF_8));
+        }
+        if (publicKey != null) {
+            writeBytes(out, 5, publicKey);
+        }
+        writeBytes(out, 6, origin);
+    }
+
+    /**
+     * 解码 {@code in} 的全部剩余字节
+     */
+    static MembershipUpdate decode(ByteBuffer in) throws MalformedMessageException {
+        MemberState state = null;
+        byte[] subject = null;
+        long incarnation = 0;
+        String address = null;
+        byte[] publicKey = null;
+        byte[] origin = null;
+        byte[] signature = null;
+        int tag;
+        while ((tag = FieldDecoder.readTag(in)) != 0) {
+            switch (fieldNumber(tag)) {
+                case 1 -> state = MemberState.fromCode(FieldDecoder.readInt32(in));
+                case 2 -> subject = FieldDecoder.readBytes(in);
+                case 3 -> incarnation = FieldDecoder.readUInt64(in);
+                case 4 -> address = new String(FieldDecoder.readBytes(in), StandardCharsets.UTF_8);
+                case 5 -> publicKey = FieldDecoder.readBytes(in);
+                case 6 -> origin = FieldDecoder.readBytes(in);
+                case 7 -> signature = FieldDecoder.readBytes(in);
+                default -> FieldDecoder.skipField(in, tag);
+            }
+        }
+        if (state == null || subject == null || origin == null || signature == null) {
+            throw new MalformedMessageException("Incomplete membership update");
+        }
+        if (state == MemberState.ALIVE && (address == null || publicKey == null)) {
+            throw new MalformedMessageException("Alive update without address or key");
+        }
+        return new MembershipUpdate(state, subject, incarnation, address, publicKey, origin, signature);
+    }
+
+    static String format(InetSocketAddress address) {
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    /**
+     * 解析为未解析的地址，不在接收线程上做域名查询；发送时由传输层解析
+     */
+    static InetSocketAddress parse(String address) throws MalformedMessageException {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new MalformedMessageException("Malformed address: " + address);
+        }
+        try {
+            return InetSocketAddress.createUnresolved(address.substring(0, colon),
+                    Integer.parseInt(address.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedMessageException("Malformed address: " + address);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.junix.xia.cluster;
+
+/**
+ * Phi 累积故障检测器：按最近的心跳间隔估计正态分布，
+ * {@code phi = -log10(P(间隔 > 距上次心跳的时长))}，phi 为 1、2、3 分别对应约 10%、1%、0.1% 的误判概率
+ * <p>
+ * 成员协议中收到某成员的任何消息或对它的探测得到确认都视为一次心跳。
+ * 非线程安全，由 {@link Membership} 在锁内使用。
+ *
+ * @author wulogn
+ */
+final class PhiAccrualDetector {
+
+    private final long[] intervals;
+    private final long minStdDevMillis;
+    private int count;
+    private int next;
+    private long sum;
+    private long sumOfSquares;
+    private long lastHeartbeat;
+
+    /**
+     * @param windowSize            参与估计的最近间隔数
+     * @param initialIntervalMillis 没有历史时假定的间隔，以其一半作为初始标准差
+     * @param minStdDevMillis       标准差下限，避免心跳非常规律时 phi 陡增
+     */
+    PhiAccrualDetector(int windowSize, long initialIntervalMillis, long minStdDevMillis, long now) {
+        this.intervals = new long[windowSize];
+        this.minStdDevMillis = minStdDevMillis;
+        // 以两个偏离均值一个标准差的样本起步，使初始分布的均值和标准差符合预期
+        add(initialIntervalMillis - initialIntervalMillis / 2);
+        add(initialIntervalMillis + initialIntervalMillis / 2);
+        this.lastHeartbeat = now;
+    }
+
+    void heartbeat(long now) {
+        if (now > lastHeartbeat) {
+            add(now - lastHeartbeat);
+            lastHeartbeat = now;
+        }
+    }
+
+    long lastHeartbeat() {
+        return lastHeartbeat;
+    }
+
+    double phi(long now) {
+        double mean = (double) sum / count;
+        double variance = (double) sumOfSquares / count - mean * mean;
+        double stdDev = Math.max(Math.sqrt(Math.max(variance, 0)), minStdDevMillis);
+        double y = (now - lastHeartbeat - mean) / stdDev;
+        // 正态分布累积函数的 logistic 近似，误差小于 0.0002
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (now - lastHeartbeat > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    private void add(long interval) {
+        if (count == intervals.length) {
+            long evicted = intervals[next];
+            sum -= evicted;
+            sumOfSquares -= evicted * evicted;
+        } else {
+            count++;
+        }
+        intervals[next] = interval;
+        next = (next + 1) % intervals.length;
+        sum += interval;
+        sumOfSquares += interval * interval;
+    }
+}
@@ -0,0 +1,60 @@
+package io.junix.xia.cluster;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希环上的一个节点及其当前承担的请求数
+ *
+ * @author wulogn
+ */
+public final class RouteNode {
+
+    private final String id;
+    private final InetSocketAddress address;
+    private final AtomicInteger load = new AtomicInteger();
+
+    RouteNode(String id, InetSocketAddress address) {
+        this.id = id;
+        this.address = address;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public InetSocketAddress address() {
+        return address;
+    }
+
+    /**
+     * 经 {@link ConsistentHashRouter#acquire} 分配到本节点且尚未释放的请求数
+     */
+    public int load() {
+        return load.get();
+    }
+
+    boolean tryAcquire(int capacity) {
+        int current;
+        do {
+            current = load.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!load.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void forceAcquire() {
+        load.incrementAndGet();
+    }
+
+    void release() {
+        load.decrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return id + "@" + MembershipUpdate.format(address);
+    }
+}
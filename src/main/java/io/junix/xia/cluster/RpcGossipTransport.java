@@ -0,0 +1,134 @@
+package io.junix.xia.cluster;
+
+import io.junix.xia.client.RpcClient;
+import io.junix.xia.plugin.PluginDispatcher;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * 经 {@link RpcClient} 发送成员协议消息，对端由 {@link ClusterPlugin} 注册的路由接收
+ * <p>
+ * 消息作为单向请求发送，响应体为空；回复（ACK、SYNC）同样作为请求发回对方的监听地址。
+ * <p>
+ * 成员地址以未解析的形式保存，DNS 查询可能阻塞数秒，因此在独立的解析线程中进行，
+ * {@link #send} 只是把消息挂在解析结果上，不阻塞协议线程和事件循环线程。
+ * 解析结果缓存 {@value #RESOLVED_TTL_MILLIS} 毫秒以跟上 DNS 变化，解析失败缓存 {@value #FAILED_TTL_MILLIS} 毫秒，
+ * 期间发往该地址的消息直接丢弃；缓存最多 {@value #MAX_CACHED_ADDRESSES} 个地址。
+ *
+ * @author wulogn
+ */
+public class RpcGossipTransport implements GossipTransport {
+
+    private static final System.Logger LOG = System.getLogger(RpcGossipTransport.class.getName());
+
+    static final long RESOLVED_TTL_MILLIS = 60_000;
+
+    static final long FAILED_TTL_MILLIS = 5_000;
+
+    static final int MAX_CACHED_ADDRESSES = 1024;
+
+    private final RpcClient client;
+    private final UnaryOperator<InetSocketAddress> resolver;
+    private final Executor resolverExecutor;
+    private final Map<InetSocketAddress, CompletableFuture<Resolution>> resolved = new ConcurrentHashMap<>();
+
+    public RpcGossipTransport(RpcClient client) {
+        this(client, address -> new InetSocketAddress(address.getHostString(), address.getPort()));
+    }
+
+    /**
+     * @param resolver 阻塞解析地址，失败时返回未解析的地址
+     */
+    RpcGossipTransport(RpcClient client, UnaryOperator<InetSocketAddress> resolver) {
+        this.client = client;
+        this.resolver = resolver;
+        // 单个解析线程，空闲时退出
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "xia-gossip-resolver");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.resolverExecutor = executor;
+    }
+
+    @Override
+    public void send(InetSocketAddress to, byte[] message) {
+        if (!to.isUnresolved()) {
+            deliver(to, message);
+            return;
+        }
+        // 已缓存时在调用线程中立即发出，否则在解析完成后由解析线程发出
+        resolve(to).thenAccept(result -> deliver(result, to, message));
+    }
+
+    /**
+     * 返回缓存中未过期或正在进行的解析，否则在解析线程中重新解析
+     */
+    private CompletableFuture<Resolution> resolve(InetSocketAddress to) {
+        CompletableFuture<Resolution> cached = resolved.get(to);
+        long now = System.nanoTime();
+        if (cached != null && !isStale(cached, now)) {
+            return cached;
+        }
+        if (cached == null && resolved.size() >= MAX_CACHED_ADDRESSES) {
+            resolved.values().removeIf(entry -> isStale(entry, now));
+            if (resolved.size() >= MAX_CACHED_ADDRESSES) {
+                resolved.clear();
+            }
+        }
+        return resolved.compute(to, (address, current) -> current != null && !isStale(current, System.nanoTime())
+                ? current
+                : CompletableFuture.supplyAsync(() -> lookup(address), resolverExecutor));
+    }
+
+    private Resolution lookup(InetSocketAddress address) {
+        InetSocketAddress result;
+        try {
+            result = resolver.apply(address);
+        } catch (RuntimeException e) {
+            result = address;
+        }
+        if (result.isUnresolved()) {
+            LOG.log(System.Logger.Level.DEBUG, "Cannot resolve member address " + address);
+            return new Resolution(null, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FAILED_TTL_MILLIS));
+        }
+        return new Resolution(result, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RESOLVED_TTL_MILLIS));
+    }
+
+    private static boolean isStale(CompletableFuture<Resolution> entry, long now) {
+        Resolution resolution = entry.getNow(null);
+        return resolution != null && now - resolution.expiresAtNanos() >= 0;
+    }
+
+    private void deliver(Resolution resolution, InetSocketAddress to, byte[] message) {
+        if (resolution.address() == null) {
+            LOG.log(System.Logger.Level.DEBUG, "Dropping gossip to unresolvable member " + to);
+            return;
+        }
+        deliver(resolution.address(), message);
+    }
+
+    private void deliver(InetSocketAddress peer, byte[] message) {
+        client.request(peer, PluginDispatcher.request(ClusterPlugin.ROUTE, message)).whenComplete((response, e) -> {
+            if (e != null) {
+                LOG.log(System.Logger.Level.DEBUG, "Failed to send gossip to " + peer + ": " + e);
+            }
+        });
+    }
+
+    /**
+     * 一次解析的结果，{@code address} 为 {@code null} 表示解析失败
+     */
+    private record Resolution(InetSocketAddress address, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,17 @@
+package io.junix.xia.codec;
+
+import java.io.IOException;
+
+/**
+ * 收到的数据不符合帧格式，连接应当关闭
+ *
+ * @author wulogn
+ */
+public class CorruptedFrameException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CorruptedFrameException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,143 @@
+package io.junix.xia.codec;
+
+import io.junix.xia.buffer.BufferArena;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 变长整数长度前缀的帧解码器，每个连接一个实例，非线程安全
+ * <p>
+ * 帧格式为 {@code varint(length) | payload}。完整落在本次读缓冲中的帧直接以原缓冲交给下游，
+ * 只通过调整 position/limit 划定范围，不拷贝也不分配；跨多次读取的帧才会拷贝到从
+ * {@link BufferArena} 申请的累积缓冲中，组装完成后立即归还。
+ * <p>
+ * 交给 {@link Sink} 的缓冲仅在回调期间有效，下游如需保留数据必须自行拷贝。
+ *
+ * @author wulogn
+ */
+public class FrameDecoder {
+
+    /**
+     * 帧接收回调
+     */
+    @FunctionalInterface
+    public interface Sink {
+
+        void onFrame(ByteBuffer frame) throws Exception;
+    }
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final BufferArena arena;
+    private final int maxFrameSize;
+    private final Sink sink;
+
+    // 长度前缀可能被拆分在两次读取之间，逐字节累积
+    private int headerValue;
+    private int headerShift;
+    private int expected = -1;
+    private ByteBuffer cumulation;
+
+    public FrameDecoder(BufferArena arena, int maxFrameSize, Sink sink) {
+        this.arena = arena;
+        this.maxFrameSize = maxFrameSize;
+        this.sink = sink;
+    }
+
+    /**
+     * 解码 {@code in} 中的全部数据，返回时 {@code in} 已被完全消费
+     */
+    public void decode(ByteBuffer in) throws Exception {
+        while (in.hasRemaining()) {
+            if (expected < 0 && !readHeader(in)) {
+                return;
+            }
+            if (expected == 0) {
+                expected = -1;
+                sink.onFrame(EMPTY);
+                continue;
+            }
+            if (cumulation == null && in.remaining() >= expected) {
+                deliverSlice(in);
+                continue;
+            }
+            accumulate(in);
+        }
+    }
+
+    /**
+     * 当前是否有未组装完成的帧
+     */
+    public boolean hasPartialFrame() {
+        return expected >= 0 || headerShift > 0;
+    }
+
+    /**
+     * 归还累积缓冲，连接关闭时调用
+     */
+    public void release() {
+        if (cumulation != null) {
+            arena.release(cumulation);
+            cumulation = null;
+        }
+    }
+
+    private boolean readHeader(ByteBuffer in) throws CorruptedFrameException {
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            headerValue |= (b & 0x7F) << headerShift;
+            if (b >= 0) {
+                int length = headerValue;
+                headerValue = 0;
+                headerShift = 0;
+                if (length < 0 || length > maxFrameSize) {
+                    throw new CorruptedFrameException("Frame length " + Integer.toUnsignedString(length)
+                            + " exceeds max frame size " + maxFrameSize);
+                }
+                expected = length;
+                return true;
+            }
+            headerShift += 7;
+            if (headerShift >= 7 * Varint.MAX_VARINT32_BYTES) {
+                throw new CorruptedFrameException("Frame length prefix too long");
+            }
+        }
+        return false;
+    }
+
+    private void deliverSlice(ByteBuffer in) throws Exception {
+        int limit = in.limit();
+        int end = in.position() + expected;
+        expected = -1;
+        in.limit(end);
+        try {
+            sink.onFrame(in);
+        } finally {
+            in.limit(limit);
+            in.position(end);
+        }
+    }
+
+    private void accumulate(ByteBuffer in) throws Exception {
+        if (cumulation == null) {
+            cumulation = arena.acquire(expected);
+            cumulation.limit(expected);
+        }
+        int n = Math.min(in.remaining(), cumulation.remaining());
+        cumulation.put(cumulation.position(), in, in.position(), n);
+        cumulation.position(cumulation.position() + n);
+        in.position(in.position() + n);
+        if (cumulation.hasRemaining()) {
+            return;
+        }
+        ByteBuffer frame = cumulation;
+        cumulation = null;
+        expected = -1;
+        frame.flip();
+        try {
+            sink.onFrame(frame);
+        } finally {
+            arena.release(frame);
+        }
+    }
+}
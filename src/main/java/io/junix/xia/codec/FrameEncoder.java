@@ -0,0 +1,36 @@
+package io.junix.xia.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 帧编码工具类，与 {@link FrameDecoder} 的格式对应
+ *
+ * @author wulogn
+ */
+public final class FrameEncoder {
+
+    private FrameEncoder() {
+    }
+
+    /**
+     * 负载为 {@code payloadLength} 字节时整帧的长度
+     */
+    public static int frameLength(int payloadLength) {
+        return Varint.sizeOf(payloadLength) + payloadLength;
+    }
+
+    /**
+     * 将 {@code payload} 的剩余字节编码为一帧写入 {@code out}，{@code payload} 被完全消费
+     */
+    public static void encode(ByteBuffer payload, ByteBuffer out) {
+        Varint.write(out, payload.remaining());
+        out.put(payload);
+    }
+
+    /**
+     * 单独写入长度前缀，随后由调用方写入 {@code payloadLength} 字节负载
+     */
+    public static void writeHeader(ByteBuffer out, int payloadLength) {
+        Varint.write(out, payloadLength);
+    }
+}
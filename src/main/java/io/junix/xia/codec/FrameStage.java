@@ -0,0 +1,33 @@
+package io.junix.xia.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 位于分帧层与上层协议之间的帧负载变换（压缩、加密等），每个连接一个实例
+ * <p>
+ * 同一方向的调用是串行的，但 {@link #decode} 与 {@link #encode} 可能分别在读、写两个线程中并发调用，
+ * 实现不得在两个方向之间共享可变状态。
+ *
+ * @author wulogn
+ */
+public interface FrameStage {
+
+    /**
+     * 入站：还原收到的帧负载，返回的缓冲只在本次调用内有效
+     */
+    ByteBuffer decode(ByteBuffer payload) throws IOException;
+
+    /**
+     * 出站：变换待发送的帧负载，返回的缓冲将进入发送队列，调用后不得再修改
+     *
+     * @param congested 连接当前是否有发送积压，阶段可据此在 CPU 与带宽之间取舍
+     */
+    ByteBuffer encode(ByteBuffer payload, boolean congested) throws IOException;
+
+    /**
+     * 连接关闭时释放阶段持有的资源
+     */
+    default void release() {
+    }
+}
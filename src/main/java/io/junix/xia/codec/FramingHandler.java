@@ -0,0 +1,145 @@
+package io.junix.xia.codec;
+
+import io.junix.xia.metrics.Counter;
+import io.junix.xia.metrics.Histogram;
+import io.junix.xia.metrics.Metrics;
+import io.junix.xia.net.ChannelHandler;
+import io.junix.xia.net.Connection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 为连接加上分帧层：下游 {@link ChannelHandler#channelRead} 每次收到的是一个完整帧的负载
+ * <p>
+ * 可选的 {@link FrameStage} 按离分帧层由近到远的顺序给出，入站依次 {@link FrameStage#decode 还原}，
+ * 出站（{@link #writeFrame}）逆序 {@link FrameStage#encode 变换}后再加长度前缀写出。
+ * <p>
+ * 长度为 0 的帧保留为保活心跳，不经过各阶段，也不交给下游。
+ *
+ * @author wulogn
+ */
+public class FramingHandler implements ChannelHandler {
+
+    private static final byte[] KEEPALIVE_FRAME = {0};
+
+    private static final Counter FRAMES_IN = Metrics.counter("xia_frames_in_total", "Frames delivered downstream");
+    private static final Counter FRAMES_OUT = Metrics.counter("xia_frames_out_total", "Frames written");
+    private static final Histogram DECODE_NANOS = Metrics.histogram("xia_decode_nanos",
+            "Time spent in frame stages (decompression, decryption) per inbound frame");
+
+    private final ChannelHandler next;
+    private final int maxFrameSize;
+    private final FrameStage[] stages;
+    private FrameDecoder decoder;
+
+    public FramingHandler(ChannelHandler next, int maxFrameSize, FrameStage... stages) {
+        this.next = next;
+        this.maxFrameSize = maxFrameSize;
+        this.stages = stages;
+    }
+
+    /**
+     * 找到连接上的分帧层，供下游处理器写出帧
+     *
+     * @throws IllegalStateException 连接的处理器不是 {@link FramingHandler}
+     */
+    public static FramingHandler of(Connection connection) {
+        if (connection.handler() instanceof FramingHandler framing) {
+            return framing;
+        }
+        throw new IllegalStateException("Connection is not framed: " + connection.handler());
+    }
+
+    /**
+     * 将 {@code payload} 的剩余字节经各阶段变换后作为一帧写出，可在任意线程调用，调用后不得再修改 {@code payload}
+     */
+    public void writeFrame(Connection connection, ByteBuffer payload) {
+        if (!connection.eventLoop().inEventLoop()) {
+            // 阶段状态只在事件循环线程中访问
+            connection.eventLoop().execute(() -> writeFrame(connection, payload));
+            return;
+        }
+        if (!connection.isOpen()) {
+            return;
+        }
+        ByteBuffer encoded = payload;
+        try {
+            boolean congested = connection.hasWriteBacklog();
+            for (int i = stages.length - 1; i >= 0; i--) {
+                encoded = stages[i].encode(encoded, congested);
+            }
+        } catch (IOException e) {
+            exceptionCaught(connection, e);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(Varint.sizeOf(encoded.remaining()));
+        FrameEncoder.writeHeader(header, encoded.remaining());
+        // 长度前缀与负载在同一次聚集写中发出
+        connection.write(header.flip());
+        connection.write(encoded);
+        FRAMES_OUT.increment();
+    }
+
+    @Override
+    public void channelActive(Connection connection) {
+        decoder = new FrameDecoder(connection.eventLoop().arena(), maxFrameSize, frame -> {
+            if (!frame.hasRemaining()) {
+                // 对端的保活心跳，读到数据已刷新空闲计时
+                return;
+            }
+            if (stages.length > 0) {
+                long start = Metrics.ENABLED ? System.nanoTime() : 0;
+                for (FrameStage stage : stages) {
+                    frame = stage.decode(frame);
+                }
+                if (Metrics.ENABLED) {
+                    DECODE_NANOS.recordSince(start);
+                }
+            }
+            FRAMES_IN.increment();
+            next.channelRead(connection, frame);
+        });
+        next.channelActive(connection);
+    }
+
+    @Override
+    public void channelRead(Connection connection, ByteBuffer data) {
+        try {
+            decoder.decode(data);
+        } catch (Exception e) {
+            exceptionCaught(connection, e);
+        }
+    }
+
+    @Override
+    public void keepalive(Connection connection) {
+        connection.write(ByteBuffer.wrap(KEEPALIVE_FRAME));
+    }
+
+    @Override
+    public void channelWritabilityChanged(Connection connection) {
+        next.channelWritabilityChanged(connection);
+    }
+
+    @Override
+    public void channelFlushed(Connection connection) {
+        next.channelFlushed(connection);
+    }
+
+    @Override
+    public void channelInactive(Connection connection) {
+        if (decoder != null) {
+            decoder.release();
+        }
+        for (FrameStage stage : stages) {
+            stage.release();
+        }
+        next.channelInactive(connection);
+    }
+
+    @Override
+    public void exceptionCaught(Connection connection, Throwable cause) {
+        next.exceptionCaught(connection, cause);
+    }
+}
@@ -0,0 +1,66 @@
+package io.junix.xia.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 无符号变长整数（LEB128，与 Protocol Buffers 相同）编解码工具类
+ *
+ * @author wulogn
+ */
+public final class Varint {
+
+    /**
+     * 32 位整数编码后的最大字节数
+     */
+    public static final int MAX_VARINT32_BYTES = 5;
+
+    private Varint() {
+    }
+
+    /**
+     * 计算 {@code value} 编码后的字节数
+     */
+    public static int sizeOf(int value) {
+        if ((value & (~0 << 7)) == 0) {
+            return 1;
+        }
+        if ((value & (~0 << 14)) == 0) {
+            return 2;
+        }
+        if ((value & (~0 << 21)) == 0) {
+            return 3;
+        }
+        if ((value & (~0 << 28)) == 0) {
+            return 4;
+        }
+        return 5;
+    }
+
+    public static void write(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * 从 {@code in} 读取一个完整的变长整数
+     *
+     * @throws CorruptedFrameException 数据不足或编码超过 5 字节
+     */
+    public static int read(ByteBuffer in) throws CorruptedFrameException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new CorruptedFrameException("Truncated varint");
+            }
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new CorruptedFrameException("Varint longer than " + MAX_VARINT32_BYTES + " bytes");
+    }
+}
@@ -0,0 +1,36 @@
+package io.junix.xia.compress;
+
+/**
+ * 帧压缩算法选择
+ *
+ * @author wulogn
+ */
+public enum Compression {
+
+    /**
+     * 不压缩，也不加标志字节，线上格式与未启用压缩阶段时相同
+     */
+    NONE,
+
+    /**
+     * 自带的 LZ77 类快速压缩，压缩率较低但 CPU 开销很小
+     */
+    LZ,
+
+    /**
+     * Deflate，压缩率更高，CPU 开销随级别增加
+     */
+    DEFLATE,
+
+    /**
+     * 发送队列无积压时使用 {@link #LZ}，出现积压（链路成为瓶颈）时改用 {@link #DEFLATE} 以更多 CPU 换更少字节
+     */
+    ADAPTIVE;
+
+    /**
+     * 解析配置值，不区分大小写
+     */
+    public static Compression parse(String value) {
+        return valueOf(value.trim().toUpperCase());
+    }
+}
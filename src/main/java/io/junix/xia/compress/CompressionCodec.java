@@ -0,0 +1,38 @@
+package io.junix.xia.compress;
+
+import io.junix.xia.codec.CorruptedFrameException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 单帧压缩算法，实例持有可复用的压缩状态（哈希表、Deflater 等），非线程安全
+ *
+ * @author wulogn
+ */
+interface CompressionCodec {
+
+    /**
+     * 写在压缩帧首字节的算法标识
+     */
+    byte id();
+
+    /**
+     * 长度为 {@code length} 的输入压缩后的最大长度
+     */
+    int maxCompressedLength(int length);
+
+    /**
+     * 压缩 {@code src} 的剩余字节写入 {@code dst}，{@code dst} 至少有 {@link #maxCompressedLength} 的剩余空间
+     */
+    void compress(ByteBuffer src, ByteBuffer dst);
+
+    /**
+     * 解压 {@code src} 的剩余字节，输出恰好填满 {@code dst} 的剩余空间
+     *
+     * @throws CorruptedFrameException 数据损坏或长度不符
+     */
+    void decompress(ByteBuffer src, ByteBuffer dst) throws CorruptedFrameException;
+
+    default void release() {
+    }
+}
@@ -0,0 +1,87 @@
+package io.junix.xia.compress;
+
+import io.junix.xia.codec.FrameStage;
+
+import java.util.zip.Deflater;
+
+/**
+ * 压缩策略，由同一服务器或客户端的所有连接共享；Deflate 级别可在运行时调整，对之后压缩的帧生效
+ *
+ * @author wulogn
+ */
+public class CompressionPolicy {
+
+    /**
+     * 小于该字节数的负载不压缩，压缩收益抵不过标志和长度的开销
+     */
+    public static final int DEFAULT_MIN_SIZE = 256;
+
+    public static final int DEFAULT_DEFLATE_LEVEL = 6;
+
+    private final Compression compression;
+    private final int minSize;
+    private volatile int deflateLevel;
+
+    public CompressionPolicy(Compression compression, int minSize, int deflateLevel) {
+        if (deflateLevel < Deflater.BEST_SPEED || deflateLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid deflate level: " + deflateLevel);
+        }
+        this.compression = compression;
+        this.minSize = minSize;
+        this.deflateLevel = deflateLevel;
+    }
+
+    public CompressionPolicy(Compression compression) {
+        this(compression, DEFAULT_MIN_SIZE, DEFAULT_DEFLATE_LEVEL);
+    }
+
+    /**
+     * 不压缩
+     */
+    public static CompressionPolicy none() {
+        return new CompressionPolicy(Compression.NONE);
+    }
+
+    /**
+     * 从系统属性 {@code xia.compression}、{@code xia.compression.minSize}、{@code xia.compression.level} 读取，
+     * 未设置时不压缩
+     */
+    public static CompressionPolicy fromSystemProperties() {
+        String compression = System.getProperty("xia.compression");
+        return new CompressionPolicy(compression == null ? Compression.NONE : Compression.parse(compression),
+                Integer.getInteger("xia.compression.minSize", DEFAULT_MIN_SIZE),
+                Integer.getInteger("xia.compression.level", DEFAULT_DEFLATE_LEVEL));
+    }
+
+    public Compression compression() {
+        return compression;
+    }
+
+    public int minSize() {
+        return minSize;
+    }
+
+    public int deflateLevel() {
+        return deflateLevel;
+    }
+
+    /**
+     * 调整 Deflate 级别（1-9），所有连接之后压缩的帧生效
+     */
+    public void setDeflateLevel(int deflateLevel) {
+        if (deflateLevel < Deflater.BEST_SPEED || deflateLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid deflate level: " + deflateLevel);
+        }
+        this.deflateLevel = deflateLevel;
+    }
+
+    /**
+     * 为一个连接创建压缩阶段，不压缩时返回空数组，可直接传给 {@link io.junix.xia.codec.FramingHandler}
+     */
+    public FrameStage[] newStages(int maxFrameSize) {
+        if (compression == Compression.NONE) {
+            return new FrameStage[0];
+        }
+        return new FrameStage[]{new CompressionStage(this, maxFrameSize)};
+    }
+}
@@ -0,0 +1,138 @@
+package io.junix.xia.compress;
+
+import io.junix.xia.codec.CorruptedFrameException;
+import io.junix.xia.codec.FrameStage;
+import io.junix.xia.codec.Varint;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 帧压缩阶段，每个连接一个实例，压缩器状态在连接的生命周期内复用
+ * <p>
+ * 每帧负载前加一个标志字节：{@code 0} 表示原样，其余为算法标识，后跟变长编码的原始长度和压缩数据。
+ * 小于 {@link CompressionPolicy#minSize()} 的负载不压缩；压缩后节省不足 1/16 视为不可压缩并原样发送，
+ * 连续不可压缩时按指数退避跳过后续若干帧的压缩尝试（最多 {@value #MAX_BACKOFF} 帧），
+ * 避免对已压缩或加密的数据反复白费 CPU。
+ *
+ * @author wulogn
+ */
+public class CompressionStage implements FrameStage {
+
+    static final byte RAW = 0;
+
+    static final int MAX_BACKOFF = 64;
+
+    private final CompressionPolicy policy;
+    private final int maxFrameSize;
+    private final LzCodec lz = new LzCodec();
+    private final DeflateCodec deflate;
+    private ByteBuffer inflated = ByteBuffer.allocate(0);
+    private int backoff;
+    private int skip;
+
+    private long rawFrames;
+    private long compressedFrames;
+    private long bytesIn;
+    private long bytesOut;
+
+    public CompressionStage(CompressionPolicy policy, int maxFrameSize) {
+        this.policy = policy;
+        this.maxFrameSize = maxFrameSize;
+        this.deflate = new DeflateCodec(policy);
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer payload, boolean congested) {
+        int length = payload.remaining();
+        bytesIn += length;
+        if (length < policy.minSize() || length > maxFrameSize) {
+            return raw(payload);
+        }
+        if (skip > 0) {
+            skip--;
+            return raw(payload);
+        }
+        CompressionCodec codec = select(congested);
+        ByteBuffer out = ByteBuffer.allocate(1 + Varint.sizeOf(length) + codec.maxCompressedLength(length));
+        out.put(codec.id());
+        Varint.write(out, length);
+        int start = out.position();
+        codec.compress(payload.duplicate(), out);
+        if (out.position() - start > length - (length >>> 4)) {
+            backoff = backoff == 0 ? 1 : Math.min(backoff * 2, MAX_BACKOFF);
+            skip = backoff;
+            return raw(payload);
+        }
+        backoff = 0;
+        compressedFrames++;
+        bytesOut += out.position();
+        return out.flip();
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer payload) throws CorruptedFrameException {
+        if (!payload.hasRemaining()) {
+            throw new CorruptedFrameException("Missing compression flag");
+        }
+        byte flag = payload.get();
+        if (flag == RAW) {
+            return payload;
+        }
+        CompressionCodec codec = switch (flag) {
+            case LzCodec.ID -> lz;
+            case DeflateCodec.ID -> deflate;
+            default -> throw new CorruptedFrameException("Unknown compression " + flag);
+        };
+        int length = Varint.read(payload);
+        if (length < 0 || length > maxFrameSize) {
+            throw new CorruptedFrameException("Decompressed length " + (length & 0xFFFFFFFFL)
+                    + " exceeds limit " + maxFrameSize);
+        }
+        if (inflated.capacity() < length) {
+            inflated = ByteBuffer.allocate(Math.max(length, Math.min(maxFrameSize, inflated.capacity() * 2)));
+        }
+        inflated.clear().limit(length);
+        codec.decompress(payload, inflated);
+        return inflated.flip();
+    }
+
+    private CompressionCodec select(boolean congested) {
+        return switch (policy.compression()) {
+            case DEFLATE -> deflate;
+            case ADAPTIVE -> congested ? deflate : lz;
+            default -> lz;
+        };
+    }
+
+    private ByteBuffer raw(ByteBuffer payload) {
+        rawFrames++;
+        bytesOut += 1 + payload.remaining();
+        return ByteBuffer.allocate(1 + payload.remaining()).put(RAW).put(payload).flip();
+    }
+
+    /**
+     * 原样发送的帧数
+     */
+    public long rawFrames() {
+        return rawFrames;
+    }
+
+    /**
+     * 压缩发送的帧数
+     */
+    public long compressedFrames() {
+        return compressedFrames;
+    }
+
+    /**
+     * 出站负载压缩前后的总字节数之比，小于 1 表示节省了带宽
+     */
+    public double ratio() {
+        return bytesIn == 0 ? 1 : (double) bytesOut / bytesIn;
+    }
+
+    @Override
+    public void release() {
+        deflate.release();
+    }
+}
@@ -0,0 +1,94 @@
+package io.junix.xia.compress;
+
+import io.junix.xia.codec.CorruptedFrameException;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate（无 zlib 头和校验和的原始格式），每个连接复用一对 {@link Deflater}/{@link Inflater}，
+ * 每帧只 {@code reset()} 而不重新分配其内部的窗口和哈希表；两者按方向分别在首次使用时创建
+ *
+ * @author wulogn
+ */
+final class DeflateCodec implements CompressionCodec {
+
+    static final byte ID = 2;
+
+    private final CompressionPolicy policy;
+    private Deflater deflater;
+    private Inflater inflater;
+    private int level;
+
+    DeflateCodec(CompressionPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        // zlib deflateBound 的保守估计，另加原始格式结束块的余量
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 32;
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) {
+        int wanted = policy.deflateLevel();
+        if (deflater == null) {
+            // Deflater 的内部状态有数百 KB，只为实际发送压缩帧的连接分配
+            deflater = new Deflater(wanted, true);
+            level = wanted;
+        }
+        deflater.reset();
+        if (wanted != level) {
+            deflater.setLevel(wanted);
+            level = wanted;
+        }
+        deflater.setInput(src);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (deflater.deflate(dst) == 0 && !dst.hasRemaining()) {
+                throw new IllegalStateException("Deflate output exceeds bound");
+            }
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuffer src, ByteBuffer dst) throws CorruptedFrameException {
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        inflater.reset();
+        inflater.setInput(src);
+        try {
+            while (dst.hasRemaining()) {
+                if (inflater.inflate(dst) == 0 && (inflater.finished() || inflater.needsInput()
+                        || inflater.needsDictionary())) {
+                    throw new CorruptedFrameException("Deflate stream shorter than declared length");
+                }
+            }
+            // 填满声明长度后流必须恰好结束，否则多出的数据会被悄悄截掉
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) > 0 || !inflater.finished())) {
+                throw new CorruptedFrameException("Deflate stream longer than declared length");
+            }
+        } catch (DataFormatException e) {
+            throw new CorruptedFrameException("Malformed deflate stream: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void release() {
+        if (deflater != null) {
+            deflater.end();
+        }
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package io.junix.xia.compress;
+
+import io.junix.xia.codec.CorruptedFrameException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * LZ77 类快速压缩，块格式与 LZ4 相同：一串序列，每个序列为
+ * {@code token, [字面量长度扩展], 字面量, 偏移(2 字节小端), [匹配长度扩展]}，最后一个序列只有字面量
+ * <p>
+ * 贪心匹配，以 4 字节为单位哈希查找候选位置；连续找不到匹配时逐步加大步长，不可压缩的数据也能快速扫过。
+ * 哈希表在实例内复用，每帧只清空与输入长度相称的一部分；压缩与解压互不共享状态，可在两个线程中分别进行。
+ *
+ * @author wulogn
+ */
+final class LzCodec implements CompressionCodec {
+
+    static final byte ID = 1;
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_HASH_LOG = 12;
+    private static final int MIN_HASH_LOG = 8;
+    private static final int MAX_OFFSET = 65535;
+    /**
+     * 最后 5 个字节总是作为字面量，最后一个匹配必须在距结尾 12 字节之前开始
+     */
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * 压缩方向的状态，首次压缩时分配，只收不发的连接不占用这部分内存
+     */
+    private int[] table;
+    private byte[] compressScratch = new byte[0];
+    private byte[] decompressScratch = new byte[0];
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        byte[] in;
+        int inOffset;
+        if (src.hasArray()) {
+            in = src.array();
+            inOffset = src.arrayOffset() + src.position();
+        } else {
+            if (compressScratch.length < length) {
+                compressScratch = new byte[length];
+            }
+            in = compressScratch;
+            inOffset = 0;
+            src.duplicate().get(in, 0, length);
+        }
+        int written = compress(in, inOffset, length, dst.array(), dst.arrayOffset() + dst.position());
+        src.position(src.limit());
+        dst.position(dst.position() + written);
+    }
+
+    @Override
+    public void decompress(ByteBuffer src, ByteBuffer dst) throws CorruptedFrameException {
+        int length = src.remaining();
+        byte[] in;
+        int inOffset;
+        if (src.hasArray()) {
+            in = src.array();
+            inOffset = src.arrayOffset() + src.position();
+        } else {
+            // 入站帧通常位于直接缓冲中
+            if (decompressScratch.length < length) {
+                decompressScratch = new byte[length];
+            }
+            in = decompressScratch;
+            inOffset = 0;
+            src.duplicate().get(in, 0, length);
+        }
+        decompress(in, inOffset, length, dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+        src.position(src.limit());
+        dst.position(dst.limit());
+    }
+
+    /**
+     * 返回写入 {@code dst} 的字节数
+     */
+    int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        int end = srcOffset + length;
+        int anchor = srcOffset;
+        int op = dstOffset;
+        if (length > MF_LIMIT) {
+            if (table == null) {
+                table = new int[1 << MAX_HASH_LOG];
+            }
+            int hashLog = Math.max(MIN_HASH_LOG, Math.min(MAX_HASH_LOG, 32 - Integer.numberOfLeadingZeros(length)));
+            Arrays.fill(table, 0, 1 << hashLog, -1);
+            int matchLimit = end - LAST_LITERALS;
+            int mfLimit = end - MF_LIMIT;
+            int ip = srcOffset + 1;
+            int searches = 1 << SKIP_TRIGGER;
+            while (ip < mfLimit) {
+                int sequence = (int) INT_LE.get(src, ip);
+                int h = hash(sequence, hashLog);
+                int ref = table[h];
+                table[h] = ip;
+                if (ref < 0 || ip - ref > MAX_OFFSET || (int) INT_LE.get(src, ref) != sequence) {
+                    ip += searches++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                searches = 1 << SKIP_TRIGGER;
+                while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+                ip += matchLength;
+                anchor = ip;
+                if (ip < mfLimit) {
+                    table[hash((int) INT_LE.get(src, ip - 2), hashLog)] = ip - 2;
+                }
+            }
+        }
+        // 最后一个序列只有字面量
+        int literals = end - anchor;
+        op = writeLength(dst, op, literals, (Math.min(literals, 15) << 4));
+        System.arraycopy(src, anchor, dst, op, literals);
+        return op + literals - dstOffset;
+    }
+
+    private static int writeSequence(byte[] src, int anchor, int literals, byte[] dst, int op,
+                                     int offset, int matchLength) {
+        int matchCode = matchLength - MIN_MATCH;
+        op = writeLength(dst, op, literals, (Math.min(literals, 15) << 4) | Math.min(matchCode, 15));
+        System.arraycopy(src, anchor, dst, op, literals);
+        op += literals;
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        if (matchCode >= 15) {
+            op = writeExtension(dst, op, matchCode - 15);
+        }
+        return op;
+    }
+
+    /**
+     * 写入 token 和字面量长度扩展
+     */
+    private static int writeLength(byte[] dst, int op, int literals, int token) {
+        dst[op++] = (byte) token;
+        if (literals >= 15) {
+            op = writeExtension(dst, op, literals - 15);
+        }
+        return op;
+    }
+
+    private static int writeExtension(byte[] dst, int op, int value) {
+        while (value >= 255) {
+            dst[op++] = (byte) 255;
+            value -= 255;
+        }
+        dst[op++] = (byte) value;
+        return op;
+    }
+
+    static void decompress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int dstLength)
+            throws CorruptedFrameException {
+        int ip = srcOffset;
+        int end = srcOffset + length;
+        int op = dstOffset;
+        int outEnd = dstOffset + dstLength;
+        while (true) {
+            if (ip >= end) {
+                throw new CorruptedFrameException("Truncated LZ block");
+            }
+            int token = src[ip++] & 0xFF;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    if (ip >= end) {
+                        throw new CorruptedFrameException("Truncated literal length");
+                    }
+                    b = src[ip++] & 0xFF;
+                    literals += b;
+                } while (b == 255);
+            }
+            if (literals > end - ip || literals > outEnd - op) {
+                throw new CorruptedFrameException("Literal run exceeds block");
+            }
+            System.arraycopy(src, ip, dst, op, literals);
+            ip += literals;
+            op += literals;
+            if (ip == end) {
+                if (op != outEnd) {
+                    throw new CorruptedFrameException("Decompressed length mismatch");
+                }
+                return;
+            }
+            if (end - ip < 2) {
+                throw new CorruptedFrameException("Truncated match offset");
+            }
+            int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+            ip += 2;
+            if (offset == 0 || offset > op - dstOffset) {
+                throw new CorruptedFrameException("Invalid match offset " + offset);
+            }
+            int matchLength = token & 0xF;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (ip >= end) {
+                        throw new CorruptedFrameException("Truncated match length");
+                    }
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > outEnd - op) {
+                throw new CorruptedFrameException("Match exceeds decompressed length");
+            }
+            int ref = op - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dst, ref, dst, op, matchLength);
+                op += matchLength;
+            } else {
+                // 重叠复制，逐字节展开重复模式
+                for (int i = 0; i < matchLength; i++) {
+                    dst[op++] = dst[ref + i];
+                }
+            }
+        }
+    }
+
+    private static int hash(int sequence, int hashLog) {
+        return (sequence * -1640531535) >>> (32 - hashLog);
+    }
+}
@@ -0,0 +1,82 @@
+package io.junix.xia.enc;
+
+import io.junix.xia.metrics.Metrics;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 绑定单个私钥的 Ed25519 签名器，线程安全
+ * <p>
+ * 内部缓存已用该私钥初始化过的签名引擎，{@link Signature#sign()} 完成后引擎自动回到初始化状态，
+ * 因此重复签名既不查找提供者，也不重新解析密钥。
+ *
+ * @author wulogn
+ */
+public class Ed25519Signer {
+
+    private final PrivateKey key;
+    private final Queue<Signature> engines = new ConcurrentLinkedQueue<>();
+
+    Ed25519Signer(PrivateKey key) throws InvalidKeyException {
+        this.key = key;
+        // 提前初始化一个引擎，密钥无效时立即报错
+        engines.offer(newEngine());
+    }
+
+    public PrivateKey key() {
+        return key;
+    }
+
+    public byte[] sign(byte[] message) throws SignatureException {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Signature engine = borrow();
+        // 出现异常时引擎状态不确定，不再放回缓存
+        engine.update(message);
+        byte[] signature = engine.sign();
+        engines.offer(engine);
+        if (Metrics.ENABLED) {
+            Ed25519.SIGN_NANOS.recordSince(start);
+        }
+        return signature;
+    }
+
+    /**
+     * 对 {@code message} 的剩余字节签名，{@code message} 被完全消费
+     */
+    public byte[] sign(ByteBuffer message) throws SignatureException {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Signature engine = borrow();
+        engine.update(message);
+        byte[] signature = engine.sign();
+        engines.offer(engine);
+        if (Metrics.ENABLED) {
+            Ed25519.SIGN_NANOS.recordSince(start);
+        }
+        return signature;
+    }
+
+    private Signature borrow() {
+        Signature engine = engines.poll();
+        if (engine != null) {
+            return engine;
+        }
+        try {
+            return newEngine();
+        } catch (InvalidKeyException e) {
+            // 构造时已验证过密钥
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Signature newEngine() throws InvalidKeyException {
+        Signature engine = Ed25519.newSignature();
+        engine.initSign(key);
+        return engine;
+    }
+}
@@ -0,0 +1,96 @@
+package io.junix.xia.enc;
+
+import io.junix.xia.metrics.Metrics;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 绑定单个公钥的 Ed25519 验签器，线程安全
+ * <p>
+ * 与 {@link Ed25519Signer} 相同，缓存已初始化的验签引擎供重复使用。
+ *
+ * @author wulogn
+ */
+public class Ed25519Verifier {
+
+    private final PublicKey key;
+    private final Queue<Signature> engines = new ConcurrentLinkedQueue<>();
+
+    Ed25519Verifier(PublicKey key) throws InvalidKeyException {
+        this.key = key;
+        engines.offer(newEngine());
+    }
+
+    public PublicKey key() {
+        return key;
+    }
+
+    public boolean verify(byte[] message, byte[] signature) {
+        if (message == null || signature == null) {
+            return false;
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Signature engine = borrow();
+        try {
+            engine.update(message);
+            boolean valid = engine.verify(signature);
+            engines.offer(engine);
+            return valid;
+        } catch (SignatureException e) {
+            // 签名格式错误，引擎状态不确定，不再放回缓存
+            return false;
+        } finally {
+            if (Metrics.ENABLED) {
+                Ed25519.VERIFY_NANOS.recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * 验证 {@code message} 剩余字节的签名，{@code message} 被完全消费
+     */
+    public boolean verify(ByteBuffer message, byte[] signature) {
+        if (signature == null) {
+            return false;
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Signature engine = borrow();
+        try {
+            engine.update(message);
+            boolean valid = engine.verify(signature);
+            engines.offer(engine);
+            return valid;
+        } catch (SignatureException e) {
+            return false;
+        } finally {
+            if (Metrics.ENABLED) {
+                Ed25519.VERIFY_NANOS.recordSince(start);
+            }
+        }
+    }
+
+    private Signature borrow() {
+        Signature engine = engines.poll();
+        if (engine != null) {
+            return engine;
+        }
+        try {
+            return newEngine();
+        } catch (InvalidKeyException e) {
+            // 构造时已验证过密钥
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Signature newEngine() throws InvalidKeyException {
+        Signature engine = Ed25519.newSignature();
+        engine.initVerify(key);
+        return engine;
+    }
+}
@@ -0,0 +1,236 @@
+package io.junix.xia.enc;
+
+import io.junix.xia.metrics.Metrics;
+
+import javax.crypto.KeyAgreement;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * 握手协议的公共定义：消息类型、编解码、转录哈希与密钥派生
+ * <p>
+ * 完整握手（三条消息）：
+ * <pre>
+ * C -> S  CLIENT_HELLO   random_c, X25519 临时公钥, [票据]
+ * S -> C  SERVER_HELLO   random_s, Ed25519 长期公钥, X25519 临时公钥, Sig_s(转录哈希)
+ * C -> S  CLIENT_FINISH  Ed25519 长期公钥, Sig_c(转录哈希)
+ * </pre>
+ * 会话密钥由 X25519 共享秘密经 HKDF-SHA256 派生，两个方向各一个 ChaCha20 密钥。
+ * 同时派生出恢复秘密和票据标识，双方各自保存，不在网络上传输。
+ * <p>
+ * 恢复握手：CLIENT_HELLO 只带票据、不带临时公钥；服务端命中缓存后回复 RESUME_ACCEPT（HMAC 校验码），
+ * 客户端回复 RESUME_FINISH，全程没有签名和密钥协商。服务端未命中时回复 HELLO_RETRY，客户端改为完整握手。
+ *
+ * @author wulogn
+ */
+final class Handshake {
+
+    static final byte CLIENT_HELLO = 1;
+    static final byte SERVER_HELLO = 2;
+    static final byte CLIENT_FINISH = 3;
+    static final byte RESUME_ACCEPT = 4;
+    static final byte RESUME_FINISH = 5;
+    static final byte HELLO_RETRY = 6;
+
+    static final int RANDOM_LENGTH = 32;
+    static final int TICKET_ID_LENGTH = 16;
+
+    private static final String KEY_AGREEMENT = "X25519";
+    private static final byte[] SERVER_CONTEXT = "xia handshake server".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLIENT_CONTEXT = "xia handshake client".getBytes(StandardCharsets.US_ASCII);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<KeyPairGenerator> EPHEMERAL_GENERATORS = ThreadLocal.withInitial(() -> {
+        try {
+            return KeyPairGenerator.getInstance(KEY_AGREEMENT);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    /**
+     * 后台预先生成的临时密钥对个数，0 表示不预生成、每次握手在调用线程中生成
+     */
+    static final int EPHEMERAL_POOL_SIZE = Integer.getInteger("xia.handshake.ephemeralPoolSize", 64);
+
+    private static final KeyPairPool EPHEMERAL_POOL = EPHEMERAL_POOL_SIZE > 0
+            ? new KeyPairPool("xia-ephemeral-keys", EPHEMERAL_POOL_SIZE, Handshake::newEphemeral)
+            : null;
+
+    static {
+        if (EPHEMERAL_POOL != null) {
+            Metrics.gauge("xia_ephemeral_keys_available", "Precomputed X25519 key pairs ready for handshakes",
+                    EPHEMERAL_POOL::size);
+        }
+    }
+
+    private Handshake() {
+    }
+
+    static byte[] newRandom() {
+        byte[] random = new byte[RANDOM_LENGTH];
+        RANDOM.nextBytes(random);
+        return random;
+    }
+
+    /**
+     * 取一个临时密钥对，优先从预生成池中取出，池空时当场生成
+     */
+    static KeyPair generateEphemeral() {
+        return EPHEMERAL_POOL != null ? EPHEMERAL_POOL.take() : newEphemeral();
+    }
+
+    private static KeyPair newEphemeral() {
+        return EPHEMERAL_GENERATORS.get().generateKeyPair();
+    }
+
+    static byte[] agree(PrivateKey ownEphemeral, byte[] peerEphemeral) throws HandshakeException {
+        try {
+            PublicKey peerKey = KeyFactory.getInstance(KEY_AGREEMENT)
+                    .generatePublic(new X509EncodedKeySpec(peerEphemeral));
+            KeyAgreement agreement = KeyAgreement.getInstance(KEY_AGREEMENT);
+            agreement.init(ownEphemeral);
+            agreement.doPhase(peerKey, true);
+            return agreement.generateSecret();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (InvalidKeySpecException | InvalidKeyException e) {
+            throw new HandshakeException("Invalid ephemeral key", e);
+        }
+    }
+
+    static byte[] hash(byte[]... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (byte[] part : parts) {
+                digest.update(part);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static byte[] serverSignedContent(byte[] transcriptHash) {
+        return Hkdf.concat(SERVER_CONTEXT, transcriptHash);
+    }
+
+    static byte[] clientSignedContent(byte[] transcriptHash) {
+        return Hkdf.concat(CLIENT_CONTEXT, transcriptHash);
+    }
+
+    /**
+     * 由握手输入派生出的全部密钥材料
+     */
+    record Keys(byte[] clientToServer, byte[] serverToClient, byte[] resumptionSecret, byte[] ticketId,
+                byte[] serverFinishedKey, byte[] clientFinishedKey) {
+    }
+
+    static Keys deriveKeys(byte[] clientRandom, byte[] serverRandom, byte[] inputSecret, byte[] transcriptHash)
+            throws InvalidKeyException {
+        byte[] prk = Hkdf.extract(Hkdf.concat(clientRandom, serverRandom), inputSecret);
+        return new Keys(
+                Hkdf.expand(prk, "xia c2s", transcriptHash, SessionCipher.KEY_LENGTH),
+                Hkdf.expand(prk, "xia s2c", transcriptHash, SessionCipher.KEY_LENGTH),
+                Hkdf.expand(prk, "xia resumption", transcriptHash, Hkdf.HASH_LENGTH),
+                Hkdf.expand(prk, "xia ticket", transcriptHash, TICKET_ID_LENGTH),
+                Hkdf.expand(prk, "xia server finished", transcriptHash, Hkdf.HASH_LENGTH),
+                Hkdf.expand(prk, "xia client finished", transcriptHash, Hkdf.HASH_LENGTH));
+    }
+
+    /**
+     * 握手消息写入器，变长字段使用 2 字节长度前缀
+     */
+    static final class Writer {
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(512);
+
+        Writer(byte type) {
+            buffer.put(type);
+        }
+
+        Writer raw(byte[] bytes) {
+            buffer.put(bytes);
+            return this;
+        }
+
+        Writer field(byte[] bytes) {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[buffer.position()];
+            buffer.get(0, result);
+            return result;
+        }
+    }
+
+    /**
+     * 握手消息读取器，数据不完整时抛出 {@link HandshakeException}
+     */
+    static final class Reader {
+
+        private final ByteBuffer buffer;
+
+        Reader(byte[] message, byte expectedType) throws HandshakeException {
+            this.buffer = ByteBuffer.wrap(message);
+            if (message.length == 0 || buffer.get() != expectedType) {
+                throw new HandshakeException("Unexpected handshake message type");
+            }
+        }
+
+        byte[] raw(int length) throws HandshakeException {
+            try {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                return bytes;
+            } catch (BufferUnderflowException e) {
+                throw new HandshakeException("Truncated handshake message");
+            }
+        }
+
+        byte[] field() throws HandshakeException {
+            try {
+                return raw(Short.toUnsignedInt(buffer.getShort()));
+            } catch (BufferUnderflowException e) {
+                throw new HandshakeException("Truncated handshake message");
+            }
+        }
+
+        /**
+         * 已读取部分的拷贝，用于计算不含签名字段的转录哈希
+         */
+        byte[] consumed() {
+            byte[] bytes = new byte[buffer.position()];
+            buffer.get(0, bytes);
+            return bytes;
+        }
+
+        void end() throws HandshakeException {
+            if (buffer.hasRemaining()) {
+                throw new HandshakeException("Trailing bytes in handshake message");
+            }
+        }
+    }
+
+    static byte type(byte[] message) throws HandshakeException {
+        if (message == null || message.length == 0) {
+            throw new HandshakeException("Empty handshake message");
+        }
+        return message[0];
+    }
+}
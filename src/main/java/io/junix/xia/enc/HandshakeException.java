@@ -0,0 +1,21 @@
+package io.junix.xia.enc;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * 握手失败：消息格式错误、签名或校验码不正确、对端不受信任等，连接应当关闭
+ *
+ * @author wulogn
+ */
+public class HandshakeException extends GeneralSecurityException {
+
+    private static final long serialVersionUID = 1L;
+
+    public HandshakeException(String message) {
+        super(message);
+    }
+
+    public HandshakeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
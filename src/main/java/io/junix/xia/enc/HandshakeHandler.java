@@ -0,0 +1,143 @@
+package io.junix.xia.enc;
+
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.net.ChannelHandler;
+import io.junix.xia.net.Connection;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 连接建立后先完成握手，再把连接交给下游的协议处理器
+ * <p>
+ * 位于 {@link FramingHandler} 与协议处理器（{@code RpcServerHandler}、客户端连接等）之间，握手消息各占一帧。
+ * 发起方在连接激活时发出第一条消息，响应方等待对端；握手完成后调用 {@link Connection#markEstablished()}，
+ * 使连接不再受握手超时限制，随后才向下游触发 {@link ChannelHandler#channelActive}，之后的帧原样交给下游。
+ * 握手失败时关闭连接，下游只会收到 {@link ChannelHandler#channelInactive}。
+ * <p>
+ * 给出 {@link SessionCipherStage} 时（应为分帧层的最外层阶段），握手派生出会话密钥后将其安装到该阶段，
+ * 之后两个方向的帧都经过加密；不给出时只认证对端、不加密。
+ *
+ * @author wulogn
+ */
+public class HandshakeHandler implements ChannelHandler {
+
+    private static final System.Logger LOG = System.getLogger(HandshakeHandler.class.getName());
+
+    private final HandshakeInitiator initiator;
+    private final HandshakeResponder responder;
+    private final SessionCipherStage cipherStage;
+    private final ChannelHandler next;
+    private volatile HandshakeResult result;
+
+    /**
+     * 客户端一侧，连接激活时发起握手
+     *
+     * @param cipherStage 握手完成后安装会话密钥的阶段，为 {@code null} 时不加密
+     */
+    public HandshakeHandler(HandshakeInitiator initiator, SessionCipherStage cipherStage, ChannelHandler next) {
+        this.initiator = initiator;
+        this.responder = null;
+        this.cipherStage = cipherStage;
+        this.next = next;
+    }
+
+    /**
+     * 服务端一侧，等待对端发起握手
+     *
+     * @param cipherStage 握手完成后安装会话密钥的阶段，为 {@code null} 时不加密
+     */
+    public HandshakeHandler(HandshakeResponder responder, SessionCipherStage cipherStage, ChannelHandler next) {
+        this.initiator = null;
+        this.responder = responder;
+        this.cipherStage = cipherStage;
+        this.next = next;
+    }
+
+    /**
+     * 握手结果，未完成时为 {@code null}，可在任意线程读取
+     */
+    public HandshakeResult result() {
+        return result;
+    }
+
+    public boolean isComplete() {
+        return result != null;
+    }
+
+    @Override
+    public void channelActive(Connection connection) {
+        if (initiator != null) {
+            send(connection, initiator.start());
+        }
+    }
+
+    @Override
+    public void channelRead(Connection connection, ByteBuffer frame) {
+        if (result != null) {
+            next.channelRead(connection, frame);
+            return;
+        }
+        byte[] message = new byte[frame.remaining()];
+        frame.get(message);
+        byte[] reply;
+        try {
+            reply = initiator != null ? initiator.receive(message) : responder.receive(message);
+        } catch (HandshakeException e) {
+            LOG.log(System.Logger.Level.DEBUG, "Handshake with " + connection.remoteAddress() + " failed", e);
+            connection.close();
+            return;
+        }
+        // 最后一条握手消息仍以明文发出，之后才安装会话密钥
+        if (reply != null) {
+            send(connection, reply);
+        }
+        boolean complete = initiator != null ? initiator.isComplete() : responder.isComplete();
+        if (complete) {
+            result = initiator != null ? initiator.result() : responder.result();
+            if (cipherStage != null) {
+                cipherStage.install(result.cipher());
+            }
+            connection.markEstablished();
+            next.channelActive(connection);
+        }
+    }
+
+    private static void send(Connection connection, byte[] message) {
+        FramingHandler.of(connection).writeFrame(connection, ByteBuffer.wrap(message));
+    }
+
+    @Override
+    public void channelWritabilityChanged(Connection connection) {
+        if (result != null) {
+            next.channelWritabilityChanged(connection);
+        }
+    }
+
+    @Override
+    public void channelFlushed(Connection connection) {
+        if (result != null) {
+            next.channelFlushed(connection);
+        }
+    }
+
+    @Override
+    public void keepalive(Connection connection) {
+        if (result != null) {
+            next.keepalive(connection);
+        }
+    }
+
+    @Override
+    public void channelInactive(Connection connection) {
+        next.channelInactive(connection);
+    }
+
+    @Override
+    public void exceptionCaught(Connection connection, Throwable cause) {
+        if (result != null) {
+            next.exceptionCaught(connection, cause);
+        } else {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package io.junix.xia.enc;
+
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.function.Predicate;
+
+/**
+ * 握手发起方（客户端）状态机，每次握手一个实例，非线程安全
+ * <p>
+ * 调用 {@link #start()} 得到第一条消息，之后每收到服务端的一条消息调用一次 {@link #receive(byte[])}，
+ * 将返回的消息发给服务端，直到 {@link #isComplete()} 为真。
+ *
+ * @author wulogn
+ */
+public class HandshakeInitiator {
+
+    private enum State { INITIAL, AWAIT_SERVER, COMPLETE }
+
+    private final NodeIdentity identity;
+    private final Predicate<PublicKey> trustPolicy;
+    private final long ticketTtlMillis;
+    private final PeerKeyCache peerKeys;
+    private SessionTicket ticket;
+    private State state = State.INITIAL;
+    private byte[] clientRandom;
+    private byte[] clientHello;
+    private KeyPair ephemeral;
+    private HandshakeResult result;
+
+    /**
+     * @param ticket      上次握手得到的票据，为 {@code null} 或已过期时进行完整握手
+     * @param trustPolicy 判断服务端长期公钥是否可信
+     */
+    public HandshakeInitiator(NodeIdentity identity, SessionTicket ticket, Predicate<PublicKey> trustPolicy) {
+        this(identity, ticket, trustPolicy, SessionCache.DEFAULT_TTL_MILLIS);
+    }
+
+    public HandshakeInitiator(NodeIdentity identity, SessionTicket ticket, Predicate<PublicKey> trustPolicy,
+                              long ticketTtlMillis) {
+        this(identity, ticket, trustPolicy, ticketTtlMillis, PeerKeyCache.defaultCache());
+    }
+
+    /**
+     * @param peerKeys 服务端公钥的解码缓存，重复连接同一服务端时不再解析密钥
+     */
+    public HandshakeInitiator(NodeIdentity identity, SessionTicket ticket, Predicate<PublicKey> trustPolicy,
+                              long ticketTtlMillis, PeerKeyCache peerKeys) {
+        this.identity = identity;
+        this.peerKeys = peerKeys;
+        this.ticket = ticket != null && !ticket.isExpired(System.currentTimeMillis()) ? ticket : null;
+        this.trustPolicy = trustPolicy;
+        this.ticketTtlMillis = ticketTtlMillis;
+    }
+
+    /**
+     * 生成 CLIENT_HELLO
+     */
+    public byte[] start() {
+        if (state != State.INITIAL) {
+            throw new IllegalStateException("Handshake already started");
+        }
+        state = State.AWAIT_SERVER;
+        clientRandom = Handshake.newRandom();
+        Handshake.Writer writer = new Handshake.Writer(Handshake.CLIENT_HELLO).raw(clientRandom);
+        if (ticket != null) {
+            // 恢复握手不需要临时密钥
+            ephemeral = null;
+            writer.field(new byte[0]).field(ticket.id());
+        } else {
+            ephemeral = Handshake.generateEphemeral();
+            writer.field(ephemeral.getPublic().getEncoded()).field(new byte[0]);
+        }
+        clientHello = writer.toByteArray();
+        return clientHello;
+    }
+
+    /**
+     * 处理服务端消息，返回需要回复的消息
+     */
+    public byte[] receive(byte[] message) throws HandshakeException {
+        if (state != State.AWAIT_SERVER) {
+            throw new HandshakeException("Unexpected message in state " + state);
+        }
+        try {
+            switch (Handshake.type(message)) {
+                case Handshake.SERVER_HELLO:
+                    if (ephemeral == null) {
+                        throw new HandshakeException("Server sent full hello for a resumption attempt");
+                    }
+                    return onServerHello(message);
+                case Handshake.RESUME_ACCEPT:
+                    if (ticket == null) {
+                        throw new HandshakeException("Server accepted resumption that was not offered");
+                    }
+                    return onResumeAccept(message);
+                case Handshake.HELLO_RETRY:
+                    if (ticket == null) {
+                        throw new HandshakeException("Unexpected hello retry");
+                    }
+                    // 服务端已不认识该票据，退回完整握手
+                    ticket = null;
+                    state = State.INITIAL;
+                    return start();
+                default:
+                    throw new HandshakeException("Unexpected handshake message type " + message[0]);
+            }
+        } catch (InvalidKeyException | SignatureException e) {
+            throw new HandshakeException("Handshake failed", e);
+        }
+    }
+
+    public boolean isComplete() {
+        return state == State.COMPLETE;
+    }
+
+    public HandshakeResult result() {
+        if (result == null) {
+            throw new IllegalStateException("Handshake not complete");
+        }
+        return result;
+    }
+
+    private byte[] onServerHello(byte[] serverHello)
+            throws HandshakeException, InvalidKeyException, SignatureException {
+        Handshake.Reader reader = new Handshake.Reader(serverHello, Handshake.SERVER_HELLO);
+        byte[] serverRandom = reader.raw(Handshake.RANDOM_LENGTH);
+        byte[] serverStatic = reader.field();
+        byte[] serverEphemeral = reader.field();
+        byte[] signedBody = reader.consumed();
+        byte[] signature = reader.field();
+        reader.end();
+
+        byte[] transcript = Handshake.hash(clientHello, signedBody);
+        PeerKeyCache.Entry server = peerKeys.resolve(serverStatic);
+        PublicKey serverKey = server.publicKey();
+        if (!server.verifier().verify(Handshake.serverSignedContent(transcript), signature)) {
+            throw new HandshakeException("Invalid server signature");
+        }
+        if (!trustPolicy.test(serverKey)) {
+            throw new HandshakeException("Server key not trusted");
+        }
+
+        byte[] shared = Handshake.agree(ephemeral.getPrivate(), serverEphemeral);
+        Handshake.Keys keys = Handshake.deriveKeys(clientRandom, serverRandom, shared, transcript);
+
+        byte[] finishBody = new Handshake.Writer(Handshake.CLIENT_FINISH)
+                .field(identity.encodedPublicKey())
+                .toByteArray();
+        byte[] finishTranscript = Handshake.hash(clientHello, serverHello, finishBody);
+        byte[] clientSignature = identity.signer().sign(Handshake.clientSignedContent(finishTranscript));
+        byte[] clientFinish = new Handshake.Writer(Handshake.CLIENT_FINISH)
+                .field(identity.encodedPublicKey())
+                .field(clientSignature)
+                .toByteArray();
+
+        complete(serverKey, serverStatic, keys, false);
+        return clientFinish;
+    }
+
+    private byte[] onResumeAccept(byte[] resumeAccept) throws HandshakeException, InvalidKeyException {
+        Handshake.Reader reader = new Handshake.Reader(resumeAccept, Handshake.RESUME_ACCEPT);
+        byte[] serverRandom = reader.raw(Handshake.RANDOM_LENGTH);
+        byte[] macBody = reader.consumed();
+        byte[] serverMac = reader.field();
+        reader.end();
+
+        byte[] transcript = Handshake.hash(clientHello, macBody);
+        Handshake.Keys keys = Handshake.deriveKeys(clientRandom, serverRandom, ticket.secret(), transcript);
+        if (!MessageDigest.isEqual(serverMac, Hkdf.hmac(keys.serverFinishedKey(), transcript))) {
+            throw new HandshakeException("Invalid resumption proof from server");
+        }
+        byte[] clientMac = Hkdf.hmac(keys.clientFinishedKey(), Handshake.hash(clientHello, resumeAccept));
+        byte[] resumeFinish = new Handshake.Writer(Handshake.RESUME_FINISH).field(clientMac).toByteArray();
+
+        byte[] serverStatic = ticket.peerPublicKey();
+        PublicKey serverKey = peerKeys.resolve(serverStatic).publicKey();
+        if (!trustPolicy.test(serverKey)) {
+            throw new HandshakeException("Server key not trusted");
+        }
+        complete(serverKey, serverStatic, keys, true);
+        return resumeFinish;
+    }
+
+    private void complete(PublicKey serverKey, byte[] serverStatic, Handshake.Keys keys, boolean resumed)
+            throws InvalidKeyException {
+        SessionTicket next = new SessionTicket(keys.ticketId(), keys.resumptionSecret(), serverStatic,
+                System.currentTimeMillis() + ticketTtlMillis);
+        result = new HandshakeResult(serverKey,
+                new SessionCipher(keys.clientToServer(), keys.serverToClient()), resumed, next);
+        state = State.COMPLETE;
+        ephemeral = null;
+    }
+}
@@ -0,0 +1,181 @@
+package io.junix.xia.enc;
+
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.function.Predicate;
+
+/**
+ * 握手响应方（服务端）状态机，每次握手一个实例，非线程安全
+ * <p>
+ * 每收到客户端的一条消息调用一次 {@link #receive(byte[])}，返回值非 {@code null} 时发回客户端，
+ * 直到 {@link #isComplete()} 为真。
+ *
+ * @author wulogn
+ */
+public class HandshakeResponder {
+
+    private enum State { AWAIT_HELLO, AWAIT_FINISH, AWAIT_RESUME_FINISH, COMPLETE }
+
+    private final NodeIdentity identity;
+    private final SessionCache sessionCache;
+    private final Predicate<PublicKey> trustPolicy;
+    private final PeerKeyCache peerKeys;
+    private State state = State.AWAIT_HELLO;
+    private byte[] clientHello;
+    private byte[] serverReply;
+    private Handshake.Keys keys;
+    private SessionTicket resumedTicket;
+    private HandshakeResult result;
+
+    /**
+     * @param trustPolicy 判断客户端长期公钥是否可信
+     */
+    public HandshakeResponder(NodeIdentity identity, SessionCache sessionCache, Predicate<PublicKey> trustPolicy) {
+        this(identity, sessionCache, trustPolicy, PeerKeyCache.defaultCache());
+    }
+
+    /**
+     * @param peerKeys 客户端公钥的解码缓存，同一对端反复连接时不再解析密钥
+     */
+    public HandshakeResponder(NodeIdentity identity, SessionCache sessionCache, Predicate<PublicKey> trustPolicy,
+                              PeerKeyCache peerKeys) {
+        this.identity = identity;
+        this.peerKeys = peerKeys;
+        this.sessionCache = sessionCache;
+        this.trustPolicy = trustPolicy;
+    }
+
+    /**
+     * 处理客户端消息，返回需要回复的消息；握手完成时返回 {@code null}
+     */
+    public byte[] receive(byte[] message) throws HandshakeException {
+        try {
+            byte type = Handshake.type(message);
+            if (state == State.AWAIT_HELLO && type == Handshake.CLIENT_HELLO) {
+                return onClientHello(message);
+            }
+            if (state == State.AWAIT_FINISH && type == Handshake.CLIENT_FINISH) {
+                onClientFinish(message);
+                return null;
+            }
+            if (state == State.AWAIT_RESUME_FINISH && type == Handshake.RESUME_FINISH) {
+                onResumeFinish(message);
+                return null;
+            }
+            throw new HandshakeException("Unexpected handshake message type " + type + " in state " + state);
+        } catch (InvalidKeyException | SignatureException e) {
+            throw new HandshakeException("Handshake failed", e);
+        }
+    }
+
+    public boolean isComplete() {
+        return state == State.COMPLETE;
+    }
+
+    public HandshakeResult result() {
+        if (result == null) {
+            throw new IllegalStateException("Handshake not complete");
+        }
+        return result;
+    }
+
+    private byte[] onClientHello(byte[] hello) throws HandshakeException, InvalidKeyException, SignatureException {
+        Handshake.Reader reader = new Handshake.Reader(hello, Handshake.CLIENT_HELLO);
+        byte[] clientRandom = reader.raw(Handshake.RANDOM_LENGTH);
+        byte[] clientEphemeral = reader.field();
+        byte[] ticketId = reader.field();
+        reader.end();
+        clientHello = hello;
+        byte[] serverRandom = Handshake.newRandom();
+
+        if (ticketId.length > 0) {
+            resumedTicket = sessionCache.take(ticketId, System.currentTimeMillis());
+            if (resumedTicket == null) {
+                // 票据未知或已过期，要求客户端重新发起完整握手
+                clientHello = null;
+                return new Handshake.Writer(Handshake.HELLO_RETRY).toByteArray();
+            }
+            byte[] macBody = new Handshake.Writer(Handshake.RESUME_ACCEPT).raw(serverRandom).toByteArray();
+            byte[] transcript = Handshake.hash(clientHello, macBody);
+            keys = Handshake.deriveKeys(clientRandom, serverRandom, resumedTicket.secret(), transcript);
+            serverReply = new Handshake.Writer(Handshake.RESUME_ACCEPT)
+                    .raw(serverRandom)
+                    .field(Hkdf.hmac(keys.serverFinishedKey(), transcript))
+                    .toByteArray();
+            state = State.AWAIT_RESUME_FINISH;
+            return serverReply;
+        }
+
+        if (clientEphemeral.length == 0) {
+            throw new HandshakeException("Client hello carries neither ticket nor ephemeral key");
+        }
+        KeyPair ephemeral = Handshake.generateEphemeral();
+        byte[] signedBody = new Handshake.Writer(Handshake.SERVER_HELLO)
+                .raw(serverRandom)
+                .field(identity.encodedPublicKey())
+                .field(ephemeral.getPublic().getEncoded())
+                .toByteArray();
+        byte[] transcript = Handshake.hash(clientHello, signedBody);
+        byte[] signature = identity.signer().sign(Handshake.serverSignedContent(transcript));
+        serverReply = new Handshake.Writer(Handshake.SERVER_HELLO)
+                .raw(serverRandom)
+                .field(identity.encodedPublicKey())
+                .field(ephemeral.getPublic().getEncoded())
+                .field(signature)
+                .toByteArray();
+
+        byte[] shared = Handshake.agree(ephemeral.getPrivate(), clientEphemeral);
+        keys = Handshake.deriveKeys(clientRandom, serverRandom, shared, transcript);
+        state = State.AWAIT_FINISH;
+        return serverReply;
+    }
+
+    private void onClientFinish(byte[] finish) throws HandshakeException, InvalidKeyException {
+        Handshake.Reader reader = new Handshake.Reader(finish, Handshake.CLIENT_FINISH);
+        byte[] clientStatic = reader.field();
+        byte[] signedBody = reader.consumed();
+        byte[] signature = reader.field();
+        reader.end();
+
+        PeerKeyCache.Entry client = peerKeys.resolve(clientStatic);
+        PublicKey clientKey = client.publicKey();
+        byte[] transcript = Handshake.hash(clientHello, serverReply, signedBody);
+        if (!client.verifier().verify(Handshake.clientSignedContent(transcript), signature)) {
+            throw new HandshakeException("Invalid client signature");
+        }
+        if (!trustPolicy.test(clientKey)) {
+            throw new HandshakeException("Client key not trusted");
+        }
+        complete(clientKey, clientStatic, false);
+    }
+
+    private void onResumeFinish(byte[] finish) throws HandshakeException, InvalidKeyException {
+        Handshake.Reader reader = new Handshake.Reader(finish, Handshake.RESUME_FINISH);
+        byte[] clientMac = reader.field();
+        reader.end();
+
+        byte[] expected = Hkdf.hmac(keys.clientFinishedKey(), Handshake.hash(clientHello, serverReply));
+        if (!MessageDigest.isEqual(clientMac, expected)) {
+            throw new HandshakeException("Invalid resumption proof from client");
+        }
+        // 票据签发后对端可能已被拉黑，恢复同样须经过信任策略，否则可以凭票据无限续期
+        byte[] clientStatic = resumedTicket.peerPublicKey();
+        PublicKey clientKey = peerKeys.resolve(clientStatic).publicKey();
+        if (!trustPolicy.test(clientKey)) {
+            throw new HandshakeException("Client key not trusted");
+        }
+        complete(clientKey, clientStatic, true);
+    }
+
+    private void complete(PublicKey clientKey, byte[] clientStatic, boolean resumed) throws InvalidKeyException {
+        sessionCache.put(new SessionTicket(keys.ticketId(), keys.resumptionSecret(), clientStatic,
+                System.currentTimeMillis() + sessionCache.ttlMillis()));
+        result = new HandshakeResult(clientKey,
+                new SessionCipher(keys.serverToClient(), keys.clientToServer()), resumed, null);
+        state = State.COMPLETE;
+        keys = null;
+    }
+}
@@ -0,0 +1,14 @@
+package io.junix.xia.enc;
+
+import java.security.PublicKey;
+
+/**
+ * 握手完成后的结果
+ *
+ * @param peerPublicKey 对端长期 Ed25519 公钥
+ * @param cipher        本连接的会话加解密器
+ * @param resumed       是否为恢复握手
+ * @param ticket        客户端保存、下次重连使用的票据；服务端为 {@code null}
+ */
+public record HandshakeResult(PublicKey peerPublicKey, SessionCipher cipher, boolean resumed, SessionTicket ticket) {
+}
@@ -0,0 +1,65 @@
+package io.junix.xia.enc;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * HKDF-SHA256（RFC 5869），用于从握手共享秘密派生会话密钥
+ *
+ * @author wulogn
+ */
+final class Hkdf {
+
+    static final int HASH_LENGTH = 32;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private Hkdf() {
+    }
+
+    static byte[] extract(byte[] salt, byte[] ikm) throws InvalidKeyException {
+        return hmac(salt.length == 0 ? new byte[HASH_LENGTH] : salt, ikm);
+    }
+
+    static byte[] expand(byte[] prk, String label, byte[] context, int length) throws InvalidKeyException {
+        byte[] info = concat(label.getBytes(StandardCharsets.US_ASCII), context);
+        Mac mac = newMac(prk);
+        byte[] result = new byte[length];
+        byte[] block = new byte[0];
+        int offset = 0;
+        for (int counter = 1; offset < length; counter++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+            int n = Math.min(block.length, length - offset);
+            System.arraycopy(block, 0, result, offset, n);
+            offset += n;
+        }
+        return result;
+    }
+
+    static byte[] hmac(byte[] key, byte[] data) throws InvalidKeyException {
+        return newMac(key).doFinal(data);
+    }
+
+    static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static Mac newMac(byte[] key) throws InvalidKeyException {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+            return mac;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.junix.xia.enc;
+
+import io.junix.xia.metrics.Counter;
+import io.junix.xia.metrics.Metrics;
+
+import java.io.Closeable;
+import java.security.KeyPair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 预先生成的密钥对池，线程安全
+ * <p>
+ * 创建后即启动一个最低优先级的守护线程在后台补充，取用方只做一次出队，密钥生成不再计入握手延迟。
+ * 池中剩余降到一半时才唤醒补充线程，之后一次补满，让生成集中在事件循环空闲的时段；
+ * 池空时在调用线程中当场生成，计入 {@link #misses()} 和 {@code xia_key_pool_misses_total}，并在首次发生时告警。
+ * <p>
+ * 每个密钥对只会被取出一次。生成器在补充线程和池空时的调用线程中都会被调用，须线程安全，
+ * 通常按线程缓存 {@link java.security.KeyPairGenerator}。
+ *
+ * @author wulogn
+ */
+public final class KeyPairPool implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(KeyPairPool.class.getName());
+
+    private static final Counter MISSES = Metrics.counter("xia_key_pool_misses_total",
+            "Key pairs generated on the caller's thread because the pool was empty");
+
+    /**
+     * 补充线程单次休眠的最长时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final int capacity;
+    private final int refillThreshold;
+    private final Supplier<KeyPair> generator;
+    private final ArrayBlockingQueue<KeyPair> pairs;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Thread refiller;
+    private volatile boolean running = true;
+    private volatile boolean warned;
+
+    /**
+     * @param name     池名称，同时作为补充线程名
+     * @param capacity 预先生成的密钥对个数上限
+     */
+    public KeyPairPool(String name, int capacity, Supplier<KeyPair> generator) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.refillThreshold = capacity / 2;
+        this.generator = generator;
+        this.pairs = new ArrayBlockingQueue<>(capacity);
+        this.refiller = new Thread(this::refill, name);
+        refiller.setDaemon(true);
+        refiller.setPriority(Thread.MIN_PRIORITY);
+        refiller.start();
+    }
+
+    /**
+     * 取出一个密钥对，池空时在调用线程中生成
+     */
+    public KeyPair take() {
+        KeyPair pair = pairs.poll();
+        if (pairs.size() <= refillThreshold) {
+            LockSupport.unpark(refiller);
+        }
+        if (pair != null) {
+            hits.increment();
+            return pair;
+        }
+        misses.increment();
+        MISSES.increment();
+        if (!warned) {
+            warned = true;
+            LOG.log(System.Logger.Level.WARNING,
+                    "Key pair pool {0} ran empty, generating on the caller''s thread; consider a larger pool", name);
+        } else {
+            LOG.log(System.Logger.Level.DEBUG, "Key pair pool {0} ran empty", name);
+        }
+        return generator.get();
+    }
+
+    /**
+     * 当前可直接取用的密钥对个数
+     */
+    public int size() {
+        return pairs.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 累计从池中直接取到的次数
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * 累计因池空而在调用线程中生成的次数
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * 停止补充线程，之后的 {@link #take()} 取完剩余密钥对后均在调用线程中生成
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(refiller);
+    }
+
+    private void refill() {
+        while (running) {
+            if (pairs.size() > refillThreshold) {
+                // 等取用方在剩余降到一半时唤醒，定时醒来只为兜底错过的唤醒
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            while (running && pairs.remainingCapacity() > 0) {
+                try {
+                    pairs.offer(generator.get());
+                } catch (RuntimeException e) {
+                    LOG.log(System.Logger.Level.WARNING, "Failed to generate key pair for pool " + name, e);
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    break;
+                }
+            }
+        }
+    }
+}
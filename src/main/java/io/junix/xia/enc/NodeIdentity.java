@@ -0,0 +1,137 @@
+package io.junix.xia.enc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 节点身份：长期 Ed25519 密钥对及其绑定的签名器
+ * <p>
+ * 对端按公钥登记和授予信任，身份应跨重启保持不变，见 {@link #loadOrGenerate(Path)}。
+ *
+ * @author wulogn
+ */
+public class NodeIdentity {
+
+    private final KeyPair keyPair;
+    private final Ed25519Signer signer;
+    private final byte[] encodedPublicKey;
+
+    public NodeIdentity(KeyPair keyPair) throws InvalidKeyException {
+        this.keyPair = keyPair;
+        this.signer = Ed25519.newSigner(keyPair.getPrivate());
+        this.encodedPublicKey = keyPair.getPublic().getEncoded();
+    }
+
+    /**
+     * 生成新的随机身份
+     */
+    public static NodeIdentity generate() {
+        try {
+            return new NodeIdentity(Ed25519.generateKeyPair());
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 从身份文件读取身份，文件不存在时生成新身份并写入
+     * <p>
+     * 文件为两行 Base64：PKCS#8 编码的私钥和 X.509 编码的公钥。新文件先写入同目录的临时文件再原子改名，
+     * 支持 POSIX 权限的文件系统上只有所有者可读写。
+     *
+     * @throws IOException 读写失败或文件内容不是有效的 Ed25519 密钥对
+     */
+    public static NodeIdentity loadOrGenerate(Path file) throws IOException {
+        if (Files.exists(file)) {
+            return load(file);
+        }
+        NodeIdentity identity = generate();
+        Base64.Encoder encoder = Base64.getEncoder();
+        String content = encoder.encodeToString(identity.keyPair.getPrivate().getEncoded()) + "\n"
+                + encoder.encodeToString(identity.encodedPublicKey) + "\n";
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // 非 POSIX 文件系统，沿用目录的默认权限
+            }
+            Files.writeString(temp, content, StandardCharsets.US_ASCII);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return identity;
+    }
+
+    /**
+     * 从 {@link #loadOrGenerate(Path)} 写入的身份文件读取身份
+     */
+    public static NodeIdentity load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        if (lines.size() != 2) {
+            throw new IOException("Malformed identity file " + file);
+        }
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            KeyFactory factory = KeyFactory.getInstance(Ed25519.ALGORITHM);
+            PrivateKey privateKey = factory.generatePrivate(new PKCS8EncodedKeySpec(decoder.decode(lines.get(0))));
+            PublicKey publicKey = factory.generatePublic(new X509EncodedKeySpec(decoder.decode(lines.get(1))));
+            NodeIdentity identity = new NodeIdentity(new KeyPair(publicKey, privateKey));
+            // 两行必须属于同一密钥对，否则本节点签名无法用宣称的公钥验证
+            byte[] probe = identity.encodedPublicKey;
+            if (!Ed25519.verify(probe, publicKey, identity.signer.sign(probe))) {
+                throw new IOException("Identity file " + file + " holds mismatched keys");
+            }
+            return identity;
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            throw new IOException("Malformed identity file " + file, e);
+        }
+    }
+
+    public PublicKey publicKey() {
+        return keyPair.getPublic();
+    }
+
+    /**
+     * X.509 编码的公钥，返回内部数组，调用方不得修改
+     */
+    public byte[] encodedPublicKey() {
+        return encodedPublicKey;
+    }
+
+    public Ed25519Signer signer() {
+        return signer;
+    }
+
+    /**
+     * 解析 X.509 编码的 Ed25519 公钥
+     */
+    public static PublicKey decodePublicKey(byte[] encoded) throws InvalidKeyException {
+        try {
+            return KeyFactory.getInstance(Ed25519.ALGORITHM).generatePublic(new X509EncodedKeySpec(encoded));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (InvalidKeySpecException e) {
+            throw new InvalidKeyException("Malformed Ed25519 public key", e);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package io.junix.xia.enc;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 已解码对端公钥缓存：指纹（X.509 编码的 SHA-256）映射到解码后的 {@link PublicKey} 及其 {@link Ed25519Verifier}
+ * <p>
+ * 淘汰策略为 W-TinyLFU：新条目先进入约占 1% 容量的 LRU 窗口，被挤出窗口时与主区的 LRU 末尾比较访问频率，
+ * 频率更高者留下。频率由 4 位计数的 Count-Min Sketch 估计并定期减半老化，
+ * 因此一次性扫过的大量陌生公钥不会冲掉长期通信的对端。
+ * <p>
+ * 容量由内存上限按每个条目 {@link #ESTIMATED_ENTRY_BYTES} 字节估算得出。
+ *
+ * @author wulogn
+ */
+public class PeerKeyCache {
+
+    /**
+     * 单个条目的估算内存：解码后的公钥对象、验签器及其缓存的签名引擎、映射本身的开销
+     */
+    public static final int ESTIMATED_ENTRY_BYTES = 2048;
+
+    public static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+
+    private static final PeerKeyCache DEFAULT = new PeerKeyCache(
+            Long.getLong("xia.peerKeyCache.maxBytes", DEFAULT_MAX_BYTES));
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final LinkedHashMap<ByteBuffer, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<ByteBuffer, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PeerKeyCache(long maxBytes) {
+        int capacity = (int) Math.max(2, Math.min(Integer.MAX_VALUE, maxBytes / ESTIMATED_ENTRY_BYTES));
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * 进程内共享的默认缓存，容量由 {@code -Dxia.peerKeyCache.maxBytes} 指定
+     */
+    public static PeerKeyCache defaultCache() {
+        return DEFAULT;
+    }
+
+    /**
+     * 计算 X.509 编码公钥的指纹
+     */
+    public static byte[] fingerprint(byte[] encodedKey) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(encodedKey);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 按指纹查找，未缓存时返回 {@code null}
+     */
+    public Entry get(byte[] fingerprint) {
+        ByteBuffer key = ByteBuffer.wrap(fingerprint);
+        lock.lock();
+        try {
+            sketch.increment(key.hashCode());
+            Entry entry = window.get(key);
+            if (entry == null) {
+                entry = main.get(key);
+            }
+            if (entry != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按 X.509 编码查找，未命中时解码并放入缓存
+     *
+     * @throws InvalidKeyException 编码不是合法的 Ed25519 公钥
+     */
+    public Entry resolve(byte[] encodedKey) throws InvalidKeyException {
+        byte[] fingerprint = fingerprint(encodedKey);
+        Entry entry = get(fingerprint);
+        if (entry != null) {
+            return entry;
+        }
+        // 解码在锁外进行，并发的重复解码只是多做一次，结果等价
+        PublicKey publicKey = NodeIdentity.decodePublicKey(encodedKey);
+        entry = new Entry(fingerprint, publicKey, Ed25519.newVerifier(publicKey));
+        return put(entry);
+    }
+
+    private Entry put(Entry entry) {
+        ByteBuffer key = ByteBuffer.wrap(entry.fingerprint());
+        lock.lock();
+        try {
+            Entry existing = window.get(key);
+            if (existing == null) {
+                existing = main.get(key);
+            }
+            if (existing != null) {
+                return existing;
+            }
+            window.put(key, entry);
+            if (window.size() > windowCapacity) {
+                admitFromWindow();
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admitFromWindow() {
+        Iterator<Map.Entry<ByteBuffer, Entry>> windowIterator = window.entrySet().iterator();
+        Map.Entry<ByteBuffer, Entry> candidate = windowIterator.next();
+        windowIterator.remove();
+        if (main.size() < mainCapacity) {
+            main.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        Iterator<Map.Entry<ByteBuffer, Entry>> mainIterator = main.entrySet().iterator();
+        Map.Entry<ByteBuffer, Entry> victim = mainIterator.next();
+        if (sketch.frequency(candidate.getKey().hashCode()) > sketch.frequency(victim.getKey().hashCode())) {
+            mainIterator.remove();
+            main.put(candidate.getKey(), candidate.getValue());
+        }
+        evictions.increment();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return window.size() + main.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * 缓存条目
+     */
+    public record Entry(byte[] fingerprint, PublicKey publicKey, Ed25519Verifier verifier) {
+    }
+
+    /**
+     * 缓存统计快照
+     */
+    public record Stats(long hits, long misses, long evictions) {
+
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * 4 位计数的 Count-Min Sketch，计数总量达到阈值时全部减半
+     */
+    static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97cb3127, 0xb7d2e8a1, 0x5c6b1d8f, 0x3ac5b2f7};
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+            this.table = new long[size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * Math.max(capacity, 16);
+        }
+
+        int frequency(int hash) {
+            int min = 15;
+            for (int i = 0; i < 4; i++) {
+                min = Math.min(min, counter(hash, i));
+            }
+            return min;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = offsetOf(hash, i);
+                long value = (table[index] >>> offset) & 0xF;
+                if (value < 15) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int counter(int hash, int i) {
+            return (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xF);
+        }
+
+        private int indexOf(int hash, int i) {
+            int h = (hash ^ SEEDS[i]) * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int offsetOf(int hash, int i) {
+            // 每个 long 存 16 个 4 位计数，四个哈希函数各占其中四个槽位
+            return ((((hash >>> 8) & 3) << 2) + i) << 2;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.junix.xia.enc;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端会话恢复缓存，线程安全
+ * <p>
+ * 票据只能使用一次，恢复成功后由新握手派生的票据替换，被截获的票据无法重放。
+ * 票据按插入顺序保存在同一个有界表中：容量超限时淘汰最早的票据；所有票据的有效期相同，
+ * 因此过期的票据总在表头，每次放入时顺带清除。
+ *
+ * @author wulogn
+ */
+public class SessionCache {
+
+    public static final long DEFAULT_TTL_MILLIS = 12 * 60 * 60 * 1000L;
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    // 按插入顺序排列，只在持有该表的锁时访问
+    private final Map<ByteBuffer, SessionTicket> tickets = new LinkedHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SessionCache() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    public SessionCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    public long ttlMillis() {
+        return ttlMillis;
+    }
+
+    void put(SessionTicket ticket) {
+        long now = System.currentTimeMillis();
+        synchronized (tickets) {
+            tickets.put(ByteBuffer.wrap(ticket.id()), ticket);
+            Iterator<SessionTicket> iterator = tickets.values().iterator();
+            int excess = tickets.size() - maxEntries;
+            while (iterator.hasNext()) {
+                SessionTicket eldest = iterator.next();
+                if (excess <= 0 && !eldest.isExpired(now)) {
+                    break;
+                }
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * 取出并删除票据，不存在或已过期时返回 {@code null}
+     */
+    SessionTicket take(byte[] id, long nowMillis) {
+        SessionTicket ticket;
+        synchronized (tickets) {
+            ticket = tickets.remove(ByteBuffer.wrap(id));
+        }
+        if (ticket == null || ticket.isExpired(nowMillis)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return ticket;
+    }
+
+    public int size() {
+        synchronized (tickets) {
+            return tickets.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+}
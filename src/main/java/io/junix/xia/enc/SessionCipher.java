@@ -0,0 +1,149 @@
+package io.junix.xia.enc;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 基于 ChaCha20-Poly1305 的连接会话加解密，每个连接一个实例，非线程安全
+ * <p>
+ * 收发两个方向使用独立的密钥和 {@link Cipher} 实例，在连接生命周期内复用。
+ * nonce 由 4 字节零前缀加 8 字节大端计数器构成，计数器每帧递增，写入固定的 nonce 数组，
+ * 不需要为 nonce 额外生成随机数；计数器耗尽前必须重新握手换钥。
+ * <p>
+ * 加解密可以在调用方的缓冲内原地完成，也可以把明文直接加密到另一个缓冲（{@link #encrypt(ByteBuffer, ByteBuffer)}），
+ * 密文比明文多 {@link #TAG_LENGTH} 字节的认证标签。
+ * <p>
+ * 每帧仍会创建一个 {@link IvParameterSpec}：JCE 的 ChaCha20-Poly1305 只能通过 {@link Cipher#init} 传入新的 nonce，
+ * 参数对象不可变且在构造时复制 nonce 数组，加密模式下又拒绝以相同的密钥和 nonce 重新初始化，
+ * 因此无法跨帧复用，这是 12 字节数组加一个小对象的开销，帧数据本身不会被复制。
+ *
+ * @author wulogn
+ */
+public class SessionCipher {
+
+    public static final String ALGORITHM = "ChaCha20-Poly1305";
+    public static final int KEY_LENGTH = 32;
+    public static final int NONCE_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+
+    private final Direction send;
+    private final Direction receive;
+
+    /**
+     * @param sendKey    本端发送方向的 32 字节密钥
+     * @param receiveKey 本端接收方向的 32 字节密钥，与对端的发送密钥相同
+     */
+    public SessionCipher(byte[] sendKey, byte[] receiveKey) throws InvalidKeyException {
+        this.send = new Direction(sendKey, Cipher.ENCRYPT_MODE);
+        this.receive = new Direction(receiveKey, Cipher.DECRYPT_MODE);
+    }
+
+    /**
+     * 原地加密 {@code frame} 中 [position, limit) 的明文
+     * <p>
+     * 返回时 [position, limit) 为密文加认证标签，limit 增加 {@link #TAG_LENGTH}，position 不变。
+     *
+     * @throws ShortBufferException {@code frame} 容量不足以容纳认证标签
+     */
+    public void encrypt(ByteBuffer frame) throws GeneralSecurityException {
+        if (frame.capacity() - frame.limit() < TAG_LENGTH) {
+            throw new ShortBufferException("No room for " + TAG_LENGTH + "-byte tag");
+        }
+        send.apply(frame, frame.limit() + TAG_LENGTH);
+    }
+
+    /**
+     * 将 {@code plaintext} 的剩余字节加密写入 {@code out} 的当前位置，不复制明文
+     * <p>
+     * 返回时 {@code plaintext} 被读完，{@code out} 的 position 前进明文长度加 {@link #TAG_LENGTH}。
+     *
+     * @throws ShortBufferException {@code out} 剩余空间不足以容纳密文和认证标签
+     */
+    public void encrypt(ByteBuffer plaintext, ByteBuffer out) throws GeneralSecurityException {
+        if (out.remaining() < plaintext.remaining() + TAG_LENGTH) {
+            throw new ShortBufferException("Output needs " + (plaintext.remaining() + TAG_LENGTH) + " bytes");
+        }
+        send.init();
+        send.cipher.doFinal(plaintext, out);
+    }
+
+    /**
+     * 原地解密 {@code frame} 中 [position, limit) 的密文加认证标签
+     * <p>
+     * 返回时 [position, limit) 为明文，limit 减少 {@link #TAG_LENGTH}，position 不变。
+     *
+     * @throws AEADBadTagException 数据被篡改或密钥、nonce 不匹配
+     */
+    public void decrypt(ByteBuffer frame) throws GeneralSecurityException {
+        if (frame.remaining() < TAG_LENGTH) {
+            throw new AEADBadTagException("Frame shorter than tag");
+        }
+        receive.apply(frame, frame.limit() - TAG_LENGTH);
+    }
+
+    public long sentFrames() {
+        return send.counter;
+    }
+
+    public long receivedFrames() {
+        return receive.counter;
+    }
+
+    private static final class Direction {
+
+        private final Cipher cipher;
+        private final SecretKeySpec key;
+        private final int mode;
+        private final byte[] nonce = new byte[NONCE_LENGTH];
+        private long counter;
+
+        Direction(byte[] key, int mode) throws InvalidKeyException {
+            if (key == null || key.length != KEY_LENGTH) {
+                throw new InvalidKeyException("ChaCha20 key must be " + KEY_LENGTH + " bytes");
+            }
+            try {
+                this.cipher = Cipher.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                throw new RuntimeException(e);
+            }
+            this.key = new SecretKeySpec(key, "ChaCha20");
+            this.mode = mode;
+        }
+
+        void apply(ByteBuffer frame, int resultLimit) throws GeneralSecurityException {
+            init();
+            int position = frame.position();
+            // JCE 要求输入输出不是同一个缓冲对象，重叠的内存区域由 Cipher 保证安全
+            ByteBuffer input = frame.duplicate();
+            frame.limit(frame.capacity());
+            cipher.doFinal(input, frame);
+            frame.position(position);
+            frame.limit(resultLimit);
+        }
+
+        void init() throws GeneralSecurityException {
+            nextNonce();
+            cipher.init(mode, key, new IvParameterSpec(nonce));
+        }
+
+        private void nextNonce() throws InvalidAlgorithmParameterException {
+            if (counter == -1L) {
+                throw new InvalidAlgorithmParameterException("Nonce counter exhausted, session must be rekeyed");
+            }
+            long value = counter++;
+            for (int i = NONCE_LENGTH - 1; i >= NONCE_LENGTH - 8; i--) {
+                nonce[i] = (byte) value;
+                value >>>= 8;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.junix.xia.enc;
+
+import io.junix.xia.codec.CorruptedFrameException;
+import io.junix.xia.codec.FrameStage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * 以 {@link SessionCipher} 加解密帧负载的阶段，每个连接一个实例
+ * <p>
+ * 应作为离分帧层最近（最外层）的阶段，出站先压缩再加密，入站先解密再解压。
+ * 握手消息本身以明文传输：{@link #install} 之前原样放行，握手派生出会话密钥后由 {@link HandshakeHandler} 安装，
+ * 之后的帧都经过加密。双方在同一条消息的前后切换：发起方在发出最后一条握手消息后安装，
+ * 响应方在收到最后一条握手消息后安装，因此不会有帧被错误地按明文或密文处理。
+ * <p>
+ * 入站帧在接收缓冲内原地解密。出站帧直接加密到本阶段持有的直接内存区域中，按顺序追加，
+ * 返回的缓冲是该区域的切片；连接按顺序写出发送队列，上一次返回的帧写完即说明之前的帧都已写完，
+ * 下一帧从区域开头重新写入，稳定状态下不为每帧分配缓冲。区域剩余空间不足而帧仍在排队时换一块新区域，
+ * 旧区域随排队的帧写出后由 GC 回收。每帧仍需一个 {@code IvParameterSpec}，原因见 {@link SessionCipher}。
+ *
+ * @author wulogn
+ */
+public class SessionCipherStage implements FrameStage {
+
+    static final int REGION_SIZE = 64 * 1024;
+
+    private volatile SessionCipher cipher;
+    // 以下只在出站方向（事件循环线程）访问
+    private ByteBuffer region;
+    private ByteBuffer lastFrame;
+
+    /**
+     * 开始加解密之后的帧，只能安装一次
+     *
+     * @throws IllegalStateException 已经安装过
+     */
+    public void install(SessionCipher cipher) {
+        if (this.cipher != null) {
+            throw new IllegalStateException("Session cipher already installed");
+        }
+        this.cipher = cipher;
+    }
+
+    public boolean isInstalled() {
+        return cipher != null;
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer payload) throws IOException {
+        SessionCipher current = cipher;
+        if (current == null) {
+            return payload;
+        }
+        try {
+            // 在接收缓冲内原地解密
+            current.decrypt(payload);
+        } catch (GeneralSecurityException e) {
+            CorruptedFrameException corrupted = new CorruptedFrameException("Frame failed authentication");
+            corrupted.initCause(e);
+            throw corrupted;
+        }
+        return payload;
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer payload, boolean congested) throws IOException {
+        SessionCipher current = cipher;
+        if (current == null) {
+            return payload;
+        }
+        // 调用方的缓冲可能只读或没有容纳认证标签的余量，因此不原地加密，而是直接加密到区域中
+        int length = payload.remaining() + SessionCipher.TAG_LENGTH;
+        ByteBuffer out = reserve(length);
+        int start = out.position();
+        try {
+            current.encrypt(payload, out);
+        } catch (GeneralSecurityException e) {
+            out.position(start);
+            throw new IOException("Failed to encrypt frame", e);
+        }
+        lastFrame = out.slice(start, length);
+        return lastFrame;
+    }
+
+    /**
+     * 返回剩余空间不小于 {@code length} 的区域
+     */
+    private ByteBuffer reserve(int length) {
+        if (region != null && lastFrame != null && !lastFrame.hasRemaining()) {
+            // 已返回的帧都已写出，区域可以从头复用
+            region.clear();
+            lastFrame = null;
+        }
+        if (region == null || region.remaining() < length) {
+            region = ByteBuffer.allocateDirect(Math.max(REGION_SIZE, length));
+        }
+        return region;
+    }
+
+    @Override
+    public void release() {
+        region = null;
+        lastFrame = null;
+    }
+}
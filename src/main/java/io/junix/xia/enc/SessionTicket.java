@@ -0,0 +1,23 @@
+package io.junix.xia.enc;
+
+import java.util.Arrays;
+
+/**
+ * 会话恢复票据，客户端在完整握手后保存，重连时凭此跳过非对称运算
+ *
+ * @param id             票据标识，服务端据此查找恢复秘密
+ * @param secret         恢复秘密，双方各自从上一次握手中派生，从不在网络上传输
+ * @param peerPublicKey  对端长期公钥（X.509 编码），恢复时沿用
+ * @param expiresAtMillis 过期时间
+ */
+public record SessionTicket(byte[] id, byte[] secret, byte[] peerPublicKey, long expiresAtMillis) {
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionTicket[id=" + Arrays.toString(id) + ", expiresAtMillis=" + expiresAtMillis + "]";
+    }
+}
@@ -0,0 +1,104 @@
+package io.junix.xia.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按对端（IP 地址或公钥指纹）分别限速，每个对端一个 {@link TokenBucket}，线程安全
+ * <p>
+ * 已知对端的判断只有一次哈希表查找和一次 CAS。补满的桶不携带状态，在表满时被清理；
+ * 清理后仍然满说明有大量对端同时处于限速中，新对端直接拒绝，避免伪造来源撑爆内存。
+ *
+ * @param <K> 对端标识，须实现 {@code equals}/{@code hashCode}
+ * @author wulogn
+ */
+public final class PeerRateLimiter<K> {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<K, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final int maxPeers;
+    private final AtomicLong lastSweep = new AtomicLong(NEVER);
+    private final LongAdder rejected = new LongAdder();
+    private volatile double permitsPerSecond;
+    private volatile int burst;
+
+    /**
+     * @param maxPeers 同时跟踪的对端数上限
+     */
+    public PeerRateLimiter(double permitsPerSecond, int burst, int maxPeers) {
+        if (maxPeers < 1) {
+            throw new IllegalArgumentException("maxPeers must be positive: " + maxPeers);
+        }
+        TokenBucket.checkRate(permitsPerSecond, burst);
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxPeers = maxPeers;
+    }
+
+    public boolean tryAcquire(K peer) {
+        return tryAcquire(peer, System.nanoTime());
+    }
+
+    /**
+     * 为 {@code peer} 取一个令牌，被限速时返回 {@code false}；{@code nowNanos} 须始终使用同一时基
+     */
+    public boolean tryAcquire(K peer, long nowNanos) {
+        TokenBucket bucket = buckets.get(peer);
+        if (bucket == null) {
+            if (buckets.size() >= maxPeers && (!sweep(nowNanos) || buckets.size() >= maxPeers)) {
+                rejected.increment();
+                return false;
+            }
+            bucket = buckets.computeIfAbsent(peer, key -> new TokenBucket(permitsPerSecond, burst, nowNanos));
+        }
+        if (bucket.tryAcquire(1, nowNanos)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 调整所有对端的速率和容量
+     */
+    public void setRate(double permitsPerSecond, int burst) {
+        TokenBucket.checkRate(permitsPerSecond, burst);
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        for (TokenBucket bucket : buckets.values()) {
+            bucket.setRate(permitsPerSecond, burst);
+        }
+    }
+
+    /**
+     * 正在跟踪的对端数
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * 累计被拒绝的次数
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 丢弃已补满的桶，两次清理至少间隔 100 毫秒，返回本次是否执行了清理
+     * <p>
+     * 与清理并发取令牌的对端可能多得到一次突发额度，换来查找路径上不加锁。
+     */
+    private boolean sweep(long nowNanos) {
+        long last = lastSweep.get();
+        if (last != NEVER && nowNanos - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, nowNanos)) {
+            return false;
+        }
+        buckets.values().removeIf(bucket -> bucket.isFull(nowNanos));
+        return true;
+    }
+}
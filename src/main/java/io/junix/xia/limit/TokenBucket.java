@@ -0,0 +1,129 @@
+package io.junix.xia.limit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 无锁令牌桶，线程安全
+ * <p>
+ * 按 GCRA（通用信元速率算法）实现：状态只有一个"理论到达时间"，每取一个令牌向后推一个发放间隔，
+ * 推到超出当前时间一个桶容量之外即为令牌耗尽。取令牌是一次 CAS，不需要定时补充，也不需要加锁。
+ *
+ * @author wulogn
+ */
+public final class TokenBucket {
+
+    private static final VarHandle TAT;
+
+    static {
+        try {
+            TAT = MethodHandles.lookup().findVarHandle(TokenBucket.class, "theoreticalArrival", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile Rate rate;
+    /**
+     * 令牌全部补满的时间（{@link System#nanoTime()} 时基），不晚于当前时间时桶是满的
+     */
+    @SuppressWarnings("unused")
+    private volatile long theoreticalArrival;
+
+    /**
+     * 创建一个满桶
+     *
+     * @param permitsPerSecond 令牌补充速率
+     * @param burst            桶容量，即空闲后允许的最大突发数
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System.nanoTime());
+    }
+
+    /**
+     * 以 {@code nowNanos} 为时基创建满桶，之后传入的时间须使用同一时基
+     */
+    public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.rate = Rate.of(permitsPerSecond, burst);
+        this.theoreticalArrival = nowNanos;
+    }
+
+    /**
+     * 调整速率和容量，只影响之后取的令牌：此前预支的令牌已折算为等待时间，仍需按原速率等完
+     */
+    public void setRate(double permitsPerSecond, int burst) {
+        this.rate = Rate.of(permitsPerSecond, burst);
+    }
+
+    /**
+     * 校验速率参数，不合法时抛出 {@link IllegalArgumentException}
+     */
+    static void checkRate(double permitsPerSecond, int burst) {
+        Rate.of(permitsPerSecond, burst);
+    }
+
+    public double permitsPerSecond() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / rate.intervalNanos;
+    }
+
+    public int burst() {
+        return rate.burst;
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1, System.nanoTime());
+    }
+
+    /**
+     * 取 {@code permits} 个令牌，不足时不取并返回 {@code false}
+     */
+    public boolean tryAcquire(int permits, long nowNanos) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be positive: " + permits);
+        }
+        Rate rate = this.rate;
+        long cost = rate.intervalNanos * permits;
+        while (true) {
+            long tat = (long) TAT.getVolatile(this);
+            long base = tat - nowNanos < 0 ? nowNanos : tat;
+            long next = base + cost;
+            if (next - nowNanos > rate.capacityNanos) {
+                return false;
+            }
+            if (TAT.compareAndSet(this, tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 距离能取到一个令牌还需的纳秒数，有令牌时为 0
+     */
+    public long nanosUntilAvailable(long nowNanos) {
+        Rate rate = this.rate;
+        long wait = theoreticalArrival + rate.intervalNanos - rate.capacityNanos - nowNanos;
+        return Math.max(0, wait);
+    }
+
+    /**
+     * 桶是否已补满；满桶不携带任何状态，可以丢弃后按需重建
+     */
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrival - nowNanos <= 0;
+    }
+
+    private record Rate(long intervalNanos, long capacityNanos, int burst) {
+
+        static Rate of(double permitsPerSecond, int burst) {
+            if (!(permitsPerSecond > 0)) {
+                throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+            }
+            if (burst < 1) {
+                throw new IllegalArgumentException("burst must be positive: " + burst);
+            }
+            long interval = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+            return new Rate(interval, interval * burst, burst);
+        }
+    }
+}
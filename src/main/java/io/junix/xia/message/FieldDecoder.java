@@ -0,0 +1,148 @@
+package io.junix.xia.message;
+
+import java.nio.ByteBuffer;
+
+import static io.junix.xia.message.WireFormat.*;
+
+/**
+ * 字段解码工具类，从缓冲的当前位置读取到 limit 为止，不分配对象
+ * <p>
+ * 字符串与嵌套消息只记录其在输入缓冲中的位置，真正读取时才解码。
+ *
+ * @author wulogn
+ */
+public final class FieldDecoder {
+
+    private FieldDecoder() {
+    }
+
+    /**
+     * 读取下一个字段的标签，输入已读完时返回 0
+     */
+    public static int readTag(ByteBuffer in) throws MalformedMessageException {
+        if (!in.hasRemaining()) {
+            return 0;
+        }
+        long tag = readVarint64(in);
+        if (tag >>> 32 != 0 || fieldNumber((int) tag) == 0) {
+            throw new MalformedMessageException("Invalid tag " + tag);
+        }
+        return (int) tag;
+    }
+
+    public static long readVarint64(ByteBuffer in) throws MalformedMessageException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new MalformedMessageException("Truncated varint");
+            }
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new MalformedMessageException("Varint longer than 10 bytes");
+    }
+
+    public static int readInt32(ByteBuffer in) throws MalformedMessageException {
+        return (int) readVarint64(in);
+    }
+
+    public static long readUInt64(ByteBuffer in) throws MalformedMessageException {
+        return readVarint64(in);
+    }
+
+    public static long readSInt64(ByteBuffer in) throws MalformedMessageException {
+        return unZigZag(readVarint64(in));
+    }
+
+    public static boolean readBool(ByteBuffer in) throws MalformedMessageException {
+        return readVarint64(in) != 0;
+    }
+
+    public static long readFixed64(ByteBuffer in) throws MalformedMessageException {
+        if (in.remaining() < Long.BYTES) {
+            throw new MalformedMessageException("Truncated fixed64");
+        }
+        return Long.reverseBytes(in.getLong());
+    }
+
+    public static double readDouble(ByteBuffer in) throws MalformedMessageException {
+        return Double.longBitsToDouble(readFixed64(in));
+    }
+
+    /**
+     * 读取长度前缀并检查其不超过剩余字节
+     */
+    public static int readLength(ByteBuffer in) throws MalformedMessageException {
+        long length = readVarint64(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new MalformedMessageException("Length " + length + " exceeds remaining " + in.remaining());
+        }
+        return (int) length;
+    }
+
+    /**
+     * 复制 {@code bytes} 字段的内容，用于不在热路径上的消息
+     */
+    public static byte[] readBytes(ByteBuffer in) throws MalformedMessageException {
+        byte[] value = new byte[readLength(in)];
+        in.get(value);
+        return value;
+    }
+
+    /**
+     * 让 {@code value} 引用输入缓冲中的字符串字节，读取内容时才解码
+     */
+    public static void readString(ByteBuffer in, Utf8Field value) throws MalformedMessageException {
+        int length = readLength(in);
+        value.wrap(in, in.position(), length);
+        in.position(in.position() + length);
+    }
+
+    /**
+     * 立即解码嵌套消息并合并到 {@code value}
+     */
+    public static void readMessage(ByteBuffer in, Message value) throws MalformedMessageException {
+        int length = readLength(in);
+        int limit = in.limit();
+        int end = in.position() + length;
+        in.limit(end);
+        try {
+            value.mergeFrom(in);
+        } finally {
+            in.limit(limit);
+        }
+        in.position(end);
+    }
+
+    /**
+     * 记录嵌套消息的位置，首次读取时才解码
+     */
+    public static void readMessage(ByteBuffer in, LazyMessage<?> value) throws MalformedMessageException {
+        int length = readLength(in);
+        value.wrap(in, in.position(), length);
+        in.position(in.position() + length);
+    }
+
+    /**
+     * 跳过一个字段的值，用于未知字段
+     */
+    public static void skipField(ByteBuffer in, int tag) throws MalformedMessageException {
+        switch (wireType(tag)) {
+            case VARINT -> readVarint64(in);
+            case FIXED64 -> skip(in, Long.BYTES);
+            case LENGTH_DELIMITED -> skip(in, readLength(in));
+            case FIXED32 -> skip(in, Integer.BYTES);
+            default -> throw new MalformedMessageException("Unsupported wire type " + wireType(tag));
+        }
+    }
+
+    private static void skip(ByteBuffer in, int length) throws MalformedMessageException {
+        if (in.remaining() < length) {
+            throw new MalformedMessageException("Truncated field");
+        }
+        in.position(in.position() + length);
+    }
+}
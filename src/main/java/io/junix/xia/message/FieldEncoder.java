@@ -0,0 +1,142 @@
+package io.junix.xia.message;
+
+import java.nio.ByteBuffer;
+
+import static io.junix.xia.message.WireFormat.*;
+
+/**
+ * 字段编码工具类，直接写入调用方提供的缓冲（堆内或直接内存），不分配对象
+ * <p>
+ * 各 {@code sizeOf} 方法计算包括标签在内的字段编码长度，用于预先确定缓冲大小和嵌套消息的长度前缀。
+ * proto3 中取默认值的字段不应写出，由消息实现自行判断。
+ *
+ * @author wulogn
+ */
+public final class FieldEncoder {
+
+    private FieldEncoder() {
+    }
+
+    public static void writeTag(ByteBuffer out, int field, int wireType) {
+        writeVarint64(out, tag(field, wireType) & 0xFFFFFFFFL);
+    }
+
+    public static void writeVarint64(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * {@code int32}/{@code enum} 字段，负数按 64 位符号扩展编码为 10 字节
+     */
+    public static void writeInt32(ByteBuffer out, int field, int value) {
+        writeTag(out, field, VARINT);
+        writeVarint64(out, value);
+    }
+
+    public static void writeUInt64(ByteBuffer out, int field, long value) {
+        writeTag(out, field, VARINT);
+        writeVarint64(out, value);
+    }
+
+    public static void writeSInt64(ByteBuffer out, int field, long value) {
+        writeTag(out, field, VARINT);
+        writeVarint64(out, zigZag(value));
+    }
+
+    public static void writeBool(ByteBuffer out, int field, boolean value) {
+        writeTag(out, field, VARINT);
+        out.put((byte) (value ? 1 : 0));
+    }
+
+    public static void writeFixed64(ByteBuffer out, int field, long value) {
+        writeTag(out, field, FIXED64);
+        out.putLong(Long.reverseBytes(value));
+    }
+
+    public static void writeDouble(ByteBuffer out, int field, double value) {
+        writeFixed64(out, field, Double.doubleToRawLongBits(value));
+    }
+
+    public static void writeString(ByteBuffer out, int field, Utf8Field value) {
+        writeTag(out, field, LENGTH_DELIMITED);
+        writeVarint64(out, value.encodedLength());
+        value.writeTo(out);
+    }
+
+    /**
+     * {@code bytes} 字段，也可用于已编码为 UTF-8 的 {@code string} 字段
+     */
+    public static void writeBytes(ByteBuffer out, int field, byte[] value) {
+        writeTag(out, field, LENGTH_DELIMITED);
+        writeVarint64(out, value.length);
+        out.put(value);
+    }
+
+    public static void writeMessage(ByteBuffer out, int field, Message value) {
+        writeTag(out, field, LENGTH_DELIMITED);
+        writeVarint64(out, value.serializedSize());
+        value.writeTo(out);
+    }
+
+    /**
+     * 写出嵌套消息，未解码过的直接复制收到时的原始字节
+     */
+    public static void writeMessage(ByteBuffer out, int field, LazyMessage<?> value) {
+        writeTag(out, field, LENGTH_DELIMITED);
+        writeVarint64(out, value.serializedSize());
+        value.writeTo(out);
+    }
+
+    public static int sizeOfVarint64(long value) {
+        // 每 7 位一个字节，0 也占一个字节
+        return (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    public static int sizeOfTag(int field) {
+        return sizeOfVarint64(tag(field, VARINT) & 0xFFFFFFFFL);
+    }
+
+    public static int sizeOfInt32(int field, int value) {
+        return sizeOfTag(field) + sizeOfVarint64(value);
+    }
+
+    public static int sizeOfUInt64(int field, long value) {
+        return sizeOfTag(field) + sizeOfVarint64(value);
+    }
+
+    public static int sizeOfSInt64(int field, long value) {
+        return sizeOfTag(field) + sizeOfVarint64(zigZag(value));
+    }
+
+    public static int sizeOfBool(int field) {
+        return sizeOfTag(field) + 1;
+    }
+
+    public static int sizeOfFixed64(int field) {
+        return sizeOfTag(field) + Long.BYTES;
+    }
+
+    public static int sizeOfString(int field, Utf8Field value) {
+        return sizeOfLengthDelimited(field, value.encodedLength());
+    }
+
+    public static int sizeOfBytes(int field, byte[] value) {
+        return sizeOfLengthDelimited(field, value.length);
+    }
+
+    public static int sizeOfMessage(int field, Message value) {
+        return sizeOfLengthDelimited(field, value.serializedSize());
+    }
+
+    public static int sizeOfMessage(int field, LazyMessage<?> value) {
+        return sizeOfLengthDelimited(field, value.serializedSize());
+    }
+
+    public static int sizeOfLengthDelimited(int field, int length) {
+        return sizeOfTag(field) + sizeOfVarint64(length) + length;
+    }
+}
@@ -0,0 +1,94 @@
+package io.junix.xia.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 延迟解码的嵌套消息字段
+ * <p>
+ * 解码外层消息时只记录嵌套消息在输入缓冲中的位置，首次 {@link #get()} 时才解码到复用的实例中；
+ * 从未读取的字段在重新编码（例如转发）时直接复制原始字节。引用的输入缓冲被复用前须完成读取。
+ *
+ * @author wulogn
+ */
+public final class LazyMessage<T extends Message> {
+
+    private final T value;
+    private ByteBuffer source;
+    private int offset;
+    private int length;
+    private boolean present;
+
+    /**
+     * @param value 复用的消息实例，每个字段一个
+     */
+    public LazyMessage(T value) {
+        this.value = value;
+    }
+
+    void wrap(ByteBuffer buffer, int offset, int length) {
+        value.clear();
+        this.source = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.present = true;
+    }
+
+    public boolean isPresent() {
+        return present;
+    }
+
+    /**
+     * 是否仍持有未解码的原始字节
+     */
+    public boolean isDecoded() {
+        return source == null;
+    }
+
+    /**
+     * 读取字段值，未出现时返回全部为默认值的实例
+     */
+    public T get() throws MalformedMessageException {
+        if (source != null) {
+            ByteBuffer in = source;
+            source = null;
+            // 临时收窄输入缓冲的读取范围，读完恢复，避免为每次解码创建视图对象
+            int position = in.position();
+            int limit = in.limit();
+            in.limit(offset + length).position(offset);
+            try {
+                value.mergeFrom(in);
+            } finally {
+                in.limit(limit).position(position);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 取得可修改的字段值并标记为已出现
+     */
+    public T mutable() throws MalformedMessageException {
+        T mutable = get();
+        present = true;
+        return mutable;
+    }
+
+    public void clear() {
+        value.clear();
+        source = null;
+        present = false;
+    }
+
+    int serializedSize() {
+        return source != null ? length : value.serializedSize();
+    }
+
+    void writeTo(ByteBuffer out) {
+        if (source != null) {
+            out.put(out.position(), source, offset, length);
+            out.position(out.position() + length);
+        } else {
+            value.writeTo(out);
+        }
+    }
+}
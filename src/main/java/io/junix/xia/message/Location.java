@@ -0,0 +1,99 @@
+package io.junix.xia.message;
+
+import java.nio.ByteBuffer;
+
+import static io.junix.xia.message.FieldEncoder.*;
+
+/**
+ * 取送货地点
+ * <pre>
+ * message Location {
+ *   double latitude = 1;
+ *   double longitude = 2;
+ *   string address = 3;
+ * }
+ * </pre>
+ *
+ * @author wulogn
+ */
+public final class Location implements Message {
+
+    private double latitude;
+    private double longitude;
+    private final Utf8Field address = new Utf8Field();
+
+    public double latitude() {
+        return latitude;
+    }
+
+    public Location setLatitude(double latitude) {
+        this.latitude = latitude;
+        return this;
+    }
+
+    public double longitude() {
+        return longitude;
+    }
+
+    public Location setLongitude(double longitude) {
+        this.longitude = longitude;
+        return this;
+    }
+
+    public Utf8Field address() {
+        return address;
+    }
+
+    public Location setAddress(CharSequence address) {
+        this.address.set(address);
+        return this;
+    }
+
+    @Override
+    public int serializedSize() {
+        int size = 0;
+        if (Double.doubleToRawLongBits(latitude) != 0) {
+            size += sizeOfFixed64(1);
+        }
+        if (Double.doubleToRawLongBits(longitude) != 0) {
+            size += sizeOfFixed64(2);
+        }
+        if (!address.isEmpty()) {
+            size += sizeOfString(3, address);
+        }
+        return size;
+    }
+
+    @Override
+    public void writeTo(ByteBuffer out) {
+        if (Double.doubleToRawLongBits(latitude) != 0) {
+            writeDouble(out, 1, latitude);
+        }
+        if (Double.doubleToRawLongBits(longitude) != 0) {
+            writeDouble(out, 2, longitude);
+        }
+        if (!address.isEmpty()) {
+            writeString(out, 3, address);
+        }
+    }
+
+    @Override
+    public void mergeFrom(ByteBuffer in) throws MalformedMessageException {
+        int tag;
+        while ((tag = FieldDecoder.readTag(in)) != 0) {
+            switch (tag) {
+                case (1 << 3) | WireFormat.FIXED64 -> latitude = FieldDecoder.readDouble(in);
+                case (2 << 3) | WireFormat.FIXED64 -> longitude = FieldDecoder.readDouble(in);
+                case (3 << 3) | WireFormat.LENGTH_DELIMITED -> FieldDecoder.readString(in, address);
+                default -> FieldDecoder.skipField(in, tag);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        latitude = 0;
+        longitude = 0;
+        address.clear();
+    }
+}
@@ -0,0 +1,17 @@
+package io.junix.xia.message;
+
+import java.io.IOException;
+
+/**
+ * 消息字节不符合 Protocol Buffers 编码格式
+ *
+ * @author wulogn
+ */
+public class MalformedMessageException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MalformedMessageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,34 @@
+package io.junix.xia.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按 schema 定义、与 Protocol Buffers（proto3）线格式兼容的消息
+ * <p>
+ * 消息对象是可复用的：{@link #clear()} 后重新 {@link #mergeFrom 解码}，解码过程本身不分配对象。
+ * 字符串和 {@link LazyMessage 嵌套消息}解码后引用输入缓冲，在该缓冲被复用前有效。
+ *
+ * @author wulogn
+ */
+public interface Message {
+
+    /**
+     * 编码后的字节数
+     */
+    int serializedSize();
+
+    /**
+     * 从 {@code out} 的当前位置写入编码，空间不足时抛出 {@link java.nio.BufferOverflowException}
+     */
+    void writeTo(ByteBuffer out);
+
+    /**
+     * 解码 {@code in} 从当前位置到 limit 的全部字节并合并到本消息，未知字段被跳过
+     */
+    void mergeFrom(ByteBuffer in) throws MalformedMessageException;
+
+    /**
+     * 将所有字段恢复为默认值
+     */
+    void clear();
+}
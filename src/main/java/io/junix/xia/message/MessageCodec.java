@@ -0,0 +1,34 @@
+package io.junix.xia.message;
+
+import io.junix.xia.buffer.BufferArena;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 消息与池化缓冲之间的编解码入口
+ *
+ * @author wulogn
+ */
+public final class MessageCodec {
+
+    private MessageCodec() {
+    }
+
+    /**
+     * 从 {@code arena} 申请恰好容纳编码结果的缓冲并写入，返回已 flip 的缓冲，用完后由调用方归还
+     */
+    public static ByteBuffer encode(Message message, BufferArena arena) {
+        ByteBuffer out = arena.acquire(message.serializedSize());
+        message.writeTo(out);
+        return out.flip();
+    }
+
+    /**
+     * 清空 {@code reuse} 后将 {@code in} 的剩余字节解码到其中
+     */
+    public static <T extends Message> T decode(ByteBuffer in, T reuse) throws MalformedMessageException {
+        reuse.clear();
+        reuse.mergeFrom(in);
+        return reuse;
+    }
+}
@@ -0,0 +1,185 @@
+package io.junix.xia.message;
+
+import java.nio.ByteBuffer;
+
+import static io.junix.xia.message.FieldEncoder.*;
+
+/**
+ * 商家向骑手派发的订单
+ * <pre>
+ * message OrderDispatch {
+ *   uint64 order_id = 1;
+ *   string merchant = 2;
+ *   sint64 amount = 3;       // 金额，单位为分，退款单为负
+ *   fixed64 created_at = 4;  // 毫秒时间戳
+ *   int32 priority = 5;
+ *   Location pickup = 6;
+ *   Location dropoff = 7;
+ *   string note = 8;
+ * }
+ * </pre>
+ * 取送货地点只在接单后才需要，解码时延迟到首次读取。
+ *
+ * @author wulogn
+ */
+public final class OrderDispatch implements Message {
+
+    private long orderId;
+    private final Utf8Field merchant = new Utf8Field();
+    private long amount;
+    private long createdAt;
+    private int priority;
+    private final LazyMessage<Location> pickup = new LazyMessage<>(new Location());
+    private final LazyMessage<Location> dropoff = new LazyMessage<>(new Location());
+    private final Utf8Field note = new Utf8Field();
+
+    public long orderId() {
+        return orderId;
+    }
+
+    public OrderDispatch setOrderId(long orderId) {
+        this.orderId = orderId;
+        return this;
+    }
+
+    public Utf8Field merchant() {
+        return merchant;
+    }
+
+    public OrderDispatch setMerchant(CharSequence merchant) {
+        this.merchant.set(merchant);
+        return this;
+    }
+
+    public long amount() {
+        return amount;
+    }
+
+    public OrderDispatch setAmount(long amount) {
+        this.amount = amount;
+        return this;
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    public OrderDispatch setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+        return this;
+    }
+
+    public int priority() {
+        return priority;
+    }
+
+    public OrderDispatch setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    public LazyMessage<Location> pickup() {
+        return pickup;
+    }
+
+    public LazyMessage<Location> dropoff() {
+        return dropoff;
+    }
+
+    public Utf8Field note() {
+        return note;
+    }
+
+    public OrderDispatch setNote(CharSequence note) {
+        this.note.set(note);
+        return this;
+    }
+
+    @Override
+    public int serializedSize() {
+        int size = 0;
+        if (orderId != 0) {
+            size += sizeOfUInt64(1, orderId);
+        }
+        if (!merchant.isEmpty()) {
+            size += sizeOfString(2, merchant);
+        }
+        if (amount != 0) {
+            size += sizeOfSInt64(3, amount);
+        }
+        if (createdAt != 0) {
+            size += sizeOfFixed64(4);
+        }
+        if (priority != 0) {
+            size += sizeOfInt32(5, priority);
+        }
+        if (pickup.isPresent()) {
+            size += sizeOfMessage(6, pickup);
+        }
+        if (dropoff.isPresent()) {
+            size += sizeOfMessage(7, dropoff);
+        }
+        if (!note.isEmpty()) {
+            size += sizeOfString(8, note);
+        }
+        return size;
+    }
+
+    @Override
+    public void writeTo(ByteBuffer out) {
+        if (orderId != 0) {
+            writeUInt64(out, 1, orderId);
+        }
+        if (!merchant.isEmpty()) {
+            writeString(out, 2, merchant);
+        }
+        if (amount != 0) {
+            writeSInt64(out, 3, amount);
+        }
+        if (createdAt != 0) {
+            writeFixed64(out, 4, createdAt);
+        }
+        if (priority != 0) {
+            writeInt32(out, 5, priority);
+        }
+        if (pickup.isPresent()) {
+            writeMessage(out, 6, pickup);
+        }
+        if (dropoff.isPresent()) {
+            writeMessage(out, 7, dropoff);
+        }
+        if (!note.isEmpty()) {
+            writeString(out, 8, note);
+        }
+    }
+
+    @Override
+    public void mergeFrom(ByteBuffer in) throws MalformedMessageException {
+        int tag;
+        while ((tag = FieldDecoder.readTag(in)) != 0) {
+            switch (tag) {
+                case (1 << 3) | WireFormat.VARINT -> orderId = FieldDecoder.readUInt64(in);
+                case (2 << 3) | WireFormat.LENGTH_DELIMITED -> FieldDecoder.readString(in, merchant);
+                case (3 << 3) | WireFormat.VARINT -> amount = FieldDecoder.readSInt64(in);
+                case (4 << 3) | WireFormat.FIXED64 -> createdAt = FieldDecoder.readFixed64(in);
+                case (5 << 3) | WireFormat.VARINT -> priority = FieldDecoder.readInt32(in);
+                case (6 << 3) | WireFormat.LENGTH_DELIMITED -> FieldDecoder.readMessage(in, pickup);
+                case (7 << 3) | WireFormat.LENGTH_DELIMITED -> FieldDecoder.readMessage(in, dropoff);
+                case (8 << 3) | WireFormat.LENGTH_DELIMITED -> FieldDecoder.readString(in, note);
+                default -> FieldDecoder.skipField(in, tag);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        orderId = 0;
+        merchant.clear();
+        amount = 0;
+        createdAt = 0;
+        priority = 0;
+        pickup.clear();
+        dropoff.clear();
+        note.clear();
+    }
+}
@@ -0,0 +1,178 @@
+package io.junix.xia.message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 可复用的字符串字段
+ * <p>
+ * 编码侧通过 {@link #set(CharSequence)} 引用调用方的字符序列，写出时逐字符编码为 UTF-8；
+ * 解码侧只引用输入缓冲中的字节，{@link #contentEquals} 直接在字节上比较，
+ * 只有调用 {@link #toString()} 时才分配 {@link String}。原样转发时直接复制字节。
+ *
+ * @author wulogn
+ */
+public final class Utf8Field {
+
+    private CharSequence chars;
+    private ByteBuffer source;
+    private int offset;
+    private int length;
+    private String decoded;
+
+    /**
+     * 设置字段值，写出前不得再修改 {@code value}
+     */
+    public Utf8Field set(CharSequence value) {
+        clear();
+        if (value != null) {
+            chars = value;
+            length = utf8Length(value);
+        }
+        return this;
+    }
+
+    void wrap(ByteBuffer buffer, int offset, int length) {
+        clear();
+        this.source = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public void clear() {
+        chars = null;
+        source = null;
+        decoded = null;
+        offset = 0;
+        length = 0;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * UTF-8 编码后的字节数
+     */
+    public int encodedLength() {
+        return length;
+    }
+
+    void writeTo(ByteBuffer out) {
+        if (source != null) {
+            out.put(out.position(), source, offset, length);
+            out.position(out.position() + length);
+        } else if (chars != null) {
+            encode(chars, out);
+        }
+    }
+
+    /**
+     * 与 {@code other} 按字符比较，不解码为 {@link String}
+     */
+    public boolean contentEquals(CharSequence other) {
+        if (chars != null) {
+            return CharSequence.compare(chars, other) == 0;
+        }
+        if (source == null) {
+            return other.length() == 0;
+        }
+        int index = 0;
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            int b = source.get(position);
+            int width = b >= 0 ? 1 : (b & 0xE0) == 0xC0 ? 2 : (b & 0xF0) == 0xE0 ? 3 : (b & 0xF8) == 0xF0 ? 4 : 0;
+            if (width == 0 || position + width > end) {
+                // 非法编码交给 JDK 按替换字符解码后再比较
+                return toString().contentEquals(other);
+            }
+            int codePoint = width == 1 ? b : b & (0x7F >> width);
+            for (int i = 1; i < width; i++) {
+                int next = source.get(position + i);
+                if ((next & 0xC0) != 0x80) {
+                    return toString().contentEquals(other);
+                }
+                codePoint = codePoint << 6 | next & 0x3F;
+            }
+            position += width;
+            if (Character.isBmpCodePoint(codePoint)) {
+                if (index >= other.length() || other.charAt(index++) != codePoint) {
+                    return false;
+                }
+            } else if (index + 1 >= other.length()
+                    || other.charAt(index++) != Character.highSurrogate(codePoint)
+                    || other.charAt(index++) != Character.lowSurrogate(codePoint)) {
+                return false;
+            }
+        }
+        return index == other.length();
+    }
+
+    /**
+     * 首次调用时解码并缓存
+     */
+    @Override
+    public String toString() {
+        if (decoded == null) {
+            if (chars != null) {
+                decoded = chars.toString();
+            } else if (source != null) {
+                byte[] bytes = new byte[length];
+                source.get(offset, bytes);
+                decoded = new String(bytes, StandardCharsets.UTF_8);
+            } else {
+                decoded = "";
+            }
+        }
+        return decoded;
+    }
+
+    static int utf8Length(CharSequence value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // 代理对共 4 字节，两个字符各计 1 字节后再加 2
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static void encode(CharSequence value, ByteBuffer out) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >>> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | codePoint >>> 18));
+                out.put((byte) (0x80 | codePoint >>> 12 & 0x3F));
+                out.put((byte) (0x80 | codePoint >>> 6 & 0x3F));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 孤立代理编码为替换字符 U+FFFD，与 utf8Length 的 3 字节计数一致
+                out.put((byte) 0xEF).put((byte) 0xBF).put((byte) 0xBD);
+            } else {
+                out.put((byte) (0xE0 | c >>> 12));
+                out.put((byte) (0x80 | c >>> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+}
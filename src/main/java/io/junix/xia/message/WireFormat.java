@@ -0,0 +1,48 @@
+package io.junix.xia.message;
+
+/**
+ * Protocol Buffers 线格式常量与标签工具
+ *
+ * @author wulogn
+ */
+public final class WireFormat {
+
+    public static final int VARINT = 0;
+    public static final int FIXED64 = 1;
+    public static final int LENGTH_DELIMITED = 2;
+    public static final int FIXED32 = 5;
+
+    static final int TYPE_BITS = 3;
+    static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+    /**
+     * 字段编号上限，与 Protocol Buffers 一致
+     */
+    public static final int MAX_FIELD_NUMBER = (1 << 29) - 1;
+
+    private WireFormat() {
+    }
+
+    public static int tag(int field, int wireType) {
+        return (field << TYPE_BITS) | wireType;
+    }
+
+    public static int fieldNumber(int tag) {
+        return tag >>> TYPE_BITS;
+    }
+
+    public static int wireType(int tag) {
+        return tag & TYPE_MASK;
+    }
+
+    /**
+     * ZigZag 编码，使绝对值小的负数也只占少量字节
+     */
+    public static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
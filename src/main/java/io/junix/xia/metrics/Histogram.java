@@ -0,0 +1,117 @@
+package io.junix.xia.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对数线性分桶的直方图（HdrHistogram 的分桶方式），记录为 O(1) 且不分配对象
+ * <p>
+ * 小于 128 的值每个值一个桶；更大的值按 2 的幂分段，每段再均分为 64 个桶，相对误差不超过 1/64。
+ * 可记录的最大值为 2^40（以纳秒计约 18 分钟），更大的值计入最后一个桶。
+ * 计数数组按线程分成若干条带，各事件循环写入不同的条带，避免同一个桶上的缓存行争用；快照时再逐桶求和。
+ *
+ * @author wulogn
+ */
+public final class Histogram {
+
+    /**
+     * 每段的有效位数，段内均分为 {@code 2^(SUB_BUCKET_BITS-1)} 个桶
+     */
+    static final int SUB_BUCKET_BITS = 7;
+    static final int MAX_VALUE_BITS = 40;
+    static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKET_COUNT = index(MAX_VALUE) + 1;
+
+    private static final int STRIPES = Math.min(4, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+
+    private final String name;
+    private final String help;
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAdder sum = new LongAdder();
+
+    Histogram(String name, String help) {
+        this.name = name;
+        this.help = help;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String help() {
+        return help;
+    }
+
+    /**
+     * 记录一个非负值，负值按 0 记录
+     */
+    public void record(long value) {
+        if (!Metrics.ENABLED) {
+            return;
+        }
+        long clamped = Math.max(0, Math.min(value, MAX_VALUE));
+        stripe().getAndIncrement(index(clamped));
+        sum.add(clamped);
+    }
+
+    /**
+     * 记录从 {@code startNanos}（{@link System#nanoTime()}）到现在经过的纳秒数
+     */
+    public void recordSince(long startNanos) {
+        if (Metrics.ENABLED) {
+            record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new HistogramSnapshot(counts, sum.sum());
+    }
+
+    private AtomicLongArray stripe() {
+        if (STRIPES == 1) {
+            return stripes[0];
+        }
+        long id = Thread.currentThread().getId();
+        return stripes[(int) (id ^ (id >>> 16)) & (STRIPES - 1)];
+    }
+
+    static int index(long value) {
+        if (value < 1L << SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * 桶中最小的值
+     */
+    static long lowestValue(int index) {
+        if (index < 1 << SUB_BUCKET_BITS) {
+            return index;
+        }
+        int shift = (index >>> (SUB_BUCKET_BITS - 1)) - 1;
+        long sub = index - ((long) shift << (SUB_BUCKET_BITS - 1));
+        return sub << shift;
+    }
+
+    /**
+     * 桶中最大的值
+     */
+    static long highestValue(int index) {
+        if (index < 1 << SUB_BUCKET_BITS) {
+            return index;
+        }
+        int shift = (index >>> (SUB_BUCKET_BITS - 1)) - 1;
+        return lowestValue(index) + (1L << shift) - 1;
+    }
+}
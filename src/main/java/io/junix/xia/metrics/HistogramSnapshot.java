@@ -0,0 +1,74 @@
+package io.junix.xia.metrics;
+
+/**
+ * {@link Histogram} 某一时刻的不可变副本，分位数按桶的上界报告，误差不超过桶宽
+ *
+ * @author wulogn
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+
+    HistogramSnapshot(long[] counts, long sum) {
+        this.counts = counts;
+        this.sum = sum;
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        this.count = total;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public long min() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                return Histogram.lowestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    public long max() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return Histogram.highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 不小于 {@code percentile}% 的记录所落入的值，{@code percentile} 取 [0, 100]
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Histogram.highestValue(i);
+            }
+        }
+        return max();
+    }
+}
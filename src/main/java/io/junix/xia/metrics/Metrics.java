@@ -0,0 +1,38 @@
+package io.junix.xia.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内指标的入口：全局 {@link MetricsRegistry} 与总开关
+ * <p>
+ * 开关 {@link #ENABLED} 由 {@code -Dxia.metrics}（默认开启）在类加载时确定，是编译期常量折叠后的
+ * {@code static final}：热路径上以 {@code if (Metrics.ENABLED)} 包住计时和记录，关闭时 JIT 整段消除，
+ * 连 {@link System#nanoTime()} 都不会调用。
+ *
+ * @author wulogn
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("xia.metrics", "true"));
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private Metrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return GLOBAL;
+    }
+
+    public static Counter counter(String name, String help) {
+        return GLOBAL.counter(name, help);
+    }
+
+    public static Histogram histogram(String name, String help) {
+        return GLOBAL.histogram(name, help);
+    }
+
+    public static void gauge(String name, String help, LongSupplier value) {
+        GLOBAL.gauge(name, help, value);
+    }
+}
@@ -0,0 +1,81 @@
+package io.junix.xia.metrics;
+
+import io.junix.xia.net.ChannelHandler;
+import io.junix.xia.net.Connection;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 以 HTTP/1.1 输出 {@link MetricsSnapshot#toText()} 的最小处理器，每个连接一个实例，挂在独立端口的 Xia 服务器上
+ * <p>
+ * 只支持 {@code GET /metrics}（及 {@code GET /}），请求体被忽略；请求头超过 8KB 时关闭连接。
+ * 响应带 {@code Content-Length}，连接保持打开，可以连续抓取。
+ *
+ * @author wulogn
+ */
+public class MetricsEndpoint implements ChannelHandler {
+
+    private static final int MAX_REQUEST_HEAD = 8 * 1024;
+    private static final byte[] HEAD_END = {'\r', '\n', '\r', '\n'};
+
+    private final MetricsRegistry registry;
+    private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+    /**
+     * 已连续匹配到的 {@code \r\n\r\n} 字节数
+     */
+    private int matched;
+
+    public MetricsEndpoint(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void channelRead(Connection connection, ByteBuffer data) {
+        while (data.hasRemaining()) {
+            byte b = data.get();
+            head.write(b);
+            if (b == HEAD_END[matched]) {
+                matched++;
+            } else {
+                matched = b == HEAD_END[0] ? 1 : 0;
+            }
+            if (matched == HEAD_END.length) {
+                respond(connection, head.toString(StandardCharsets.ISO_8859_1));
+                head.reset();
+                matched = 0;
+            } else if (head.size() > MAX_REQUEST_HEAD) {
+                connection.close();
+                return;
+            }
+        }
+    }
+
+    private void respond(Connection connection, String request) {
+        int lineEnd = request.indexOf("\r\n");
+        String[] requestLine = request.substring(0, lineEnd).split(" ");
+        String path = requestLine.length >= 2 ? requestLine[1] : "";
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (requestLine.length < 3 || !requestLine[0].equals("GET")) {
+            write(connection, "405 Method Not Allowed", "Only GET is supported\n");
+        } else if (path.equals("/metrics") || path.equals("/")) {
+            write(connection, "200 OK", registry.snapshot().toText());
+        } else {
+            write(connection, "404 Not Found", "Not found: " + path + "\n");
+        }
+    }
+
+    private static void write(Connection connection, String status, String body) {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        String header = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + "\r\n";
+        connection.write(ByteBuffer.wrap(header.getBytes(StandardCharsets.ISO_8859_1)));
+        connection.write(ByteBuffer.wrap(content));
+    }
+}
@@ -0,0 +1,78 @@
+package io.junix.xia.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * 按名称登记计数器、直方图和读数（gauge），线程安全
+ * <p>
+ * 同名的计数器和直方图只创建一次，热路径上的调用方应在静态字段中持有返回的实例；
+ * 读数在快照时才调用，重复登记时后者覆盖前者。指标只能由调用方拉取 {@link #snapshot()}，登记表本身不做任何后台工作。
+ *
+ * @author wulogn
+ */
+public final class MetricsRegistry {
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    public Counter counter(String name, String help) {
+        checkName(name, counters);
+        return counters.computeIfAbsent(name, key -> new Counter(key, help));
+    }
+
+    public Histogram histogram(String name, String help) {
+        checkName(name, histograms);
+        return histograms.computeIfAbsent(name, key -> new Histogram(key, help));
+    }
+
+    public void gauge(String name, String help, LongSupplier value) {
+        checkName(name, gauges);
+        gauges.put(name, new Gauge(help, value));
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * 所有指标当前值的副本
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, MetricsSnapshot.Value> counterValues = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            counterValues.put(counter.name(), new MetricsSnapshot.Value(counter.help(), counter.value()));
+        }
+        Map<String, MetricsSnapshot.Value> gaugeValues = new HashMap<>();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            gaugeValues.put(entry.getKey(), new MetricsSnapshot.Value(entry.getValue().help(),
+                    entry.getValue().value().getAsLong()));
+        }
+        Map<String, MetricsSnapshot.Distribution> distributions = new HashMap<>();
+        for (Histogram histogram : histograms.values()) {
+            distributions.put(histogram.name(), new MetricsSnapshot.Distribution(histogram.help(),
+                    histogram.snapshot()));
+        }
+        return new MetricsSnapshot(counterValues, gaugeValues, distributions);
+    }
+
+    private void checkName(String name, Map<String, ?> owner) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        // 同一名称只能属于一种指标，否则文本输出会冲突
+        if ((owner != counters && counters.containsKey(name)) || (owner != histograms && histograms.containsKey(name))
+                || (owner != gauges && gauges.containsKey(name))) {
+            throw new IllegalArgumentException("Metric " + name + " already registered with another type");
+        }
+    }
+
+    private record Gauge(String help, LongSupplier value) {
+    }
+}
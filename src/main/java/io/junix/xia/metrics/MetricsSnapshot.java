@@ -0,0 +1,90 @@
+package io.junix.xia.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 某一时刻所有指标的不可变副本，各表按名称排序
+ *
+ * @author wulogn
+ */
+public final class MetricsSnapshot {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, Value> counters;
+    private final Map<String, Value> gauges;
+    private final Map<String, Distribution> histograms;
+
+    MetricsSnapshot(Map<String, Value> counters, Map<String, Value> gauges, Map<String, Distribution> histograms) {
+        this.counters = Collections.unmodifiableSortedMap(new TreeMap<>(counters));
+        this.gauges = Collections.unmodifiableSortedMap(new TreeMap<>(gauges));
+        this.histograms = Collections.unmodifiableSortedMap(new TreeMap<>(histograms));
+    }
+
+    public Map<String, Value> counters() {
+        return counters;
+    }
+
+    public Map<String, Value> gauges() {
+        return gauges;
+    }
+
+    public Map<String, Distribution> histograms() {
+        return histograms;
+    }
+
+    /**
+     * 计数器的值，未登记时为 0
+     */
+    public long counter(String name) {
+        Value value = counters.get(name);
+        return value == null ? 0 : value.value();
+    }
+
+    public HistogramSnapshot histogram(String name) {
+        Distribution distribution = histograms.get(name);
+        return distribution == null ? null : distribution.snapshot();
+    }
+
+    /**
+     * 按 Prometheus 文本格式（0.0.4）输出，直方图以 summary 形式给出分位数、总和与个数
+     */
+    public String toText() {
+        StringBuilder out = new StringBuilder(4096);
+        counters.forEach((name, value) -> {
+            header(out, name, value.help(), "counter");
+            out.append(name).append(' ').append(value.value()).append('\n');
+        });
+        gauges.forEach((name, value) -> {
+            header(out, name, value.help(), "gauge");
+            out.append(name).append(' ').append(value.value()).append('\n');
+        });
+        histograms.forEach((name, distribution) -> {
+            header(out, name, distribution.help(), "summary");
+            HistogramSnapshot snapshot = distribution.snapshot();
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(snapshot.valueAtPercentile(quantile * 100)).append('\n');
+            }
+            out.append(name).append("_sum ").append(snapshot.sum()).append('\n');
+            out.append(name).append("_count ").append(snapshot.count()).append('\n');
+        });
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        if (help != null && !help.isEmpty()) {
+            out.append("# HELP ").append(name).append(' ')
+                    .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        }
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    public record Value(String help, long value) {
+    }
+
+    public record Distribution(String help, HistogramSnapshot snapshot) {
+    }
+}
@@ -0,0 +1,72 @@
+package io.junix.xia.mux;
+
+import io.junix.xia.codec.Varint;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 多路复用帧编码工具类，帧作为 {@link io.junix.xia.codec.FramingHandler} 一帧的负载传输
+ * <p>
+ * 数据帧为 {@code 0x00 + 标志字节 + varint(流 ID) + [优先级字节] + 数据}，带 {@link #FLAG_OPEN} 时才有优先级字节；
+ * 额度帧为 {@code 0x01 + varint(流 ID) + varint(增量)}，流 ID 为 0 表示连接级额度；
+ * 重置帧为 {@code 0x02 + varint(流 ID) + varint(错误码)}。
+ *
+ * @author wulogn
+ */
+final class MuxFrame {
+
+    static final byte TYPE_DATA = 0;
+    static final byte TYPE_WINDOW_UPDATE = 1;
+    static final byte TYPE_RESET = 2;
+
+    /**
+     * 流的最后一个数据帧
+     */
+    static final int FLAG_END = 0x01;
+
+    /**
+     * 流的第一个数据帧，其后跟优先级字节
+     */
+    static final int FLAG_OPEN = 0x02;
+
+    private MuxFrame() {
+    }
+
+    /**
+     * 编码数据帧，从 {@code data} 复制 {@code length} 字节并前移其位置；{@code data} 可为 {@code null}（仅结束流）
+     *
+     * @param open 非 {@code null} 时作为流的第一个帧，带上优先级
+     */
+    static ByteBuffer data(int streamId, StreamPriority open, boolean end, ByteBuffer data, int length) {
+        int flags = (end ? FLAG_END : 0) | (open != null ? FLAG_OPEN : 0);
+        ByteBuffer frame = ByteBuffer.allocate(2 + Varint.sizeOf(streamId) + (open != null ? 1 : 0) + length);
+        frame.put(TYPE_DATA).put((byte) flags);
+        Varint.write(frame, streamId);
+        if (open != null) {
+            frame.put((byte) open.ordinal());
+        }
+        if (length > 0) {
+            int limit = data.limit();
+            data.limit(data.position() + length);
+            frame.put(data);
+            data.limit(limit);
+        }
+        return frame.flip();
+    }
+
+    static ByteBuffer windowUpdate(int streamId, int increment) {
+        ByteBuffer frame = ByteBuffer.allocate(1 + Varint.sizeOf(streamId) + Varint.sizeOf(increment));
+        frame.put(TYPE_WINDOW_UPDATE);
+        Varint.write(frame, streamId);
+        Varint.write(frame, increment);
+        return frame.flip();
+    }
+
+    static ByteBuffer reset(int streamId, int errorCode) {
+        ByteBuffer frame = ByteBuffer.allocate(1 + Varint.sizeOf(streamId) + Varint.sizeOf(errorCode));
+        frame.put(TYPE_RESET);
+        Varint.write(frame, streamId);
+        Varint.write(frame, errorCode);
+        return frame.flip();
+    }
+}
@@ -0,0 +1,432 @@
+package io.junix.xia.mux;
+
+import io.junix.xia.codec.CorruptedFrameException;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.codec.Varint;
+import io.junix.xia.metrics.Counter;
+import io.junix.xia.metrics.Metrics;
+import io.junix.xia.net.ChannelHandler;
+import io.junix.xia.net.Connection;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在一条连接上复用多个逻辑流，位于 {@link FramingHandler} 之下，每次收到的是一个完整的 {@link MuxFrame}
+ * <p>
+ * 流 ID 由打开方分配，发起连接的一方用奇数，接受连接的一方用偶数，互不冲突。
+ * 流控基于额度：每个流和整个连接各有 {@value #STREAM_WINDOW} 和 {@value #CONNECTION_WINDOW} 字节的初始额度，
+ * 发送方只在两者都有余量时发出数据；接收方在 {@link StreamHandler#onData} 返回后把已处理的字节累计起来，
+ * 超过半个窗口时以额度帧归还，避免逐帧回复。对端超额发送视为协议错误，关闭连接。
+ * <p>
+ * 写出调度在事件循环线程中进行：各流的数据按至多 {@value #MAX_CHUNK} 字节分块，按 {@link StreamPriority}
+ * 严格优先、同级轮转挑选下一块；只在连接发送队列少于 {@value #WRITE_QUANTUM} 字节时才交给连接，
+ * 其余留在各流的队列中，等连接写空（{@link ChannelHandler#channelFlushed}）再补充。
+ * 这样排在紧急消息前面的最多是一个写出量子，而不是整个大响应，队头阻塞被限制在块的粒度，且无需另开连接。
+ * 额度帧和重置帧很小，不参与调度，直接写出。
+ *
+ * @author wulogn
+ */
+public class MuxHandler implements ChannelHandler {
+
+    private static final System.Logger LOG = System.getLogger(MuxHandler.class.getName());
+
+    private static final Counter STREAMS_OPENED = Metrics.counter("xia_mux_streams_opened_total",
+            "Multiplexed streams opened by either side");
+    private static final Counter STREAMS_RESET = Metrics.counter("xia_mux_streams_reset_total",
+            "Multiplexed streams reset by either side");
+    private static final Counter CREDIT_STALLS = Metrics.counter("xia_mux_credit_stalls_total",
+            "Write scheduling rounds stopped because the connection window was exhausted");
+
+    static final int STREAM_WINDOW = 256 * 1024;
+
+    static final int CONNECTION_WINDOW = 1024 * 1024;
+
+    static final int MAX_CHUNK = 16 * 1024;
+
+    /**
+     * 连接发送队列中最多积压的字节数，决定紧急消息最坏情况下要等待的数据量
+     */
+    static final int WRITE_QUANTUM = 64 * 1024;
+
+    /**
+     * 对端可同时打开的流数上限，超出的以 {@link MuxStream#REFUSED} 重置
+     */
+    static final int MAX_REMOTE_STREAMS = 1024;
+
+    private final StreamAcceptor acceptor;
+    private final AtomicInteger nextStreamId;
+    private volatile Connection connection;
+    // 以下状态只在事件循环线程中访问
+    private FramingHandler framing;
+    private final Map<Integer, MuxStream> streams = new HashMap<>();
+    // 按优先级下标的就绪队列
+    private final List<ArrayDeque<MuxStream>> ready = new ArrayList<>(StreamPriority.values().length);
+    private long sendCredit = CONNECTION_WINDOW;
+    private long receiveCredit = CONNECTION_WINDOW;
+    private int unacknowledged;
+    private int remoteStreams;
+    private int lastRemoteId;
+    private boolean drainScheduled;
+
+    /**
+     * @param initiator 本方是否发起连接，决定流 ID 的奇偶
+     * @param acceptor  接受对端打开的流
+     */
+    public MuxHandler(boolean initiator, StreamAcceptor acceptor) {
+        this.acceptor = acceptor;
+        this.nextStreamId = new AtomicInteger(initiator ? 1 : 2);
+        for (int i = 0; i < StreamPriority.values().length; i++) {
+            ready.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * 打开一个流，可在任意线程调用；首次写出数据时对端才会收到
+     *
+     * @throws IllegalStateException 连接尚未建立
+     */
+    public MuxStream openStream(StreamPriority priority, StreamHandler handler) {
+        if (connection == null) {
+            throw new IllegalStateException("Connection is not active yet");
+        }
+        int id = nextStreamId.getAndAdd(2);
+        if (id < 0) {
+            throw new IllegalStateException("Stream IDs exhausted");
+        }
+        MuxStream stream = new MuxStream(this, id, priority, false);
+        stream.handler = handler;
+        STREAMS_OPENED.increment();
+        if (connection.eventLoop().inEventLoop()) {
+            register(stream);
+        } else {
+            connection.eventLoop().execute(() -> register(stream));
+        }
+        return stream;
+    }
+
+    private void register(MuxStream stream) {
+        if (stream.closed) {
+            return;
+        }
+        if (connection.isOpen()) {
+            streams.put(stream.id(), stream);
+        } else {
+            stream.closed = true;
+            stream.handler.onReset(stream, MuxStream.CONNECTION_CLOSED);
+        }
+    }
+
+    Connection connection() {
+        return connection;
+    }
+
+    /**
+     * 当前未关闭的流数，只在事件循环线程中调用
+     */
+    public int streamCount() {
+        return streams.size();
+    }
+
+    void write(MuxStream stream, ByteBuffer data, boolean end) {
+        Connection connection = this.connection;
+        if (!connection.eventLoop().inEventLoop()) {
+            connection.eventLoop().execute(() -> write(stream, data, end));
+            return;
+        }
+        if (stream.closed || stream.endQueued) {
+            LOG.log(System.Logger.Level.DEBUG, "Dropping write to finished {0}", stream);
+            return;
+        }
+        if (data != null && data.hasRemaining()) {
+            stream.queue.add(data);
+            stream.addQueuedBytes(data.remaining());
+        }
+        stream.endQueued = end;
+        schedule(stream);
+    }
+
+    void reset(MuxStream stream, int errorCode) {
+        Connection connection = this.connection;
+        if (!connection.eventLoop().inEventLoop()) {
+            connection.eventLoop().execute(() -> reset(stream, errorCode));
+            return;
+        }
+        if (stream.closed) {
+            return;
+        }
+        if (stream.openSent) {
+            // 对端还不知道这个流时无需通知
+            framing.writeFrame(connection, MuxFrame.reset(stream.id(), errorCode));
+        }
+        close(stream);
+        STREAMS_RESET.increment();
+    }
+
+    /**
+     * 流有可发出的帧时放入对应优先级的就绪队列，并安排一轮写出
+     */
+    private void schedule(MuxStream stream) {
+        if (!stream.scheduled && stream.sendable()) {
+            stream.scheduled = true;
+            ready.get(stream.priority().ordinal()).add(stream);
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled) {
+            drainScheduled = true;
+            connection.eventLoop().execute(this::drain);
+        }
+    }
+
+    /**
+     * 按优先级把各流的数据分块交给连接，直到连接发送队列达到写出量子或没有可发的块
+     */
+    private void drain() {
+        drainScheduled = false;
+        if (!connection.isOpen()) {
+            return;
+        }
+        List<MuxStream> stalled = null;
+        int level = 0;
+        while (level < ready.size() && connection.pendingWriteBytes() < WRITE_QUANTUM) {
+            MuxStream stream = ready.get(level).peek();
+            if (stream == null) {
+                level++;
+                continue;
+            }
+            if (!stream.sendable()) {
+                ready.get(level).poll();
+                stream.scheduled = false;
+                continue;
+            }
+            if (stream.queuedBytes() > 0 && sendCredit == 0) {
+                // 连接额度用尽，有数据的流等对端归还；只剩结束标志的流不占额度，继续往后找
+                ready.get(level).poll();
+                if (stalled == null) {
+                    stalled = new ArrayList<>();
+                }
+                stalled.add(stream);
+                continue;
+            }
+            ready.get(level).poll();
+            stream.scheduled = false;
+            sendChunk(stream);
+            // 同级的流轮转，每轮各发一块
+            if (stream.sendable()) {
+                stream.scheduled = true;
+                ready.get(level).add(stream);
+            }
+        }
+        if (stalled != null) {
+            CREDIT_STALLS.increment();
+            // 按原顺序放回队首，额度归还后从它们继续
+            for (int i = stalled.size() - 1; i >= 0; i--) {
+                MuxStream stream = stalled.get(i);
+                ready.get(stream.priority().ordinal()).addFirst(stream);
+            }
+        }
+    }
+
+    private void sendChunk(MuxStream stream) {
+        ByteBuffer head = stream.queue.peek();
+        int length = 0;
+        if (head != null) {
+            length = (int) Math.min(Math.min(head.remaining(), MAX_CHUNK), Math.min(stream.sendCredit, sendCredit));
+        }
+        boolean end = stream.endQueued && stream.queuedBytes() == length;
+        ByteBuffer frame = MuxFrame.data(stream.id(), stream.openSent ? null : stream.priority(), end, head, length);
+        if (head != null && !head.hasRemaining()) {
+            stream.queue.poll();
+        }
+        stream.openSent = true;
+        stream.addQueuedBytes(-length);
+        stream.sendCredit -= length;
+        sendCredit -= length;
+        framing.writeFrame(connection, frame);
+        if (end) {
+            stream.endSent = true;
+            if (stream.remoteEnded) {
+                close(stream);
+            }
+        }
+    }
+
+    @Override
+    public void channelActive(Connection connection) {
+        this.framing = FramingHandler.of(connection);
+        this.connection = connection;
+    }
+
+    @Override
+    public void channelRead(Connection connection, ByteBuffer frame) {
+        try {
+            byte type = frame.get();
+            switch (type) {
+                case MuxFrame.TYPE_DATA -> {
+                    int flags = frame.get();
+                    int id = Varint.read(frame);
+                    StreamPriority priority = null;
+                    if ((flags & MuxFrame.FLAG_OPEN) != 0) {
+                        priority = StreamPriority.of(frame.get());
+                        if (priority == null) {
+                            throw new CorruptedFrameException("Unknown stream priority");
+                        }
+                    }
+                    onData(id, priority, (flags & MuxFrame.FLAG_END) != 0, frame);
+                }
+                case MuxFrame.TYPE_WINDOW_UPDATE -> onWindowUpdate(Varint.read(frame), Varint.read(frame));
+                case MuxFrame.TYPE_RESET -> onReset(Varint.read(frame), Varint.read(frame));
+                default -> throw new CorruptedFrameException("Unknown mux frame type " + type);
+            }
+        } catch (CorruptedFrameException e) {
+            exceptionCaught(connection, e);
+        } catch (BufferUnderflowException e) {
+            exceptionCaught(connection, new CorruptedFrameException("Truncated mux frame"));
+        }
+    }
+
+    private void onData(int id, StreamPriority open, boolean end, ByteBuffer data) throws CorruptedFrameException {
+        int length = data.remaining();
+        if (length > receiveCredit) {
+            throw new CorruptedFrameException("Connection window exceeded by " + (length - receiveCredit) + " bytes");
+        }
+        receiveCredit -= length;
+        MuxStream stream = streams.get(id);
+        if (stream == null && open != null) {
+            stream = accept(id, open);
+        }
+        if (stream == null || stream.remoteEnded) {
+            // 已重置或被拒绝的流上迟到的数据，丢弃但仍归还连接额度
+            acknowledge(null, length);
+            return;
+        }
+        if (length > stream.receiveCredit) {
+            throw new CorruptedFrameException("Stream " + id + " window exceeded");
+        }
+        stream.receiveCredit -= length;
+        stream.remoteEnded = end;
+        try {
+            stream.handler.onData(stream, data, end);
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Stream handler failed, resetting " + stream, e);
+            acknowledge(null, length);
+            reset(stream, MuxStream.CANCEL);
+            stream.handler.onReset(stream, MuxStream.CANCEL);
+            return;
+        }
+        acknowledge(stream, length);
+        if (end && stream.endSent) {
+            close(stream);
+        }
+    }
+
+    private MuxStream accept(int id, StreamPriority priority) throws CorruptedFrameException {
+        if (id <= lastRemoteId || (id & 1) == (nextStreamId.get() & 1)) {
+            throw new CorruptedFrameException("Invalid stream ID " + id);
+        }
+        lastRemoteId = id;
+        MuxStream stream = new MuxStream(this, id, priority, true);
+        STREAMS_OPENED.increment();
+        StreamHandler handler = null;
+        if (remoteStreams < MAX_REMOTE_STREAMS) {
+            try {
+                handler = acceptor.accept(stream);
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "Stream acceptor failed", e);
+            }
+        }
+        if (handler == null) {
+            framing.writeFrame(connection, MuxFrame.reset(id, MuxStream.REFUSED));
+            STREAMS_RESET.increment();
+            return null;
+        }
+        stream.handler = handler;
+        streams.put(id, stream);
+        remoteStreams++;
+        return stream;
+    }
+
+    /**
+     * 记录已处理的字节，累计超过半个窗口时归还额度；{@code stream} 为 {@code null} 时只归还连接额度
+     */
+    private void acknowledge(MuxStream stream, int length) {
+        unacknowledged += length;
+        if (unacknowledged >= CONNECTION_WINDOW / 2) {
+            framing.writeFrame(connection, MuxFrame.windowUpdate(0, unacknowledged));
+            receiveCredit += unacknowledged;
+            unacknowledged = 0;
+        }
+        if (stream == null || stream.remoteEnded) {
+            return;
+        }
+        stream.unacknowledged += length;
+        if (stream.unacknowledged >= STREAM_WINDOW / 2) {
+            framing.writeFrame(connection, MuxFrame.windowUpdate(stream.id(), stream.unacknowledged));
+            stream.receiveCredit += stream.unacknowledged;
+            stream.unacknowledged = 0;
+        }
+    }
+
+    private void onWindowUpdate(int id, int increment) throws CorruptedFrameException {
+        if (increment <= 0) {
+            throw new CorruptedFrameException("Invalid window increment " + increment);
+        }
+        if (id == 0) {
+            sendCredit += increment;
+            scheduleDrain();
+            return;
+        }
+        MuxStream stream = streams.get(id);
+        if (stream != null) {
+            stream.sendCredit += increment;
+            schedule(stream);
+        }
+    }
+
+    private void onReset(int id, int errorCode) {
+        MuxStream stream = streams.get(id);
+        if (stream == null) {
+            return;
+        }
+        close(stream);
+        STREAMS_RESET.increment();
+        stream.handler.onReset(stream, errorCode);
+    }
+
+    private void close(MuxStream stream) {
+        if (stream.closed) {
+            return;
+        }
+        stream.closed = true;
+        stream.addQueuedBytes(-stream.queuedBytes());
+        stream.queue.clear();
+        if (streams.remove(stream.id()) != null && (stream.id() & 1) != (nextStreamId.get() & 1)) {
+            remoteStreams--;
+        }
+    }
+
+    @Override
+    public void channelFlushed(Connection connection) {
+        drain();
+    }
+
+    @Override
+    public void channelInactive(Connection connection) {
+        List<MuxStream> open = new ArrayList<>(streams.values());
+        for (MuxStream stream : open) {
+            close(stream);
+        }
+        for (MuxStream stream : open) {
+            stream.handler.onReset(stream, MuxStream.CONNECTION_CLOSED);
+        }
+    }
+}
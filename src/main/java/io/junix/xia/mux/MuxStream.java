@@ -0,0 +1,126 @@
+package io.junix.xia.mux;
+
+import io.junix.xia.net.Connection;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 连接上的一个逻辑流，写出、结束和重置可在任意线程调用，实际处理在连接所属的事件循环线程中完成
+ * <p>
+ * 写入的数据先排在流自己的发送队列中，由 {@link MuxHandler} 按优先级、流额度和连接额度分块写出；
+ * 发送队列不设上限，生产者应参考 {@link #queuedBytes()} 控制速度。
+ * 双方都发出结束标志后流关闭，任一方重置则立即关闭并丢弃未发出的数据。
+ *
+ * @author wulogn
+ */
+public final class MuxStream {
+
+    /**
+     * 主动取消，或处理回调抛出异常
+     */
+    public static final int CANCEL = 0;
+
+    /**
+     * 对端拒绝接受该流，或并发流数已达上限
+     */
+    public static final int REFUSED = 1;
+
+    /**
+     * 连接已关闭
+     */
+    public static final int CONNECTION_CLOSED = 2;
+
+    private final MuxHandler mux;
+    private final int id;
+    private final StreamPriority priority;
+    StreamHandler handler;
+    // 以下状态只在事件循环线程中访问
+    final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+    private volatile long queuedBytes;
+    long sendCredit = MuxHandler.STREAM_WINDOW;
+    long receiveCredit = MuxHandler.STREAM_WINDOW;
+    int unacknowledged;
+    boolean openSent;
+    boolean endQueued;
+    boolean endSent;
+    boolean remoteEnded;
+    boolean closed;
+    boolean scheduled;
+
+    MuxStream(MuxHandler mux, int id, StreamPriority priority, boolean openSent) {
+        this.mux = mux;
+        this.id = id;
+        this.priority = priority;
+        this.openSent = openSent;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public StreamPriority priority() {
+        return priority;
+    }
+
+    /**
+     * 流所在的连接
+     */
+    public Connection connection() {
+        return mux.connection();
+    }
+
+    /**
+     * 已写入但尚未发出的字节数，可在任意线程读取
+     */
+    public long queuedBytes() {
+        return queuedBytes;
+    }
+
+    /**
+     * 将 {@code data} 的剩余字节加入发送队列，调用后不得再修改 {@code data}；流已结束或已关闭时数据被丢弃
+     */
+    public void write(ByteBuffer data) {
+        write(data, false);
+    }
+
+    /**
+     * 同 {@link #write(ByteBuffer)}，{@code end} 为 {@code true} 时这是本方在该流上的最后一段数据
+     */
+    public void write(ByteBuffer data, boolean end) {
+        mux.write(this, data, end);
+    }
+
+    /**
+     * 结束本方的发送，已排队的数据仍会发出
+     */
+    public void end() {
+        mux.write(this, null, true);
+    }
+
+    /**
+     * 以 {@link #CANCEL} 重置流，丢弃未发出的数据并通知对端
+     */
+    public void reset() {
+        mux.reset(this, CANCEL);
+    }
+
+    void addQueuedBytes(long delta) {
+        queuedBytes += delta;
+    }
+
+    /**
+     * 是否有可以立即发出的帧：有数据且有流额度，或只剩结束标志
+     */
+    boolean sendable() {
+        if (closed) {
+            return false;
+        }
+        return queuedBytes > 0 ? sendCredit > 0 : endQueued && !endSent;
+    }
+
+    @Override
+    public String toString() {
+        return "MuxStream[" + id + ", " + priority + "]";
+    }
+}
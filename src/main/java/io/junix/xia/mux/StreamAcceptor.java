@@ -0,0 +1,15 @@
+package io.junix.xia.mux;
+
+/**
+ * 接受对端打开的流，在连接所属的事件循环线程中调用
+ *
+ * @author wulogn
+ */
+@FunctionalInterface
+public interface StreamAcceptor {
+
+    /**
+     * 返回处理该流的回调，返回 {@code null} 时以 {@link MuxStream#REFUSED} 重置该流
+     */
+    StreamHandler accept(MuxStream stream);
+}
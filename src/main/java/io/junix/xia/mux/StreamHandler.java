@@ -0,0 +1,26 @@
+package io.junix.xia.mux;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 单个流的事件回调，所有方法均在连接所属的事件循环线程中调用
+ *
+ * @author wulogn
+ */
+public interface StreamHandler {
+
+    /**
+     * 收到流上的数据，{@code data} 仅在本次调用内有效；返回后这部分额度即归还对端
+     *
+     * @param end 对端不会再在该流上发送数据
+     */
+    void onData(MuxStream stream, ByteBuffer data, boolean end);
+
+    /**
+     * 流被任一方重置或连接关闭，之后不会再有回调
+     *
+     * @param errorCode {@link MuxStream#CANCEL} 等错误码
+     */
+    default void onReset(MuxStream stream, int errorCode) {
+    }
+}
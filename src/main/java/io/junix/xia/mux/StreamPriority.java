@@ -0,0 +1,32 @@
+package io.junix.xia.mux;
+
+/**
+ * 流的发送优先级，按声明顺序由高到低，写出时高优先级的流严格优先，同级的流按块轮转
+ * <p>
+ * 打开流时随首个数据帧按序号发给对端，对端在该流上的回复沿用同一优先级；只能在末尾追加新值。
+ *
+ * @author wulogn
+ */
+public enum StreamPriority {
+
+    /**
+     * 延迟敏感的小消息，例如调度指令，总是插在其他流的下一个块之前
+     */
+    URGENT,
+
+    /**
+     * 普通请求
+     */
+    NORMAL,
+
+    /**
+     * 大块传输，例如插件的大响应，只占用更高优先级流空闲时的带宽
+     */
+    BULK;
+
+    private static final StreamPriority[] VALUES = values();
+
+    static StreamPriority of(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+    }
+}
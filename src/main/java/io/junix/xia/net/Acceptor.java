@@ -0,0 +1,268 @@
+package io.junix.xia.net;
+
+import io.junix.xia.limit.PeerRateLimiter;
+import io.junix.xia.limit.TokenBucket;
+import io.junix.xia.metrics.Counter;
+import io.junix.xia.metrics.Histogram;
+import io.junix.xia.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 主（boss）线程：只负责接受连接，随后交给工作事件循环处理读写
+ * <p>
+ * 新连接在交给工作线程之前依次经过三道闸门，被拒绝的连接立即以 RST 关闭，不分配任何缓冲、也不进入握手：
+ * <ol>
+ *     <li>全局接受速率：令牌耗尽时取消关注 {@link SelectionKey#OP_ACCEPT}，新连接留在内核的 backlog 中，
+ *     等到有令牌时再继续接受；</li>
+ *     <li>连接数上限：已建立和正在注册的连接达到上限时拒绝；</li>
+ *     <li>单个 IP 的连接速率：同一来源建立连接过快时拒绝，防止单个对端占满前两道配额。</li>
+ * </ol>
+ *
+ * @author wulogn
+ */
+class Acceptor implements Runnable {
+
+    private static final System.Logger LOG = System.getLogger(Acceptor.class.getName());
+
+    private static final Counter ACCEPTED = Metrics.counter("xia_accept_total", "Accepted connections");
+    private static final Counter REJECTED = Metrics.counter("xia_accept_rejected_total",
+            "Connections rejected by the connection limit or per-peer rate");
+    private static final Histogram ACCEPT_NANOS = Metrics.histogram("xia_accept_nanos",
+            "Time to accept and admit one connection");
+
+    /**
+     * 接受失败（例如文件描述符耗尽）后暂停接受的时长，避免在持续失败时空转
+     */
+    static final long ACCEPT_ERROR_BACKOFF_MILLIS = 100;
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final EventLoopGroup workers;
+    private final Supplier<? extends ChannelHandler> handlerFactory;
+    private final SelectionKey acceptKey;
+    private volatile boolean running = true;
+    private volatile int acceptRateLimit;
+    private volatile TokenBucket acceptBucket;
+    private volatile int maxConnections;
+    private volatile PeerRateLimiter<InetAddress> peerLimiter;
+    private volatile long acceptedCount;
+    private volatile long rejectedCount;
+    private boolean paused;
+    private long pausedUntil;
+    private boolean instrumented = true;
+
+    Acceptor(ServerSocketChannel serverChannel, EventLoopGroup workers,
+             Supplier<? extends ChannelHandler> handlerFactory) throws IOException {
+        this.serverChannel = serverChannel;
+        this.workers = workers;
+        this.handlerFactory = handlerFactory;
+        this.selector = Selector.open();
+        serverChannel.configureBlocking(false);
+        this.acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * 是否计入接受相关的指标，须在启动前设置
+     */
+    void setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+    }
+
+    /**
+     * 每秒最多接受的连接数，0 表示不限制，可在任意线程调用；空闲后允许一秒的突发
+     */
+    void setAcceptRateLimit(int acceptRateLimit) {
+        if (acceptRateLimit < 0) {
+            throw new IllegalArgumentException("acceptRateLimit must not be negative: " + acceptRateLimit);
+        }
+        TokenBucket bucket = acceptBucket;
+        if (acceptRateLimit == 0) {
+            acceptBucket = null;
+        } else if (bucket == null) {
+            acceptBucket = new TokenBucket(acceptRateLimit, acceptRateLimit);
+        } else {
+            bucket.setRate(acceptRateLimit, acceptRateLimit);
+        }
+        this.acceptRateLimit = acceptRateLimit;
+        selector.wakeup();
+    }
+
+    int acceptRateLimit() {
+        return acceptRateLimit;
+    }
+
+    /**
+     * 同时承载的连接数上限，0 表示不限制，可在任意线程调用
+     */
+    void setMaxConnections(int maxConnections) {
+        if (maxConnections < 0) {
+            throw new IllegalArgumentException("maxConnections must not be negative: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * 按来源 IP 限制建立连接的速率，{@code null} 表示不限制，可在任意线程调用
+     */
+    void setPeerLimiter(PeerRateLimiter<InetAddress> peerLimiter) {
+        this.peerLimiter = peerLimiter;
+    }
+
+    /**
+     * 累计接受的连接数，含随后被拒绝的连接
+     */
+    long acceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * 累计因连接数上限或来源限速被拒绝的连接数
+     */
+    long rejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                if (paused) {
+                    TokenBucket bucket = acceptBucket;
+                    long now = System.nanoTime();
+                    long wait = Math.max(pausedUntil - now, bucket == null ? 0 : bucket.nanosUntilAvailable(now));
+                    if (wait > 0) {
+                        // select(0) 表示无限等待，因此至少 1 毫秒
+                        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+                        continue;
+                    }
+                    paused = false;
+                    acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+                }
+                selector.select();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (key.isValid() && (key.readyOps() & SelectionKey.OP_ACCEPT) != 0) {
+                        acceptAll();
+                    }
+                }
+            }
+        } catch (ClosedSelectorException ignored) {
+            // 已关闭
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.ERROR, "Acceptor terminated", e);
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // 关闭阶段忽略
+            }
+        }
+    }
+
+    private void acceptAll() {
+        while (running) {
+            TokenBucket bucket = acceptBucket;
+            // 只有本线程取令牌，先查看再在接受成功后扣除，没有等待中的连接时不浪费令牌
+            if (bucket != null && bucket.nanosUntilAvailable(System.nanoTime()) > 0) {
+                paused = true;
+                acceptKey.interestOps(0);
+                return;
+            }
+            long start = Metrics.ENABLED && instrumented ? System.nanoTime() : 0;
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                // 例如文件描述符耗尽，记录后暂停一段时间再接受，新连接留在 backlog 中
+                LOG.log(System.Logger.Level.WARNING, "Failed to accept connection", e);
+                pausedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACCEPT_ERROR_BACKOFF_MILLIS);
+                paused = true;
+                acceptKey.interestOps(0);
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            if (bucket != null) {
+                bucket.tryAcquire();
+            }
+            acceptedCount++;
+            if (instrumented) {
+                ACCEPTED.increment();
+            }
+            if (!admit(channel)) {
+                rejectedCount++;
+                if (instrumented) {
+                    REJECTED.increment();
+                }
+                reject(channel);
+                continue;
+            }
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.DEBUG, "Failed to set TCP_NODELAY", e);
+            }
+            workers.register(channel, handlerFactory.get());
+            if (Metrics.ENABLED && instrumented) {
+                ACCEPT_NANOS.recordSince(start);
+            }
+        }
+    }
+
+    private boolean admit(SocketChannel channel) {
+        int max = maxConnections;
+        if (max > 0 && workers.admittedCount() >= max) {
+            LOG.log(System.Logger.Level.DEBUG, "Connection limit {0} reached", max);
+            return false;
+        }
+        PeerRateLimiter<InetAddress> limiter = peerLimiter;
+        if (limiter == null) {
+            return true;
+        }
+        try {
+            if (channel.getRemoteAddress() instanceof InetSocketAddress remote
+                    && !limiter.tryAcquire(remote.getAddress())) {
+                LOG.log(System.Logger.Level.DEBUG, "Connection rate exceeded by {0}", remote.getAddress());
+                return false;
+            }
+        } catch (IOException e) {
+            // 对端已断开
+            return false;
+        }
+        return true;
+    }
+
+    static void reject(SocketChannel channel) {
+        try {
+            // 以 RST 关闭，不留 TIME_WAIT
+            channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+        } catch (IOException ignored) {
+            // 照常关闭
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 连接已不可用，无需处理
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
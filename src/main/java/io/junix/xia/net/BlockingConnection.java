@@ -0,0 +1,229 @@
+package io.junix.xia.net;
+
+import io.junix.xia.codec.CorruptedFrameException;
+import io.junix.xia.codec.FrameEncoder;
+import io.junix.xia.codec.FrameStage;
+import io.junix.xia.codec.Varint;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 虚拟线程模式下的连接，以阻塞方式按帧读写，帧格式与 {@link io.junix.xia.codec.FrameDecoder} 相同
+ * <p>
+ * {@link #readFrame()} 只允许处理该连接的线程调用；写方法和 {@link #close()} 可在任意线程调用，写入由锁串行化（使用 {@link ReentrantLock} 而非 {@code synchronized}，阻塞时不会钉住载体线程）。
+ * <p>
+ * 与 {@link Connection} 相同的两个读超时：{@link #markEstablished()} 之前整体不得超过握手超时，之后每次等待数据不得超过空闲超时，
+ * 超时时 {@link #readFrame()} 抛出 {@link SocketTimeoutException}，连接随处理线程退出而关闭。
+ *
+ * @author wulogn
+ */
+public class BlockingConnection {
+
+    private final SocketChannel channel;
+    private final int maxFrameSize;
+    private final long idleTimeoutMillis;
+    private final long handshakeDeadlineNanos;
+    private volatile boolean established;
+    private InputStream input;
+    private final FrameStage[] stages;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ByteBuffer header = ByteBuffer.allocate(Varint.MAX_VARINT32_BYTES);
+    /**
+     * 读模式，{@code position} 之前为已交付的帧
+     */
+    private ByteBuffer in;
+
+    /**
+     * @param handshakeTimeoutMillis 建立后须在该时间内 {@link #markEstablished()}，0 表示不限制
+     * @param idleTimeoutMillis      单次等待数据的上限，0 表示不限制
+     */
+    BlockingConnection(SocketChannel channel, int readBufferSize, int maxFrameSize, long handshakeTimeoutMillis,
+                       long idleTimeoutMillis, FrameStage... stages) {
+        this.channel = channel;
+        this.maxFrameSize = maxFrameSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.handshakeDeadlineNanos = handshakeTimeoutMillis == 0
+                ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(handshakeTimeoutMillis);
+        this.established = handshakeTimeoutMillis == 0;
+        this.stages = stages;
+        this.in = ByteBuffer.allocate(readBufferSize).flip();
+    }
+
+    public SocketAddress remoteAddress() {
+        try {
+            return channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * 标记握手完成，此后不再受握手超时限制，可在任意线程调用
+     */
+    public void markEstablished() {
+        established = true;
+    }
+
+    /**
+     * 阻塞读取下一帧，返回的负载在下一次调用前有效；对端在帧边界处正常关闭时返回 {@code null}
+     *
+     * @throws CorruptedFrameException 帧长度非法或超过上限
+     * @throws EOFException            对端在帧中间关闭连接
+     */
+    public ByteBuffer readFrame() throws IOException {
+        while (true) {
+            int start = in.position();
+            int length = peekLength();
+            if (length >= 0) {
+                int headerLength = Varint.sizeOf(length);
+                if (in.remaining() >= headerLength + length) {
+                    ByteBuffer frame = in.slice(start + headerLength, length);
+                    in.position(start + headerLength + length);
+                    for (FrameStage stage : stages) {
+                        frame = stage.decode(frame);
+                    }
+                    return frame;
+                }
+                ensureCapacity(headerLength + length);
+            }
+            if (!fill()) {
+                if (in.hasRemaining()) {
+                    throw new EOFException("Connection closed in the middle of a frame");
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 将 {@code payload} 的剩余字节经各 {@link FrameStage} 变换后作为一帧写出，阻塞直到全部写入
+     */
+    public void writeFrame(ByteBuffer payload) throws IOException {
+        writeLock.lock();
+        try {
+            for (int i = stages.length - 1; i >= 0; i--) {
+                payload = stages[i].encode(payload, false);
+            }
+            header.clear();
+            FrameEncoder.writeHeader(header, payload.remaining());
+            header.flip();
+            ByteBuffer[] buffers = {header, payload};
+            while (payload.hasRemaining() || header.hasRemaining()) {
+                channel.write(buffers);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 原样写出 {@code data} 的剩余字节（调用方已自行编码成完整帧），阻塞直到全部写入
+     */
+    public void write(ByteBuffer data) throws IOException {
+        writeLock.lock();
+        try {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 连接已不可用，无需处理
+        }
+    }
+
+    void releaseStages() {
+        for (FrameStage stage : stages) {
+            stage.release();
+        }
+    }
+
+    /**
+     * 不消费数据地解析长度前缀，前缀不完整时返回 -1
+     */
+    private int peekLength() throws CorruptedFrameException {
+        int value = 0;
+        for (int i = 0, shift = 0; i < Varint.MAX_VARINT32_BYTES; i++, shift += 7) {
+            if (in.position() + i >= in.limit()) {
+                return -1;
+            }
+            byte b = in.get(in.position() + i);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0 || value > maxFrameSize) {
+                    throw new CorruptedFrameException("Frame length " + (value & 0xFFFFFFFFL)
+                            + " exceeds limit " + maxFrameSize);
+                }
+                return value;
+            }
+        }
+        throw new CorruptedFrameException("Varint exceeds 5 bytes");
+    }
+
+    private void ensureCapacity(int frameLength) {
+        if (frameLength > in.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(frameLength);
+            larger.put(in).flip();
+            in = larger;
+        }
+    }
+
+    /**
+     * 丢弃已交付的数据并从套接字读入更多字节，对端关闭时返回 {@code false}
+     */
+    private boolean fill() throws IOException {
+        in.compact();
+        try {
+            long timeout = readTimeoutMillis();
+            if (timeout == 0) {
+                return channel.read(in) >= 0;
+            }
+            // 通道的阻塞读不支持超时，改经套接字适配器的输入流读取，SO_TIMEOUT 对其生效
+            if (input == null) {
+                input = channel.socket().getInputStream();
+            }
+            channel.socket().setSoTimeout((int) Math.min(timeout, Integer.MAX_VALUE));
+            int read = input.read(in.array(), in.arrayOffset() + in.position(), in.remaining());
+            if (read > 0) {
+                in.position(in.position() + read);
+            }
+            return read >= 0;
+        } finally {
+            in.flip();
+        }
+    }
+
+    /**
+     * 本次读取最多等待的毫秒数，0 表示不限制
+     *
+     * @throws SocketTimeoutException 握手超时已到
+     */
+    private long readTimeoutMillis() throws SocketTimeoutException {
+        if (established) {
+            return idleTimeoutMillis;
+        }
+        long remaining = TimeUnit.NANOSECONDS.toMillis(handshakeDeadlineNanos - System.nanoTime());
+        if (remaining <= 0) {
+            throw new SocketTimeoutException("Connection not established in time");
+        }
+        return idleTimeoutMillis == 0 ? remaining : Math.min(remaining, idleTimeoutMillis);
+    }
+}
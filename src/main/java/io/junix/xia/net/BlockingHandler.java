@@ -0,0 +1,17 @@
+package io.junix.xia.net;
+
+import java.io.IOException;
+
+/**
+ * 虚拟线程模式下的连接处理器，每个连接在独立的虚拟线程中调用一次
+ *
+ * @author wulogn
+ */
+@FunctionalInterface
+public interface BlockingHandler {
+
+    /**
+     * 以阻塞方式处理整个连接，返回或抛出异常后连接被关闭
+     */
+    void handle(BlockingConnection connection) throws IOException;
+}
@@ -0,0 +1,53 @@
+package io.junix.xia.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 连接事件回调，所有方法均在连接所属的 {@link EventLoop} 线程中调用
+ *
+ * @author wulogn
+ */
+public interface ChannelHandler {
+
+    /**
+     * 连接注册到事件循环后调用
+     */
+    default void channelActive(Connection connection) {
+    }
+
+    /**
+     * 读取到数据时调用，{@code data} 仅在本次调用内有效
+     */
+    void channelRead(Connection connection, ByteBuffer data);
+
+    /**
+     * 连接的可写状态（{@link Connection#isWritable()}）变化时调用
+     */
+    default void channelWritabilityChanged(Connection connection) {
+    }
+
+    /**
+     * 发送队列全部写入套接字后调用，自行排队待发数据的处理器（例如按优先级调度的多路复用层）借此补充下一批；默认不处理
+     */
+    default void channelFlushed(Connection connection) {
+    }
+
+    /**
+     * 连接在保活间隔内没有写出任何数据时调用，用于发送心跳，让对端的空闲超时不会误判；默认不发送
+     */
+    default void keepalive(Connection connection) {
+    }
+
+    /**
+     * 连接关闭后调用
+     */
+    default void channelInactive(Connection connection) {
+    }
+
+    /**
+     * 读写过程中出现异常时调用，默认关闭连接
+     */
+    default void exceptionCaught(Connection connection, Throwable cause) {
+        connection.close();
+    }
+}
@@ -0,0 +1,384 @@
+package io.junix.xia.net;
+
+import io.junix.xia.metrics.Counter;
+import io.junix.xia.metrics.Histogram;
+import io.junix.xia.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已注册到某个 {@link EventLoop} 的连接，除写出、读取开关、可写状态、{@link #markEstablished()} 和 {@link #close()} 外仅允许在所属事件循环线程中操作
+ *
+ * @author wulogn
+ */
+public class Connection {
+
+    private static final System.Logger LOG = System.getLogger(Connection.class.getName());
+
+    private static final Counter READ_BYTES = Metrics.counter("xia_read_bytes_total", "Bytes read from sockets");
+    private static final Counter WRITE_BYTES = Metrics.counter("xia_write_bytes_total", "Bytes written to sockets");
+    private static final Histogram READ_NANOS = Metrics.histogram("xia_read_nanos", "Time spent in one socket read");
+    private static final Histogram WRITE_NANOS = Metrics.histogram("xia_write_nanos",
+            "Time spent in one gathering socket write");
+
+    private final EventLoop eventLoop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ChannelHandler handler;
+    /**
+     * 是否计入连接层指标，注册时取自事件循环
+     */
+    private final boolean instrumented;
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private long pendingWriteBytes;
+    private volatile boolean writable = true;
+    private boolean flushScheduled;
+    private Object attachment;
+    private boolean closed;
+    // 超时检测的时间戳，取自事件循环的本轮时间
+    private final long activatedAt;
+    private long lastReadAt;
+    private long lastWriteAt;
+    private boolean established;
+    private Timeout lifecycleTimer;
+
+    Connection(EventLoop eventLoop, SocketChannel channel, SelectionKey key, ChannelHandler handler) {
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.key = key;
+        this.handler = handler;
+        this.instrumented = Metrics.ENABLED && eventLoop.instrumented();
+        this.activatedAt = eventLoop.now();
+        this.lastReadAt = activatedAt;
+        this.lastWriteAt = activatedAt;
+    }
+
+    public EventLoop eventLoop() {
+        return eventLoop;
+    }
+
+    public SocketChannel channel() {
+        return channel;
+    }
+
+    public SocketAddress remoteAddress() {
+        try {
+            return channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 注册连接时指定的处理器
+     */
+    public ChannelHandler handler() {
+        return handler;
+    }
+
+    public Object attachment() {
+        return attachment;
+    }
+
+    public void attach(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * 标记握手完成，此后不再受握手超时限制，可在任意线程调用
+     */
+    public void markEstablished() {
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(this::markEstablished);
+            return;
+        }
+        established = true;
+    }
+
+    void fireActive() {
+        try {
+            handler.channelActive(this);
+        } catch (Throwable t) {
+            handler.exceptionCaught(this, t);
+        }
+        if (!closed) {
+            scheduleLifecycleTimer(eventLoop.now());
+        }
+    }
+
+    /**
+     * 每个连接只挂一个定时器，指向握手、空闲、保活中最早的截止时间；读写只更新时间戳，
+     * 定时器到期时再根据时间戳判断是否真正超时并重新挂到下一个截止时间，避免每次读写都增删定时器
+     */
+    private void scheduleLifecycleTimer(long now) {
+        long next = Long.MAX_VALUE;
+        long handshakeTimeout = eventLoop.handshakeTimeoutNanos();
+        if (!established && handshakeTimeout > 0) {
+            next = Math.min(next, activatedAt + handshakeTimeout - now);
+        }
+        long idleTimeout = eventLoop.idleTimeoutNanos();
+        if (idleTimeout > 0) {
+            next = Math.min(next, lastReadAt + idleTimeout - now);
+        }
+        long keepalive = eventLoop.keepaliveIntervalNanos();
+        if (keepalive > 0) {
+            next = Math.min(next, lastWriteAt + keepalive - now);
+        }
+        if (next != Long.MAX_VALUE) {
+            lifecycleTimer = eventLoop.schedule(this::checkLifecycle, Math.max(next, 0), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void checkLifecycle() {
+        lifecycleTimer = null;
+        if (closed) {
+            return;
+        }
+        long now = eventLoop.now();
+        long handshakeTimeout = eventLoop.handshakeTimeoutNanos();
+        if (!established && handshakeTimeout > 0 && now - activatedAt >= handshakeTimeout) {
+            LOG.log(System.Logger.Level.DEBUG, "Handshake timed out, closing {0}", remoteAddress());
+            close();
+            return;
+        }
+        long idleTimeout = eventLoop.idleTimeoutNanos();
+        if (idleTimeout > 0 && now - lastReadAt >= idleTimeout) {
+            LOG.log(System.Logger.Level.DEBUG, "Idle timed out, closing {0}", remoteAddress());
+            close();
+            return;
+        }
+        long keepalive = eventLoop.keepaliveIntervalNanos();
+        if (keepalive > 0 && now - lastWriteAt >= keepalive) {
+            // 处理器不写出数据时也按间隔重试，而不是立即再次触发
+            lastWriteAt = now;
+            try {
+                handler.keepalive(this);
+            } catch (Throwable t) {
+                handler.exceptionCaught(this, t);
+            }
+        }
+        if (!closed) {
+            scheduleLifecycleTimer(now);
+        }
+    }
+
+    void handleRead() {
+        // 读缓冲取自事件循环的直接缓冲区域，稳态下不产生分配，也避免 JDK 内部的临时直接缓冲拷贝
+        ByteBuffer buffer = eventLoop.arena().acquire(eventLoop.readBufferSize());
+        boolean endOfStream = false;
+        Throwable failure = null;
+        try {
+            long start = instrumented ? System.nanoTime() : 0;
+            int bytes = channel.read(buffer);
+            if (instrumented) {
+                READ_NANOS.recordSince(start);
+            }
+            if (bytes < 0) {
+                endOfStream = true;
+            } else if (bytes > 0) {
+                lastReadAt = eventLoop.now();
+                if (instrumented) {
+                    READ_BYTES.add(bytes);
+                }
+                eventLoop.recordRead(bytes, buffer.capacity());
+                buffer.flip();
+                handler.channelRead(this, buffer);
+            }
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            eventLoop.arena().release(buffer);
+        }
+        // 先归还读缓冲再关闭，保证 channelInactive 回调时本连接不再持有任何缓冲
+        if (failure != null) {
+            handler.exceptionCaught(this, failure);
+        } else if (endOfStream) {
+            close();
+        }
+    }
+
+    /**
+     * 发送队列未写出的字节数超过高水位后为 {@code false}，回落到低水位以下后恢复为 {@code true}，可在任意线程读取
+     * <p>
+     * 生产者应在不可写时暂停产生数据，否则慢速对端会让发送队列无限增长。
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * 发送队列中尚未写出的字节数
+     */
+    public long pendingWriteBytes() {
+        return pendingWriteBytes;
+    }
+
+    /**
+     * 发送队列是否积压超过低水位，说明对端或链路跟不上发送速度
+     */
+    public boolean hasWriteBacklog() {
+        return pendingWriteBytes > eventLoop.writeLowWaterMark();
+    }
+
+    /**
+     * 将 {@code data} 的剩余字节加入发送队列，可在任意线程调用，调用后不得再修改 {@code data}
+     * <p>
+     * 数据不会立即写出：事件循环在本轮事件和任务处理完后统一 {@link #flush()}，
+     * 同一轮内写入的多个帧由一次聚集写（gathering write）发出。连接已关闭时数据被丢弃。
+     */
+    public void write(ByteBuffer data) {
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(() -> write(data));
+            return;
+        }
+        if (closed) {
+            return;
+        }
+        outbound.add(data);
+        lastWriteAt = eventLoop.now();
+        pendingWriteBytes += data.remaining();
+        eventLoop.addPendingWriteBytes(data.remaining());
+        if (!flushScheduled) {
+            flushScheduled = true;
+            eventLoop.scheduleFlush(this);
+        }
+        updateWritability();
+    }
+
+    /**
+     * 立即尝试写出发送队列，可在任意线程调用
+     * <p>
+     * 只在套接字发送缓冲已满、数据写不完时才关注 {@link SelectionKey#OP_WRITE}，可写后继续写出，写空后取消关注。
+     */
+    public void flush() {
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(this::flush);
+            return;
+        }
+        flushScheduled = false;
+        if (closed || outbound.isEmpty() || (key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+            // 已在等待可写事件，届时由 handleWrite 写出
+            return;
+        }
+        doFlush();
+    }
+
+    void handleWrite() {
+        doFlush();
+    }
+
+    private void doFlush() {
+        ByteBuffer[] batch = eventLoop.gatherBuffers();
+        boolean drained = false;
+        try {
+            while (!outbound.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer data : outbound) {
+                    batch[count++] = data;
+                    if (count == batch.length) {
+                        break;
+                    }
+                }
+                long start = instrumented ? System.nanoTime() : 0;
+                long written = channel.write(batch, 0, count);
+                if (instrumented) {
+                    WRITE_NANOS.recordSince(start);
+                    WRITE_BYTES.add(written);
+                }
+                pendingWriteBytes -= written;
+                eventLoop.addPendingWriteBytes(-written);
+                boolean socketFull = batch[count - 1].hasRemaining();
+                while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+                    outbound.poll();
+                }
+                if (socketFull) {
+                    // 本批未写完，套接字发送缓冲已满，等待下一次可写事件
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            drained = true;
+        } catch (IOException e) {
+            handler.exceptionCaught(this, e);
+        } finally {
+            Arrays.fill(batch, null);
+            if (!closed) {
+                updateWritability();
+            }
+        }
+        if (drained && !closed) {
+            try {
+                handler.channelFlushed(this);
+            } catch (Throwable t) {
+                handler.exceptionCaught(this, t);
+            }
+        }
+    }
+
+    private void updateWritability() {
+        if (writable && pendingWriteBytes > eventLoop.writeHighWaterMark()) {
+            writable = false;
+            handler.channelWritabilityChanged(this);
+        } else if (!writable && pendingWriteBytes <= eventLoop.writeLowWaterMark()) {
+            writable = true;
+            handler.channelWritabilityChanged(this);
+        }
+    }
+
+    /**
+     * 是否从套接字读取数据，关闭后不再触发 {@link ChannelHandler#channelRead}，
+     * 对端的数据积压在内核接收缓冲中，最终通过 TCP 流控让对端停止发送。可在任意线程调用
+     */
+    public void setAutoRead(boolean autoRead) {
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(() -> setAutoRead(autoRead));
+            return;
+        }
+        if (closed) {
+            return;
+        }
+        int ops = key.interestOps();
+        key.interestOps(autoRead ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+    }
+
+    /**
+     * 关闭连接，可在任意线程调用，实际关闭在事件循环线程中完成
+     */
+    public void close() {
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(this::close);
+            return;
+        }
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (lifecycleTimer != null) {
+            lifecycleTimer.cancel();
+            lifecycleTimer = null;
+        }
+        outbound.clear();
+        eventLoop.addPendingWriteBytes(-pendingWriteBytes);
+        pendingWriteBytes = 0;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 连接已不可用，无需处理
+        }
+        eventLoop.connectionClosed();
+        handler.channelInactive(this);
+    }
+}
@@ -0,0 +1,480 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferArena;
+import io.junix.xia.buffer.BufferPool;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 工作线程事件循环：一个线程独占一个 {@link Selector}，负责其上所有连接的读写事件
+ * <p>
+ * 其他线程通过 {@link #execute(Runnable)} 投递任务，由事件循环线程串行执行，连接状态因此无需加锁。
+ *
+ * @author wulogn
+ */
+public class EventLoop implements Executor {
+
+    private static final System.Logger LOG = System.getLogger(EventLoop.class.getName());
+
+    private static final int DEFAULT_READ_BUFFER_SIZE = 4096;
+
+    /**
+     * 单次聚集写最多合并的缓冲数，低于常见的 IOV_MAX
+     */
+    private static final int MAX_GATHER = 64;
+
+    /**
+     * 时间轮刻度与槽位数，一圈约 5 秒，更长的定时器按圈数留在槽位中
+     */
+    private static final long TIMER_TICK_MILLIS = 10;
+    private static final int TIMER_WHEEL_SIZE = 512;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final BufferArena arena;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Connection> flushQueue = new ArrayDeque<>();
+    private final ByteBuffer[] gatherBuffers = new ByteBuffer[MAX_GATHER];
+    private final TimerWheel timers;
+    private final AtomicBoolean wakenUp = new AtomicBoolean();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean running = true;
+    private volatile int connectionCount;
+    private volatile int readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+    private volatile int writeLowWaterMark = 32 * 1024;
+    private volatile int writeHighWaterMark = 64 * 1024;
+    private volatile long idleTimeoutNanos;
+    private volatile long handshakeTimeoutNanos;
+    private volatile long keepaliveIntervalNanos;
+    private volatile boolean instrumented = true;
+    /**
+     * 本轮 select 返回后的时间，事件处理中复用，避免每次读写都调用 {@link System#nanoTime()}
+     */
+    private long now = System.nanoTime();
+
+    // 负载统计，仅事件循环线程写入，供调优采样读取
+    private volatile long reads;
+    private volatile long fullReads;
+    private volatile long pendingWriteBytes;
+
+    EventLoop(String name, BufferPool bufferPool) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.arena = bufferPool.newArena(thread);
+        this.timers = new TimerWheel(thread, TIMER_TICK_MILLIS, TimeUnit.MILLISECONDS, TIMER_WHEEL_SIZE, now);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * 事件循环线程的 ID，用于采样线程 CPU 时间
+     */
+    public long threadId() {
+        return thread.getId();
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * 本事件循环独占的缓冲区域，只能在事件循环线程中申请
+     */
+    public BufferArena arena() {
+        return arena;
+    }
+
+    int readBufferSize() {
+        return readBufferSize;
+    }
+
+    void setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+    }
+
+    int writeLowWaterMark() {
+        return writeLowWaterMark;
+    }
+
+    int writeHighWaterMark() {
+        return writeHighWaterMark;
+    }
+
+    /**
+     * 之后注册的连接是否计入连接层指标
+     */
+    boolean instrumented() {
+        return instrumented;
+    }
+
+    void setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+    }
+
+    void setWriteBufferWaterMark(int low, int high) {
+        this.writeHighWaterMark = high;
+        this.writeLowWaterMark = low;
+    }
+
+    /**
+     * 设置连接的超时策略，只对之后触发的连接定时器生效，0 表示不启用
+     *
+     * @param idleTimeout      连续未读到数据超过该时间后关闭连接
+     * @param handshakeTimeout 建立后超过该时间仍未 {@link Connection#markEstablished()} 则关闭连接
+     * @param keepalive        连续未写出数据超过该时间后调用 {@link ChannelHandler#keepalive}
+     */
+    void setConnectionTimeouts(long idleTimeout, long handshakeTimeout, long keepalive, TimeUnit unit) {
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.handshakeTimeoutNanos = unit.toNanos(handshakeTimeout);
+        this.keepaliveIntervalNanos = unit.toNanos(keepalive);
+    }
+
+    long idleTimeoutNanos() {
+        return idleTimeoutNanos;
+    }
+
+    long handshakeTimeoutNanos() {
+        return handshakeTimeoutNanos;
+    }
+
+    long keepaliveIntervalNanos() {
+        return keepaliveIntervalNanos;
+    }
+
+    /**
+     * 本轮循环的时间（{@link System#nanoTime()} 时基），只能在事件循环线程中调用
+     */
+    long now() {
+        return now;
+    }
+
+    /**
+     * 在 {@code delay} 之后于事件循环线程中执行 {@code task}，可在任意线程调用
+     * <p>
+     * 定时器挂在本事件循环的 {@link TimerWheel} 上，添加和取消都是 O(1)，精度为一个刻度（10 毫秒），
+     * 适合超时类任务，不占用额外的线程。
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (inEventLoop()) {
+            return timers.schedule(task, now + unit.toNanos(delay));
+        }
+        Timeout timeout = timers.newTimeout(task, System.nanoTime() + unit.toNanos(delay));
+        execute(() -> timers.add(timeout));
+        return timeout;
+    }
+
+    /**
+     * 等待执行的定时器数，只用于采样
+     */
+    public int pendingTimers() {
+        return timers.size();
+    }
+
+    /**
+     * 本轮结束时统一写出该连接的发送队列
+     */
+    void scheduleFlush(Connection connection) {
+        flushQueue.add(connection);
+    }
+
+    /**
+     * 聚集写使用的缓冲数组，事件循环线程内复用
+     */
+    ByteBuffer[] gatherBuffers() {
+        return gatherBuffers;
+    }
+
+    void recordRead(int bytes, int capacity) {
+        reads++;
+        if (bytes == capacity) {
+            fullReads++;
+        }
+    }
+
+    void addPendingWriteBytes(long delta) {
+        pendingWriteBytes += delta;
+    }
+
+    /**
+     * 累计的有效读取次数
+     */
+    public long readCount() {
+        return reads;
+    }
+
+    /**
+     * 累计填满读缓冲的读取次数，占比高说明读缓冲偏小
+     */
+    public long fullReadCount() {
+        return fullReads;
+    }
+
+    /**
+     * 本事件循环上所有连接发送队列中尚未写出的字节数
+     */
+    public long pendingWriteBytes() {
+        return pendingWriteBytes;
+    }
+
+    /**
+     * 等待执行的任务数，计算开销与队列长度成正比，只用于采样
+     */
+    public int pendingTasks() {
+        return tasks.size();
+    }
+
+    /**
+     * 当前注册在本事件循环上的连接数
+     */
+    public int connectionCount() {
+        return connectionCount;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        if (!inEventLoop() && wakenUp.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * 将已接受的连接注册到本事件循环，可在任意线程调用，无论成功与否最后都在事件循环线程中执行 {@code registered}
+     */
+    void register(SocketChannel channel, ChannelHandler handler, Runnable registered) {
+        execute(() -> {
+            try {
+                if (!running) {
+                    closeQuietly(channel);
+                    return;
+                }
+                channel.configureBlocking(false);
+                activate(channel, channel.register(selector, SelectionKey.OP_READ), handler);
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.WARNING, "Failed to register channel", e);
+                closeQuietly(channel);
+            } finally {
+                registered.run();
+            }
+        });
+    }
+
+    /**
+     * 以非阻塞方式连接 {@code remote}，由本事件循环的 selector 等待连接完成，可在任意线程调用
+     * <p>
+     * 连接建立后回调 {@code handler} 的 {@link ChannelHandler#channelActive}，再完成返回的 future；
+     * 若调用方在此之前以异常完成该 future（例如连接超时），尚未完成的连接会被放弃。
+     * {@code remote} 未解析时 future 以 {@link java.nio.channels.UnresolvedAddressException} 异常完成。
+     */
+    public CompletableFuture<Connection> connect(SocketAddress remote, ChannelHandler handler) {
+        CompletableFuture<Connection> future = new CompletableFuture<>();
+        execute(() -> {
+            if (!running) {
+                future.completeExceptionally(new ClosedSelectorException());
+                return;
+            }
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                if (channel.connect(remote)) {
+                    future.complete(activate(channel, channel.register(selector, SelectionKey.OP_READ), handler));
+                    return;
+                }
+                SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT,
+                        new PendingConnect(channel, handler, future));
+                future.whenComplete((connection, cause) -> {
+                    if (cause != null) {
+                        execute(() -> abandon(key));
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                // 未解析或不支持的地址以运行时异常抛出，同样关闭通道并立即失败，不等连接超时
+                if (channel != null) {
+                    closeQuietly(channel);
+                }
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private Connection activate(SocketChannel channel, SelectionKey key, ChannelHandler handler) {
+        Connection connection = new Connection(this, channel, key, handler);
+        key.attach(connection);
+        connectionCount++;
+        connection.fireActive();
+        return connection;
+    }
+
+    private void finishConnect(SelectionKey key, PendingConnect pending) {
+        try {
+            pending.channel().finishConnect();
+        } catch (IOException e) {
+            key.cancel();
+            closeQuietly(pending.channel());
+            pending.future().completeExceptionally(e);
+            return;
+        }
+        if (pending.future().isDone()) {
+            // 调用方已放弃该连接
+            abandon(key);
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        pending.future().complete(activate(pending.channel(), key, pending.handler()));
+    }
+
+    private void abandon(SelectionKey key) {
+        if (key.attachment() instanceof PendingConnect pending) {
+            key.cancel();
+            closeQuietly(pending.channel());
+            pending.future().completeExceptionally(new ClosedChannelException());
+        }
+    }
+
+    void connectionClosed() {
+        connectionCount--;
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                if (!tasks.isEmpty()) {
+                    selector.selectNow();
+                } else if (timers.isEmpty()) {
+                    selector.select();
+                } else {
+                    // 等到下一个有定时器的刻度，select(0) 表示无限等待，因此至少 1 毫秒
+                    long nanos = timers.nanosUntilNextTick(System.nanoTime());
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos + 999_999)));
+                }
+                wakenUp.set(false);
+                now = System.nanoTime();
+                processSelectedKeys();
+                runTasks();
+                timers.advance(now);
+                flushPending();
+            }
+        } catch (ClosedSelectorException ignored) {
+            // selector 已关闭，直接退出
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.ERROR, "Event loop " + thread.getName() + " terminated", e);
+        } finally {
+            closeAll();
+            terminated.countDown();
+        }
+    }
+
+    private void processSelectedKeys() {
+        Set<SelectionKey> selectedKeys = selector.selectedKeys();
+        if (selectedKeys.isEmpty()) {
+            return;
+        }
+        Iterator<SelectionKey> iterator = selectedKeys.iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.attachment() instanceof PendingConnect pending) {
+                finishConnect(key, pending);
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            int readyOps = key.readyOps();
+            if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+                connection.handleWrite();
+            }
+            // 写出过程中可能已暂停读取或关闭连接
+            if ((readyOps & SelectionKey.OP_READ) != 0 && connection.isOpen()
+                    && (key.interestOps() & SelectionKey.OP_READ) != 0) {
+                connection.handleRead();
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOG.log(System.Logger.Level.WARNING, "Task raised an exception", t);
+            }
+        }
+    }
+
+    private void flushPending() {
+        Connection connection;
+        while ((connection = flushQueue.poll()) != null) {
+            connection.flush();
+        }
+    }
+
+    private void closeAll() {
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                connection.close();
+            } else if (key.attachment() instanceof PendingConnect) {
+                abandon(key);
+            } else {
+                closeQuietly(key.channel());
+            }
+        }
+        runTasks();
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // 关闭阶段忽略
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 关闭阶段忽略
+        }
+    }
+
+    /**
+     * 尚未完成的出站连接
+     */
+    private record PendingConnect(SocketChannel channel, ChannelHandler handler,
+                                  CompletableFuture<Connection> future) {
+    }
+}
@@ -0,0 +1,164 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferPool;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一组工作事件循环，新连接按轮询方式分配，使连接均匀分布到各个核心
+ * <p>
+ * 新连接只分配给前 {@link #activeCount()} 个事件循环，调优时据此增减实际承载连接的线程数，
+ * 其余事件循环保持空闲阻塞，已建立的连接不迁移。
+ *
+ * @author wulogn
+ */
+public class EventLoopGroup {
+
+    private final EventLoop[] loops;
+    private final AtomicInteger index = new AtomicInteger();
+    private final AtomicInteger registering = new AtomicInteger();
+    private volatile int activeCount;
+
+    public EventLoopGroup(int threads, String namePrefix, BufferPool bufferPool) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        loops = new EventLoop[threads];
+        try {
+            for (int i = 0; i < threads; i++) {
+                loops[i] = new EventLoop(namePrefix + "-" + i, bufferPool);
+            }
+        } catch (IOException e) {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    loop.shutdown();
+                }
+            }
+            throw e;
+        }
+        activeCount = threads;
+    }
+
+    public void start() {
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+    }
+
+    /**
+     * 选出下一个事件循环
+     */
+    public EventLoop next() {
+        return loops[Math.floorMod(index.getAndIncrement(), activeCount)];
+    }
+
+    /**
+     * 将已接受的连接交给下一个事件循环，注册完成前计入 {@link #admittedCount()}
+     */
+    void register(SocketChannel channel, ChannelHandler handler) {
+        registering.incrementAndGet();
+        next().register(channel, handler, registering::decrementAndGet);
+    }
+
+    /**
+     * 已注册和正在注册的连接数，用于连接数准入；注册是异步的，只看 {@link #connectionCount()} 会在连接风暴中超发
+     */
+    public int admittedCount() {
+        return connectionCount() + registering.get();
+    }
+
+    /**
+     * 接收新连接的事件循环数
+     */
+    public int activeCount() {
+        return activeCount;
+    }
+
+    public void setActiveCount(int activeCount) {
+        if (activeCount < 1 || activeCount > loops.length) {
+            throw new IllegalArgumentException("activeCount must be in [1, " + loops.length + "]: " + activeCount);
+        }
+        this.activeCount = activeCount;
+    }
+
+    /**
+     * 所有事件循环上的连接总数
+     */
+    public int connectionCount() {
+        int count = 0;
+        for (EventLoop loop : loops) {
+            count += loop.connectionCount();
+        }
+        return count;
+    }
+
+    public void setReadBufferSize(int readBufferSize) {
+        for (EventLoop loop : loops) {
+            loop.setReadBufferSize(readBufferSize);
+        }
+    }
+
+    /**
+     * 设置发送队列的低、高水位（字节），连接的未写出字节超过高水位时变为不可写，回落到低水位以下后恢复
+     */
+    public void setWriteBufferWaterMark(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException("Invalid write buffer water mark: low=" + low + ", high=" + high);
+        }
+        for (EventLoop loop : loops) {
+            loop.setWriteBufferWaterMark(low, high);
+        }
+    }
+
+    /**
+     * 设置之后注册的连接是否计入连接层指标，见 {@link ServerConfig#setInstrumented}
+     */
+    public void setInstrumented(boolean instrumented) {
+        for (EventLoop loop : loops) {
+            loop.setInstrumented(instrumented);
+        }
+    }
+
+    /**
+     * 设置连接的空闲超时、握手超时和保活间隔，0 表示不启用，见 {@link ServerConfig}
+     */
+    public void setConnectionTimeouts(long idleTimeout, long handshakeTimeout, long keepaliveInterval,
+                                      TimeUnit unit) {
+        if (idleTimeout < 0 || handshakeTimeout < 0 || keepaliveInterval < 0) {
+            throw new IllegalArgumentException("Timeouts must not be negative: idle=" + idleTimeout
+                    + ", handshake=" + handshakeTimeout + ", keepalive=" + keepaliveInterval);
+        }
+        for (EventLoop loop : loops) {
+            loop.setConnectionTimeouts(idleTimeout, handshakeTimeout, keepaliveInterval, unit);
+        }
+    }
+
+    public List<EventLoop> loops() {
+        return List.of(loops);
+    }
+
+    public int size() {
+        return loops.length;
+    }
+
+    public void shutdown() {
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (EventLoop loop : loops) {
+            long remaining = deadline - System.nanoTime();
+            if (!loop.awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
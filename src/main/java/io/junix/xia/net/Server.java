@@ -0,0 +1,157 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.limit.PeerRateLimiter;
+import io.junix.xia.tune.TuningEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 主从 Reactor 服务器：一个接受线程加 N 个工作事件循环
+ *
+ * @author wulogn
+ */
+public class Server implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(Server.class.getName());
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /**
+     * 按来源 IP 限速时同时跟踪的来源数上限
+     */
+    private static final int MAX_TRACKED_PEERS = 65_536;
+
+    private final ServerConfig config;
+    private final Supplier<? extends ChannelHandler> handlerFactory;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private ServerSocketChannel serverChannel;
+    private EventLoopGroup workers;
+    private Acceptor acceptor;
+    private Thread acceptorThread;
+    private TuningEngine tuner;
+
+    public Server(ServerConfig config, Supplier<? extends ChannelHandler> handlerFactory) {
+        this.config = config;
+        this.handlerFactory = handlerFactory;
+    }
+
+    public synchronized void start() throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        workers = new EventLoopGroup(config.getWorkerThreads(), "xia-worker", config.getBufferPool());
+        workers.setReadBufferSize(config.getReadBufferSize());
+        workers.setWriteBufferWaterMark(config.getWriteLowWaterMark(), config.getWriteHighWaterMark());
+        workers.setConnectionTimeouts(config.getIdleTimeoutMillis(), config.getHandshakeTimeoutMillis(),
+                config.getKeepaliveIntervalMillis(), TimeUnit.MILLISECONDS);
+        workers.setInstrumented(config.isInstrumented());
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
+            acceptor = new Acceptor(serverChannel, workers, handlerFactory);
+            acceptor.setMaxConnections(config.getMaxConnections());
+            acceptor.setInstrumented(config.isInstrumented());
+            if (config.getPeerConnectRate() > 0) {
+                acceptor.setPeerLimiter(new PeerRateLimiter<>(config.getPeerConnectRate(),
+                        config.getPeerConnectBurst(), MAX_TRACKED_PEERS));
+            }
+        } catch (IOException e) {
+            serverChannel.close();
+            workers.shutdown();
+            throw e;
+        }
+        workers.start();
+        acceptorThread = new Thread(acceptor, "xia-acceptor");
+        acceptorThread.start();
+        if (config.isTuningEnabled()) {
+            tuner = new TuningEngine(this, config);
+            tuner.start(config.getTuningIntervalMillis());
+        }
+        LOG.log(System.Logger.Level.INFO, "Xia server listening on {0} with {1} worker(s)",
+                serverChannel.socket().getLocalSocketAddress(), workers.size());
+    }
+
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) serverChannel.socket().getLocalSocketAddress();
+    }
+
+    public BufferPool bufferPool() {
+        return config.getBufferPool();
+    }
+
+    public EventLoopGroup workers() {
+        return workers;
+    }
+
+    /**
+     * 每秒最多接受的连接数，0 表示不限制
+     */
+    public int acceptRateLimit() {
+        return acceptor.acceptRateLimit();
+    }
+
+    public void setAcceptRateLimit(int acceptRateLimit) {
+        acceptor.setAcceptRateLimit(acceptRateLimit);
+    }
+
+    /**
+     * 累计接受的连接数，含随后被拒绝的连接
+     */
+    public long acceptedCount() {
+        return acceptor.acceptedCount();
+    }
+
+    /**
+     * 累计因连接数上限或来源限速被拒绝的连接数
+     */
+    public long rejectedCount() {
+        return acceptor.rejectedCount();
+    }
+
+    /**
+     * 停止接受新连接，关闭所有已建立连接并等待工作线程退出
+     */
+    @Override
+    public synchronized void close() {
+        if (serverChannel == null || closed.getCount() == 0) {
+            return;
+        }
+        if (tuner != null) {
+            tuner.close();
+        }
+        acceptor.shutdown();
+        try {
+            acceptorThread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+            serverChannel.close();
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Failed to close server channel", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.log(System.Logger.Level.WARNING, "Worker event loops did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed.countDown();
+    }
+
+    /**
+     * 阻塞直到服务器关闭
+     */
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+}
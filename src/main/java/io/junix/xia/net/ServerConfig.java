@@ -0,0 +1,294 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.compress.CompressionPolicy;
+import io.junix.xia.tune.TuningEngine;
+
+/**
+ * 服务器配置，默认值均可通过 {@code -Dxia.*} 系统属性覆盖，做到零配置启动
+ *
+ * @author wulogn
+ */
+public class ServerConfig {
+
+    private int port = 8080;
+    private int backlog = 1024;
+    private int workerThreads = Runtime.getRuntime().availableProcessors();
+    private int readBufferSize = 4096;
+    private int maxFrameSize = 1024 * 1024;
+    private int writeLowWaterMark = 32 * 1024;
+    private int writeHighWaterMark = 64 * 1024;
+    private long idleTimeoutMillis;
+    private long handshakeTimeoutMillis;
+    private long keepaliveIntervalMillis;
+    private int maxConnections;
+    private int peerConnectRate;
+    private int peerConnectBurst = 16;
+    private ServerMode mode = ServerMode.REACTOR;
+    private CompressionPolicy compression = CompressionPolicy.none();
+    private boolean tuningEnabled;
+    private boolean instrumented = true;
+    private long tuningIntervalMillis = TuningEngine.DEFAULT_INTERVAL_MILLIS;
+    private BufferPool bufferPool;
+
+    /**
+     * 从系统属性读取配置，未设置的项使用默认值
+     */
+    public static ServerConfig fromSystemProperties() {
+        ServerConfig config = new ServerConfig();
+        config.port = Integer.getInteger("xia.port", config.port);
+        config.backlog = Integer.getInteger("xia.backlog", config.backlog);
+        config.workerThreads = Integer.getInteger("xia.workers", config.workerThreads);
+        config.readBufferSize = Integer.getInteger("xia.readBufferSize", config.readBufferSize);
+        config.maxFrameSize = Integer.getInteger("xia.maxFrameSize", config.maxFrameSize);
+        config.writeLowWaterMark = Integer.getInteger("xia.writeLowWaterMark", config.writeLowWaterMark);
+        config.writeHighWaterMark = Integer.getInteger("xia.writeHighWaterMark", config.writeHighWaterMark);
+        // 独立运行时默认关闭 5 分钟未收到任何数据的连接，回收半开连接
+        config.idleTimeoutMillis = Long.getLong("xia.idleTimeoutMillis", 300_000);
+        // 独立运行时默认关闭 10 秒内未完成握手（未启用握手时为未发出第一个请求）的连接
+        config.handshakeTimeoutMillis = Long.getLong("xia.handshakeTimeoutMillis", 10_000);
+        config.keepaliveIntervalMillis = Long.getLong("xia.keepaliveMillis", config.keepaliveIntervalMillis);
+        // 独立运行时默认限制连接总数和单个 IP 的建连速率，小节点在连接风暴中仍能服务正常对端
+        config.maxConnections = Integer.getInteger("xia.maxConnections", 10_000);
+        config.peerConnectRate = Integer.getInteger("xia.peerConnectRate", 8);
+        config.peerConnectBurst = Integer.getInteger("xia.peerConnectBurst", config.peerConnectBurst);
+        config.compression = CompressionPolicy.fromSystemProperties();
+        // 独立运行时默认开启自适应调优，-Dxia.tune=false 关闭
+        config.tuningEnabled = Boolean.parseBoolean(System.getProperty("xia.tune", "true"));
+        config.tuningIntervalMillis = Long.getLong("xia.tune.intervalMillis", config.tuningIntervalMillis);
+        String mode = System.getProperty("xia.server.mode");
+        if (mode != null) {
+            config.mode = ServerMode.parse(mode);
+        }
+        return config;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ServerConfig setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public ServerConfig setBacklog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public ServerConfig setWorkerThreads(int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("workerThreads must be positive: " + workerThreads);
+        }
+        this.workerThreads = workerThreads;
+        return this;
+    }
+
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public ServerConfig setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+        return this;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * 单帧负载的最大字节数，超过时视为非法数据并关闭连接，防止恶意长度耗尽内存
+     */
+    public ServerConfig setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    public int getWriteLowWaterMark() {
+        return writeLowWaterMark;
+    }
+
+    public int getWriteHighWaterMark() {
+        return writeHighWaterMark;
+    }
+
+    /**
+     * 每个连接发送队列的低、高水位（字节），见 {@link Connection#isWritable()}
+     */
+    public ServerConfig setWriteBufferWaterMark(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException("Invalid write buffer water mark: low=" + low + ", high=" + high);
+        }
+        this.writeLowWaterMark = low;
+        this.writeHighWaterMark = high;
+        return this;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * 连续未读到任何数据超过该时间的连接被关闭，0 表示不启用；需大于对端的保活间隔
+     */
+    public ServerConfig setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("idleTimeoutMillis must not be negative: " + idleTimeoutMillis);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        return this;
+    }
+
+    public long getHandshakeTimeoutMillis() {
+        return handshakeTimeoutMillis;
+    }
+
+    /**
+     * 连接建立后超过该时间仍未调用 {@link Connection#markEstablished()} 则被关闭，0 表示不启用；
+     * 握手阶段在握手完成时调用，{@code RpcServerHandler} 在收到第一个格式正确的请求时调用；
+     * 虚拟线程模式下对应 {@link BlockingConnection#markEstablished()}
+     */
+    public ServerConfig setHandshakeTimeoutMillis(long handshakeTimeoutMillis) {
+        if (handshakeTimeoutMillis < 0) {
+            throw new IllegalArgumentException("handshakeTimeoutMillis must not be negative: " + handshakeTimeoutMillis);
+        }
+        this.handshakeTimeoutMillis = handshakeTimeoutMillis;
+        return this;
+    }
+
+    public long getKeepaliveIntervalMillis() {
+        return keepaliveIntervalMillis;
+    }
+
+    /**
+     * 连续未写出数据超过该时间时调用 {@link ChannelHandler#keepalive} 发送心跳，0 表示不启用
+     */
+    public ServerConfig setKeepaliveIntervalMillis(long keepaliveIntervalMillis) {
+        if (keepaliveIntervalMillis < 0) {
+            throw new IllegalArgumentException("keepaliveIntervalMillis must not be negative: " + keepaliveIntervalMillis);
+        }
+        this.keepaliveIntervalMillis = keepaliveIntervalMillis;
+        return this;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * 同时承载的连接数上限，达到上限后新连接被立即拒绝，0 表示不限制
+     */
+    public ServerConfig setMaxConnections(int maxConnections) {
+        if (maxConnections < 0) {
+            throw new IllegalArgumentException("maxConnections must not be negative: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public int getPeerConnectRate() {
+        return peerConnectRate;
+    }
+
+    public int getPeerConnectBurst() {
+        return peerConnectBurst;
+    }
+
+    /**
+     * 单个来源 IP 每秒最多建立的连接数及允许的突发数，超出的连接在握手之前被拒绝，速率为 0 表示不限制
+     */
+    public ServerConfig setPeerConnectRate(int perSecond, int burst) {
+        if (perSecond < 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid peer connect rate: perSecond=" + perSecond + ", burst=" + burst);
+        }
+        this.peerConnectRate = perSecond;
+        this.peerConnectBurst = burst;
+        return this;
+    }
+
+    public ServerMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 连接处理模式，{@link ServerMode#VIRTUAL_THREAD} 模式下工作线程数和缓冲池配置不生效
+     */
+    public ServerConfig setMode(ServerMode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public CompressionPolicy getCompression() {
+        return compression;
+    }
+
+    /**
+     * 帧压缩策略，客户端须使用相同的压缩设置（是否启用）
+     */
+    public ServerConfig setCompression(CompressionPolicy compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public boolean isTuningEnabled() {
+        return tuningEnabled;
+    }
+
+    /**
+     * 是否在运行时按负载自动调整工作线程数、读缓冲、缓存上限、压缩级别和接受速率，见 {@link TuningEngine}
+     */
+    public ServerConfig setTuningEnabled(boolean tuningEnabled) {
+        this.tuningEnabled = tuningEnabled;
+        return this;
+    }
+
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
+    /**
+     * 是否把本服务器的连接计入 {@code xia_accept_*}、{@code xia_read_*}、{@code xia_write_*} 等连接层指标，默认计入；
+     * 指标端点等旁路服务应关闭，避免抓取本身的流量混入业务流量
+     */
+    public ServerConfig setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+        return this;
+    }
+
+    public long getTuningIntervalMillis() {
+        return tuningIntervalMillis;
+    }
+
+    public ServerConfig setTuningIntervalMillis(long tuningIntervalMillis) {
+        if (tuningIntervalMillis <= 0) {
+            throw new IllegalArgumentException("tuningIntervalMillis must be positive: " + tuningIntervalMillis);
+        }
+        this.tuningIntervalMillis = tuningIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 未显式设置时按系统属性创建
+     */
+    public BufferPool getBufferPool() {
+        if (bufferPool == null) {
+            bufferPool = BufferPool.fromSystemProperties();
+        }
+        return bufferPool;
+    }
+
+    public ServerConfig setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        return this;
+    }
+}
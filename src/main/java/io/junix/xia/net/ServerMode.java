@@ -0,0 +1,26 @@
+package io.junix.xia.net;
+
+/**
+ * 服务器连接处理模式
+ *
+ * @author wulogn
+ */
+public enum ServerMode {
+
+    /**
+     * 主从 Reactor：少量事件循环线程以非阻塞方式处理所有连接，见 {@link Server}
+     */
+    REACTOR,
+
+    /**
+     * 每个连接一个虚拟线程，以阻塞方式读写，见 {@link VirtualThreadServer}，需要 Java 21 及以上
+     */
+    VIRTUAL_THREAD;
+
+    /**
+     * 解析配置值，不区分大小写，{@code -} 与 {@code _} 等价，例如 {@code virtual-thread}
+     */
+    public static ServerMode parse(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
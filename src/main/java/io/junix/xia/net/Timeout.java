@@ -0,0 +1,70 @@
+package io.junix.xia.net;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * {@link TimerWheel} 中的一个定时任务
+ *
+ * @author wulogn
+ */
+public final class Timeout {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final TimerWheel wheel;
+    final Runnable task;
+    final long deadlineNanos;
+    // 以下字段只在时间轮所属线程中访问
+    long tick;
+    Timeout prev;
+    Timeout next;
+    boolean linked;
+    @SuppressWarnings("unused")
+    private volatile int state;
+
+    Timeout(TimerWheel wheel, Runnable task, long deadlineNanos) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 取消尚未执行的任务，可在任意线程调用
+     * <p>
+     * 在时间轮所属线程中调用时立即从槽位摘除；在其他线程中调用只标记取消，由所属线程在扫描该槽位时摘除。
+     *
+     * @return 是否由本次调用取消，任务已执行或已取消时返回 {@code false}
+     */
+    public boolean cancel() {
+        if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+            return false;
+        }
+        wheel.cancelled(this);
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    public boolean isExpired() {
+        return state == EXPIRED;
+    }
+
+    boolean expire() {
+        return STATE.compareAndSet(this, PENDING, EXPIRED);
+    }
+}
@@ -0,0 +1,201 @@
+package io.junix.xia.net;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 哈希时间轮：时间按固定刻度划分，定时任务按到期刻度散列到环形槽位的双向链表中，添加和取消都是 O(1)
+ * <p>
+ * 超出一圈的任务留在对应槽位，每圈扫到时比较到期刻度，未到期的跳过。
+ * 到期误差不超过一个刻度，适合空闲超时、握手截止、保活这类大量、精度要求不高且多数会被取消的定时器，
+ * 十万个连接各自一个定时器也只占用链表节点，不需要额外的线程或调度任务。
+ * <p>
+ * 除 {@link Timeout#cancel()} 外只能在所属线程中调用，由 {@link EventLoop} 在每轮循环中推进。
+ *
+ * @author wulogn
+ */
+public final class TimerWheel {
+
+    private static final System.Logger LOG = System.getLogger(TimerWheel.class.getName());
+
+    private final Thread owner;
+    private final long tickNanos;
+    private final Timeout[] heads;
+    private final Timeout[] tails;
+    private final int mask;
+    private final long startNanos;
+    /**
+     * 下一个待处理的刻度
+     */
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param owner     所属线程，为 {@code null} 时不区分调用线程（仅用于单线程测试）
+     * @param wheelSize 槽位数，向上取整为 2 的幂
+     */
+    public TimerWheel(Thread owner, long tickDuration, TimeUnit unit, int wheelSize, long nowNanos) {
+        if (tickDuration < 1) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (wheelSize < 1 || wheelSize > 1 << 20) {
+            throw new IllegalArgumentException("wheelSize must be in [1, 2^20]: " + wheelSize);
+        }
+        int slots = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.owner = owner;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.heads = new Timeout[slots];
+        this.tails = new Timeout[slots];
+        this.mask = slots - 1;
+        this.startNanos = nowNanos;
+    }
+
+    /**
+     * 创建在 {@code deadlineNanos}（{@link System#nanoTime()} 时基）之后执行的任务，需再经 {@link #add} 加入时间轮
+     */
+    public Timeout newTimeout(Runnable task, long deadlineNanos) {
+        return new Timeout(this, task, deadlineNanos);
+    }
+
+    /**
+     * 加入时间轮，已取消的任务被忽略
+     */
+    public void add(Timeout timeout) {
+        if (timeout.wheel != this) {
+            throw new IllegalArgumentException("Timeout belongs to another wheel");
+        }
+        if (timeout.isCancelled() || timeout.linked) {
+            return;
+        }
+        long elapsed = timeout.deadlineNanos - startNanos;
+        // 向上取整，保证不会提前执行；已到期的任务在下一个刻度执行
+        long tick = elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+        timeout.tick = Math.max(tick, currentTick);
+        int slot = (int) (timeout.tick & mask);
+        timeout.prev = tails[slot];
+        timeout.next = null;
+        if (tails[slot] == null) {
+            heads[slot] = timeout;
+        } else {
+            tails[slot].next = timeout;
+        }
+        tails[slot] = timeout;
+        timeout.linked = true;
+        size++;
+    }
+
+    public Timeout schedule(Runnable task, long deadlineNanos) {
+        Timeout timeout = newTimeout(task, deadlineNanos);
+        add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 执行截至 {@code nowNanos} 已到期的任务，返回执行的个数
+     */
+    public int advance(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        int fired = 0;
+        while (currentTick <= targetTick && size > 0) {
+            fired += expire((int) (currentTick & mask), currentTick);
+            currentTick++;
+        }
+        if (size == 0 && currentTick <= targetTick) {
+            // 没有任务时直接跳到当前刻度
+            currentTick = targetTick + 1;
+        }
+        return fired;
+    }
+
+    /**
+     * 未执行也未摘除的任务数
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 距离下一个非空槽位的纳秒数，用作 selector 的等待时间；所有槽位为空时返回 -1
+     * <p>
+     * 非空槽位中的任务可能属于以后的轮次，届时只是多醒来一次。
+     */
+    public long nanosUntilNextTick(long nowNanos) {
+        if (size == 0) {
+            return -1;
+        }
+        for (int i = 0; i <= mask; i++) {
+            if (heads[(int) ((currentTick + i) & mask)] != null) {
+                long deadline = startNanos + (currentTick + i) * tickNanos;
+                return Math.max(0, deadline - nowNanos);
+            }
+        }
+        return -1;
+    }
+
+    void cancelled(Timeout timeout) {
+        if (owner == null || Thread.currentThread() == owner) {
+            unlink(timeout);
+        }
+    }
+
+    private int expire(int slot, long tick) {
+        // 先摘下本刻度到期的任务再逐个执行，任务中增删其他定时器不影响遍历
+        Timeout expired = null;
+        Timeout expiredTail = null;
+        Timeout timeout = heads[slot];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.isCancelled()) {
+                unlink(timeout);
+            } else if (timeout.tick <= tick) {
+                unlink(timeout);
+                if (expiredTail == null) {
+                    expired = timeout;
+                } else {
+                    expiredTail.next = timeout;
+                }
+                expiredTail = timeout;
+            }
+            timeout = next;
+        }
+        int fired = 0;
+        while (expired != null) {
+            Timeout next = expired.next;
+            expired.next = null;
+            if (expired.expire()) {
+                fired++;
+                try {
+                    expired.task.run();
+                } catch (Throwable t) {
+                    LOG.log(System.Logger.Level.WARNING, "Timer task raised an exception", t);
+                }
+            }
+            expired = next;
+        }
+        return fired;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (!timeout.linked) {
+            return;
+        }
+        int slot = (int) (timeout.tick & mask);
+        if (timeout.prev == null) {
+            heads[slot] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next == null) {
+            tails[slot] = timeout.prev;
+        } else {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.linked = false;
+        size--;
+    }
+}
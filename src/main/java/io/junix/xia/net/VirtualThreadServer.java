@@ -0,0 +1,210 @@
+package io.junix.xia.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 虚拟线程服务器：一个接受线程，每个已接受的连接在独立的虚拟线程中以阻塞方式处理
+ * <p>
+ * 与 {@link Server} 相比编程模型是顺序的阻塞读写，适合插件作者；代价是每个连接常驻一个读缓冲和一个虚拟线程栈。
+ * 虚拟线程在运行时查找，构建仍可使用 Java 17，运行在 Java 21 以下时 {@link #start()} 抛出
+ * {@link UnsupportedOperationException}。
+ * <p>
+ * 与 {@link Server} 一样遵守 {@link ServerConfig} 的连接数上限（超出的连接以 RST 立即关闭，不占用虚拟线程），
+ * 以及握手超时和空闲超时（见 {@link BlockingConnection}），单个客户端无法无限占用线程和读缓冲。
+ *
+ * @author wulogn
+ */
+public class VirtualThreadServer implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(VirtualThreadServer.class.getName());
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private final ServerConfig config;
+    private final BlockingHandler handler;
+    private final Set<BlockingConnection> connections = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final LongAdder rejectedCount = new LongAdder();
+    private ServerSocketChannel serverChannel;
+    private ExecutorService executor;
+    private Thread acceptorThread;
+    private volatile boolean running;
+
+    public VirtualThreadServer(ServerConfig config, BlockingHandler handler) {
+        this.config = config;
+        this.handler = handler;
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    public synchronized void start() throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+        executor = newVirtualThreadExecutor();
+        running = true;
+        acceptorThread = new Thread(this::acceptLoop, "xia-acceptor");
+        acceptorThread.start();
+        LOG.log(System.Logger.Level.INFO, "Xia server listening on {0} with virtual threads",
+                serverChannel.socket().getLocalSocketAddress());
+    }
+
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) serverChannel.socket().getLocalSocketAddress();
+    }
+
+    /**
+     * 当前打开的连接数
+     */
+    public int connectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * 累计因连接数上限被拒绝的连接数
+     */
+    public long rejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // 与 Acceptor 相同，持续失败（例如文件描述符耗尽）时稍等再重试而不是空转
+                LOG.log(System.Logger.Level.WARNING, "Failed to accept connection", e);
+                try {
+                    Thread.sleep(Acceptor.ACCEPT_ERROR_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            int max = config.getMaxConnections();
+            if (max > 0 && connections.size() >= max) {
+                LOG.log(System.Logger.Level.DEBUG, "Connection limit {0} reached", max);
+                rejectedCount.increment();
+                Acceptor.reject(channel);
+                continue;
+            }
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.DEBUG, "Failed to set TCP_NODELAY", e);
+            }
+            BlockingConnection connection = new BlockingConnection(channel, config.getReadBufferSize(),
+                    config.getMaxFrameSize(), config.getHandshakeTimeoutMillis(), config.getIdleTimeoutMillis(),
+                    config.getCompression().newStages(config.getMaxFrameSize()));
+            connections.add(connection);
+            executor.execute(() -> serve(connection));
+        }
+    }
+
+    private void serve(BlockingConnection connection) {
+        try {
+            handler.handle(connection);
+        } catch (Throwable t) {
+            if (running) {
+                LOG.log(System.Logger.Level.DEBUG, "Connection handler failed", t);
+            }
+        } finally {
+            connection.close();
+            connection.releaseStages();
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * 停止接受新连接，关闭所有已建立连接并等待处理线程退出
+     */
+    @Override
+    public synchronized void close() {
+        if (serverChannel == null || closed.getCount() == 0) {
+            return;
+        }
+        running = false;
+        try {
+            // 关闭通道使阻塞在 accept 上的接受线程退出
+            serverChannel.close();
+            acceptorThread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Failed to close server channel", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (BlockingConnection connection : connections) {
+            connection.close();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.log(System.Logger.Level.WARNING, "Connection threads did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed.countDown();
+    }
+
+    /**
+     * 阻塞直到服务器关闭
+     */
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invokeExact();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to create virtual thread executor", t);
+        }
+    }
+
+    private static MethodHandle findVirtualThreadExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
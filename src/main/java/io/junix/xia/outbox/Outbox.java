@@ -0,0 +1,425 @@
+package io.junix.xia.outbox;
+
+import io.junix.xia.client.RpcClient;
+import io.junix.xia.metrics.Counter;
+import io.junix.xia.metrics.Metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 存储转发发件箱，对端离线时消息不会丢失
+ * <p>
+ * {@link #send} 先把消息连同目标地址追加到 {@link SegmentedLog}，落盘后才视为已接受，随后经 {@link RpcClient} 投递，
+ * 收到对端响应即为送达。每个对端独立投递，最多 {@value #WINDOW} 条在途；任一条失败后，
+ * 等在途的全部返回，把未送达的按原顺序放回队首，按指数退避重放，对端重新上线后积压的消息随即依次送出。
+ * <p>
+ * 每个对端的游标是其第一条未送达记录的偏移，每秒检查点一次写入 {@code cursors} 文件（先写临时文件再原子替换），
+ * 之后删除所有对端游标之前的分段。进程重启时从日志开头扫描，游标之后的记录重新排队。
+ * 检查点之间送达的消息在崩溃后会再投递一次，语义是至少一次，接收方须按消息自带的业务标识去重。
+ * <p>
+ * 长期离线的对端会让它之后的分段都无法删除。
+ *
+ * @author wulogn
+ */
+public class Outbox implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(Outbox.class.getName());
+
+    private static final Counter DELIVERED = Metrics.counter("xia_outbox_delivered_total",
+            "Outbox messages acknowledged by their peer");
+    private static final Counter RETRIES = Metrics.counter("xia_outbox_retries_total",
+            "Outbox replays scheduled after a failed delivery");
+
+    /**
+     * 每个对端同时在途的消息数上限
+     */
+    static final int WINDOW = 32;
+
+    static final long MIN_BACKOFF_MILLIS = 100;
+
+    static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 1_000;
+
+    private static final String CURSORS = "cursors";
+
+    private final Path directory;
+    private final RpcClient client;
+    private final SegmentedLog log;
+    private final ScheduledExecutorService executor;
+    private final Map<InetSocketAddress, PeerQueue> peers = new ConcurrentHashMap<>();
+    private final Map<String, Long> checkpointed = new ConcurrentHashMap<>();
+    /**
+     * 已分派到各对端队列的记录末尾，只在投递线程中访问
+     */
+    private long enqueuedEnd;
+    private final PriorityQueue<Arrival> arrivals = new PriorityQueue<>(Comparator.comparingLong(Arrival::offset));
+
+    public Outbox(Path directory, RpcClient client) throws IOException {
+        this(directory, client, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * 打开 {@code directory} 下的发件箱，重新排队上次未送达的消息并开始投递
+     *
+     * @param segmentBytes 日志分段大小，送达后按整段删除
+     */
+    public Outbox(Path directory, RpcClient client, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.client = client;
+        this.log = new SegmentedLog(directory.resolve("log"), segmentBytes);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "xia-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Long> cursors = loadCursors();
+            executor.submit(() -> {
+                replay(cursors);
+                return null;
+            }).get();
+        } catch (ExecutionException e) {
+            close();
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while opening outbox", e);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        executor.scheduleWithFixedDelay(this::checkpoint, CHECKPOINT_INTERVAL_MILLIS, CHECKPOINT_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 将消息交给发件箱，返回的 future 在消息落盘后以其偏移完成，此后即使进程崩溃也会送达
+     *
+     * @param peer 目标地址，按主机名和端口区分对端，不做解析
+     */
+    public CompletableFuture<Long> send(InetSocketAddress peer, byte[] body) {
+        byte[] host = peer.getHostString().getBytes(StandardCharsets.UTF_8);
+        if (host.length > 0xFFFF) {
+            throw new IllegalArgumentException("Host name too long: " + peer.getHostString());
+        }
+        byte[] record = ByteBuffer.allocate(4 + host.length + body.length)
+                .putShort((short) host.length).put(host).putShort((short) peer.getPort()).put(body)
+                .array();
+        InetSocketAddress address = InetSocketAddress.createUnresolved(peer.getHostString(), peer.getPort());
+        return log.append(record).thenApply(offset -> {
+            Arrival arrival = new Arrival(address, offset, offset + SegmentedLog.RECORD_HEADER_SIZE + record.length);
+            try {
+                executor.execute(() -> enqueue(arrival));
+            } catch (RejectedExecutionException ignored) {
+                // 已关闭，记录已落盘，下次打开时重放
+            }
+            return offset;
+        });
+    }
+
+    /**
+     * 尚未送达 {@code peer} 的消息数，包括在途的
+     */
+    public int pending(InetSocketAddress peer) {
+        PeerQueue queue = peers.get(InetSocketAddress.createUnresolved(peer.getHostString(), peer.getPort()));
+        return queue == null ? 0 : queue.size;
+    }
+
+    /**
+     * 尚未送达任何对端的消息总数
+     */
+    public int pending() {
+        int pending = 0;
+        for (PeerQueue queue : peers.values()) {
+            pending += queue.size;
+        }
+        return pending;
+    }
+
+    /**
+     * 停止投递并写入最后一次检查点，未送达的消息留待下次打开时重放
+     */
+    @Override
+    public void close() {
+        try {
+            executor.submit(this::checkpoint).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            LOG.log(System.Logger.Level.WARNING, "Failed to checkpoint outbox " + directory, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+        log.close();
+    }
+
+    private void replay(Map<String, Long> cursors) throws IOException {
+        long offset = log.startOffset();
+        int replayed = 0;
+        for (SegmentedLog.LogRecord record; (record = log.read(offset)) != null; offset = record.nextOffset()) {
+            InetSocketAddress address = address(record.payload());
+            if (offset >= cursors.getOrDefault(key(address), 0L)) {
+                queue(address).pending.add(new Pending(offset, record.nextOffset()));
+                replayed++;
+            }
+        }
+        enqueuedEnd = offset;
+        checkpointed.putAll(cursors);
+        for (PeerQueue queue : peers.values()) {
+            queue.size = queue.pending.size();
+            pump(queue);
+        }
+        if (replayed > 0) {
+            LOG.log(System.Logger.Level.INFO, "Replaying {0} undelivered message(s) from {1}", replayed, directory);
+        }
+    }
+
+    /**
+     * 按偏移顺序把落盘的记录分派到对端队列
+     * <p>
+     * 追加完成的回调可能在写线程也可能在调用线程中执行，到达投递线程的顺序不一定是偏移顺序；
+     * 先在 {@link #arrivals} 中排好序，保证 {@link #enqueuedEnd} 之前的记录都已分派，检查点才不会越过未分派的记录。
+     */
+    private void enqueue(Arrival arrival) {
+        arrivals.add(arrival);
+        while (!arrivals.isEmpty() && arrivals.peek().offset() == enqueuedEnd) {
+            Arrival next = arrivals.poll();
+            PeerQueue queue = queue(next.address());
+            queue.pending.add(new Pending(next.offset(), next.next()));
+            queue.size++;
+            enqueuedEnd = next.next();
+            pump(queue);
+        }
+    }
+
+    private PeerQueue queue(InetSocketAddress address) {
+        return peers.computeIfAbsent(address, PeerQueue::new);
+    }
+
+    /**
+     * 在窗口内尽量多地发出消息，只在投递线程中调用
+     */
+    private void pump(PeerQueue queue) {
+        while (!queue.backingOff && !queue.failed && queue.inFlight.size() < WINDOW && !queue.pending.isEmpty()) {
+            Pending pending = queue.pending.poll();
+            byte[] body;
+            try {
+                byte[] record = log.read(pending.offset).payload();
+                int hostLength = Short.toUnsignedInt(ByteBuffer.wrap(record).getShort(0));
+                body = Arrays.copyOfRange(record, 4 + hostLength, record.length);
+            } catch (IOException e) {
+                // 记录损坏无法重放，跳过它而不是卡住整个对端
+                LOG.log(System.Logger.Level.ERROR, "Dropping unreadable outbox record at " + pending.offset, e);
+                queue.size--;
+                continue;
+            }
+            queue.inFlight.add(pending);
+            queue.outstanding++;
+            client.request(queue.target(), body).whenComplete((response, cause) -> {
+                try {
+                    executor.execute(() -> complete(queue, pending, cause));
+                } catch (RejectedExecutionException ignored) {
+                    // 已关闭，未确认的消息下次打开时重放
+                }
+            });
+        }
+    }
+
+    private void complete(PeerQueue queue, Pending pending, Throwable cause) {
+        queue.outstanding--;
+        if (cause == null) {
+            pending.acked = true;
+            queue.size--;
+            queue.failures = 0;
+            DELIVERED.increment();
+            while (!queue.inFlight.isEmpty() && queue.inFlight.peek().acked) {
+                queue.inFlight.poll();
+            }
+        } else {
+            if (!queue.failed) {
+                LOG.log(System.Logger.Level.DEBUG, "Delivery to {0} failed: {1}", queue.address, cause.toString());
+            }
+            queue.failed = true;
+            queue.resolved = null;
+        }
+        if (queue.failed && queue.outstanding == 0) {
+            // 窗口内的都已返回，未确认的按原顺序放回队首，退避后重放
+            Iterator<Pending> unacked = queue.inFlight.descendingIterator();
+            while (unacked.hasNext()) {
+                Pending p = unacked.next();
+                if (!p.acked) {
+                    queue.pending.addFirst(p);
+                }
+            }
+            queue.inFlight.clear();
+            queue.failed = false;
+            queue.backingOff = true;
+            long delay = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(queue.failures++, 16));
+            RETRIES.increment();
+            executor.schedule(() -> {
+                queue.backingOff = false;
+                pump(queue);
+            }, delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        pump(queue);
+    }
+
+    /**
+     * 持久化各对端游标，然后删除所有游标之前的分段
+     */
+    private void checkpoint() {
+        Map<String, Long> cursors = new HashMap<>();
+        long lowWatermark = enqueuedEnd;
+        for (PeerQueue queue : peers.values()) {
+            long cursor = queue.cursor(enqueuedEnd);
+            cursors.put(key(queue.address), cursor);
+            lowWatermark = Math.min(lowWatermark, cursor);
+        }
+        try {
+            if (!cursors.equals(checkpointed)) {
+                storeCursors(cursors);
+                checkpointed.clear();
+                checkpointed.putAll(cursors);
+            }
+            int deleted = log.deleteSegmentsBefore(lowWatermark);
+            if (deleted > 0) {
+                LOG.log(System.Logger.Level.DEBUG, "Compacted {0} delivered segment(s) in {1}", deleted, directory);
+            }
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Failed to checkpoint outbox " + directory, e);
+        }
+    }
+
+    private Map<String, Long> loadCursors() throws IOException {
+        Map<String, Long> cursors = new HashMap<>();
+        Path file = directory.resolve(CURSORS);
+        if (Files.exists(file)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            for (String name : properties.stringPropertyNames()) {
+                cursors.put(name, Long.parseLong(properties.getProperty(name)));
+            }
+        }
+        return cursors;
+    }
+
+    private void storeCursors(Map<String, Long> cursors) throws IOException {
+        Properties properties = new Properties();
+        cursors.forEach((name, cursor) -> properties.setProperty(name, Long.toString(cursor)));
+        Path temp = directory.resolve(CURSORS + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CURSORS), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static InetSocketAddress address(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int hostLength = Short.toUnsignedInt(buffer.getShort());
+        String host = new String(record, 2, hostLength, StandardCharsets.UTF_8);
+        return InetSocketAddress.createUnresolved(host, Short.toUnsignedInt(buffer.getShort(2 + hostLength)));
+    }
+
+    private static String key(InetSocketAddress address) {
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    private record Arrival(InetSocketAddress address, long offset, long next) {
+    }
+
+    /**
+     * 发往一个对端的未送达记录
+     */
+    private static final class Pending {
+
+        final long offset;
+        final long next;
+        boolean acked;
+
+        Pending(long offset, long next) {
+            this.offset = offset;
+            this.next = next;
+        }
+    }
+
+    /**
+     * 一个对端的投递状态，除 {@link #size} 外只在投递线程中访问
+     */
+    private static final class PeerQueue {
+
+        final InetSocketAddress address;
+        final ArrayDeque<Pending> pending = new ArrayDeque<>();
+        /**
+         * 已发出的记录，按偏移排列，已确认的前缀随即移除
+         */
+        final ArrayDeque<Pending> inFlight = new ArrayDeque<>();
+        volatile int size;
+        int failures;
+        boolean failed;
+        boolean backingOff;
+        int outstanding;
+
+        /**
+         * 投递用的已解析地址，失败后清空，重试时重新解析以跟上 DNS 变化
+         */
+        InetSocketAddress resolved;
+
+        PeerQueue(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        InetSocketAddress target() {
+            if (resolved == null) {
+                resolved = new InetSocketAddress(address.getHostString(), address.getPort());
+            }
+            return resolved;
+        }
+
+        /**
+         * 第一条未送达记录的偏移，全部送达时为 {@code end}
+         */
+        long cursor(long end) {
+            for (Pending p : inFlight) {
+                if (!p.acked) {
+                    return p.offset;
+                }
+            }
+            return pending.isEmpty() ? end : pending.peek().offset;
+        }
+    }
+}
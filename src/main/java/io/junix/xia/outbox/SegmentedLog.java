@@ -0,0 +1,410 @@
+package io.junix.xia.outbox;
+
+import io.junix.xia.metrics.Counter;
+import io.junix.xia.metrics.Histogram;
+import io.junix.xia.metrics.Metrics;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * 只追加的分段日志，经 {@link FileChannel} 写入，组提交落盘
+ * <p>
+ * 记录以字节偏移寻址，格式为 {@code [int 长度][int CRC32C][负载]}；每个分段文件以其首条记录的偏移命名，
+ * 写满 {@code segmentBytes} 后滚动到新分段。
+ * <p>
+ * 追加只是入队，由单个写线程批量取出、合并为一次写入，整批只调用一次 {@link FileChannel#force}，
+ * 落盘后才按偏移顺序完成各自的 future。写入和刷盘耗时期间到达的追加自然积成下一批，
+ * 负载越高每次刷盘分摊的记录越多，小记录的持久化追加速率主要取决于磁盘的刷盘延迟而不是记录数。
+ * <p>
+ * 打开时只校验最后一个分段，截掉崩溃时写了一半的尾部；之前的分段在滚动时已经落盘。
+ * 已消费完的分段由 {@link #deleteSegmentsBefore} 整段删除。读取可在任意线程并发进行，只能读到已落盘的记录。
+ *
+ * @author wulogn
+ */
+public final class SegmentedLog implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(SegmentedLog.class.getName());
+
+    private static final Counter APPENDS = Metrics.counter("xia_log_appends_total", "Records appended to segmented logs");
+    private static final Counter SYNCS = Metrics.counter("xia_log_syncs_total",
+            "Group commits; appends divided by syncs is the average batch size");
+    private static final Histogram SYNC_NANOS = Metrics.histogram("xia_log_sync_nanos",
+            "Time to write and force one group commit batch");
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    public static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * 单次组提交最多合并的字节数，超出的追加留到下一批
+     */
+    private static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ConcurrentSkipListMap<Long, FileChannel> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<Append> queue = new ArrayDeque<>();
+    private final Thread writer;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer staging = ByteBuffer.allocateDirect(64 * 1024);
+    private FileChannel active;
+    private long activeBase;
+    private long writeOffset;
+    private volatile long committedOffset;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * 打开或创建 {@code directory} 下的日志
+     *
+     * @param segmentBytes 单个分段的目标大小，超过后滚动
+     */
+    public SegmentedLog(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes < RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        try {
+            List<Long> bases = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    bases.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+                }
+            }
+            for (long base : bases) {
+                segments.put(base, FileChannel.open(segmentPath(base), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE));
+            }
+            if (segments.isEmpty()) {
+                roll(0);
+            } else {
+                activeBase = segments.lastKey();
+                active = segments.lastEntry().getValue();
+                writeOffset = activeBase + recover(active);
+                active.position(writeOffset - activeBase);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeSegments();
+            throw e;
+        }
+        committedOffset = writeOffset;
+        writer = new Thread(this::writeLoop, "xia-log-writer-" + directory.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 从头校验分段，截掉第一条损坏记录及其之后的内容，返回有效长度
+     */
+    private long recover(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            if (length < 0 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.flip());
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (position < size) {
+            LOG.log(System.Logger.Level.WARNING, "Truncating {0} torn byte(s) at the tail of {1}",
+                    size - position, directory);
+            channel.truncate(position);
+            channel.force(true);
+        }
+        return position;
+    }
+
+    /**
+     * 追加一条记录，返回的 future 在记录落盘后以其偏移完成；日志已关闭或写入失败时异常完成
+     */
+    public CompletableFuture<Long> append(byte[] payload) {
+        if (payload.length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Record larger than " + MAX_RECORD_SIZE + " bytes: " + payload.length);
+        }
+        Append append = new Append(payload, new CompletableFuture<>());
+        lock.lock();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new ClosedChannelException());
+            }
+            if (failure != null) {
+                return CompletableFuture.failedFuture(failure);
+            }
+            queue.add(append);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return append.future();
+    }
+
+    /**
+     * 读取 {@code offset} 处的记录，{@code offset} 须是某条记录的起始偏移；已到已落盘的末尾时返回 {@code null}
+     *
+     * @throws IOException 记录所在分段已删除，或校验和不符
+     */
+    public LogRecord read(long offset) throws IOException {
+        if (offset >= committedOffset) {
+            return null;
+        }
+        Map.Entry<Long, FileChannel> segment = segments.floorEntry(offset);
+        if (segment == null) {
+            throw new IOException("Offset " + offset + " has been compacted");
+        }
+        long position = offset - segment.getKey();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(segment.getValue(), header, position);
+        int length = header.getInt(0);
+        if (length < 0 || length > MAX_RECORD_SIZE) {
+            throw new IOException("Corrupted record at offset " + offset);
+        }
+        byte[] payload = new byte[length];
+        readFully(segment.getValue(), ByteBuffer.wrap(payload), position + RECORD_HEADER_SIZE);
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload);
+        if ((int) checksum.getValue() != header.getInt(4)) {
+            throw new IOException("Checksum mismatch at offset " + offset);
+        }
+        return new LogRecord(offset, offset + RECORD_HEADER_SIZE + length, payload);
+    }
+
+    /**
+     * 最早一条未删除记录的偏移
+     */
+    public long startOffset() {
+        return segments.firstKey();
+    }
+
+    /**
+     * 已落盘记录的末尾偏移，即下一条记录的偏移
+     */
+    public long endOffset() {
+        return committedOffset;
+    }
+
+    /**
+     * 删除所有记录都在 {@code offset} 之前的分段，当前写入的分段不删除，返回删除的分段数
+     */
+    public int deleteSegmentsBefore(long offset) throws IOException {
+        int deleted = 0;
+        for (Map.Entry<Long, FileChannel> segment : segments.entrySet()) {
+            Long next = segments.higherKey(segment.getKey());
+            if (next == null || next > offset) {
+                break;
+            }
+            segments.remove(segment.getKey());
+            segment.getValue().close();
+            Files.deleteIfExists(segmentPath(segment.getKey()));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * 写完已入队的追加后停止写线程并关闭分段
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeSegments();
+    }
+
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                int bytes = 0;
+                while (!queue.isEmpty() && (batch.isEmpty() || bytes + queue.peek().size() <= MAX_BATCH_BYTES)) {
+                    Append append = queue.poll();
+                    bytes += append.size();
+                    batch.add(append);
+                }
+            } finally {
+                lock.unlock();
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 写出一批记录并落盘，随后按偏移顺序完成
+     */
+    private void commit(List<Append> batch) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        long[] offsets = new long[batch.size()];
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Append append = batch.get(i);
+                if (writeOffset - activeBase + append.size() > segmentBytes && writeOffset > activeBase) {
+                    flushStaging();
+                    active.force(false);
+                    roll(writeOffset);
+                }
+                if (staging.remaining() < append.size()) {
+                    flushStaging();
+                    if (staging.capacity() < append.size()) {
+                        staging = ByteBuffer.allocateDirect(append.size());
+                    }
+                }
+                crc.reset();
+                crc.update(append.payload());
+                staging.putInt(append.payload().length).putInt((int) crc.getValue()).put(append.payload());
+                offsets[i] = writeOffset;
+                writeOffset += append.size();
+            }
+            flushStaging();
+            active.force(false);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.ERROR, "Failed to append to " + directory, e);
+            lock.lock();
+            try {
+                failure = e;
+                // 之后的追加都会失败，排队中的一并结束
+                batch.addAll(queue);
+                queue.clear();
+            } finally {
+                lock.unlock();
+            }
+            for (Append append : batch) {
+                append.future().completeExceptionally(e);
+            }
+            return;
+        }
+        committedOffset = writeOffset;
+        APPENDS.add(batch.size());
+        SYNCS.increment();
+        if (Metrics.ENABLED) {
+            SYNC_NANOS.recordSince(start);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future().complete(offsets[i]);
+        }
+    }
+
+    private void flushStaging() throws IOException {
+        staging.flip();
+        while (staging.hasRemaining()) {
+            active.write(staging);
+        }
+        staging.clear();
+    }
+
+    private void roll(long base) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        syncDirectory();
+        segments.put(base, channel);
+        active = channel;
+        activeBase = base;
+        writeOffset = base;
+    }
+
+    /**
+     * 新建的分段文件须让目录项也落盘，否则掉电后文件可能整个消失；不支持打开目录的平台上忽略
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // 例如 Windows
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    private void closeSegments() {
+        for (FileChannel channel : segments.values()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.WARNING, "Failed to close log segment", e);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of log segment at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    /**
+     * 日志中的一条记录
+     *
+     * @param nextOffset 下一条记录的偏移
+     */
+    public record LogRecord(long offset, long nextOffset, byte[] payload) {
+    }
+
+    private record Append(byte[] payload, CompletableFuture<Long> future) {
+
+        int size() {
+            return RECORD_HEADER_SIZE + payload.length;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package io.junix.xia.peer;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * 登记表中一个对端的快照
+ *
+ * @param fingerprint    公钥指纹（X.509 编码的 SHA-256）
+ * @param encodedKey     X.509 编码的 Ed25519 公钥
+ * @param addresses      对端的监听地址，未解析的主机名或 IP 字面量
+ * @param lastSeenMillis 最近一次在线的时间，单位与写入方传入的时钟一致
+ * @author wulogn
+ */
+public record PeerRecord(byte[] fingerprint, byte[] encodedKey, List<InetSocketAddress> addresses,
+                         long lastSeenMillis, Trust trust) {
+}
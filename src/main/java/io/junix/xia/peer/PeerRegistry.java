@@ -0,0 +1,597 @@
+package io.junix.xia.peer;
+
+import io.junix.xia.enc.PeerKeyCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * 持久化的对端登记表：公钥、地址、最近在线时间与信任级别，保存在内存映射文件中
+ * <p>
+ * 文件布局（大端）：
+ * <pre>
+ * 0       头部 64 字节：魔数、版本、记录长度、容量、索引槽数、已提交记录数、正常关闭标记
+ * 64      索引：每槽一个 int，以公钥指纹开放寻址（线性探测），值为记录号加一，0 表示空槽
+ * ...     记录区：定长 512 字节的记录，按登记顺序追加
+ * </pre>
+ * 打开时只映射文件、读取头部，不反序列化任何记录，启动耗时与登记的对端数无关；
+ * 上次未正常关闭时逐条校验记录并重建索引，也只是一次顺序扫描。
+ * <p>
+ * 查找不加锁，可直接用于握手路径：索引槽以 release 写入、acquire 读取；记录的可变字段由序号锁（seqlock）保护，
+ * 读取方遇到并发修改时重试。写入由一把锁串行化。追加时先写完整记录和校验和，再发布索引槽，最后增大头部的已提交记录数，
+ * 进程在任一步骤崩溃都不会留下半条记录，未提交的记录在下次打开时被忽略。
+ * 写入只到页缓存，{@link #flush()} 和 {@link #close()} 才强制落盘；掉电后校验和不符的记录在下次打开时按指纹封禁（fail closed），
+ * 损坏前可能是被封禁的对端，不能因为记录损坏而变回未知。
+ * <p>
+ * 对端登记后不会删除，登记数达到容量后拒绝新对端。同一文件同时只能被一个进程打开。
+ * 登记表以公钥标识对端，要求节点身份跨重启不变（{@code NodeIdentity#loadOrGenerate}，
+ * 即 {@code -Dxia.identity.file}）：否则每次重启都会登记一个新对端，最终填满容量，
+ * 被封禁的节点也能借重启换一个未知的公钥。
+ *
+ * @author wulogn
+ */
+public final class PeerRegistry implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(PeerRegistry.class.getName());
+
+    /**
+     * 每个对端最多保存的地址数
+     */
+    public static final int MAX_ADDRESSES = 4;
+
+    /**
+     * 单个地址主机名的最大字节数
+     */
+    public static final int MAX_HOST_LENGTH = 61;
+
+    /**
+     * 编码公钥的最大字节数，X.509 编码的 Ed25519 公钥为 44 字节
+     */
+    public static final int MAX_KEY_LENGTH = 96;
+
+    private static final long MAGIC = 0x5849_4150_4545_5253L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 512;
+    private static final int FINGERPRINT_LENGTH = 32;
+
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 8;
+    private static final int H_RECORD_SIZE = 12;
+    private static final int H_CAPACITY = 16;
+    private static final int H_SLOTS = 20;
+    static final int H_COUNT = 24;
+    private static final int H_CLEAN = 28;
+
+    private static final int R_SEQUENCE = 0;
+    private static final int R_CHECKSUM = 4;
+    private static final int R_FINGERPRINT = 8;
+    private static final int R_KEY_LENGTH = 40;
+    private static final int R_KEY = 42;
+    private static final int R_LAST_SEEN = 144;
+    private static final int R_TRUST = 152;
+    private static final int R_ADDRESS_COUNT = 156;
+    private static final int R_ADDRESSES = 160;
+    private static final int ADDRESS_SIZE = 64;
+
+    /**
+     * 记录中受校验和保护的部分：序号与校验和之后直到最后一个地址
+     */
+    private static final int R_BODY = R_FINGERPRINT;
+    private static final int BODY_LENGTH = R_ADDRESSES + MAX_ADDRESSES * ADDRESS_SIZE - R_BODY;
+
+    /**
+     * 整个文件须小于 2 GiB 才能一次映射，每个对端占一条记录和至多四个索引槽
+     */
+    public static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / (RECORD_SIZE + 4 * Integer.BYTES);
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final Trust[] TRUST_LEVELS = Trust.values();
+
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int slots;
+    private final int recordsOffset;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private boolean closed;
+
+    private PeerRegistry(FileChannel channel, FileLock fileLock, MappedByteBuffer buffer, int capacity, int slots) {
+        this.channel = channel;
+        this.fileLock = fileLock;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.slots = slots;
+        this.recordsOffset = HEADER_SIZE + slots * Integer.BYTES;
+    }
+
+    /**
+     * 打开登记表，文件不存在时按 {@code capacity} 创建；已有文件的容量以文件头为准
+     *
+     * @throws IOException 文件被其他进程占用、格式不符或已损坏
+     */
+    public static PeerRegistry open(Path file, int capacity) throws IOException {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be in [1, " + MAX_CAPACITY + "]: " + capacity);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            FileLock fileLock = channel.tryLock();
+            if (fileLock == null) {
+                throw new IOException("Peer registry " + file + " is in use by another process");
+            }
+            boolean created = channel.size() == 0;
+            int slots;
+            if (created) {
+                // 装载因子不超过 1/2
+                slots = Math.max(16, Integer.highestOneBit(capacity - 1) << 2);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                    // 读满头部
+                }
+                if (header.hasRemaining() || header.getLong(H_MAGIC) != MAGIC) {
+                    throw new IOException("Not a peer registry: " + file);
+                }
+                if (header.getInt(H_VERSION) != VERSION || header.getInt(H_RECORD_SIZE) != RECORD_SIZE) {
+                    throw new IOException("Unsupported peer registry version " + header.getInt(H_VERSION) + ": " + file);
+                }
+                capacity = header.getInt(H_CAPACITY);
+                slots = header.getInt(H_SLOTS);
+                if (capacity < 1 || capacity > MAX_CAPACITY || Integer.bitCount(slots) != 1 || slots < capacity) {
+                    throw new IOException("Corrupted peer registry header: " + file);
+                }
+            }
+            long size = HEADER_SIZE + (long) slots * Integer.BYTES + (long) capacity * RECORD_SIZE;
+            if (!created && channel.size() < size) {
+                throw new IOException("Truncated peer registry: " + file);
+            }
+            // 新文件按映射大小扩展，未写入的部分在多数文件系统上是稀疏的
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            PeerRegistry registry = new PeerRegistry(channel, fileLock, buffer, capacity, slots);
+            if (created) {
+                registry.initialize();
+            } else {
+                registry.recoverIfNeeded(file);
+            }
+            return registry;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void initialize() {
+        buffer.putLong(H_MAGIC, MAGIC);
+        buffer.putInt(H_VERSION, VERSION);
+        buffer.putInt(H_RECORD_SIZE, RECORD_SIZE);
+        buffer.putInt(H_CAPACITY, capacity);
+        buffer.putInt(H_SLOTS, slots);
+        buffer.putInt(H_COUNT, 0);
+        buffer.putInt(H_CLEAN, 0);
+        buffer.force();
+    }
+
+    /**
+     * 上次正常关闭时直接使用已有索引；否则丢弃索引，用已提交的记录重建，校验不通过的记录修复为封禁
+     */
+    private void recoverIfNeeded(Path file) {
+        boolean clean = buffer.getInt(H_CLEAN) == 1;
+        buffer.putInt(H_CLEAN, 0);
+        buffer.force();
+        if (clean) {
+            return;
+        }
+        int count = Math.min(buffer.getInt(H_COUNT), capacity);
+        for (int i = 0; i < slots; i++) {
+            buffer.putInt(slotOffset(i), 0);
+        }
+        int blocked = 0;
+        for (int record = 0; record < count; record++) {
+            byte[] fingerprint = fingerprintAt(record);
+            if (!isIntact(record)) {
+                repairAsBlocked(record);
+                blocked++;
+                LOG.log(System.Logger.Level.WARNING, "Blocked peer {0}: its record in {1} was damaged",
+                        HexFormat.of().formatHex(fingerprint), file);
+            }
+            // 损坏的指纹恰好与其他记录相同时，以先登记的为准
+            if (find(fingerprint) < 0) {
+                insertSlot(record, fingerprint);
+            }
+        }
+        buffer.putInt(H_COUNT, count);
+        if (blocked > 0) {
+            // 封禁须先于之后的任何放行落盘
+            buffer.force();
+        }
+        LOG.log(System.Logger.Level.INFO, "Recovered peer registry {0} with {1} record(s), {2} blocked as damaged",
+                file, count, blocked);
+    }
+
+    /**
+     * 将损坏的记录改写为可读的封禁记录：信任级别置为 {@link Trust#BLOCKED}，清空地址，重新计算校验和
+     * <p>
+     * 指纹在追加时写入且不再修改，运行中的更新不会撕裂它；公钥若也已损坏则保留原样，长度越界时清空。
+     * 运维确认后可用 {@link #setTrust} 解除封禁。
+     */
+    private void repairAsBlocked(int record) {
+        int base = recordOffset(record);
+        int keyLength = buffer.getShort(base + R_KEY_LENGTH);
+        if (keyLength < 0 || keyLength > MAX_KEY_LENGTH) {
+            buffer.putShort(base + R_KEY_LENGTH, (short) 0);
+        }
+        buffer.putInt(base + R_TRUST, Trust.BLOCKED.ordinal());
+        buffer.putInt(base + R_ADDRESS_COUNT, 0);
+        buffer.putInt(base + R_CHECKSUM, checksum(base));
+        // 序号回到偶数，读取方不会一直等待
+        buffer.putInt(base + R_SEQUENCE, (buffer.getInt(base + R_SEQUENCE) + 1) & ~1);
+    }
+
+    private boolean isIntact(int record) {
+        int base = recordOffset(record);
+        if ((buffer.getInt(base + R_SEQUENCE) & 1) != 0) {
+            return false;
+        }
+        int keyLength = buffer.getShort(base + R_KEY_LENGTH);
+        int addressCount = buffer.getInt(base + R_ADDRESS_COUNT);
+        return keyLength > 0 && keyLength <= MAX_KEY_LENGTH
+                && addressCount >= 0 && addressCount <= MAX_ADDRESSES
+                && buffer.getInt(base + R_TRUST) >= 0 && buffer.getInt(base + R_TRUST) < TRUST_LEVELS.length
+                && buffer.getInt(base + R_CHECKSUM) == checksum(base);
+    }
+
+    /**
+     * 按公钥指纹查找，不加锁；未登记时返回 {@code null}
+     */
+    public PeerRecord get(byte[] fingerprint) {
+        int record = find(fingerprint);
+        return record < 0 ? null : read(record);
+    }
+
+    /**
+     * 按公钥指纹查询信任级别，不加锁、不分配对象；未登记时为 {@link Trust#UNKNOWN}
+     */
+    public Trust trust(byte[] fingerprint) {
+        int record = find(fingerprint);
+        if (record < 0) {
+            return Trust.UNKNOWN;
+        }
+        // 单个对齐的 int 写入不会被撕裂，无需经过序号锁
+        return TRUST_LEVELS[(int) INT.getAcquire(buffer, recordOffset(record) + R_TRUST)];
+    }
+
+    /**
+     * 查询公钥的信任级别，可作为握手与成员协议的信任策略：{@code key -> registry.trust(key) != Trust.BLOCKED}
+     */
+    public Trust trust(PublicKey key) {
+        return trust(PeerKeyCache.fingerprint(key.getEncoded()));
+    }
+
+    /**
+     * 登记对端或更新其地址与在线时间；已登记的对端保留原有信任级别，新对端为 {@link Trust#UNKNOWN}
+     *
+     * @param encodedKey X.509 编码的公钥
+     * @throws IllegalStateException 登记表已满或已关闭
+     */
+    public PeerRecord register(byte[] encodedKey, Collection<InetSocketAddress> addresses, long lastSeenMillis) {
+        if (encodedKey.length == 0 || encodedKey.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Encoded key must be 1 to " + MAX_KEY_LENGTH + " bytes: "
+                    + encodedKey.length);
+        }
+        byte[][] hosts = encodeHosts(addresses);
+        byte[] fingerprint = PeerKeyCache.fingerprint(encodedKey);
+        writeLock.lock();
+        try {
+            checkOpen();
+            int record = find(fingerprint);
+            if (record >= 0) {
+                int base = recordOffset(record);
+                beginWrite(base);
+                buffer.putLong(base + R_LAST_SEEN, lastSeenMillis);
+                writeAddresses(base, addresses, hosts);
+                endWrite(base);
+                return read(record);
+            }
+            int count = buffer.getInt(H_COUNT);
+            if (count >= capacity) {
+                throw new IllegalStateException("Peer registry is full: " + capacity + " peers");
+            }
+            int base = recordOffset(count);
+            beginWrite(base);
+            buffer.put(base + R_FINGERPRINT, fingerprint);
+            buffer.putShort(base + R_KEY_LENGTH, (short) encodedKey.length);
+            buffer.put(base + R_KEY, encodedKey);
+            buffer.putLong(base + R_LAST_SEEN, lastSeenMillis);
+            buffer.putInt(base + R_TRUST, Trust.UNKNOWN.ordinal());
+            writeAddresses(base, addresses, hosts);
+            endWrite(base);
+            // 先发布索引槽，再提交记录数：崩溃在两者之间时，下次打开会按记录数重建索引
+            insertSlot(count, fingerprint);
+            INT.setRelease(buffer, H_COUNT, count + 1);
+            return read(count);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 更新在线时间，未登记时返回 {@code false}
+     */
+    public boolean touch(byte[] fingerprint, long lastSeenMillis) {
+        writeLock.lock();
+        try {
+            checkOpen();
+            int record = find(fingerprint);
+            if (record < 0) {
+                return false;
+            }
+            int base = recordOffset(record);
+            beginWrite(base);
+            buffer.putLong(base + R_LAST_SEEN, lastSeenMillis);
+            endWrite(base);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 设置信任级别，未登记时返回 {@code false}
+     */
+    public boolean setTrust(byte[] fingerprint, Trust trust) {
+        writeLock.lock();
+        try {
+            checkOpen();
+            int record = find(fingerprint);
+            if (record < 0) {
+                return false;
+            }
+            int base = recordOffset(record);
+            beginWrite(base);
+            INT.setRelease(buffer, base + R_TRUST, trust.ordinal());
+            endWrite(base);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 按登记顺序返回所有对端的快照
+     */
+    public List<PeerRecord> peers() {
+        int count = (int) INT.getAcquire(buffer, H_COUNT);
+        List<PeerRecord> peers = new ArrayList<>(count);
+        for (int record = 0; record < count; record++) {
+            // 指纹损坏后与先登记的记录重复时，后者不在索引中
+            if (find(fingerprintAt(record)) == record) {
+                peers.add(read(record));
+            }
+        }
+        return peers;
+    }
+
+    /**
+     * 已提交的记录数
+     */
+    public int size() {
+        return (int) INT.getAcquire(buffer, H_COUNT);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 将已写入的记录强制落盘
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            checkOpen();
+            buffer.force();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 落盘后写入正常关闭标记，下次打开时跳过校验
+     */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // 数据先落盘，关闭标记才可能先于数据写到磁盘
+            buffer.force();
+            buffer.putInt(H_CLEAN, 1);
+            buffer.force();
+            fileLock.release();
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Peer registry closed");
+        }
+    }
+
+    private int find(byte[] fingerprint) {
+        if (fingerprint.length != FINGERPRINT_LENGTH) {
+            return -1;
+        }
+        int mask = slots - 1;
+        int index = hash(fingerprint) & mask;
+        for (int probes = 0; probes < slots; probes++) {
+            int slot = (int) INT.getAcquire(buffer, slotOffset(index));
+            if (slot == 0) {
+                return -1;
+            }
+            if (fingerprintEquals(slot - 1, fingerprint)) {
+                return slot - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertSlot(int record, byte[] fingerprint) {
+        int mask = slots - 1;
+        int index = hash(fingerprint) & mask;
+        while (buffer.getInt(slotOffset(index)) != 0) {
+            index = (index + 1) & mask;
+        }
+        INT.setRelease(buffer, slotOffset(index), record + 1);
+    }
+
+    /**
+     * 序号锁的读取方：序号为奇数或前后不一致说明读到一半被修改，重试
+     */
+    private PeerRecord read(int record) {
+        int base = recordOffset(record);
+        byte[] body = new byte[BODY_LENGTH];
+        while (true) {
+            int sequence = (int) INT.getAcquire(buffer, base + R_SEQUENCE);
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            buffer.get(base + R_BODY, body);
+            VarHandle.acquireFence();
+            if ((int) INT.getVolatile(buffer, base + R_SEQUENCE) == sequence) {
+                return decode(body);
+            }
+        }
+    }
+
+    private static PeerRecord decode(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        byte[] fingerprint = new byte[FINGERPRINT_LENGTH];
+        in.get(0, fingerprint);
+        byte[] key = new byte[in.getShort(R_KEY_LENGTH - R_BODY)];
+        in.get(R_KEY - R_BODY, key);
+        long lastSeen = in.getLong(R_LAST_SEEN - R_BODY);
+        Trust trust = TRUST_LEVELS[in.getInt(R_TRUST - R_BODY)];
+        int addressCount = in.getInt(R_ADDRESS_COUNT - R_BODY);
+        List<InetSocketAddress> addresses = new ArrayList<>(addressCount);
+        for (int i = 0; i < addressCount; i++) {
+            int offset = R_ADDRESSES - R_BODY + i * ADDRESS_SIZE;
+            int port = in.getShort(offset) & 0xFFFF;
+            int hostLength = in.get(offset + 2);
+            String host = new String(body, offset + 3, hostLength, StandardCharsets.UTF_8);
+            addresses.add(InetSocketAddress.createUnresolved(host, port));
+        }
+        return new PeerRecord(fingerprint, key, List.copyOf(addresses), lastSeen, trust);
+    }
+
+    private static byte[][] encodeHosts(Collection<InetSocketAddress> addresses) {
+        if (addresses.size() > MAX_ADDRESSES) {
+            throw new IllegalArgumentException("At most " + MAX_ADDRESSES + " addresses per peer: " + addresses.size());
+        }
+        byte[][] hosts = new byte[addresses.size()][];
+        int i = 0;
+        for (InetSocketAddress address : addresses) {
+            byte[] host = address.getHostString().getBytes(StandardCharsets.UTF_8);
+            if (host.length > MAX_HOST_LENGTH) {
+                throw new IllegalArgumentException("Host longer than " + MAX_HOST_LENGTH + " bytes: "
+                        + address.getHostString());
+            }
+            hosts[i++] = host;
+        }
+        return hosts;
+    }
+
+    private void writeAddresses(int base, Collection<InetSocketAddress> addresses, byte[][] hosts) {
+        buffer.putInt(base + R_ADDRESS_COUNT, hosts.length);
+        int i = 0;
+        for (InetSocketAddress address : addresses) {
+            int offset = base + R_ADDRESSES + i * ADDRESS_SIZE;
+            buffer.putShort(offset, (short) address.getPort());
+            buffer.put(offset + 2, (byte) hosts[i].length);
+            buffer.put(offset + 3, hosts[i]);
+            i++;
+        }
+    }
+
+    /**
+     * 序号置为奇数，之后的写入不会被重排到它之前
+     */
+    private void beginWrite(int base) {
+        INT.setOpaque(buffer, base + R_SEQUENCE, buffer.getInt(base + R_SEQUENCE) + 1);
+        VarHandle.storeStoreFence();
+    }
+
+    /**
+     * 更新校验和后序号回到偶数，发布本次修改
+     */
+    private void endWrite(int base) {
+        buffer.putInt(base + R_CHECKSUM, checksum(base));
+        INT.setRelease(buffer, base + R_SEQUENCE, buffer.getInt(base + R_SEQUENCE) + 1);
+    }
+
+    private int checksum(int base) {
+        crc.reset();
+        crc.update(buffer.slice(base + R_BODY, BODY_LENGTH));
+        return (int) crc.getValue();
+    }
+
+    private byte[] fingerprintAt(int record) {
+        byte[] fingerprint = new byte[FINGERPRINT_LENGTH];
+        buffer.get(recordOffset(record) + R_FINGERPRINT, fingerprint);
+        return fingerprint;
+    }
+
+    private boolean fingerprintEquals(int record, byte[] fingerprint) {
+        // 指纹在发布索引槽之前写入且不再修改
+        int base = recordOffset(record) + R_FINGERPRINT;
+        for (int i = 0; i < FINGERPRINT_LENGTH; i++) {
+            if (buffer.get(base + i) != fingerprint[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] fingerprint) {
+        // 指纹本身是均匀分布的哈希值
+        return (fingerprint[0] & 0xFF) << 24 | (fingerprint[1] & 0xFF) << 16
+                | (fingerprint[2] & 0xFF) << 8 | fingerprint[3] & 0xFF;
+    }
+
+    private static int slotOffset(int index) {
+        return HEADER_SIZE + index * Integer.BYTES;
+    }
+
+    private int recordOffset(int record) {
+        return recordsOffset + record * RECORD_SIZE;
+    }
+}
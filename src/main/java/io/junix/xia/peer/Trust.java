@@ -0,0 +1,24 @@
+package io.junix.xia.peer;
+
+/**
+ * 对端的信任级别，持久化时按序号保存，只能在末尾追加新值
+ *
+ * @author wulogn
+ */
+public enum Trust {
+
+    /**
+     * 未作判断，新登记的对端默认如此
+     */
+    UNKNOWN,
+
+    /**
+     * 明确信任
+     */
+    TRUSTED,
+
+    /**
+     * 拒绝往来
+     */
+    BLOCKED
+}
@@ -0,0 +1,97 @@
+package io.junix.xia.plugin;
+
+import io.junix.xia.rpc.RequestHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 部署时预先构建的不可变路由表，以路由名的 UTF-8 字节为键、开放寻址线性探测
+ * <p>
+ * 查找直接比较请求中的字节，不解码字符串、不分配对象。插件变更时整体重建后替换。
+ *
+ * @author wulogn
+ */
+final class DispatchTable {
+
+    static final DispatchTable EMPTY = new DispatchTable(List.of());
+
+    private final byte[][] keys;
+    private final Entry[] entries;
+    private final int mask;
+    private final int size;
+
+    DispatchTable(Collection<LoadedPlugin> plugins) {
+        int count = 0;
+        for (LoadedPlugin plugin : plugins) {
+            count += plugin.routes().size();
+        }
+        // 负载因子不超过 0.5，探测链保持很短
+        int capacity = Integer.highestOneBit(Math.max(count, 4) * 2 - 1) << 1;
+        this.keys = new byte[capacity][];
+        this.entries = new Entry[capacity];
+        this.mask = capacity - 1;
+        this.size = count;
+        for (LoadedPlugin plugin : plugins) {
+            for (Map.Entry<String, RequestHandler> route : plugin.routes().entrySet()) {
+                byte[] key = route.getKey().getBytes(StandardCharsets.UTF_8);
+                int index = hash(key, 0, key.length) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                entries[index] = new Entry(route.getValue(), plugin);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 查找 {@code buffer} 中 [offset, offset + length) 的路由，不存在时返回 {@code null}
+     */
+    Entry lookup(ByteBuffer buffer, int offset, int length) {
+        int index = hash(buffer, offset, length) & mask;
+        byte[] key;
+        while ((key = keys[index]) != null) {
+            if (key.length == length && matches(buffer, offset, key)) {
+                return entries[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int offset, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] key, int offset, int length) {
+        int h = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ key[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(ByteBuffer buffer, int offset, int length) {
+        int h = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ buffer.get(i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    record Entry(RequestHandler handler, LoadedPlugin plugin) {
+    }
+}
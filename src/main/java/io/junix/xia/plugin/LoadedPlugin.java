@@ -0,0 +1,117 @@
+package io.junix.xia.plugin;
+
+import io.junix.xia.rpc.RequestHandler;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 已部署的一个插件版本，记录其类加载器和进行中的请求数
+ * <p>
+ * 请求数与退役标记共用一个整数：最高位为退役标记，其余位为计数。退役后 {@link #tryAcquire()} 失败，
+ * 计数归零时 {@link #drained()} 完成。
+ *
+ * @author wulogn
+ */
+final class LoadedPlugin {
+
+    private static final System.Logger LOG = System.getLogger(LoadedPlugin.class.getName());
+
+    private static final int RETIRED = Integer.MIN_VALUE;
+
+    private final ServicePlugin plugin;
+    private final URLClassLoader loader;
+    private final Path stagedJar;
+    private final Map<String, RequestHandler> routes;
+    private final AtomicInteger state = new AtomicInteger();
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+
+    LoadedPlugin(ServicePlugin plugin, URLClassLoader loader, Path stagedJar, Map<String, RequestHandler> routes) {
+        this.plugin = plugin;
+        this.loader = loader;
+        this.stagedJar = stagedJar;
+        this.routes = routes;
+    }
+
+    String name() {
+        return plugin.name();
+    }
+
+    Map<String, RequestHandler> routes() {
+        return routes;
+    }
+
+    ClassLoader loader() {
+        return loader;
+    }
+
+    /**
+     * 登记一个进行中的请求，已退役时返回 {@code false}
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = state.get();
+            if (current < 0) {
+                return false;
+            }
+            if (state.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        if (state.decrementAndGet() == RETIRED) {
+            drained.complete(null);
+        }
+    }
+
+    int inFlight() {
+        return state.get() & Integer.MAX_VALUE;
+    }
+
+    /**
+     * 标记退役，此后不再接受新请求，返回进行中请求全部完成的通知
+     */
+    CompletableFuture<Void> retire() {
+        int previous = state.getAndUpdate(current -> current | RETIRED);
+        if (previous == 0) {
+            drained.complete(null);
+        }
+        return drained;
+    }
+
+    CompletableFuture<Void> drained() {
+        return drained;
+    }
+
+    /**
+     * 停止插件并关闭类加载器，之后不得再调用插件代码
+     */
+    void close() {
+        try {
+            plugin.stop();
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Plugin " + name() + " failed to stop", e);
+        }
+        if (loader != null) {
+            try {
+                loader.close();
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.WARNING, "Failed to close class loader of plugin " + name(), e);
+            }
+        }
+        if (stagedJar != null) {
+            try {
+                Files.deleteIfExists(stagedJar);
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.DEBUG, "Failed to delete " + stagedJar, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package io.junix.xia.plugin;
+
+import io.junix.xia.rpc.RequestHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 服务插件容器：每个插件 jar 一个类加载器，路由经预先构建的 {@link DispatchTable} 分发
+ * <p>
+ * 部署、替换和卸载在调用线程中完成，新路由表构建好后一次性发布，事件循环只读取路由表，不会被阻塞。
+ * 被替换的旧版本退役：不再接受新请求，已接收的请求完成后（最多等待排空超时）在后台线程中停止插件并关闭类加载器，
+ * 连接本身不受影响。插件 jar 先复制到暂存目录再加载，部署后原文件可被覆盖以触发下一次部署。
+ *
+ * @author wulogn
+ */
+public class PluginContainer implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(PluginContainer.class.getName());
+
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 30_000;
+
+    private final Path stagingDirectory;
+    private final long drainTimeoutMillis;
+    private final Map<String, LoadedPlugin> plugins = new LinkedHashMap<>();
+    private final List<LoadedPlugin> retiring = new ArrayList<>();
+    private final PluginDispatcher dispatcher = new PluginDispatcher(this);
+    private final ScheduledExecutorService reaper;
+    private volatile DispatchTable table = DispatchTable.EMPTY;
+    private boolean closed;
+
+    /**
+     * 排空超时由 {@code -Dxia.plugin.drainTimeoutMillis} 指定
+     */
+    public PluginContainer() throws IOException {
+        this(Long.getLong("xia.plugin.drainTimeoutMillis", DEFAULT_DRAIN_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * @param drainTimeoutMillis 旧版本等待进行中请求完成的最长时间，超时后强制停止
+     */
+    public PluginContainer(long drainTimeoutMillis) throws IOException {
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.stagingDirectory = Files.createTempDirectory("xia-plugins");
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "xia-plugin-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 分发请求的处理器，交给 {@link io.junix.xia.rpc.RpcServerHandler}
+     */
+    public RequestHandler dispatcher() {
+        return dispatcher;
+    }
+
+    DispatchTable table() {
+        return table;
+    }
+
+    /**
+     * 从 jar 部署插件，同名插件已存在时原子替换
+     *
+     * @return 插件名
+     */
+    public synchronized String deploy(Path jar) throws PluginException {
+        checkOpen();
+        Path staged;
+        try {
+            staged = Files.createTempFile(stagingDirectory, "plugin-", ".jar");
+            Files.copy(jar, staged, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new PluginException("Cannot stage plugin " + jar, e);
+        }
+        URLClassLoader loader = null;
+        try {
+            loader = new URLClassLoader("xia-plugin:" + jar.getFileName(), new URL[]{staged.toUri().toURL()},
+                    PluginContainer.class.getClassLoader());
+            ClassLoader own = loader;
+            // 只接受 jar 自身声明的实现，父加载器可见的实现不算
+            List<ServicePlugin> found = ServiceLoader.load(ServicePlugin.class, loader).stream()
+                    .filter(provider -> provider.type().getClassLoader() == own)
+                    .map(ServiceLoader.Provider::get)
+                    .toList();
+            if (found.size() != 1) {
+                throw new PluginException(jar + " must declare exactly one " + ServicePlugin.class.getName()
+                        + ", found " + found.size());
+            }
+            install(found.get(0), loader, staged);
+            return found.get(0).name();
+        } catch (PluginException | IOException | RuntimeException | ServiceConfigurationError | LinkageError e) {
+            if (loader != null) {
+                try {
+                    loader.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            try {
+                Files.deleteIfExists(staged);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            if (e instanceof PluginException pluginException) {
+                throw pluginException;
+            }
+            throw new PluginException("Cannot load plugin " + jar, e);
+        }
+    }
+
+    /**
+     * 部署随应用一起加载的内置插件，同名插件已存在时原子替换
+     */
+    public synchronized void deploy(ServicePlugin plugin) throws PluginException {
+        checkOpen();
+        install(plugin, null, null);
+    }
+
+    /**
+     * 卸载插件，其路由立即失效，进行中的请求照常完成
+     *
+     * @return 插件是否存在
+     */
+    public synchronized boolean undeploy(String name) {
+        LoadedPlugin removed = plugins.remove(name);
+        if (removed == null) {
+            return false;
+        }
+        table = new DispatchTable(plugins.values());
+        retire(removed);
+        LOG.log(System.Logger.Level.INFO, "Undeployed plugin " + name);
+        return true;
+    }
+
+    public synchronized Set<String> plugins() {
+        return Set.copyOf(plugins.keySet());
+    }
+
+    /**
+     * 已被替换或卸载、仍在等待请求完成的旧版本数
+     */
+    public synchronized int retiringCount() {
+        return retiring.size();
+    }
+
+    synchronized LoadedPlugin plugin(String name) {
+        return plugins.get(name);
+    }
+
+    private void install(ServicePlugin plugin, URLClassLoader loader, Path staged) throws PluginException {
+        String name = plugin.name();
+        RouteRegistry registry = new RouteRegistry();
+        Thread thread = Thread.currentThread();
+        ClassLoader contextLoader = thread.getContextClassLoader();
+        if (loader != null) {
+            thread.setContextClassLoader(loader);
+        }
+        try {
+            plugin.register(registry);
+        } catch (Exception e) {
+            throw new PluginException("Plugin " + name + " failed to register routes", e);
+        } finally {
+            thread.setContextClassLoader(contextLoader);
+        }
+        LoadedPlugin loaded = new LoadedPlugin(plugin, loader, staged, registry.routes());
+        for (LoadedPlugin other : plugins.values()) {
+            if (other.name().equals(name)) {
+                continue;
+            }
+            for (String route : loaded.routes().keySet()) {
+                if (other.routes().containsKey(route)) {
+                    throw new PluginException("Route " + route + " of plugin " + name
+                            + " is already served by plugin " + other.name());
+                }
+            }
+        }
+        LoadedPlugin previous = plugins.put(name, loaded);
+        table = new DispatchTable(plugins.values());
+        if (previous != null) {
+            retire(previous);
+        }
+        LOG.log(System.Logger.Level.INFO, (previous == null ? "Deployed" : "Redeployed") + " plugin " + name
+                + " with " + loaded.routes().size() + " routes");
+    }
+
+    /**
+     * 调用前新路由表须已发布，使退役后重新查找的请求找到新版本
+     */
+    private void retire(LoadedPlugin plugin) {
+        retiring.add(plugin);
+        CompletableFuture<Void> drained = plugin.retire();
+        ScheduledFuture<?> timeout = reaper.schedule(() -> {
+            if (!drained.isDone()) {
+                LOG.log(System.Logger.Level.WARNING, "Plugin " + plugin.name() + " still has " + plugin.inFlight()
+                        + " requests in flight after " + drainTimeoutMillis + " ms, stopping it anyway");
+                finish(plugin);
+            }
+        }, drainTimeoutMillis, TimeUnit.MILLISECONDS);
+        // 最后一个请求可能在事件循环中完成，停止插件的工作交给后台线程
+        drained.thenRun(() -> {
+            try {
+                reaper.execute(() -> {
+                    timeout.cancel(false);
+                    finish(plugin);
+                });
+            } catch (RejectedExecutionException e) {
+                // 容器已关闭，由 close() 负责收尾
+            }
+        });
+    }
+
+    private void finish(LoadedPlugin plugin) {
+        synchronized (this) {
+            if (!retiring.remove(plugin)) {
+                return;
+            }
+        }
+        plugin.close();
+    }
+
+    private void checkOpen() throws PluginException {
+        if (closed) {
+            throw new PluginException("Plugin container is closed");
+        }
+    }
+
+    /**
+     * 卸载全部插件，等待进行中的请求完成（最多排空超时）并停止插件后返回
+     */
+    @Override
+    public void close() {
+        CompletableFuture<?>[] pending;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (String name : List.copyOf(plugins.keySet())) {
+                undeploy(name);
+            }
+            pending = retiring.stream().map(LoadedPlugin::drained).toArray(CompletableFuture[]::new);
+        }
+        try {
+            CompletableFuture.allOf(pending).get(drainTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.log(System.Logger.Level.WARNING, "Plugins not drained in " + drainTimeoutMillis + " ms, stopping");
+        }
+        List<LoadedPlugin> remaining;
+        synchronized (this) {
+            remaining = List.copyOf(retiring);
+            retiring.clear();
+        }
+        remaining.forEach(LoadedPlugin::close);
+        reaper.shutdownNow();
+        try {
+            Files.deleteIfExists(stagingDirectory);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.DEBUG, "Failed to delete " + stagingDirectory, e);
+        }
+    }
+}
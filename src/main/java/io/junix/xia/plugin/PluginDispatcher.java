@@ -0,0 +1,80 @@
+package io.junix.xia.plugin;
+
+import io.junix.xia.codec.CorruptedFrameException;
+import io.junix.xia.codec.Varint;
+import io.junix.xia.net.Connection;
+import io.junix.xia.rpc.RequestHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 按路由把请求分发给插件的 {@link RequestHandler}
+ * <p>
+ * 请求体格式：
+ * <pre>
+ * +----------------+--------------+------+
+ * | 路由长度 varint | 路由 (UTF-8)  | 负载 |
+ * +----------------+--------------+------+
+ * </pre>
+ * 每个请求只读取一次当前路由表（volatile），查找和计数都不加锁，插件部署不会阻塞事件循环。
+ *
+ * @author wulogn
+ */
+public final class PluginDispatcher implements RequestHandler {
+
+    private final PluginContainer container;
+
+    PluginDispatcher(PluginContainer container) {
+        this.container = container;
+    }
+
+    /**
+     * 构造发往 {@code route} 的请求体
+     */
+    public static byte[] request(String route, byte[] body) {
+        byte[] routeBytes = route.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocate(Varint.sizeOf(routeBytes.length) + routeBytes.length + body.length);
+        Varint.write(out, routeBytes.length);
+        return out.put(routeBytes).put(body).array();
+    }
+
+    @Override
+    public CompletionStage<byte[]> handle(Connection connection, ByteBuffer request) {
+        int length;
+        try {
+            length = Varint.read(request);
+        } catch (CorruptedFrameException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (length <= 0 || length > RouteRegistry.MAX_ROUTE_LENGTH || length > request.remaining()) {
+            return CompletableFuture.failedFuture(new CorruptedFrameException("Invalid route length " + length));
+        }
+        int offset = request.position();
+        request.position(offset + length);
+        while (true) {
+            DispatchTable.Entry entry = container.table().lookup(request, offset, length);
+            if (entry == null) {
+                byte[] route = new byte[length];
+                request.get(offset, route);
+                return CompletableFuture.failedFuture(
+                        new PluginException("No route: " + new String(route, StandardCharsets.UTF_8)));
+            }
+            LoadedPlugin plugin = entry.plugin();
+            if (!plugin.tryAcquire()) {
+                // 该版本刚被替换，新路由表在退役前已发布，重新查找即可
+                continue;
+            }
+            CompletionStage<byte[]> response;
+            try {
+                response = entry.handler().handle(connection, request);
+            } catch (RuntimeException e) {
+                plugin.release();
+                return CompletableFuture.failedFuture(e);
+            }
+            return response.whenComplete((body, cause) -> plugin.release());
+        }
+    }
+}
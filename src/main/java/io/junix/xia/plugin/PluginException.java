@@ -0,0 +1,20 @@
+package io.junix.xia.plugin;
+
+/**
+ * 插件部署失败：jar 无法读取、没有或有多个插件实现、注册路由出错、路由与其他插件冲突等，
+ * 发生时已部署的版本不受影响
+ *
+ * @author wulogn
+ */
+public class PluginException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public PluginException(String message) {
+        super(message);
+    }
+
+    public PluginException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
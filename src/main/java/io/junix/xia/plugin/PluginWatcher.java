@@ -0,0 +1,133 @@
+package io.junix.xia.plugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期扫描插件目录，实现热部署：新增或更新的 {@code *.jar} 部署（同名替换），删除的 jar 卸载其插件
+ * <p>
+ * 文件的大小和修改时间在相邻两次扫描中保持不变才部署，避免加载尚未复制完的 jar。
+ * 部署失败的文件在再次变化前不会重试。
+ *
+ * @author wulogn
+ */
+public class PluginWatcher implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(PluginWatcher.class.getName());
+
+    public static final long DEFAULT_SCAN_INTERVAL_MILLIS = 2000;
+
+    private final PluginContainer container;
+    private final Path directory;
+    private final Map<Path, Stamp> deployed = new HashMap<>();
+    private final Map<Path, Stamp> pending = new HashMap<>();
+    private final Map<Path, String> pluginNames = new HashMap<>();
+    private ScheduledExecutorService scanner;
+
+    public PluginWatcher(PluginContainer container, Path directory) {
+        this.container = container;
+        this.directory = directory;
+    }
+
+    /**
+     * 立即部署目录中的全部 jar，用于启动时加载
+     */
+    public synchronized void deployAll() throws IOException {
+        for (Map.Entry<Path, Stamp> jar : list().entrySet()) {
+            deploy(jar.getKey(), jar.getValue());
+        }
+    }
+
+    /**
+     * 以 {@code intervalMillis} 为周期在后台线程中扫描
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scanner != null) {
+            throw new IllegalStateException("Watcher already started");
+        }
+        scanner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "xia-plugin-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scanner.scheduleWithFixedDelay(() -> {
+            try {
+                scan();
+            } catch (IOException | RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "Failed to scan plugin directory " + directory, e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 扫描一次目录
+     */
+    public synchronized void scan() throws IOException {
+        Map<Path, Stamp> current = list();
+        for (Map.Entry<Path, Stamp> jar : current.entrySet()) {
+            Path path = jar.getKey();
+            Stamp stamp = jar.getValue();
+            if (stamp.equals(deployed.get(path))) {
+                pending.remove(path);
+            } else if (stamp.equals(pending.get(path))) {
+                pending.remove(path);
+                deploy(path, stamp);
+            } else {
+                pending.put(path, stamp);
+            }
+        }
+        Set<Path> removed = new HashSet<>(deployed.keySet());
+        removed.removeAll(current.keySet());
+        for (Path path : removed) {
+            deployed.remove(path);
+            String name = pluginNames.remove(path);
+            if (name != null && !pluginNames.containsValue(name)) {
+                container.undeploy(name);
+            }
+        }
+        pending.keySet().retainAll(current.keySet());
+    }
+
+    private void deploy(Path jar, Stamp stamp) {
+        deployed.put(jar, stamp);
+        try {
+            pluginNames.put(jar, container.deploy(jar));
+        } catch (PluginException e) {
+            LOG.log(System.Logger.Level.WARNING, "Failed to deploy " + jar, e);
+        }
+    }
+
+    private Map<Path, Stamp> list() throws IOException {
+        Map<Path, Stamp> jars = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.jar")) {
+            for (Path jar : stream) {
+                BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    jars.put(jar, new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+        return jars;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scanner != null) {
+            scanner.shutdownNow();
+        }
+    }
+
+    private record Stamp(long size, long lastModified) {
+    }
+}
@@ -0,0 +1,43 @@
+package io.junix.xia.plugin;
+
+import io.junix.xia.rpc.RequestHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 插件部署时用于登记路由
+ *
+ * @author wulogn
+ */
+public final class RouteRegistry {
+
+    /**
+     * 路由名 UTF-8 编码后的最大字节数
+     */
+    public static final int MAX_ROUTE_LENGTH = 255;
+
+    private final Map<String, RequestHandler> routes = new LinkedHashMap<>();
+
+    RouteRegistry() {
+    }
+
+    /**
+     * 登记一个路由，同一插件内不得重复
+     */
+    public RouteRegistry route(String route, RequestHandler handler) {
+        int length = route.getBytes(StandardCharsets.UTF_8).length;
+        if (length == 0 || length > MAX_ROUTE_LENGTH) {
+            throw new IllegalArgumentException("Invalid route length " + length + ": " + route);
+        }
+        if (routes.putIfAbsent(route, handler) != null) {
+            throw new IllegalArgumentException("Duplicate route: " + route);
+        }
+        return this;
+    }
+
+    Map<String, RequestHandler> routes() {
+        return routes;
+    }
+}
@@ -0,0 +1,29 @@
+package io.junix.xia.plugin;
+
+/**
+ * 服务插件，插件 jar 通过 {@code META-INF/services/io.junix.xia.plugin.ServicePlugin} 声明唯一的实现类
+ * <p>
+ * 每个插件 jar 由独立的类加载器加载，同名插件重新部署时原子替换旧版本：
+ * 新请求立即路由到新版本，旧版本处理完已接收的请求后才 {@link #stop()}，随后其类加载器被关闭。
+ *
+ * @author wulogn
+ */
+public interface ServicePlugin {
+
+    /**
+     * 插件名，重新部署时以此识别被替换的旧版本
+     */
+    String name();
+
+    /**
+     * 注册本插件处理的路由，部署时调用一次；抛出异常时部署失败，旧版本继续服务
+     */
+    void register(RouteRegistry routes) throws Exception;
+
+    /**
+     * 旧版本的请求全部完成（或等待超时）后调用，在此释放插件自己创建的线程和资源，
+     * 否则其类加载器无法被回收
+     */
+    default void stop() {
+    }
+}
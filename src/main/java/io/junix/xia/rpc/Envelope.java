@@ -0,0 +1,88 @@
+package io.junix.xia.rpc;
+
+import io.junix.xia.codec.CorruptedFrameException;
+import io.junix.xia.codec.FrameEncoder;
+import io.junix.xia.codec.Varint;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 请求/响应信封编解码工具类，信封作为一帧的负载传输
+ * <p>
+ * 请求为 {@code varint(关联 ID) + 请求体}，响应为 {@code varint(关联 ID) + 状态字节 + 响应体}。
+ * 关联 ID 由客户端按连接分配，服务端原样带回，因此同一连接上可以流水线发送多个请求，响应可乱序返回。
+ *
+ * @author wulogn
+ */
+public final class Envelope {
+
+    /**
+     * 处理成功，响应体为业务数据
+     */
+    public static final byte STATUS_OK = 0;
+
+    /**
+     * 处理失败，响应体为 UTF-8 编码的错误信息
+     */
+    public static final byte STATUS_ERROR = 1;
+
+    private Envelope() {
+    }
+
+    /**
+     * 编码请求信封（不含帧长度前缀），交给 {@link io.junix.xia.codec.FramingHandler#writeFrame} 写出
+     */
+    public static ByteBuffer requestPayload(int correlationId, byte[] body) {
+        ByteBuffer payload = ByteBuffer.allocate(Varint.sizeOf(correlationId) + body.length);
+        Varint.write(payload, correlationId);
+        return payload.put(body).flip();
+    }
+
+    /**
+     * 编码响应信封（不含帧长度前缀）
+     */
+    public static ByteBuffer responsePayload(int correlationId, byte status, byte[] body) {
+        ByteBuffer payload = ByteBuffer.allocate(Varint.sizeOf(correlationId) + 1 + body.length);
+        Varint.write(payload, correlationId);
+        return payload.put(status).put(body).flip();
+    }
+
+    /**
+     * 编码一个完整的请求帧（含帧长度前缀），用于不经过 {@link io.junix.xia.codec.FrameStage} 的原始套接字，返回的缓冲已可读
+     */
+    public static ByteBuffer encodeRequest(int correlationId, byte[] body) {
+        int payloadLength = Varint.sizeOf(correlationId) + body.length;
+        ByteBuffer frame = ByteBuffer.allocate(FrameEncoder.frameLength(payloadLength));
+        FrameEncoder.writeHeader(frame, payloadLength);
+        Varint.write(frame, correlationId);
+        return frame.put(body).flip();
+    }
+
+    /**
+     * 编码一个完整的响应帧（含帧长度前缀），返回的缓冲已可读
+     */
+    public static ByteBuffer encodeResponse(int correlationId, byte status, byte[] body) {
+        int payloadLength = Varint.sizeOf(correlationId) + 1 + body.length;
+        ByteBuffer frame = ByteBuffer.allocate(FrameEncoder.frameLength(payloadLength));
+        FrameEncoder.writeHeader(frame, payloadLength);
+        Varint.write(frame, correlationId);
+        return frame.put(status).put(body).flip();
+    }
+
+    /**
+     * 从帧负载中读取关联 ID，之后 {@code payload} 的剩余部分为请求体，或状态字节加响应体
+     */
+    public static int readCorrelationId(ByteBuffer payload) throws CorruptedFrameException {
+        return Varint.read(payload);
+    }
+
+    /**
+     * 从响应负载中读取状态字节
+     */
+    public static byte readStatus(ByteBuffer payload) throws CorruptedFrameException {
+        if (!payload.hasRemaining()) {
+            throw new CorruptedFrameException("Response without status");
+        }
+        return payload.get();
+    }
+}
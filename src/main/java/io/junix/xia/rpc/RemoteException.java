@@ -0,0 +1,17 @@
+package io.junix.xia.rpc;
+
+import java.io.IOException;
+
+/**
+ * 对端处理请求失败，消息为对端返回的错误信息
+ *
+ * @author wulogn
+ */
+public class RemoteException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RemoteException(String message) {
+        super(message);
+    }
+}
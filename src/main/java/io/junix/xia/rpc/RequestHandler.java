@@ -0,0 +1,23 @@
+package io.junix.xia.rpc;
+
+import io.junix.xia.net.Connection;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 服务端请求处理器
+ *
+ * @author wulogn
+ */
+@FunctionalInterface
+public interface RequestHandler {
+
+    /**
+     * 处理一个请求，在连接所属的事件循环线程中调用
+     * <p>
+     * {@code request} 只在本次调用期间有效，异步处理时需先复制。返回的阶段可在任意线程完成，
+     * 异常完成时向客户端返回 {@link Envelope#STATUS_ERROR}。
+     */
+    CompletionStage<byte[]> handle(Connection connection, ByteBuffer request);
+}
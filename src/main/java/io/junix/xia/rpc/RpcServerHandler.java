@@ -0,0 +1,71 @@
+package io.junix.xia.rpc;
+
+import io.junix.xia.codec.CorruptedFrameException;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.net.ChannelHandler;
+import io.junix.xia.net.Connection;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 服务端信封处理：解出关联 ID，交给 {@link RequestHandler} 处理，并带着同一 ID 写回响应
+ * <p>
+ * 位于 {@link FramingHandler} 之下，每次收到的是一个完整帧。
+ * 第一个格式正确的请求即视为连接建立（{@link Connection#markEstablished()}），此后不再受握手超时限制；
+ * 前面有握手阶段时连接在握手完成时已经建立。
+ * 请求之间互不等待，异步处理的请求按完成顺序返回。连接因对端读取缓慢而不可写时暂停读取新请求，
+ * 避免响应在发送队列中无限堆积。
+ *
+ * @author wulogn
+ */
+public class RpcServerHandler implements ChannelHandler {
+
+    private static final System.Logger LOG = System.getLogger(RpcServerHandler.class.getName());
+
+    private final RequestHandler requestHandler;
+
+    public RpcServerHandler(RequestHandler requestHandler) {
+        this.requestHandler = requestHandler;
+    }
+
+    @Override
+    public void channelWritabilityChanged(Connection connection) {
+        connection.setAutoRead(connection.isWritable());
+    }
+
+    @Override
+    public void channelRead(Connection connection, ByteBuffer frame) {
+        int correlationId;
+        try {
+            correlationId = Envelope.readCorrelationId(frame);
+        } catch (CorruptedFrameException e) {
+            exceptionCaught(connection, e);
+            return;
+        }
+        connection.markEstablished();
+        CompletionStage<byte[]> response;
+        try {
+            response = requestHandler.handle(connection, frame);
+        } catch (Exception e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        FramingHandler framing = FramingHandler.of(connection);
+        response.whenComplete((body, cause) -> {
+            if (cause == null) {
+                framing.writeFrame(connection, Envelope.responsePayload(correlationId, Envelope.STATUS_OK, body));
+            } else {
+                if (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                LOG.log(System.Logger.Level.DEBUG, "Request " + correlationId + " failed", cause);
+                String message = String.valueOf(cause.getMessage());
+                framing.writeFrame(connection, Envelope.responsePayload(correlationId, Envelope.STATUS_ERROR,
+                        message.getBytes(StandardCharsets.UTF_8)));
+            }
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package io.junix.xia.rpc;
+
+import io.junix.xia.mux.MuxHandler;
+import io.junix.xia.mux.MuxStream;
+import io.junix.xia.mux.StreamAcceptor;
+import io.junix.xia.mux.StreamHandler;
+import io.junix.xia.net.Connection;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 复用模式下的服务端请求处理：客户端每打开一个流发送一个请求，服务端在同一流上写回响应后结束
+ * <p>
+ * 位于 {@link MuxHandler} 之下，流 ID 代替 {@link RpcServerHandler} 中的关联 ID：
+ * 请求为对端结束流之前收到的全部数据，响应为 {@code 状态字节 + 响应体}，沿用请求流的优先级，
+ * 由 {@link MuxHandler} 分块调度，紧急请求的响应不必等待同一连接上正在发送的大响应。
+ * 第一个完整的请求即视为连接建立（{@link Connection#markEstablished()}）。
+ *
+ * @author wulogn
+ */
+public class RpcStreamAcceptor implements StreamAcceptor {
+
+    private static final System.Logger LOG = System.getLogger(RpcStreamAcceptor.class.getName());
+
+    private final RequestHandler requestHandler;
+    private final int maxRequestSize;
+
+    /**
+     * @param maxRequestSize 单个请求体的上限，超出时重置该流
+     */
+    public RpcStreamAcceptor(RequestHandler requestHandler, int maxRequestSize) {
+        if (maxRequestSize < 1) {
+            throw new IllegalArgumentException("maxRequestSize must be positive: " + maxRequestSize);
+        }
+        this.requestHandler = requestHandler;
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    @Override
+    public StreamHandler accept(MuxStream stream) {
+        return new RequestStream();
+    }
+
+    /**
+     * 收集一个流上的请求，对端结束流时交给 {@link RequestHandler}
+     */
+    private final class RequestStream implements StreamHandler {
+
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        @Override
+        public void onData(MuxStream stream, ByteBuffer data, boolean end) {
+            if (received.size() + data.remaining() > maxRequestSize) {
+                LOG.log(System.Logger.Level.DEBUG, "Request on {0} exceeds {1} bytes", stream, maxRequestSize);
+                stream.reset();
+                return;
+            }
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            received.writeBytes(chunk);
+            if (end) {
+                handle(stream, received.toByteArray());
+            }
+        }
+
+        private void handle(MuxStream stream, byte[] body) {
+            Connection connection = stream.connection();
+            connection.markEstablished();
+            CompletionStage<byte[]> response;
+            try {
+                response = requestHandler.handle(connection, ByteBuffer.wrap(body));
+            } catch (Exception e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((result, cause) -> {
+                // 流已被客户端重置时写入被丢弃
+                if (cause == null) {
+                    stream.write(payload(Envelope.STATUS_OK, result), true);
+                } else {
+                    if (cause instanceof CompletionException && cause.getCause() != null) {
+                        cause = cause.getCause();
+                    }
+                    LOG.log(System.Logger.Level.DEBUG, "Request on " + stream + " failed", cause);
+                    String message = String.valueOf(cause.getMessage());
+                    stream.write(payload(Envelope.STATUS_ERROR, message.getBytes(StandardCharsets.UTF_8)), true);
+                }
+            });
+        }
+    }
+
+    private static ByteBuffer payload(byte status, byte[] body) {
+        return ByteBuffer.allocate(1 + body.length).put(status).put(body).flip();
+    }
+}
@@ -0,0 +1,18 @@
+package io.junix.xia.tune;
+
+/**
+ * 一次负载采样，比率类指标取值 0 到 1，无法获取时为负数
+ *
+ * @param cpuLoad           进程占用全部核心的 CPU 比例
+ * @param workerLoad        接收新连接的事件循环线程平均 CPU 占用，单个线程占满一个核心为 1
+ * @param memoryLoad        堆与直接内存中使用率较高者
+ * @param connections       当前连接数
+ * @param pendingTasks      各事件循环等待执行的任务总数
+ * @param pendingWriteBytes 各连接发送队列中尚未写出的总字节数
+ * @param fullReadRatio     距上次采样填满读缓冲的读取占比
+ * @param acceptsPerSecond  距上次采样每秒接受的连接数
+ * @author wulogn
+ */
+public record LoadSample(double cpuLoad, double workerLoad, double memoryLoad, int connections, int pendingTasks,
+                         long pendingWriteBytes, double fullReadRatio, double acceptsPerSecond) {
+}
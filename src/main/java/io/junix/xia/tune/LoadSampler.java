@@ -0,0 +1,106 @@
+package io.junix.xia.tune;
+
+import io.junix.xia.net.EventLoop;
+import io.junix.xia.net.Server;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 采集进程 CPU、堆与直接内存、连接数和事件循环队列深度，计数类指标取两次采样之差
+ *
+ * @author wulogn
+ */
+class LoadSampler {
+
+    private final Server server;
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final BufferPoolMXBean directMemory = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)
+            .stream().filter(bean -> bean.getName().equals("direct")).findFirst().orElse(null);
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final Map<Long, Long> lastThreadCpu = new HashMap<>();
+    private long lastReads;
+    private long lastFullReads;
+    private long lastAccepted;
+    private long lastNanos = System.nanoTime();
+
+    LoadSampler(Server server) {
+        this.server = server;
+    }
+
+    LoadSample sample() {
+        int connections = 0;
+        int pendingTasks = 0;
+        long pendingWriteBytes = 0;
+        long reads = 0;
+        long fullReads = 0;
+        for (EventLoop loop : server.workers().loops()) {
+            connections += loop.connectionCount();
+            pendingTasks += loop.pendingTasks();
+            pendingWriteBytes += loop.pendingWriteBytes();
+            reads += loop.readCount();
+            fullReads += loop.fullReadCount();
+        }
+        long accepted = server.acceptedCount();
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - lastNanos) / 1e9);
+        long readDelta = reads - lastReads;
+        double fullReadRatio = readDelta == 0 ? 0 : (double) (fullReads - lastFullReads) / readDelta;
+        double acceptsPerSecond = (accepted - lastAccepted) / seconds;
+        lastReads = reads;
+        lastFullReads = fullReads;
+        lastAccepted = accepted;
+        lastNanos = now;
+        double workerLoad = workerLoad(server.workers().loops().subList(0, server.workers().activeCount()), seconds);
+        return new LoadSample(cpuLoad(), workerLoad, memoryLoad(), connections, pendingTasks, pendingWriteBytes,
+                fullReadRatio, acceptsPerSecond);
+    }
+
+    private double cpuLoad() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean bean) {
+            double load = bean.getProcessCpuLoad();
+            if (load >= 0) {
+                return load;
+            }
+        }
+        // 退而使用系统平均负载估算
+        double average = os.getSystemLoadAverage();
+        return average < 0 ? -1 : Math.min(1, average / os.getAvailableProcessors());
+    }
+
+    private double workerLoad(List<EventLoop> loops, double seconds) {
+        if (!threads.isThreadCpuTimeSupported() || !threads.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        double busy = 0;
+        int sampled = 0;
+        for (EventLoop loop : loops) {
+            long cpu = threads.getThreadCpuTime(loop.threadId());
+            if (cpu < 0) {
+                continue;
+            }
+            Long last = lastThreadCpu.put(loop.threadId(), cpu);
+            if (last != null) {
+                busy += (cpu - last) / 1e9;
+                sampled++;
+            }
+        }
+        // 首次采样没有基准值
+        return sampled == 0 ? -1 : Math.min(1, busy / seconds / sampled);
+    }
+
+    private double memoryLoad() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        double heapLoad = heap.getMax() > 0 ? (double) heap.getUsed() / heap.getMax() : -1;
+        // 未指定 -XX:MaxDirectMemorySize 时直接内存上限与最大堆相同
+        double directLoad = directMemory == null ? -1
+                : (double) directMemory.getMemoryUsed() / Runtime.getRuntime().maxMemory();
+        return Math.max(heapLoad, directLoad);
+    }
+}
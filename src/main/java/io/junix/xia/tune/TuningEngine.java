@@ -0,0 +1,240 @@
+package io.junix.xia.tune;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.compress.Compression;
+import io.junix.xia.compress.CompressionPolicy;
+import io.junix.xia.net.EventLoop;
+import io.junix.xia.net.EventLoopGroup;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 负载自适应调优：定期采样 CPU、内存、连接数和队列深度，在运行时调整
+ * 接收新连接的工作线程数、读缓冲大小、缓冲池缓存上限、Deflate 压缩级别和每秒接受连接数
+ * <p>
+ * CPU 和内存使用率先做指数平滑，升降阈值之间留有间隔，每个参数每轮最多调整一步，避免来回抖动。
+ * 每次调整都记录 INFO 日志。调优只在后台线程中修改各组件的 volatile 参数，不阻塞事件循环。
+ *
+ * @author wulogn
+ */
+public class TuningEngine implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(TuningEngine.class.getName());
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 5000;
+
+    static final double CPU_HIGH = 0.80;
+    static final double CPU_LOW = 0.30;
+    static final double CPU_SATURATED = 0.95;
+    static final double WORKER_BUSY = 0.70;
+    static final double WORKER_IDLE = 0.10;
+    static final double MEMORY_HIGH = 0.85;
+    static final double MEMORY_LOW = 0.50;
+    static final double MEMORY_CRITICAL = 0.92;
+    static final int TASKS_PER_WORKER_HIGH = 64;
+    static final int CONNECTIONS_PER_WORKER = 512;
+    static final int IDLE_TICKS_BEFORE_SHRINK = 3;
+    static final int MIN_READ_BUFFER_SIZE = 1024;
+    static final int MIN_CACHED_BYTES_PER_CLASS = 64 * 1024;
+    static final int MIN_ACCEPT_RATE = 16;
+    static final int UNLIMITED_ACCEPT_RATE = 4096;
+    private static final double SMOOTHING = 0.5;
+
+    private final Server server;
+    private final ServerConfig config;
+    private final BufferPool bufferPool;
+    private final CompressionPolicy compression;
+    private final LoadSampler sampler;
+    private final int initialReadBufferSize;
+    private final int initialCachedBytesPerClass;
+    private ScheduledExecutorService scheduler;
+    private double cpu = Double.NaN;
+    private double memory = Double.NaN;
+    private int idleTicks;
+    private int readBufferSize;
+
+    public TuningEngine(Server server, ServerConfig config) {
+        this.server = server;
+        this.config = config;
+        this.bufferPool = config.getBufferPool();
+        this.compression = config.getCompression();
+        this.sampler = new LoadSampler(server);
+        this.initialReadBufferSize = config.getReadBufferSize();
+        this.initialCachedBytesPerClass = bufferPool.maxCachedBytesPerClass();
+        this.readBufferSize = initialReadBufferSize;
+    }
+
+    /**
+     * 以 {@code intervalMillis} 为周期在后台线程中采样并调整
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Tuning engine already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "xia-tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                tick(sampler.sample());
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "Tuning round failed", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 根据一次采样调整参数，返回本轮所做的调整
+     */
+    synchronized List<Change> tick(LoadSample sample) {
+        cpu = smooth(cpu, sample.cpuLoad());
+        memory = smooth(memory, sample.memoryLoad());
+        List<Change> changes = new ArrayList<>();
+        tuneWorkers(sample, changes);
+        tuneReadBuffer(sample, changes);
+        tuneBufferCache(changes);
+        tuneCompression(sample, changes);
+        tuneAcceptRate(sample, changes);
+        for (Change change : changes) {
+            LOG.log(System.Logger.Level.INFO, "Tuning {0}: {1} -> {2} ({3})",
+                    change.knob(), change.from(), change.to(), change.reason());
+        }
+        return changes;
+    }
+
+    private void tuneWorkers(LoadSample sample, List<Change> changes) {
+        EventLoopGroup workers = server.workers();
+        int active = workers.activeCount();
+        boolean backlogged = sample.pendingTasks() > TASKS_PER_WORKER_HIGH * active;
+        // 工作线程忙而进程仍有空闲核心时才值得增加线程
+        boolean busy = sample.workerLoad() > WORKER_BUSY && cpu < CPU_HIGH;
+        if ((backlogged || busy) && active < workers.size()) {
+            idleTicks = 0;
+            workers.setActiveCount(active + 1);
+            changes.add(new Change("workers", active, active + 1,
+                    backlogged ? "task backlog " + sample.pendingTasks() : "worker load " + percent(sample.workerLoad())));
+            return;
+        }
+        boolean idle = sample.workerLoad() >= 0 && sample.workerLoad() < WORKER_IDLE && sample.pendingTasks() == 0
+                && sample.connections() < (long) CONNECTIONS_PER_WORKER * (active - 1);
+        if (!idle) {
+            idleTicks = 0;
+            return;
+        }
+        if (++idleTicks >= IDLE_TICKS_BEFORE_SHRINK && active > 1) {
+            idleTicks = 0;
+            workers.setActiveCount(active - 1);
+            changes.add(new Change("workers", active, active - 1, "worker load " + percent(sample.workerLoad())));
+        }
+    }
+
+    private void tuneReadBuffer(LoadSample sample, List<Change> changes) {
+        int next = readBufferSize;
+        String reason;
+        if (memory > MEMORY_HIGH && readBufferSize > MIN_READ_BUFFER_SIZE) {
+            next = Math.max(MIN_READ_BUFFER_SIZE, readBufferSize / 2);
+            reason = "memory " + percent(memory);
+        } else if (sample.fullReadRatio() > 0.5 && memory < MEMORY_HIGH && readBufferSize < bufferPool.maxSize()) {
+            next = Math.min(bufferPool.maxSize(), readBufferSize * 2);
+            reason = "full reads " + percent(sample.fullReadRatio());
+        } else if (sample.fullReadRatio() < 0.05 && readBufferSize > initialReadBufferSize) {
+            next = Math.max(initialReadBufferSize, readBufferSize / 2);
+            reason = "full reads " + percent(sample.fullReadRatio());
+        } else {
+            return;
+        }
+        server.workers().setReadBufferSize(next);
+        changes.add(new Change("readBufferSize", readBufferSize, next, reason));
+        readBufferSize = next;
+    }
+
+    private void tuneBufferCache(List<Change> changes) {
+        int current = bufferPool.maxCachedBytesPerClass();
+        int next;
+        if (memory > MEMORY_HIGH && current > MIN_CACHED_BYTES_PER_CLASS) {
+            next = Math.max(MIN_CACHED_BYTES_PER_CLASS, current / 2);
+        } else if (memory < MEMORY_LOW && current < initialCachedBytesPerClass) {
+            next = Math.min(initialCachedBytesPerClass, current * 2);
+        } else {
+            return;
+        }
+        bufferPool.setMaxCachedBytesPerClass(next);
+        if (next < current) {
+            // 空闲缓冲只能由所属事件循环丢弃
+            for (EventLoop loop : server.workers().loops()) {
+                loop.execute(() -> loop.arena().trim());
+            }
+        }
+        changes.add(new Change("maxCachedBytesPerClass", current, next, "memory " + percent(memory)));
+    }
+
+    private void tuneCompression(LoadSample sample, List<Change> changes) {
+        if (compression.compression() == Compression.NONE || compression.compression() == Compression.LZ) {
+            return;
+        }
+        int level = compression.deflateLevel();
+        if (cpu > CPU_HIGH && level > 1) {
+            compression.setDeflateLevel(level - 1);
+            changes.add(new Change("deflateLevel", level, level - 1, "cpu " + percent(cpu)));
+        } else if (cpu >= 0 && cpu < CPU_LOW && sample.pendingWriteBytes() > config.getWriteLowWaterMark()
+                && level < 9) {
+            // CPU 空闲而发送积压，用更多 CPU 换带宽
+            compression.setDeflateLevel(level + 1);
+            changes.add(new Change("deflateLevel", level, level + 1,
+                    "write backlog " + sample.pendingWriteBytes() + " bytes"));
+        }
+    }
+
+    private void tuneAcceptRate(LoadSample sample, List<Change> changes) {
+        int limit = server.acceptRateLimit();
+        if (cpu > CPU_SATURATED || memory > MEMORY_CRITICAL) {
+            int target = Math.max(MIN_ACCEPT_RATE, (int) (sample.acceptsPerSecond() / 2));
+            if (limit == 0 || target < limit) {
+                server.setAcceptRateLimit(target);
+                changes.add(new Change("acceptRateLimit", limit, target,
+                        "cpu " + percent(cpu) + ", memory " + percent(memory)));
+            }
+        } else if (limit != 0 && cpu < CPU_HIGH && memory < MEMORY_HIGH) {
+            int next = limit * 2 >= UNLIMITED_ACCEPT_RATE ? 0 : limit * 2;
+            server.setAcceptRateLimit(next);
+            changes.add(new Change("acceptRateLimit", limit, next, "recovered"));
+        }
+    }
+
+    synchronized int readBufferSize() {
+        return readBufferSize;
+    }
+
+    private static double smooth(double previous, double value) {
+        if (value < 0) {
+            return previous;
+        }
+        return Double.isNaN(previous) ? value : previous + SMOOTHING * (value - previous);
+    }
+
+    private static String percent(double ratio) {
+        return Math.round(ratio * 100) + "%";
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 一次参数调整，{@code acceptRateLimit} 为 0 表示不限制
+     */
+    public record Change(String knob, long from, long to, String reason) {
+    }
+}
@@ -0,0 +1,128 @@
+package io.junix.xia.buffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 直接缓冲池测试类
+ */
+public class BufferPoolTest {
+
+    private BufferPool pool;
+    private BufferArena arena;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new BufferPool(256, 4096, 4096, true);
+        arena = pool.newArena(Thread.currentThread());
+    }
+
+    @Test
+    public void testAcquireRoundsUpToSizeClass() {
+        ByteBuffer small = arena.acquire(1);
+        ByteBuffer medium = arena.acquire(257);
+        ByteBuffer exact = arena.acquire(1024);
+
+        assertTrue(small.isDirect());
+        assertEquals(256, small.capacity());
+        assertEquals(512, medium.capacity());
+        assertEquals(1024, exact.capacity());
+
+        arena.release(small);
+        arena.release(medium);
+        arena.release(exact);
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        ByteBuffer first = arena.acquire(1000);
+        first.putInt(42);
+        arena.release(first);
+
+        ByteBuffer second = arena.acquire(1000);
+        // 同一等级的缓冲被复用，且已重置位置
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(second.capacity(), second.limit());
+        arena.release(second);
+
+        BufferPool.Metrics metrics = pool.metrics();
+        assertEquals(1, metrics.hits());
+        assertEquals(1, metrics.misses());
+        assertEquals(0.5, metrics.hitRatio());
+    }
+
+    @Test
+    public void testOversizedBufferIsNotCached() {
+        ByteBuffer huge = arena.acquire(8192);
+        assertEquals(8192, huge.capacity());
+        arena.release(huge);
+
+        assertEquals(1, pool.metrics().unpooled());
+        assertEquals(0, pool.metrics().cachedBytes());
+    }
+
+    @Test
+    public void testCacheLimitPerClass() {
+        // 每个等级最多缓存 4096 字节，即 4 个 1KB 缓冲
+        ByteBuffer[] buffers = new ByteBuffer[6];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = arena.acquire(1024);
+        }
+        for (ByteBuffer buffer : buffers) {
+            arena.release(buffer);
+        }
+        assertEquals(4096, pool.metrics().cachedBytes());
+    }
+
+    @Test
+    public void testLeakDetection() {
+        ByteBuffer leaked = arena.acquire(100);
+        ByteBuffer returned = arena.acquire(100);
+        arena.release(returned);
+
+        LeakDetector detector = pool.leakDetector();
+        assertEquals(1, detector.outstandingCount());
+        assertEquals(1, detector.leaks().size());
+
+        arena.release(leaked);
+        assertEquals(0, detector.outstandingCount());
+    }
+
+    @Test
+    public void testDoubleReleaseDetected() {
+        ByteBuffer buffer = arena.acquire(100);
+        arena.release(buffer);
+        assertThrows(IllegalStateException.class, () -> arena.release(buffer));
+    }
+
+    @Test
+    public void testForeignThreadRelease() throws InterruptedException {
+        ByteBuffer buffer = arena.acquire(100);
+        Thread other = new Thread(() -> arena.release(buffer));
+        other.start();
+        other.join();
+
+        // 其他线程归还的缓冲在下次申请时回到所属区域
+        assertSame(buffer, arena.acquire(100));
+    }
+
+    @Test
+    public void testAcquireFromForeignThreadRejected() throws InterruptedException {
+        Throwable[] error = new Throwable[1];
+        Thread other = new Thread(() -> {
+            try {
+                arena.acquire(100);
+            } catch (Throwable t) {
+                error[0] = t;
+            }
+        });
+        other.start();
+        other.join();
+        assertInstanceOf(IllegalStateException.class, error[0]);
+    }
+}
@@ -0,0 +1,304 @@
+package io.junix.xia.client;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.compress.Compression;
+import io.junix.xia.compress.CompressionPolicy;
+import io.junix.xia.mux.MuxHandler;
+import io.junix.xia.mux.StreamPriority;
+import io.junix.xia.net.Connection;
+import io.junix.xia.net.EventLoopGroup;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+import io.junix.xia.rpc.RemoteException;
+import io.junix.xia.rpc.RequestHandler;
+import io.junix.xia.rpc.RpcServerHandler;
+import io.junix.xia.rpc.RpcStreamAcceptor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 非阻塞流水线客户端测试类
+ */
+public class RpcClientTest {
+
+    private Server server;
+    private RpcClient client;
+
+    @AfterEach
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testPipelinedRequestsShareOneConnection() throws Exception {
+        InetSocketAddress address = startServer(RpcClientTest::echo);
+        client = new RpcClient(config().setMaxConnectionsPerPeer(1));
+
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            responses.add(client.request(address, bytes("order-" + i)));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("order-" + i, string(responses.get(i).get(5, TimeUnit.SECONDS)));
+        }
+        assertEquals(1, client.connectionCount(address));
+    }
+
+    @Test
+    public void testOutOfOrderResponsesMatchedById() throws Exception {
+        Queue<Runnable> held = new ConcurrentLinkedQueue<>();
+        InetSocketAddress address = startServer((connection, request) -> {
+            byte[] body = new byte[request.remaining()];
+            request.get(body);
+            CompletableFuture<byte[]> response = new CompletableFuture<>();
+            held.add(() -> response.complete(body));
+            return response;
+        });
+        client = new RpcClient(config().setMaxConnectionsPerPeer(1));
+
+        CompletableFuture<byte[]> first = client.request(address, bytes("first"));
+        CompletableFuture<byte[]> second = client.request(address, bytes("second"));
+        waitFor(() -> held.size() == 2);
+        // 先完成后到的请求
+        Runnable firstResponse = held.poll();
+        held.poll().run();
+        assertEquals("second", string(second.get(5, TimeUnit.SECONDS)));
+        assertFalse(first.isDone());
+        firstResponse.run();
+        assertEquals("first", string(first.get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testSaturatedConnectionsGrowPool() throws Exception {
+        CompletableFuture<byte[]> never = new CompletableFuture<>();
+        InetSocketAddress address = startServer((connection, request) -> never);
+        client = new RpcClient(config().setMaxConnectionsPerPeer(3).setMaxPendingPerConnection(2));
+
+        for (int i = 0; i < 10; i++) {
+            client.request(address, bytes("pending"));
+        }
+        assertEquals(3, client.connectionCount(address));
+    }
+
+    @Test
+    public void testIdleConnectionsEvicted() throws Exception {
+        InetSocketAddress address = startServer(RpcClientTest::echo);
+        client = new RpcClient(config().setIdleTimeoutMillis(100));
+
+        client.request(address, bytes("ping")).get(5, TimeUnit.SECONDS);
+        assertEquals(1, client.connectionCount(address));
+        waitFor(() -> client.connectionCount(address) == 0);
+
+        // 被回收后再次请求会重新建立连接
+        assertEquals("again", string(client.request(address, bytes("again")).get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testRemoteErrorPropagated() throws Exception {
+        InetSocketAddress address = startServer((connection, request) ->
+                CompletableFuture.failedFuture(new IllegalStateException("rider offline")));
+        client = new RpcClient(config());
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.request(address, bytes("order")).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RemoteException.class, e.getCause());
+        assertEquals("rider offline", e.getCause().getMessage());
+    }
+
+    @Test
+    public void testRequestTimeout() throws Exception {
+        InetSocketAddress address = startServer((connection, request) -> new CompletableFuture<>());
+        client = new RpcClient(config().setRequestTimeoutMillis(100));
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.request(address, bytes("order")).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+    }
+
+    @Test
+    public void testConnectFailure() throws Exception {
+        InetSocketAddress address;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            address = new InetSocketAddress("localhost", socket.getLocalPort());
+        }
+        client = new RpcClient(config());
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.request(address, bytes("order")).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        waitFor(() -> client.connectionCount(address) == 0);
+    }
+
+    @Test
+    public void testCompressedRoundTrip() throws Exception {
+        CompressionPolicy policy = new CompressionPolicy(Compression.ADAPTIVE);
+        InetSocketAddress address = startServer(RpcClientTest::echo, policy);
+        client = new RpcClient(config().setCompression(policy));
+
+        String body = "order dispatched to node 7;\n".repeat(4096);
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            responses.add(client.request(address, bytes(i + body)));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals(i + body, string(responses.get(i).get(5, TimeUnit.SECONDS)));
+        }
+        assertEquals("small", string(client.request(address, bytes("small")).get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testMultiplexedRequestsAndErrors() throws Exception {
+        InetSocketAddress address = startMultiplexedServer((connection, request) -> {
+            String body = StandardCharsets.UTF_8.decode(request).toString();
+            if (body.equals("boom")) {
+                return CompletableFuture.failedFuture(new IllegalStateException("boom"));
+            }
+            return CompletableFuture.completedFuture(bytes(body));
+        });
+        client = new RpcClient(config().setMultiplexed(true).setMaxConnectionsPerPeer(1));
+
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            responses.add(client.request(address, bytes("order-" + i)));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("order-" + i, string(responses.get(i).get(5, TimeUnit.SECONDS)));
+        }
+        CompletableFuture<byte[]> failed = client.request(address, bytes("boom"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RemoteException.class, e.getCause());
+        assertEquals("boom", e.getCause().getMessage());
+        assertEquals(1, client.connectionCount(address));
+    }
+
+    @Test
+    public void testUrgentRequestOvertakesBulkResponse() throws Exception {
+        int bulkSize = 32 * 1024 * 1024;
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        InetSocketAddress address = startMultiplexedServer((connection, request) -> {
+            if (StandardCharsets.UTF_8.decode(request).toString().equals("bulk")) {
+                bulkStarted.countDown();
+                return CompletableFuture.completedFuture(new byte[bulkSize]);
+            }
+            return CompletableFuture.completedFuture(bytes("pong"));
+        });
+        client = new RpcClient(config().setMultiplexed(true).setMaxConnectionsPerPeer(1));
+
+        CompletableFuture<byte[]> bulk = client.request(address, bytes("bulk"), StreamPriority.BULK);
+        assertTrue(bulkStarted.await(5, TimeUnit.SECONDS));
+        // 紧急请求与正在发送的大响应共用同一连接，其响应插到大响应的剩余分块前面
+        CompletableFuture<Boolean> bulkPendingAtUrgent = client.request(address, bytes("urgent"),
+                StreamPriority.URGENT).thenApply(response -> {
+                    assertEquals("pong", string(response));
+                    return !bulk.isDone();
+                });
+        assertTrue(bulkPendingAtUrgent.get(10, TimeUnit.SECONDS), "urgent response waited for the bulk response");
+        assertEquals(bulkSize, bulk.get(30, TimeUnit.SECONDS).length);
+        assertEquals(1, client.connectionCount(address));
+    }
+
+    @Test
+    public void testUnresolvedAddressFailsFast() throws Exception {
+        client = new RpcClient(config());
+        InetSocketAddress unresolved = InetSocketAddress.createUnresolved("no-such-host.invalid", 8080);
+
+        CompletableFuture<byte[]> response = client.request(unresolved, bytes("hello"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(UnknownHostException.class, e.getCause());
+        assertEquals(0, client.connectionCount(unresolved));
+    }
+
+    @Test
+    public void testEventLoopConnectToUnresolvedAddressFails() throws Exception {
+        EventLoopGroup loops = new EventLoopGroup(1, "connect-test", new BufferPool(16, 4096, 65536, false));
+        loops.start();
+        try {
+            CompletableFuture<Connection> connected = loops.next().connect(
+                    InetSocketAddress.createUnresolved("no-such-host.invalid", 8080), (connection, data) -> {
+                    });
+            // 立即失败，而不是等到调用方的连接超时
+            ExecutionException e = assertThrows(ExecutionException.class, () -> connected.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(UnresolvedAddressException.class, e.getCause());
+            assertEquals(0, loops.connectionCount());
+        } finally {
+            loops.shutdown();
+            loops.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private InetSocketAddress startMultiplexedServer(RequestHandler handler) throws IOException {
+        ServerConfig config = new ServerConfig().setPort(0).setWorkerThreads(1);
+        server = new Server(config, () -> new FramingHandler(
+                new MuxHandler(false, new RpcStreamAcceptor(handler, config.getMaxFrameSize())),
+                config.getMaxFrameSize()));
+        server.start();
+        return new InetSocketAddress("localhost", ((InetSocketAddress) server.localAddress()).getPort());
+    }
+
+    private InetSocketAddress startServer(RequestHandler handler) throws IOException {
+        return startServer(handler, CompressionPolicy.none());
+    }
+
+    private InetSocketAddress startServer(RequestHandler handler, CompressionPolicy compression) throws IOException {
+        ServerConfig config = new ServerConfig().setPort(0).setWorkerThreads(2).setCompression(compression);
+        server = new Server(config, () -> new FramingHandler(new RpcServerHandler(handler), config.getMaxFrameSize(),
+                compression.newStages(config.getMaxFrameSize())));
+        server.start();
+        return new InetSocketAddress("localhost", ((InetSocketAddress) server.localAddress()).getPort());
+    }
+
+    private static ClientConfig config() {
+        return new ClientConfig()
+                .setIoThreads(2)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+    }
+
+    private static CompletableFuture<byte[]> echo(Connection connection, ByteBuffer request) {
+        byte[] body = new byte[request.remaining()];
+        request.get(body);
+        return CompletableFuture.completedFuture(body);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
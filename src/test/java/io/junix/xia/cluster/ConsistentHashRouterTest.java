@@ -0,0 +1,171 @@
+package io.junix.xia.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 一致性哈希路由测试类
+ */
+public class ConsistentHashRouterTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    public void testKeysSpreadEvenly() {
+        ConsistentHashRouter router = router(10);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(router.route("order-" + i).id(), 1, Integer::sum);
+        }
+        assertEquals(10, counts.size());
+        for (int count : counts.values()) {
+            assertEquals(KEYS / 10.0, count, KEYS / 10.0 * 0.3, counts.toString());
+        }
+    }
+
+    @Test
+    public void testAddingNodeMovesOnlyItsShare() {
+        ConsistentHashRouter router = router(10);
+        String[] before = owners(router);
+        router.addNode("node-10", address(10));
+        String[] after = owners(router);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (!before[i].equals(after[i])) {
+                // 只会移到新节点
+                assertEquals("node-10", after[i]);
+                moved++;
+            }
+        }
+        assertEquals(KEYS / 11.0, moved, KEYS / 11.0 * 0.4);
+    }
+
+    @Test
+    public void testRemovingNodeMovesOnlyItsKeys() {
+        ConsistentHashRouter router = router(10);
+        String[] before = owners(router);
+        assertTrue(router.removeNode("node-3"));
+        assertFalse(router.removeNode("node-3"));
+        String[] after = owners(router);
+
+        for (int i = 0; i < KEYS; i++) {
+            if (!before[i].equals("node-3")) {
+                assertEquals(before[i], after[i]);
+            } else {
+                assertNotEquals("node-3", after[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testRingIndependentOfInsertionOrder() {
+        ConsistentHashRouter forward = router(8);
+        ConsistentHashRouter backward = new ConsistentHashRouter();
+        for (int i = 7; i >= 0; i--) {
+            backward.addNode("node-" + i, address(i));
+        }
+        assertArrayEquals(owners(forward), owners(backward));
+    }
+
+    @Test
+    public void testBoundedLoadSpreadsHotKey() {
+        ConsistentHashRouter router = router(4);
+        List<RouteNode> acquired = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            acquired.add(router.acquire("hot"));
+        }
+        RouteNode owner = router.route("hot");
+        assertEquals(owner, acquired.get(0));
+        // ε = 0.25 时每个节点至多 ceil(1.25 * 100 / 4) = 32 个
+        for (RouteNode node : router.nodes()) {
+            assertTrue(node.load() <= 32, node + " load " + node.load());
+        }
+        assertEquals(32, owner.load());
+
+        acquired.forEach(router::release);
+        for (RouteNode node : router.nodes()) {
+            assertEquals(0, node.load());
+        }
+        assertEquals(owner, router.acquire("hot"));
+    }
+
+    @Test
+    public void testFollowsMembership() {
+        ConsistentHashRouter router = new ConsistentHashRouter();
+        router.onChange(new Member("a", address(1), MemberState.ALIVE, 0), null);
+        router.onChange(new Member("b", address(2), MemberState.ALIVE, 0), null);
+        router.onChange(new Member("b", address(2), MemberState.SUSPECT, 0), MemberState.ALIVE);
+        assertEquals(2, router.nodes().size());
+        router.onChange(new Member("b", address(2), MemberState.ALIVE, 1), MemberState.SUSPECT);
+        assertEquals(2, router.nodes().size());
+        router.onChange(new Member("b", address(2), MemberState.DEAD, 1), MemberState.SUSPECT);
+        assertEquals(List.of("a"), router.nodes().stream().map(RouteNode::id).toList());
+        router.onChange(new Member("b", address(2), MemberState.ALIVE, 2), MemberState.DEAD);
+        assertEquals(2, router.nodes().size());
+    }
+
+    @Test
+    public void testLookupsDuringChurn() throws InterruptedException {
+        ConsistentHashRouter router = router(16);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    long i = 0;
+                    while (running.get()) {
+                        RouteNode node = router.acquire("key-" + i++);
+                        assertNotNull(node);
+                        router.release(node);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int round = 0; round < 200; round++) {
+            router.removeNode("node-" + (round % 16));
+            router.addNode("node-" + (round % 16), address(round % 16));
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertEquals(16, router.nodes().size());
+    }
+
+    private static ConsistentHashRouter router(int nodes) {
+        ConsistentHashRouter router = new ConsistentHashRouter();
+        for (int i = 0; i < nodes; i++) {
+            assertTrue(router.addNode("node-" + i, address(i)));
+        }
+        assertFalse(router.addNode("node-0", address(0)));
+        return router;
+    }
+
+    private static String[] owners(ConsistentHashRouter router) {
+        String[] owners = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            owners[i] = router.route("order-" + i).id();
+        }
+        return owners;
+    }
+
+    private static InetSocketAddress address(int i) {
+        return InetSocketAddress.createUnresolved("node-" + i, 7000);
+    }
+}
@@ -0,0 +1,376 @@
+package io.junix.xia.cluster;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.client.ClientConfig;
+import io.junix.xia.client.RpcClient;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.enc.NodeIdentity;
+import io.junix.xia.enc.PeerKeyCache;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+import io.junix.xia.plugin.PluginContainer;
+import io.junix.xia.rpc.RpcServerHandler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * SWIM 成员协议测试类，大规模场景在 {@link SimulatedCluster} 的虚拟时间中运行
+ */
+public class MembershipTest {
+
+    private final List<Closeable> resources = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            resources.get(i).close();
+        }
+    }
+
+    @Test
+    public void testHundredNodesConverge() {
+        SimulatedCluster cluster = new SimulatedCluster(config(), 1);
+        List<Membership> nodes = cluster.start(100);
+        cluster.run(60_000);
+
+        for (Membership node : nodes) {
+            assertEquals(99, node.activeMembers().size(), "node " + node.address());
+            for (Member member : node.members()) {
+                assertEquals(MemberState.ALIVE, member.state());
+                assertEquals(member.id(), HexFormat.of().formatHex(PeerKeyCache.fingerprint(node.publicKey(member.id()))));
+            }
+        }
+        assertNull(nodes.get(0).publicKey("unknown"));
+    }
+
+    @Test
+    public void testDetectsCrashedNodes() {
+        SimulatedCluster cluster = new SimulatedCluster(config(), 2);
+        List<Membership> nodes = cluster.start(100);
+        cluster.run(60_000);
+
+        List<Membership> crashed = nodes.subList(90, 100);
+        crashed.forEach(cluster::crash);
+        cluster.run(60_000);
+
+        for (Membership node : nodes.subList(0, 90)) {
+            assertEquals(89, node.activeMembers().size(), "node " + node.address());
+            for (Membership dead : crashed) {
+                assertEquals(MemberState.DEAD, node.member(dead.id()).state());
+            }
+        }
+    }
+
+    @Test
+    public void testSuspicionRefutedUnderPacketLoss() {
+        SimulatedCluster cluster = new SimulatedCluster(config(), 3);
+        List<Membership> nodes = cluster.start(50);
+        cluster.run(30_000);
+
+        cluster.setLossRate(0.05);
+        cluster.run(60_000);
+        cluster.setLossRate(0);
+        cluster.run(20_000);
+
+        assertTrue(cluster.dropped() > 0);
+        // 丢包导致的误判都被反驳，没有存活节点被判定死亡
+        for (Membership node : nodes) {
+            for (Member member : node.members()) {
+                assertEquals(MemberState.ALIVE, member.state(), "member " + member.address() + " at " + node.address());
+            }
+        }
+    }
+
+    @Test
+    public void testBandwidthPerNodeGrowsSubLinearly() {
+        double small = bytesPerNodePerPeriod(20);
+        double large = bytesPerNodePerPeriod(100);
+        // 集群扩大 5 倍，单节点带宽增长不到 2 倍
+        assertTrue(large < 2 * small, "20 nodes: " + small + " B/period, 100 nodes: " + large + " B/period");
+    }
+
+    @Test
+    public void testLeavePropagates() {
+        SimulatedCluster cluster = new SimulatedCluster(config(), 4);
+        List<Membership> nodes = cluster.start(30);
+        cluster.run(20_000);
+
+        Membership leaving = nodes.get(7);
+        leaving.leave();
+        cluster.run(10_000);
+
+        for (Membership node : nodes) {
+            if (node != leaving) {
+                assertEquals(MemberState.LEFT, node.member(leaving.id()).state());
+                assertEquals(28, node.activeMembers().size());
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsForgedUpdates() throws SignatureException {
+        SimulatedCluster cluster = new SimulatedCluster(config(), 5);
+        List<Membership> nodes = cluster.start(3);
+        cluster.run(10_000);
+        Membership receiver = nodes.get(0);
+        Membership victim = nodes.get(1);
+        Membership accuser = nodes.get(2);
+        NodeIdentity attacker = NodeIdentity.generate();
+        byte[] victimId = HexFormat.of().parseHex(victim.id());
+        byte[] accuserId = HexFormat.of().parseHex(accuser.id());
+        byte[] attackerId = PeerKeyCache.fingerprint(attacker.encodedPublicKey());
+
+        // 以攻击者的公钥冒充受害者，指纹不符
+        inject(cluster, receiver, attacker, attackerId, new MembershipUpdate(MemberState.ALIVE, victimId, 99,
+                "evil:1", attacker.encodedPublicKey(), victimId, null));
+        // 冒用已知成员的名义宣告死亡，签名不符
+        inject(cluster, receiver, attacker, attackerId, new MembershipUpdate(MemberState.DEAD, victimId,
+                victim.incarnation(), null, null, accuserId, null));
+        // 签名者不是成员
+        inject(cluster, receiver, attacker, attackerId, new MembershipUpdate(MemberState.DEAD, victimId,
+                victim.incarnation(), null, null, attackerId, null));
+
+        assertEquals(3, receiver.rejectedUpdates());
+        Member member = receiver.member(victim.id());
+        assertEquals(MemberState.ALIVE, member.state());
+        assertEquals(victim.address(), member.address());
+
+        // 已知成员正确签名的怀疑被接受，随后由受害者反驳
+        inject(cluster, receiver, cluster.identity(accuser), accuserId, new MembershipUpdate(MemberState.SUSPECT,
+                victimId, victim.incarnation(), null, null, accuserId, null));
+        assertEquals(MemberState.SUSPECT, receiver.member(victim.id()).state());
+        cluster.run(5_000);
+        assertEquals(MemberState.ALIVE, receiver.member(victim.id()).state());
+        assertTrue(victim.incarnation() > 0);
+    }
+
+    @Test
+    public void testFloodingSenderThrottledBeforeVerification() throws SignatureException {
+        SimulatedCluster cluster = new SimulatedCluster(config(), 7);
+        List<Membership> nodes = cluster.start(3);
+        cluster.run(10_000);
+        Membership receiver = nodes.get(0);
+        Membership victim = nodes.get(1);
+        NodeIdentity attacker = NodeIdentity.generate();
+        byte[] victimId = HexFormat.of().parseHex(victim.id());
+        byte[] attackerId = PeerKeyCache.fingerprint(attacker.encodedPublicKey());
+
+        long rejected = receiver.rejectedUpdates();
+        for (int i = 0; i < 100; i++) {
+            inject(cluster, receiver, attacker, attackerId, new MembershipUpdate(MemberState.DEAD, victimId,
+                    victim.incarnation(), null, null, attackerId, null));
+        }
+        // 超出配额的消息在验签之前丢弃
+        int limit = config().getMaxMessagesPerPeer();
+        assertEquals(100 - limit, receiver.throttledMessages());
+        assertEquals(limit, receiver.rejectedUpdates() - rejected);
+
+        cluster.run(10_000);
+        assertEquals(2, receiver.activeMembers().size());
+        assertEquals(0, nodes.get(2).throttledMessages());
+    }
+
+    @Test
+    public void testImpersonatedSenderKeepsItsQuota() throws SignatureException {
+        SimulatedCluster cluster = new SimulatedCluster(config(), 8);
+        List<Membership> nodes = cluster.start(3);
+        cluster.run(10_000);
+        Membership receiver = nodes.get(0);
+        Membership victim = nodes.get(1);
+        NodeIdentity attacker = NodeIdentity.generate();
+        byte[] victimId = HexFormat.of().parseHex(victim.id());
+
+        // 以被冒名者的指纹洪泛，配额按来源计，只耗尽攻击者自己的
+        for (int i = 0; i < 100; i++) {
+            inject(cluster, receiver, attacker, victimId, new MembershipUpdate(MemberState.DEAD, victimId,
+                    victim.incarnation(), null, null, victimId, null));
+        }
+        long throttled = receiver.throttledMessages();
+        assertEquals(100 - config().getMaxMessagesPerPeer(), throttled);
+
+        cluster.run(10_000);
+        assertEquals(throttled, receiver.throttledMessages());
+        assertEquals(MemberState.ALIVE, receiver.member(victim.id()).state());
+    }
+
+    @Test
+    public void testTrustPolicyExcludesStrangers() {
+        SimulatedCluster cluster = new SimulatedCluster(config(), 6);
+        List<PublicKey> trusted = new ArrayList<>();
+        List<Membership> nodes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            NodeIdentity identity = NodeIdentity.generate();
+            trusted.add(identity.publicKey());
+            nodes.add(cluster.addNode(identity, trusted::contains));
+        }
+        Membership stranger = cluster.addNode();
+        for (Membership node : nodes.subList(1, 5)) {
+            node.join(List.of(nodes.get(0).address()));
+        }
+        stranger.join(List.of(nodes.get(0).address()));
+        cluster.run(20_000);
+
+        assertTrue(nodes.get(0).rejectedUpdates() > 0);
+        for (Membership node : nodes) {
+            assertEquals(4, node.activeMembers().size());
+            assertNull(node.member(stranger.id()));
+        }
+    }
+
+    @Test
+    public void testPhiGrowsWithSilence() {
+        PhiAccrualDetector detector = new PhiAccrualDetector(16, 1000, 100, 0);
+        for (long t = 1000; t <= 20_000; t += 1000) {
+            detector.heartbeat(t);
+        }
+        assertTrue(detector.phi(20_500) < 1);
+        assertTrue(detector.phi(22_000) > detector.phi(21_000));
+        assertTrue(detector.phi(25_000) > 8);
+    }
+
+    @Test
+    public void testGossipOverRpc() throws Exception {
+        MembershipConfig config = new MembershipConfig().setProtocolPeriodMillis(100).setPingTimeoutMillis(40);
+        RpcClient client = new RpcClient(new ClientConfig()
+                .setIoThreads(2)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false)));
+        resources.add(client);
+        List<Membership> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            PluginContainer plugins = new PluginContainer();
+            resources.add(plugins);
+            ServerConfig serverConfig = new ServerConfig().setPort(0).setWorkerThreads(1);
+            Server server = new Server(serverConfig, () -> new FramingHandler(
+                    new RpcServerHandler(plugins.dispatcher()), serverConfig.getMaxFrameSize()));
+            server.start();
+            resources.add(server::close);
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1",
+                    ((InetSocketAddress) server.localAddress()).getPort());
+            Membership membership = new Membership(NodeIdentity.generate(), address, new RpcGossipTransport(client),
+                    config);
+            plugins.deploy(new ClusterPlugin(membership));
+            membership.start();
+            resources.add(membership);
+            nodes.add(membership);
+        }
+        for (Membership node : nodes.subList(1, 3)) {
+            node.join(List.of(nodes.get(0).address()));
+        }
+        waitFor(() -> nodes.stream().allMatch(node -> node.activeMembers().size() == 2));
+
+        nodes.get(2).close();
+        waitFor(() -> nodes.get(0).member(nodes.get(2).id()).state() == MemberState.LEFT
+                && nodes.get(1).member(nodes.get(2).id()).state() == MemberState.LEFT);
+        assertEquals(Set.of(nodes.get(1).id()), Set.copyOf(nodes.get(0).activeMembers().stream().map(Member::id).toList()));
+    }
+
+    @Test
+    public void testGossipSendDoesNotBlockOnResolution() throws Exception {
+        AtomicInteger received = new AtomicInteger();
+        ServerConfig serverConfig = new ServerConfig().setPort(0).setWorkerThreads(1);
+        Server server = new Server(serverConfig, () -> new FramingHandler(new RpcServerHandler((connection, request) -> {
+            received.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[0]);
+        }), serverConfig.getMaxFrameSize()));
+        server.start();
+        resources.add(server::close);
+        int port = ((InetSocketAddress) server.localAddress()).getPort();
+        RpcClient client = new RpcClient(new ClientConfig()
+                .setIoThreads(1)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false)));
+        resources.add(client);
+
+        CountDownLatch dnsReleased = new CountDownLatch(1);
+        AtomicInteger lookups = new AtomicInteger();
+        RpcGossipTransport transport = new RpcGossipTransport(client, address -> {
+            lookups.incrementAndGet();
+            try {
+                dnsReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return address.getHostString().equals("member.test")
+                    ? new InetSocketAddress("127.0.0.1", address.getPort())
+                    : address;
+        });
+
+        // 解析卡住时发送立即返回，同一地址只解析一次
+        InetSocketAddress member = InetSocketAddress.createUnresolved("member.test", port);
+        long start = System.nanoTime();
+        transport.send(member, new byte[]{1});
+        transport.send(member, new byte[]{2});
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+        dnsReleased.countDown();
+        waitFor(() -> received.get() == 2);
+        transport.send(member, new byte[]{3});
+        waitFor(() -> received.get() == 3);
+        assertEquals(1, lookups.get());
+
+        // 解析失败同样缓存，短时间内不再重复查询
+        InetSocketAddress unknown = InetSocketAddress.createUnresolved("unknown.test", port);
+        transport.send(unknown, new byte[]{4});
+        waitFor(() -> lookups.get() == 2);
+        Thread.sleep(50);
+        transport.send(unknown, new byte[]{5});
+        Thread.sleep(50);
+        assertEquals(2, lookups.get());
+        assertEquals(3, received.get());
+    }
+
+    private static double bytesPerNodePerPeriod(int size) {
+        MembershipConfig config = config();
+        SimulatedCluster cluster = new SimulatedCluster(config, size);
+        List<Membership> nodes = cluster.start(size);
+        // 跳过加入阶段的传播
+        cluster.run(60_000);
+        long before = totalBytes(nodes);
+        long periods = 30;
+        cluster.run(periods * config.getProtocolPeriodMillis());
+        return (double) (totalBytes(nodes) - before) / size / periods;
+    }
+
+    private static long totalBytes(List<Membership> nodes) {
+        long total = 0;
+        for (Membership node : nodes) {
+            total += node.bytesSent();
+        }
+        return total;
+    }
+
+    private static void inject(SimulatedCluster cluster, Membership to, NodeIdentity signer, byte[] senderId,
+                               MembershipUpdate update) throws SignatureException {
+        MembershipUpdate signed = update.withSignature(signer.signer().sign(update.signedContent()));
+        byte[] message = new GossipMessage(GossipMessage.ACK, 0, senderId, "evil:1", null, null,
+                List.of(signed), false).encode();
+        cluster.inject(to, "evil", message);
+    }
+
+    private static MembershipConfig config() {
+        return new MembershipConfig().setProtocolPeriodMillis(500).setPingTimeoutMillis(150);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
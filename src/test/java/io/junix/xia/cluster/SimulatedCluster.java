@@ -0,0 +1,146 @@
+package io.junix.xia.cluster;
+
+import io.junix.xia.enc.NodeIdentity;
+
+import java.net.InetSocketAddress;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 进程内模拟的集群：虚拟时钟、带延迟和丢包的内存网络，单线程驱动全部节点
+ * <p>
+ * 时间以 {@link #STEP_MILLIS} 为步长推进，每步先投递到期的消息，再依次调用各节点的 {@link Membership#tick()}。
+ */
+final class SimulatedCluster {
+
+    static final long STEP_MILLIS = 10;
+
+    private final MembershipConfig config;
+    private final Random random;
+    private final List<Membership> nodes = new ArrayList<>();
+    private final Map<InetSocketAddress, Membership> byAddress = new HashMap<>();
+    private final Map<Membership, NodeIdentity> identities = new HashMap<>();
+    private final Set<InetSocketAddress> crashed = new HashSet<>();
+    private final PriorityQueue<Delivery> inFlight = new PriorityQueue<>();
+    private long now;
+    private long order;
+    private double lossRate;
+    private long dropped;
+
+    SimulatedCluster(MembershipConfig config, long seed) {
+        this.config = config;
+        this.random = new Random(seed);
+    }
+
+    Membership addNode() {
+        return addNode(key -> true);
+    }
+
+    Membership addNode(Predicate<PublicKey> trustPolicy) {
+        return addNode(NodeIdentity.generate(), trustPolicy);
+    }
+
+    Membership addNode(NodeIdentity identity, Predicate<PublicKey> trustPolicy) {
+        InetSocketAddress address = InetSocketAddress.createUnresolved("node-" + nodes.size(), 7000);
+        Membership node = new Membership(identity, address, (to, message) -> enqueue(address, to, message), config,
+                () -> now, trustPolicy, new Random(random.nextLong()));
+        nodes.add(node);
+        byAddress.put(node.address(), node);
+        identities.put(node, identity);
+        return node;
+    }
+
+    /**
+     * 创建 {@code count} 个节点，除第一个外都以第一个为种子加入
+     */
+    List<Membership> start(int count) {
+        List<Membership> started = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            started.add(addNode());
+        }
+        for (Membership node : started.subList(1, count)) {
+            node.join(List.of(started.get(0).address()));
+        }
+        return started;
+    }
+
+    void run(long millis) {
+        long end = now + millis;
+        while (now < end) {
+            now += STEP_MILLIS;
+            Delivery delivery;
+            while ((delivery = inFlight.peek()) != null && delivery.at <= now) {
+                inFlight.poll();
+                Membership node = byAddress.get(delivery.to);
+                if (node != null && !crashed.contains(delivery.to)) {
+                    node.receive(delivery.message, delivery.from.getHostString());
+                }
+            }
+            for (Membership node : nodes) {
+                if (!crashed.contains(node.address())) {
+                    node.tick();
+                }
+            }
+        }
+    }
+
+    /**
+     * 节点停止运行，发给它的消息全部丢失
+     */
+    void crash(Membership node) {
+        crashed.add(node.address());
+    }
+
+    void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * 绕过网络直接投递一条来自 {@code source} 的消息，用于注入伪造的消息
+     */
+    void inject(Membership to, String source, byte[] message) {
+        to.receive(message, source);
+    }
+
+    NodeIdentity identity(Membership node) {
+        return identities.get(node);
+    }
+
+    List<Membership> nodes() {
+        return nodes;
+    }
+
+    long now() {
+        return now;
+    }
+
+    long dropped() {
+        return dropped;
+    }
+
+    private void enqueue(InetSocketAddress from, InetSocketAddress to, byte[] message) {
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            dropped++;
+            return;
+        }
+        // 单程延迟 1～20ms
+        inFlight.add(new Delivery(now + 1 + random.nextInt(20), order++, from, to, message));
+    }
+
+    private record Delivery(long at, long order, InetSocketAddress from, InetSocketAddress to, byte[] message) implements Comparable<Delivery> {
+
+        @Override
+        public int compareTo(Delivery other) {
+            int byTime = Long.compare(at, other.at);
+            return byTime != 0 ? byTime : Long.compare(order, other.order);
+        }
+    }
+}
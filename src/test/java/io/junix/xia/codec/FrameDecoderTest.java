@@ -0,0 +1,127 @@
+package io.junix.xia.codec;
+
+import io.junix.xia.buffer.BufferArena;
+import io.junix.xia.buffer.BufferPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 长度前缀帧解码器测试类
+ */
+public class FrameDecoderTest {
+
+    private BufferPool pool;
+    private FrameDecoder decoder;
+    private final List<String> frames = new ArrayList<>();
+    private final List<ByteBuffer> delivered = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        pool = new BufferPool(256, 4096, 64 * 1024, true);
+        BufferArena arena = pool.newArena(Thread.currentThread());
+        decoder = new FrameDecoder(arena, 1024, frame -> {
+            delivered.add(frame);
+            byte[] bytes = new byte[frame.remaining()];
+            frame.get(bytes);
+            frames.add(new String(bytes, StandardCharsets.UTF_8));
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        decoder.release();
+        // 累积缓冲全部归还
+        assertEquals(0, pool.leakDetector().outstandingCount());
+    }
+
+    @Test
+    public void testMultipleFramesInOneRead() throws Exception {
+        ByteBuffer in = encode("a", "bc", "", "def");
+        decoder.decode(in);
+
+        assertEquals(List.of("a", "bc", "", "def"), frames);
+        assertFalse(in.hasRemaining());
+        assertFalse(decoder.hasPartialFrame());
+    }
+
+    @Test
+    public void testFrameSlicesAreZeroCopy() throws Exception {
+        ByteBuffer in = encode("hello", "world");
+        decoder.decode(in);
+
+        // 完整帧直接以读缓冲本身交给下游
+        assertEquals(2, delivered.size());
+        assertSame(in, delivered.get(0));
+        assertSame(in, delivered.get(1));
+    }
+
+    @Test
+    public void testFrameSplitAcrossReads() throws Exception {
+        ByteBuffer whole = encode("split frame payload", "tail");
+        // 逐字节喂入，覆盖长度前缀和负载都被拆分的情况
+        while (whole.hasRemaining()) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            one.put(whole.get()).flip();
+            decoder.decode(one);
+        }
+        assertEquals(List.of("split frame payload", "tail"), frames);
+    }
+
+    @Test
+    public void testMultiByteLengthPrefix() throws Exception {
+        String payload = "x".repeat(300);
+        ByteBuffer whole = encode(payload);
+        assertEquals(2, Varint.sizeOf(300));
+
+        ByteBuffer first = whole.duplicate().limit(1);
+        ByteBuffer rest = whole.duplicate().position(1);
+        decoder.decode(first);
+        assertTrue(decoder.hasPartialFrame());
+        decoder.decode(rest);
+        assertEquals(List.of(payload), frames);
+    }
+
+    @Test
+    public void testFrameTooLarge() {
+        ByteBuffer in = ByteBuffer.allocate(8);
+        Varint.write(in, 1025);
+        in.flip();
+        assertThrows(CorruptedFrameException.class, () -> decoder.decode(in));
+    }
+
+    @Test
+    public void testLengthPrefixTooLong() {
+        ByteBuffer in = ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1});
+        assertThrows(CorruptedFrameException.class, () -> decoder.decode(in));
+    }
+
+    @Test
+    public void testVarintRoundTrip() throws Exception {
+        int[] values = {0, 1, 127, 128, 16383, 16384, 1 << 21, 1 << 28, Integer.MAX_VALUE, -1};
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        for (int value : values) {
+            buffer.clear();
+            Varint.write(buffer, value);
+            assertEquals(Varint.sizeOf(value), buffer.position());
+            buffer.flip();
+            assertEquals(value, Varint.read(buffer));
+        }
+    }
+
+    private static ByteBuffer encode(String... payloads) {
+        ByteBuffer out = ByteBuffer.allocate(4096);
+        for (String payload : payloads) {
+            FrameEncoder.encode(ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)), out);
+        }
+        return out.flip();
+    }
+}
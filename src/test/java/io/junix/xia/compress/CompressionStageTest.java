@@ -0,0 +1,165 @@
+package io.junix.xia.compress;
+
+import io.junix.xia.codec.CorruptedFrameException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * 帧压缩阶段测试类
+ */
+public class CompressionStageTest {
+
+    private static final int MAX_FRAME_SIZE = 4 * 1024 * 1024;
+
+    @Test
+    public void testLzRoundTrip() throws CorruptedFrameException {
+        assertRoundTrip(Compression.LZ, text(64 * 1024), LzCodec.ID);
+        assertRoundTrip(Compression.LZ, text(300), LzCodec.ID);
+    }
+
+    @Test
+    public void testDeflateRoundTrip() throws CorruptedFrameException {
+        assertRoundTrip(Compression.DEFLATE, text(64 * 1024), DeflateCodec.ID);
+    }
+
+    @Test
+    public void testDirectBufferRoundTrip() throws CorruptedFrameException {
+        CompressionStage stage = new CompressionStage(new CompressionPolicy(Compression.LZ), MAX_FRAME_SIZE);
+        byte[] data = text(8192);
+        ByteBuffer encoded = stage.encode(ByteBuffer.wrap(data), false);
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.remaining()).put(encoded).flip();
+        assertArrayEquals(data, bytes(stage.decode(direct)));
+    }
+
+    @Test
+    public void testSmallPayloadSentRaw() throws CorruptedFrameException {
+        CompressionStage stage = new CompressionStage(new CompressionPolicy(Compression.LZ), MAX_FRAME_SIZE);
+        byte[] data = text(CompressionPolicy.DEFAULT_MIN_SIZE - 1);
+        ByteBuffer encoded = stage.encode(ByteBuffer.wrap(data), false);
+        assertEquals(CompressionStage.RAW, encoded.get(0));
+        assertArrayEquals(data, bytes(stage.decode(encoded)));
+    }
+
+    @Test
+    public void testIncompressibleBacksOff() throws CorruptedFrameException {
+        CompressionStage stage = new CompressionStage(new CompressionPolicy(Compression.LZ), MAX_FRAME_SIZE);
+        byte[] data = new byte[4096];
+        new Random(7).nextBytes(data);
+
+        // 第一次尝试失败后跳过 1 帧，第二次失败后跳过 2 帧，依次翻倍
+        for (int i = 0; i < 6; i++) {
+            ByteBuffer encoded = stage.encode(ByteBuffer.wrap(data), false);
+            assertEquals(CompressionStage.RAW, encoded.get(0));
+            assertArrayEquals(data, bytes(stage.decode(encoded)));
+        }
+        assertEquals(6, stage.rawFrames());
+        assertEquals(0, stage.compressedFrames());
+
+        // 第 6 帧的尝试失败后跳过 4 帧，期间即使数据可压缩也原样发送，退避结束后恢复压缩
+        for (int i = 0; i < 4; i++) {
+            assertEquals(CompressionStage.RAW, stage.encode(ByteBuffer.wrap(text(4096)), false).get(0));
+        }
+        ByteBuffer compressed = stage.encode(ByteBuffer.wrap(text(4096)), false);
+        assertEquals(LzCodec.ID, compressed.get(0));
+        assertTrue(stage.ratio() < 1.5);
+    }
+
+    @Test
+    public void testAdaptiveUsesDeflateWhenCongested() throws CorruptedFrameException {
+        CompressionStage stage = new CompressionStage(new CompressionPolicy(Compression.ADAPTIVE), MAX_FRAME_SIZE);
+        byte[] data = text(16 * 1024);
+
+        ByteBuffer fast = stage.encode(ByteBuffer.wrap(data), false);
+        assertEquals(LzCodec.ID, fast.get(0));
+        ByteBuffer dense = stage.encode(ByteBuffer.wrap(data), true);
+        assertEquals(DeflateCodec.ID, dense.get(0));
+        assertTrue(dense.remaining() < fast.remaining());
+
+        assertArrayEquals(data, bytes(stage.decode(fast)));
+        assertArrayEquals(data, bytes(stage.decode(dense)));
+        stage.release();
+    }
+
+    @Test
+    public void testDeflateLevelChangeTakesEffect() throws CorruptedFrameException {
+        CompressionPolicy policy = new CompressionPolicy(Compression.DEFLATE);
+        CompressionStage stage = new CompressionStage(policy, MAX_FRAME_SIZE);
+        byte[] data = text(32 * 1024);
+        assertArrayEquals(data, bytes(stage.decode(stage.encode(ByteBuffer.wrap(data), false))));
+
+        policy.setDeflateLevel(1);
+        assertArrayEquals(data, bytes(stage.decode(stage.encode(ByteBuffer.wrap(data), false))));
+        assertThrows(IllegalArgumentException.class, () -> policy.setDeflateLevel(10));
+    }
+
+    @Test
+    public void testOversizedLengthRejected() {
+        CompressionStage sender = new CompressionStage(new CompressionPolicy(Compression.LZ), MAX_FRAME_SIZE);
+        CompressionStage receiver = new CompressionStage(new CompressionPolicy(Compression.LZ), 1024);
+        ByteBuffer encoded = sender.encode(ByteBuffer.wrap(text(8192)), false);
+        assertThrows(CorruptedFrameException.class, () -> receiver.decode(encoded));
+    }
+
+    @Test
+    public void testCorruptedPayloadRejected() {
+        CompressionStage stage = new CompressionStage(new CompressionPolicy(Compression.LZ), MAX_FRAME_SIZE);
+        ByteBuffer encoded = stage.encode(ByteBuffer.wrap(text(8192)), false);
+        ByteBuffer truncated = encoded.limit(encoded.limit() / 2);
+        assertThrows(CorruptedFrameException.class, () -> stage.decode(truncated));
+
+        assertThrows(CorruptedFrameException.class, () -> stage.decode(ByteBuffer.wrap(new byte[]{9, 1, 2})));
+        assertThrows(CorruptedFrameException.class, () -> stage.decode(ByteBuffer.allocate(0)));
+
+        ByteBuffer deflated = new CompressionStage(new CompressionPolicy(Compression.DEFLATE), MAX_FRAME_SIZE)
+                .encode(ByteBuffer.wrap(text(8192)), false);
+        deflated.limit(deflated.limit() / 2);
+        assertThrows(CorruptedFrameException.class, () -> stage.decode(deflated));
+    }
+
+    @Test
+    public void testDeflateLongerThanDeclaredRejected() throws CorruptedFrameException {
+        CompressionStage stage = new CompressionStage(new CompressionPolicy(Compression.DEFLATE), MAX_FRAME_SIZE);
+        ByteBuffer encoded = stage.encode(ByteBuffer.wrap(text(8192)), false);
+        assertEquals(DeflateCodec.ID, encoded.get(0));
+        // 把声明的原始长度从 8192 改为 4096（两者的 varint 都是两字节），解出的数据比声明的长
+        ByteBuffer forged = ByteBuffer.allocate(encoded.remaining()).put(encoded.duplicate()).flip();
+        assertEquals((byte) 0x40, forged.get(2));
+        forged.put(2, (byte) 0x20);
+        assertThrows(CorruptedFrameException.class, () -> stage.decode(forged));
+
+        // 校验之后同一个 Inflater 仍可正常解压
+        assertArrayEquals(text(8192), bytes(stage.decode(encoded)));
+    }
+
+    private static void assertRoundTrip(Compression compression, byte[] data, byte expectedId)
+            throws CorruptedFrameException {
+        CompressionStage stage = new CompressionStage(new CompressionPolicy(compression), MAX_FRAME_SIZE);
+        ByteBuffer encoded = stage.encode(ByteBuffer.wrap(data), false);
+        assertEquals(expectedId, encoded.get(0));
+        assertTrue(encoded.remaining() < data.length / 2);
+        assertArrayEquals(data, bytes(stage.decode(encoded)));
+        stage.release();
+    }
+
+    private static byte[] text(int length) {
+        StringBuilder builder = new StringBuilder();
+        Random random = new Random(length);
+        while (builder.length() < length) {
+            builder.append("order-").append(random.nextInt(1000)).append(" dispatched to node ")
+                    .append(random.nextInt(16)).append(";\n");
+        }
+        return builder.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
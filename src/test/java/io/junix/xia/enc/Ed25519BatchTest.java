@@ -0,0 +1,75 @@
+package io.junix.xia.enc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Ed25519 批量验签测试类
+ */
+public class Ed25519BatchTest {
+
+    @Test
+    public void testEmptyBatch() {
+        assertTrue(Ed25519.verifyBatch(List.of()).isEmpty());
+    }
+
+    @Test
+    public void testMixedResults() throws InvalidKeyException, SignatureException {
+        List<Ed25519.BatchItem> items = buildBatch(10);
+        BitSet result = Ed25519.verifyBatch(items);
+
+        for (int i = 0; i < items.size(); i++) {
+            // 每隔三条篡改一次签名
+            assertEquals(i % 3 != 0, result.get(i), "item " + i);
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws InvalidKeyException, SignatureException {
+        List<Ed25519.BatchItem> items = buildBatch(Ed25519.PARALLEL_THRESHOLD * 3 + 5);
+
+        BitSet sequential = Ed25519.verifyBatchSequential(items);
+        assertEquals(sequential, Ed25519.verifyBatchParallel(items));
+        assertEquals(sequential, Ed25519.verifyBatch(items));
+    }
+
+    @Test
+    public void testMalformedItemsFailWithoutThrowing() throws InvalidKeyException, SignatureException {
+        KeyPair keyPair = Ed25519.generateKeyPair();
+        byte[] message = "gossip".getBytes();
+        byte[] signature = Ed25519.sign(message, keyPair.getPrivate());
+
+        List<Ed25519.BatchItem> items = new ArrayList<>();
+        items.add(new Ed25519.BatchItem(message, keyPair.getPublic(), signature));
+        items.add(new Ed25519.BatchItem(null, keyPair.getPublic(), signature));
+        items.add(new Ed25519.BatchItem(message, null, signature));
+        items.add(new Ed25519.BatchItem(message, keyPair.getPublic(), new byte[5]));
+        items.add(null);
+
+        BitSet result = Ed25519.verifyBatch(items);
+        assertTrue(result.get(0));
+        assertEquals(1, result.cardinality());
+    }
+
+    private static List<Ed25519.BatchItem> buildBatch(int size) throws InvalidKeyException, SignatureException {
+        List<Ed25519.BatchItem> items = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            KeyPair keyPair = Ed25519.generateKeyPair();
+            byte[] message = ("gossip " + i).getBytes();
+            byte[] signature = Ed25519.sign(message, keyPair.getPrivate());
+            if (i % 3 == 0) {
+                signature[0] ^= 1;
+            }
+            items.add(new Ed25519.BatchItem(message, keyPair.getPublic(), signature));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,86 @@
+package io.junix.xia.enc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 绑定密钥的签名器/验签器测试类
+ */
+public class Ed25519SignerTest {
+
+    private KeyPair keyPair;
+    private byte[] message;
+
+    @BeforeEach
+    public void setUp() {
+        keyPair = Ed25519.generateKeyPair();
+        message = "Hello, World!".getBytes();
+    }
+
+    @Test
+    public void testSignerMatchesStaticSign() throws InvalidKeyException, SignatureException {
+        Ed25519Signer signer = Ed25519.newSigner(keyPair.getPrivate());
+
+        // Ed25519 为确定性签名，两条路径结果应一致
+        assertArrayEquals(Ed25519.sign(message, keyPair.getPrivate()), signer.sign(message));
+        assertArrayEquals(signer.sign(message), signer.sign(ByteBuffer.wrap(message)));
+    }
+
+    @Test
+    public void testVerifierReusedAcrossCalls() throws InvalidKeyException, SignatureException {
+        Ed25519Signer signer = Ed25519.newSigner(keyPair.getPrivate());
+        Ed25519Verifier verifier = Ed25519.newVerifier(keyPair.getPublic());
+
+        for (int i = 0; i < 10; i++) {
+            byte[] msg = ("message " + i).getBytes();
+            byte[] signature = signer.sign(msg);
+            assertTrue(verifier.verify(msg, signature));
+            assertTrue(verifier.verify(ByteBuffer.wrap(msg), signature));
+            assertFalse(verifier.verify(message, signature));
+        }
+    }
+
+    @Test
+    public void testVerifierRejectsMalformedSignature() throws InvalidKeyException {
+        Ed25519Verifier verifier = Ed25519.newVerifier(keyPair.getPublic());
+
+        assertFalse(verifier.verify(message, new byte[3]));
+        assertFalse(verifier.verify(message, null));
+        assertFalse(verifier.verify((byte[]) null, new byte[64]));
+    }
+
+    @Test
+    public void testNullKeyRejected() {
+        assertThrows(InvalidKeyException.class, () -> Ed25519.newSigner(null));
+        assertThrows(InvalidKeyException.class, () -> Ed25519.newVerifier(null));
+    }
+
+    @Test
+    public void testConcurrentSignAndVerify() throws Exception {
+        Ed25519Signer signer = Ed25519.newSigner(keyPair.getPrivate());
+        Ed25519Verifier verifier = Ed25519.newVerifier(keyPair.getPublic());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            byte[] msg = ("concurrent " + i).getBytes();
+            futures.add(executor.submit(() -> verifier.verify(msg, signer.sign(msg))));
+        }
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,164 @@
+package io.junix.xia.enc;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.client.ClientConfig;
+import io.junix.xia.client.RpcClient;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+import io.junix.xia.rpc.RpcServerHandler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 握手与加密阶段在真实连接上的端到端测试类
+ */
+public class HandshakeHandlerTest {
+
+    private final NodeIdentity serverIdentity = NodeIdentity.generate();
+    private final NodeIdentity clientIdentity = NodeIdentity.generate();
+    private final List<HandshakeHandler> accepted = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private Server server;
+    private RpcClient client;
+
+    @AfterEach
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testRequestsFlowAfterHandshake() throws Exception {
+        InetSocketAddress address = startServer(key -> key.equals(clientIdentity.publicKey()));
+        client = new RpcClient(config().setIdentity(clientIdentity)
+                .setTrustPolicy(key -> key.equals(serverIdentity.publicKey())));
+
+        assertEquals("hello", string(client.request(address, bytes("hello")).get(5, TimeUnit.SECONDS)));
+        assertEquals(1, accepted.size());
+        HandshakeResult result = accepted.get(0).result();
+        assertEquals(clientIdentity.publicKey(), result.peerPublicKey());
+        assertFalse(result.resumed());
+        // 请求与响应都经过会话密钥
+        assertEquals(1, result.cipher().receivedFrames());
+        assertEquals(1, result.cipher().sentFrames());
+    }
+
+    @Test
+    public void testReconnectResumesSession() throws Exception {
+        InetSocketAddress address = startServer(key -> true);
+        client = new RpcClient(config().setIdentity(clientIdentity).setIdleTimeoutMillis(100));
+
+        assertEquals("first", string(client.request(address, bytes("first")).get(5, TimeUnit.SECONDS)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (client.connectionCount(address) > 0) {
+            assertTrue(System.nanoTime() < deadline, "idle connection was not evicted");
+            Thread.sleep(10);
+        }
+        assertEquals("second", string(client.request(address, bytes("second")).get(5, TimeUnit.SECONDS)));
+        assertEquals(2, accepted.size());
+        assertTrue(accepted.get(1).result().resumed());
+    }
+
+    @Test
+    public void testEstablishedConnectionOutlivesHandshakeDeadline() throws Exception {
+        // 截止时间留出首次握手（冷启动）所需的余量
+        InetSocketAddress address = startServer(key -> true, 1000);
+        client = new RpcClient(config().setIdentity(clientIdentity));
+
+        try (SocketChannel silent = SocketChannel.open(address)) {
+            assertEquals("first", string(client.request(address, bytes("first")).get(5, TimeUnit.SECONDS)));
+            // 未握手的连接在截止时间被关闭，完成握手的连接继续可用
+            assertEquals(-1, silent.read(ByteBuffer.allocate(16)));
+            Thread.sleep(400);
+            assertEquals(1, server.workers().connectionCount());
+            assertEquals("second", string(client.request(address, bytes("second")).get(5, TimeUnit.SECONDS)));
+            assertEquals(2, accepted.size());
+        }
+    }
+
+    @Test
+    public void testUntrustedClientNeverReachesHandler() throws Exception {
+        InetSocketAddress address = startServer(key -> false);
+        client = new RpcClient(config().setIdentity(clientIdentity));
+
+        CompletableFuture<byte[]> response = client.request(address, bytes("hello"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertEquals(0, requests.get());
+        assertFalse(accepted.get(0).isComplete());
+    }
+
+    @Test
+    public void testPlainClientRejected() throws Exception {
+        InetSocketAddress address = startServer(key -> true);
+        client = new RpcClient(config());
+
+        CompletableFuture<byte[]> response = client.request(address, bytes("hello"));
+        assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+        assertEquals(0, requests.get());
+    }
+
+    private InetSocketAddress startServer(Predicate<PublicKey> trustPolicy) throws IOException {
+        return startServer(trustPolicy, 0);
+    }
+
+    private InetSocketAddress startServer(Predicate<PublicKey> trustPolicy, long handshakeTimeoutMillis)
+            throws IOException {
+        ServerConfig config = new ServerConfig().setPort(0).setWorkerThreads(1)
+                .setHandshakeTimeoutMillis(handshakeTimeoutMillis)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+        SessionCache sessions = new SessionCache();
+        server = new Server(config, () -> {
+            SessionCipherStage cipher = new SessionCipherStage();
+            HandshakeHandler handshake = new HandshakeHandler(
+                    new HandshakeResponder(serverIdentity, sessions, trustPolicy), cipher,
+                    new RpcServerHandler((connection, request) -> {
+                        requests.incrementAndGet();
+                        byte[] body = new byte[request.remaining()];
+                        request.get(body);
+                        return CompletableFuture.completedFuture(body);
+                    }));
+            accepted.add(handshake);
+            return new FramingHandler(handshake, config.getMaxFrameSize() + SessionCipher.TAG_LENGTH, cipher);
+        });
+        server.start();
+        return new InetSocketAddress("localhost", ((InetSocketAddress) server.localAddress()).getPort());
+    }
+
+    private static ClientConfig config() {
+        return new ClientConfig()
+                .setIoThreads(1)
+                .setMaxConnectionsPerPeer(1)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
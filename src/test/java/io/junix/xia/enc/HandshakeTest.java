@@ -0,0 +1,219 @@
+package io.junix.xia.enc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * X25519 + Ed25519 握手及会话恢复测试类
+ */
+public class HandshakeTest {
+
+    private NodeIdentity client;
+    private NodeIdentity server;
+    private SessionCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        client = NodeIdentity.generate();
+        server = NodeIdentity.generate();
+        cache = new SessionCache();
+    }
+
+    @Test
+    public void testFullHandshake() throws GeneralSecurityException {
+        HandshakeInitiator initiator = new HandshakeInitiator(client, null, key -> true);
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> true);
+        run(initiator, responder);
+
+        HandshakeResult clientResult = initiator.result();
+        HandshakeResult serverResult = responder.result();
+        assertFalse(clientResult.resumed());
+        assertFalse(serverResult.resumed());
+        // 双方都认证了对端的长期公钥
+        assertEquals(server.publicKey(), clientResult.peerPublicKey());
+        assertEquals(client.publicKey(), serverResult.peerPublicKey());
+        assertNotNull(clientResult.ticket());
+        assertEquals(1, cache.size());
+
+        assertCiphersMatch(clientResult.cipher(), serverResult.cipher());
+    }
+
+    @Test
+    public void testResumption() throws GeneralSecurityException {
+        HandshakeInitiator first = new HandshakeInitiator(client, null, key -> true);
+        run(first, new HandshakeResponder(server, cache, key -> true));
+        SessionTicket ticket = first.result().ticket();
+
+        HandshakeInitiator initiator = new HandshakeInitiator(client, ticket, key -> true);
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> true);
+        int messages = run(initiator, responder);
+
+        assertEquals(3, messages);
+        assertTrue(initiator.result().resumed());
+        assertTrue(responder.result().resumed());
+        assertEquals(server.publicKey(), initiator.result().peerPublicKey());
+        assertEquals(client.publicKey(), responder.result().peerPublicKey());
+        assertEquals(1, cache.hits());
+        // 恢复后得到新票据，旧票据作废
+        assertFalse(Arrays.equals(ticket.id(), initiator.result().ticket().id()));
+
+        assertCiphersMatch(initiator.result().cipher(), responder.result().cipher());
+    }
+
+    @Test
+    public void testReusedTicketFallsBackToFullHandshake() throws GeneralSecurityException {
+        HandshakeInitiator first = new HandshakeInitiator(client, null, key -> true);
+        run(first, new HandshakeResponder(server, cache, key -> true));
+        SessionTicket ticket = first.result().ticket();
+        run(new HandshakeInitiator(client, ticket, key -> true), new HandshakeResponder(server, cache, key -> true));
+
+        // 票据只能使用一次，再次使用时服务端要求重新完整握手
+        HandshakeInitiator initiator = new HandshakeInitiator(client, ticket, key -> true);
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> true);
+        int messages = run(initiator, responder);
+
+        assertEquals(5, messages);
+        assertFalse(initiator.result().resumed());
+        assertCiphersMatch(initiator.result().cipher(), responder.result().cipher());
+    }
+
+    @Test
+    public void testCacheStaysBoundedAcrossResumptions() throws GeneralSecurityException {
+        SessionCache small = new SessionCache(SessionCache.DEFAULT_TTL_MILLIS, 2);
+        small.put(new SessionTicket(new byte[]{1}, new byte[32], client.encodedPublicKey(), 0));
+        HandshakeInitiator first = new HandshakeInitiator(client, null, key -> true);
+        run(first, new HandshakeResponder(server, small, key -> true));
+        // 过期的票据在放入新票据时被清除
+        assertEquals(1, small.size());
+
+        SessionTicket ticket = first.result().ticket();
+        for (int i = 0; i < 100; i++) {
+            HandshakeInitiator initiator = new HandshakeInitiator(client, ticket, key -> true);
+            run(initiator, new HandshakeResponder(server, small, key -> true));
+            assertTrue(initiator.result().resumed());
+            ticket = initiator.result().ticket();
+        }
+        assertEquals(1, small.size());
+        for (int i = 0; i < 5; i++) {
+            run(new HandshakeInitiator(client, null, key -> true), new HandshakeResponder(server, small, key -> true));
+        }
+        assertEquals(2, small.size());
+    }
+
+    @Test
+    public void testExpiredTicketNotOffered() throws GeneralSecurityException {
+        SessionTicket expired = new SessionTicket(new byte[16], new byte[32], server.encodedPublicKey(), 0);
+        HandshakeInitiator initiator = new HandshakeInitiator(client, expired, key -> true);
+        int messages = run(initiator, new HandshakeResponder(server, cache, key -> true));
+
+        assertEquals(3, messages);
+        assertFalse(initiator.result().resumed());
+    }
+
+    @Test
+    public void testUntrustedServerRejected() {
+        HandshakeInitiator initiator = new HandshakeInitiator(client, null, key -> false);
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> true);
+
+        assertThrows(HandshakeException.class, () -> run(initiator, responder));
+    }
+
+    @Test
+    public void testUntrustedClientRejected() {
+        HandshakeInitiator initiator = new HandshakeInitiator(client, null, key -> true);
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> !key.equals(client.publicKey()));
+
+        assertThrows(HandshakeException.class, () -> run(initiator, responder));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBlockedClientCannotResume() throws GeneralSecurityException {
+        Set<PublicKey> blocked = ConcurrentHashMap.newKeySet();
+        HandshakeInitiator first = new HandshakeInitiator(client, null, key -> true);
+        run(first, new HandshakeResponder(server, cache, key -> !blocked.contains(key)));
+
+        // 首次握手之后才被拉黑，票据仍在手中也不能恢复，且不再签发新票据
+        blocked.add(client.publicKey());
+        HandshakeInitiator initiator = new HandshakeInitiator(client, first.result().ticket(), key -> true);
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> !blocked.contains(key));
+        assertThrows(HandshakeException.class, () -> run(initiator, responder));
+        assertFalse(responder.isComplete());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBlockedServerCannotResume() throws GeneralSecurityException {
+        Set<PublicKey> blocked = ConcurrentHashMap.newKeySet();
+        HandshakeInitiator first = new HandshakeInitiator(client, null, key -> !blocked.contains(key));
+        run(first, new HandshakeResponder(server, cache, key -> true));
+
+        blocked.add(server.publicKey());
+        HandshakeInitiator initiator = new HandshakeInitiator(client, first.result().ticket(),
+                key -> !blocked.contains(key));
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> true);
+        assertThrows(HandshakeException.class, () -> run(initiator, responder));
+        assertFalse(initiator.isComplete());
+    }
+
+    @Test
+    public void testTamperedServerHelloRejected() throws GeneralSecurityException {
+        HandshakeInitiator initiator = new HandshakeInitiator(client, null, key -> true);
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> true);
+
+        byte[] serverHello = responder.receive(initiator.start());
+        serverHello[5] ^= 1;
+        assertThrows(HandshakeException.class, () -> initiator.receive(serverHello));
+    }
+
+    @Test
+    public void testTruncatedMessageRejected() {
+        HandshakeResponder responder = new HandshakeResponder(server, cache, key -> true);
+        assertThrows(HandshakeException.class, () -> responder.receive(new byte[]{Handshake.CLIENT_HELLO, 1, 2}));
+        assertThrows(HandshakeException.class, () -> responder.receive(new byte[0]));
+    }
+
+    /**
+     * 在内存中交换消息直到双方完成，返回消息总数
+     */
+    private static int run(HandshakeInitiator initiator, HandshakeResponder responder) throws GeneralSecurityException {
+        int messages = 1;
+        byte[] toServer = initiator.start();
+        while (true) {
+            byte[] toClient = responder.receive(toServer);
+            if (toClient == null) {
+                break;
+            }
+            messages++;
+            toServer = initiator.receive(toClient);
+            messages++;
+        }
+        assertTrue(initiator.isComplete());
+        assertTrue(responder.isComplete());
+        return messages;
+    }
+
+    private static void assertCiphersMatch(SessionCipher a, SessionCipher b) throws GeneralSecurityException {
+        byte[] text = "dispatch order".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(text.length + SessionCipher.TAG_LENGTH);
+        frame.put(text).flip();
+        a.encrypt(frame);
+        b.decrypt(frame);
+        assertEquals("dispatch order", StandardCharsets.UTF_8.decode(frame).toString());
+
+        frame.clear().put(text).flip();
+        b.encrypt(frame);
+        a.decrypt(frame);
+        assertEquals("dispatch order", StandardCharsets.UTF_8.decode(frame).toString());
+    }
+}
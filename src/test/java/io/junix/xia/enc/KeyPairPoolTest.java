@@ -0,0 +1,105 @@
+package io.junix.xia.enc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密钥对池测试类
+ */
+public class KeyPairPoolTest {
+
+    private static void awaitSize(KeyPairPool pool, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.size() < size) {
+            assertTrue(System.nanoTime() < deadline, "pool not refilled: " + pool.size());
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testPrefilledPairsServedWithoutMisses() throws InterruptedException {
+        try (KeyPairPool pool = new KeyPairPool("test-keys", 8, Ed25519::generateKeyPair)) {
+            awaitSize(pool, 8);
+            for (int i = 0; i < 8; i++) {
+                assertNotNull(pool.take());
+            }
+            assertEquals(8, pool.hits());
+            assertEquals(0, pool.misses());
+        }
+    }
+
+    @Test
+    public void testRefillsAfterDrainingBelowHalf() throws InterruptedException {
+        AtomicInteger generated = new AtomicInteger();
+        try (KeyPairPool pool = new KeyPairPool("test-keys", 8, () -> {
+            generated.incrementAndGet();
+            return Ed25519.generateKeyPair();
+        })) {
+            awaitSize(pool, 8);
+            // 剩余仍超过一半时不补充
+            pool.take();
+            pool.take();
+            Thread.sleep(50);
+            assertEquals(6, pool.size());
+            assertEquals(8, generated.get());
+            pool.take();
+            pool.take();
+            awaitSize(pool, 8);
+            assertEquals(12, generated.get());
+        }
+    }
+
+    @Test
+    public void testEmptyPoolGeneratesOnCallerAndCountsMiss() throws InterruptedException {
+        KeyPairPool pool = new KeyPairPool("test-keys", 2, Ed25519::generateKeyPair);
+        awaitSize(pool, 2);
+        pool.close();
+        Thread.sleep(20);
+        pool.take();
+        pool.take();
+        assertNotNull(pool.take());
+        assertEquals(2, pool.hits());
+        assertEquals(1, pool.misses());
+    }
+
+    @Test
+    public void testConcurrentTakesAreUnique() throws InterruptedException {
+        try (KeyPairPool pool = new KeyPairPool("test-keys", 16, Ed25519::generateKeyPair)) {
+            List<KeyPair> taken = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        taken.add(pool.take());
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Set<Object> publicKeys = new HashSet<>();
+            for (KeyPair pair : taken) {
+                publicKeys.add(pair.getPublic());
+            }
+            assertEquals(200, publicKeys.size());
+            assertEquals(200, pool.hits() + pool.misses());
+        }
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new KeyPairPool("test-keys", 0, Ed25519::generateKeyPair));
+    }
+}
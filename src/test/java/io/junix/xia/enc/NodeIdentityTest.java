@@ -0,0 +1,54 @@
+package io.junix.xia.enc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 节点身份持久化测试类
+ */
+public class NodeIdentityTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testIdentitySurvivesRestart() throws Exception {
+        Path file = directory.resolve("node.key");
+        NodeIdentity first = NodeIdentity.loadOrGenerate(file);
+        assertTrue(Files.exists(file));
+
+        NodeIdentity second = NodeIdentity.loadOrGenerate(file);
+        assertArrayEquals(first.encodedPublicKey(), second.encodedPublicKey());
+        // 读回的私钥与公钥配对，签名可以用原身份的公钥验证
+        byte[] message = "hello".getBytes(StandardCharsets.UTF_8);
+        assertTrue(Ed25519.verify(message, first.publicKey(), second.signer().sign(message)));
+    }
+
+    @Test
+    public void testMismatchedKeysRejected() throws IOException {
+        Path a = directory.resolve("a.key");
+        Path b = directory.resolve("b.key");
+        NodeIdentity.loadOrGenerate(a);
+        NodeIdentity.loadOrGenerate(b);
+        Path mixed = directory.resolve("mixed.key");
+        Files.write(mixed, List.of(Files.readAllLines(a).get(0), Files.readAllLines(b).get(1)));
+
+        assertThrows(IOException.class, () -> NodeIdentity.load(mixed));
+    }
+
+    @Test
+    public void testMalformedFileRejected() throws IOException {
+        Path file = directory.resolve("node.key");
+        Files.writeString(file, "not a key\n");
+
+        assertThrows(IOException.class, () -> NodeIdentity.loadOrGenerate(file));
+    }
+}
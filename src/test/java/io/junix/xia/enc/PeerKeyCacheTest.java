@@ -0,0 +1,104 @@
+package io.junix.xia.enc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对端公钥缓存测试类
+ */
+public class PeerKeyCacheTest {
+
+    @Test
+    public void testResolveDecodesOnce() throws InvalidKeyException, SignatureException {
+        PeerKeyCache cache = new PeerKeyCache(1024 * 1024);
+        KeyPair keyPair = Ed25519.generateKeyPair();
+        byte[] encoded = keyPair.getPublic().getEncoded();
+
+        PeerKeyCache.Entry first = cache.resolve(encoded);
+        PeerKeyCache.Entry second = cache.resolve(encoded);
+
+        // 第二次直接命中，返回同一个已初始化的验签器
+        assertSame(first, second);
+        assertEquals(keyPair.getPublic(), first.publicKey());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+        assertEquals(0.5, cache.stats().hitRatio());
+
+        byte[] message = "membership update".getBytes();
+        assertTrue(first.verifier().verify(message, Ed25519.sign(message, keyPair.getPrivate())));
+    }
+
+    @Test
+    public void testLookupByFingerprint() throws InvalidKeyException {
+        PeerKeyCache cache = new PeerKeyCache(1024 * 1024);
+        byte[] encoded = Ed25519.generateKeyPair().getPublic().getEncoded();
+
+        assertNull(cache.get(PeerKeyCache.fingerprint(encoded)));
+        PeerKeyCache.Entry entry = cache.resolve(encoded);
+        assertSame(entry, cache.get(PeerKeyCache.fingerprint(encoded)));
+    }
+
+    @Test
+    public void testMalformedKeyRejected() {
+        PeerKeyCache cache = new PeerKeyCache(1024 * 1024);
+        assertThrows(InvalidKeyException.class, () -> cache.resolve(new byte[]{1, 2, 3}));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSizeBoundedByMemoryCap() throws InvalidKeyException {
+        int capacity = 50;
+        PeerKeyCache cache = new PeerKeyCache((long) capacity * PeerKeyCache.ESTIMATED_ENTRY_BYTES);
+        for (int i = 0; i < capacity * 3; i++) {
+            cache.resolve(Ed25519.generateKeyPair().getPublic().getEncoded());
+        }
+        assertEquals(capacity, cache.size());
+        assertTrue(cache.stats().evictions() > 0);
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() throws InvalidKeyException {
+        int capacity = 50;
+        PeerKeyCache cache = new PeerKeyCache((long) capacity * PeerKeyCache.ESTIMATED_ENTRY_BYTES);
+
+        List<byte[]> hot = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            hot.add(Ed25519.generateKeyPair().getPublic().getEncoded());
+        }
+        for (int round = 0; round < 5; round++) {
+            for (byte[] key : hot) {
+                cache.resolve(key);
+            }
+        }
+        // 大量只出现一次的陌生公钥扫过缓存
+        for (int i = 0; i < capacity * 4; i++) {
+            cache.resolve(Ed25519.generateKeyPair().getPublic().getEncoded());
+        }
+        for (byte[] key : hot) {
+            assertNotNull(cache.get(PeerKeyCache.fingerprint(key)));
+        }
+    }
+
+    @Test
+    public void testFrequencySketchSaturatesAndAges() {
+        PeerKeyCache.FrequencySketch sketch = new PeerKeyCache.FrequencySketch(16);
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(42);
+        }
+        assertEquals(15, sketch.frequency(42));
+        assertEquals(0, sketch.frequency(7));
+
+        // 累计增量达到采样阈值后所有计数减半
+        for (int i = 0; i < 200; i++) {
+            sketch.increment(1000 + i);
+        }
+        assertTrue(sketch.frequency(42) < 15);
+    }
+}
@@ -0,0 +1,175 @@
+package io.junix.xia.enc;
+
+import io.junix.xia.codec.CorruptedFrameException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.SecureRandom;
+
+/**
+ * ChaCha20-Poly1305 会话加解密测试类
+ */
+public class SessionCipherTest {
+
+    private SessionCipher alice;
+    private SessionCipher bob;
+
+    @BeforeEach
+    public void setUp() throws InvalidKeyException {
+        SecureRandom random = new SecureRandom();
+        byte[] aliceToBob = new byte[SessionCipher.KEY_LENGTH];
+        byte[] bobToAlice = new byte[SessionCipher.KEY_LENGTH];
+        random.nextBytes(aliceToBob);
+        random.nextBytes(bobToAlice);
+        alice = new SessionCipher(aliceToBob, bobToAlice);
+        bob = new SessionCipher(bobToAlice, aliceToBob);
+    }
+
+    @Test
+    public void testRoundTripInDirectBuffer() throws GeneralSecurityException {
+        ByteBuffer frame = ByteBuffer.allocateDirect(256);
+        frame.position(7);
+        frame.put("order #42".getBytes(StandardCharsets.UTF_8));
+        frame.limit(frame.position()).position(7);
+
+        alice.encrypt(frame);
+        assertEquals(7, frame.position());
+        assertEquals(9 + SessionCipher.TAG_LENGTH, frame.remaining());
+
+        bob.decrypt(frame);
+        assertEquals(7, frame.position());
+        assertEquals("order #42", StandardCharsets.UTF_8.decode(frame).toString());
+    }
+
+    @Test
+    public void testBothDirections() throws GeneralSecurityException {
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ping " + i, roundTrip(alice, bob, "ping " + i));
+            assertEquals("pong " + i, roundTrip(bob, alice, "pong " + i));
+        }
+        assertEquals(5, alice.sentFrames());
+        assertEquals(5, alice.receivedFrames());
+    }
+
+    @Test
+    public void testNonceAdvancesPerFrame() throws GeneralSecurityException {
+        ByteBuffer first = encrypt(alice, "same");
+        ByteBuffer second = encrypt(alice, "same");
+
+        // 相同明文在不同 nonce 下得到不同密文
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void testTamperedFrameRejected() throws GeneralSecurityException {
+        ByteBuffer frame = encrypt(alice, "transfer 100");
+        frame.put(frame.position(), (byte) (frame.get(frame.position()) ^ 1));
+
+        assertThrows(AEADBadTagException.class, () -> bob.decrypt(frame));
+    }
+
+    @Test
+    public void testReplayedFrameRejected() throws GeneralSecurityException {
+        ByteBuffer frame = encrypt(alice, "once");
+        ByteBuffer replay = ByteBuffer.allocate(frame.capacity());
+        replay.put(frame.duplicate()).flip();
+
+        bob.decrypt(frame);
+        // 接收方 nonce 已前进，重放的帧无法通过认证
+        assertThrows(AEADBadTagException.class, () -> bob.decrypt(replay));
+    }
+
+    @Test
+    public void testStagePassesThroughUntilInstalled() throws Exception {
+        SessionCipherStage sender = new SessionCipherStage();
+        SessionCipherStage receiver = new SessionCipherStage();
+        ByteBuffer hello = ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8));
+        assertSame(hello, receiver.decode(sender.encode(hello, false)));
+
+        sender.install(alice);
+        receiver.install(bob);
+        assertThrows(IllegalStateException.class, () -> sender.install(alice));
+        // 只读的调用方缓冲也能加密
+        ByteBuffer order = ByteBuffer.wrap("order #42".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        ByteBuffer wire = sender.encode(order, false);
+        assertEquals(9 + SessionCipher.TAG_LENGTH, wire.remaining());
+        assertEquals("order #42", StandardCharsets.UTF_8.decode(receiver.decode(wire)).toString());
+
+        ByteBuffer tampered = sender.encode(ByteBuffer.wrap(new byte[]{1, 2, 3}), false);
+        tampered.put(0, (byte) (tampered.get(0) ^ 1));
+        assertThrows(CorruptedFrameException.class, () -> receiver.decode(tampered));
+    }
+
+    @Test
+    public void testStageReusesRegionOnceFramesWritten() throws Exception {
+        SessionCipherStage sender = new SessionCipherStage();
+        SessionCipherStage receiver = new SessionCipherStage();
+        sender.install(alice);
+        receiver.install(bob);
+
+        ByteBuffer first = sender.encode(ByteBuffer.wrap("first".getBytes(StandardCharsets.UTF_8)), false);
+        ByteBuffer second = sender.encode(ByteBuffer.wrap("second".getBytes(StandardCharsets.UTF_8)), false);
+        assertTrue(first.isDirect());
+        // 仍在排队的帧不会被后续的帧覆盖
+        assertEquals("first", StandardCharsets.UTF_8.decode(receiver.decode(first.duplicate())).toString());
+        assertEquals("second", StandardCharsets.UTF_8.decode(receiver.decode(second.duplicate())).toString());
+
+        // 模拟连接写出两帧后，下一帧从区域开头写入
+        first.position(first.limit());
+        second.position(second.limit());
+        ByteBuffer third = sender.encode(ByteBuffer.wrap("third".getBytes(StandardCharsets.UTF_8)), false);
+        assertEquals(third.get(0), first.get(0));
+        assertEquals("third", StandardCharsets.UTF_8.decode(receiver.decode(third)).toString());
+    }
+
+    @Test
+    public void testEncryptIntoSeparateBuffer() throws GeneralSecurityException {
+        ByteBuffer plaintext = ByteBuffer.wrap("order #42".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        ByteBuffer out = ByteBuffer.allocateDirect(64);
+        out.position(3);
+
+        alice.encrypt(plaintext, out);
+        assertFalse(plaintext.hasRemaining());
+        assertEquals(3 + 9 + SessionCipher.TAG_LENGTH, out.position());
+
+        out.limit(out.position()).position(3);
+        bob.decrypt(out);
+        assertEquals("order #42", StandardCharsets.UTF_8.decode(out).toString());
+        assertThrows(ShortBufferException.class,
+                () -> alice.encrypt(ByteBuffer.allocate(60), ByteBuffer.allocate(64)));
+    }
+
+    @Test
+    public void testNoRoomForTag() {
+        ByteBuffer frame = ByteBuffer.allocate(8);
+        assertThrows(ShortBufferException.class, () -> alice.encrypt(frame));
+    }
+
+    @Test
+    public void testInvalidKeyLength() {
+        assertThrows(InvalidKeyException.class, () -> new SessionCipher(new byte[16], new byte[32]));
+    }
+
+    private static String roundTrip(SessionCipher from, SessionCipher to, String text) throws GeneralSecurityException {
+        ByteBuffer frame = encrypt(from, text);
+        to.decrypt(frame);
+        return StandardCharsets.UTF_8.decode(frame).toString();
+    }
+
+    private static ByteBuffer encrypt(SessionCipher cipher, String text) throws GeneralSecurityException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(bytes.length + SessionCipher.TAG_LENGTH);
+        frame.put(bytes).flip();
+        cipher.encrypt(frame);
+        return frame;
+    }
+}
@@ -0,0 +1,126 @@
+package io.junix.xia.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 令牌桶与按对端限速测试类，时间由测试显式给出
+ */
+public class TokenBucketTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testBurstThenSteadyRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire(1, 0));
+        }
+        assertFalse(bucket.tryAcquire(1, 0));
+        assertEquals(100 * MS, bucket.nanosUntilAvailable(0));
+
+        assertFalse(bucket.tryAcquire(1, 99 * MS));
+        assertTrue(bucket.tryAcquire(1, 100 * MS));
+        assertFalse(bucket.tryAcquire(1, 100 * MS));
+        // 一秒内补回 10 个令牌，但不超过桶容量
+        int acquired = 0;
+        while (bucket.tryAcquire(1, 2_000 * MS)) {
+            acquired++;
+        }
+        assertEquals(5, acquired);
+    }
+
+    @Test
+    public void testMultiplePermits() {
+        TokenBucket bucket = new TokenBucket(100, 10, 0);
+        assertTrue(bucket.tryAcquire(7, 0));
+        assertFalse(bucket.tryAcquire(4, 0));
+        assertTrue(bucket.tryAcquire(3, 0));
+        assertFalse(bucket.isFull(0));
+        assertTrue(bucket.isFull(100 * MS));
+    }
+
+    @Test
+    public void testRateChangeAppliesToDebt() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+        assertTrue(bucket.tryAcquire(1, 0));
+        assertFalse(bucket.tryAcquire(1, 500 * MS));
+        bucket.setRate(1000, 1);
+        // 预支的令牌按旧速率折算为等待时间，等完后按新速率发放
+        assertTrue(bucket.tryAcquire(1, 1_000 * MS));
+        assertTrue(bucket.tryAcquire(1, 1_001 * MS));
+        assertEquals(1000, bucket.permitsPerSecond(), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> bucket.setRate(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> bucket.setRate(1, 0));
+    }
+
+    @Test
+    public void testConcurrentAcquireNeverExceedsBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 1000, 0);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    if (bucket.tryAcquire(1, 0)) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, acquired.get());
+    }
+
+    @Test
+    public void testPeersLimitedIndependently() {
+        PeerRateLimiter<String> limiter = new PeerRateLimiter<>(1, 2, 100);
+        assertTrue(limiter.tryAcquire("a", 0));
+        assertTrue(limiter.tryAcquire("a", 0));
+        assertFalse(limiter.tryAcquire("a", 0));
+        // 一个对端被限速不影响其他对端
+        assertTrue(limiter.tryAcquire("b", 0));
+        assertEquals(1, limiter.rejectedCount());
+        assertTrue(limiter.tryAcquire("a", 1_000 * MS));
+
+        limiter.setRate(1000, 2);
+        assertFalse(limiter.tryAcquire("a", 1_001 * MS));
+        // 新对端和还清欠额的对端按新速率发放
+        assertTrue(limiter.tryAcquire("c", 1_001 * MS));
+        assertTrue(limiter.tryAcquire("a", 3_000 * MS));
+        assertTrue(limiter.tryAcquire("a", 3_001 * MS));
+    }
+
+    @Test
+    public void testFullTableEvictsIdlePeers() {
+        PeerRateLimiter<Integer> limiter = new PeerRateLimiter<>(1, 1, 4);
+        for (int peer = 0; peer < 4; peer++) {
+            assertTrue(limiter.tryAcquire(peer, 0));
+        }
+        // 表满且都在限速中，新对端被拒绝
+        assertFalse(limiter.tryAcquire(4, 0));
+        assertEquals(4, limiter.size());
+
+        // 桶补满后可以丢弃，为新对端腾出位置
+        assertTrue(limiter.tryAcquire(4, 2_000 * MS));
+        assertEquals(1, limiter.size());
+    }
+}
@@ -0,0 +1,171 @@
+package io.junix.xia.message;
+
+import io.junix.xia.buffer.BufferArena;
+import io.junix.xia.buffer.BufferPool;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+
+/**
+ * 消息编解码测试类
+ */
+public class MessageCodecTest {
+
+    @Test
+    public void testRoundTripThroughPooledDirectBuffer() throws MalformedMessageException {
+        BufferArena arena = new BufferPool(256, 64 * 1024, 1024 * 1024, false).newArena(Thread.currentThread());
+        OrderDispatch order = sample();
+        ByteBuffer encoded = MessageCodec.encode(order, arena);
+        assertTrue(encoded.isDirect());
+        assertEquals(order.serializedSize(), encoded.remaining());
+
+        OrderDispatch decoded = MessageCodec.decode(encoded, new OrderDispatch());
+        assertEquals(9_000_000_001L, decoded.orderId());
+        assertTrue(decoded.merchant().contentEquals("老王面馆"));
+        assertEquals(-2599, decoded.amount());
+        assertEquals(1_760_000_000_000L, decoded.createdAt());
+        assertEquals(-1, decoded.priority());
+        assertEquals("多放辣 🌶", decoded.note().toString());
+
+        Location pickup = decoded.pickup().get();
+        assertEquals(31.2304, pickup.latitude());
+        assertEquals(121.4737, pickup.longitude());
+        assertTrue(pickup.address().contentEquals("南京东路 1 号"));
+        assertFalse(decoded.dropoff().isPresent());
+        arena.release(encoded);
+    }
+
+    @Test
+    public void testWireCompatibleWithProtocolBuffers() {
+        // 与 protoc 生成代码的输出逐字节一致：order_id = 150, merchant = "a", amount = -1, priority = -1
+        OrderDispatch order = new OrderDispatch().setOrderId(150).setMerchant("a").setAmount(-1).setPriority(-1);
+        assertEquals("089601" + "120161" + "1801" + "28ffffffffffffffffff01", hex(order));
+
+        Location location = new Location().setLatitude(1.0);
+        assertEquals("09000000000000f03f", hex(location));
+    }
+
+    @Test
+    public void testNestedFieldDecodedLazily() throws MalformedMessageException {
+        ByteBuffer encoded = encode(sample());
+        OrderDispatch decoded = MessageCodec.decode(encoded, new OrderDispatch());
+        assertTrue(decoded.pickup().isPresent());
+        assertFalse(decoded.pickup().isDecoded());
+
+        // 未读取的嵌套字段转发时原样复制
+        ByteBuffer forwarded = encode(decoded);
+        assertEquals(encode(sample()), forwarded);
+        assertFalse(decoded.pickup().isDecoded());
+
+        decoded.pickup().get();
+        assertTrue(decoded.pickup().isDecoded());
+        assertEquals(encode(sample()), encode(decoded));
+    }
+
+    @Test
+    public void testModifiedNestedFieldReencoded() throws MalformedMessageException {
+        OrderDispatch decoded = MessageCodec.decode(encode(sample()), new OrderDispatch());
+        decoded.pickup().mutable().setAddress("人民广场");
+        decoded.dropoff().mutable().setLatitude(30.0);
+
+        OrderDispatch again = MessageCodec.decode(encode(decoded), new OrderDispatch());
+        assertEquals("人民广场", again.pickup().get().address().toString());
+        assertEquals(31.2304, again.pickup().get().latitude());
+        assertEquals(30.0, again.dropoff().get().latitude());
+    }
+
+    @Test
+    public void testReusedInstanceCleared() throws MalformedMessageException {
+        OrderDispatch reuse = MessageCodec.decode(encode(sample()), new OrderDispatch());
+        MessageCodec.decode(encode(new OrderDispatch().setOrderId(7)), reuse);
+        assertEquals(7, reuse.orderId());
+        assertTrue(reuse.merchant().isEmpty());
+        assertEquals(0, reuse.amount());
+        assertFalse(reuse.pickup().isPresent());
+        assertEquals(0, reuse.pickup().get().latitude());
+    }
+
+    @Test
+    public void testUnknownFieldsSkipped() throws MalformedMessageException {
+        ByteBuffer encoded = ByteBuffer.wrap(HexFormat.of().parseHex(
+                "0807" + "a00601" + "a1060000000000000000" + "a2060378797a" + "a50600000000" + "2803"));
+        OrderDispatch decoded = MessageCodec.decode(encoded, new OrderDispatch());
+        assertEquals(7, decoded.orderId());
+        assertEquals(3, decoded.priority());
+    }
+
+    @Test
+    public void testMalformedInputRejected() {
+        OrderDispatch order = new OrderDispatch();
+        byte[] valid = bytes(encode(sample()));
+        for (int length = 1; length < valid.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(valid, 0, length);
+            // 截断处恰好位于字段边界时是合法的较短消息，其余必须报错，均不得抛出其他异常
+            try {
+                MessageCodec.decode(truncated, order);
+            } catch (MalformedMessageException expected) {
+                // 预期之内
+            }
+        }
+        assertThrows(MalformedMessageException.class,
+                () -> MessageCodec.decode(ByteBuffer.wrap(HexFormat.of().parseHex("12ff01")), order));
+        assertThrows(MalformedMessageException.class,
+                () -> MessageCodec.decode(ByteBuffer.wrap(HexFormat.of().parseHex("0b")), order));
+        assertThrows(MalformedMessageException.class,
+                () -> MessageCodec.decode(ByteBuffer.wrap(HexFormat.of().parseHex("00")), order));
+        assertThrows(MalformedMessageException.class, () -> MessageCodec.decode(
+                ByteBuffer.wrap(HexFormat.of().parseHex("08ffffffffffffffffffff01")), order));
+    }
+
+    @Test
+    public void testUtf8FieldComparesWithoutDecoding() throws MalformedMessageException {
+        OrderDispatch decoded = MessageCodec.decode(encode(sample()), new OrderDispatch());
+        assertTrue(decoded.note().contentEquals("多放辣 🌶"));
+        assertFalse(decoded.note().contentEquals("多放辣"));
+        assertFalse(decoded.note().contentEquals("多放辣 🌶!"));
+        assertFalse(decoded.merchant().contentEquals("老李面馆"));
+
+        Utf8Field field = new Utf8Field().set("é\uD800x");
+        assertEquals(6, field.encodedLength());
+        ByteBuffer out = ByteBuffer.allocate(field.encodedLength());
+        field.writeTo(out);
+        assertFalse(out.hasRemaining());
+    }
+
+    private static OrderDispatch sample() {
+        OrderDispatch order = new OrderDispatch()
+                .setOrderId(9_000_000_001L)
+                .setMerchant("老王面馆")
+                .setAmount(-2599)
+                .setCreatedAt(1_760_000_000_000L)
+                .setPriority(-1)
+                .setNote("多放辣 🌶");
+        try {
+            order.pickup().mutable().setLatitude(31.2304).setLongitude(121.4737).setAddress("南京东路 1 号");
+        } catch (MalformedMessageException e) {
+            throw new AssertionError(e);
+        }
+        return order;
+    }
+
+    private static ByteBuffer encode(Message message) {
+        ByteBuffer out = ByteBuffer.allocate(message.serializedSize());
+        message.writeTo(out);
+        assertFalse(out.hasRemaining());
+        return out.flip();
+    }
+
+    private static String hex(Message message) {
+        return HexFormat.of().formatHex(bytes(encode(message)));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
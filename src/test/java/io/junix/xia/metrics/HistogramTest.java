@@ -0,0 +1,84 @@
+package io.junix.xia.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 对数线性直方图测试类
+ */
+public class HistogramTest {
+
+    @Test
+    public void testBucketsCoverValuesContiguously() {
+        assertEquals(0, Histogram.index(0));
+        assertEquals(127, Histogram.index(127));
+        for (int i = 1; i < Histogram.BUCKET_COUNT; i++) {
+            // 相邻桶首尾相接，没有空隙也没有重叠
+            assertEquals(Histogram.highestValue(i - 1) + 1, Histogram.lowestValue(i), "bucket " + i);
+            assertEquals(i, Histogram.index(Histogram.lowestValue(i)));
+            assertEquals(i, Histogram.index(Histogram.highestValue(i)));
+        }
+        assertEquals(Histogram.MAX_VALUE, Histogram.highestValue(Histogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram("latency", "");
+        Random random = new Random(7);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // 对数正态分布，跨越多个数量级
+            values[i] = (long) Math.exp(10 + 2 * random.nextGaussian());
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.count());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = snapshot.valueAtPercentile(percentile);
+            assertTrue(reported >= exact && reported <= exact + exact / 64 + 1,
+                    "p" + percentile + ": exact " + exact + ", reported " + reported);
+        }
+        assertEquals(Arrays.stream(values).sum(), snapshot.sum());
+        assertTrue(snapshot.max() >= values[values.length - 1]);
+        assertTrue(snapshot.min() <= values[0]);
+    }
+
+    @Test
+    public void testOutOfRangeValuesClamped() {
+        Histogram histogram = new Histogram("latency", "");
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.count());
+        assertEquals(0, snapshot.min());
+        assertEquals(Histogram.MAX_VALUE, snapshot.max());
+        assertEquals(0, new Histogram("empty", "").snapshot().valueAtPercentile(99));
+    }
+
+    @Test
+    public void testConcurrentRecordingLosesNothing() throws InterruptedException {
+        Histogram histogram = new Histogram("latency", "");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i % 1000);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.snapshot().count());
+    }
+}
@@ -0,0 +1,173 @@
+package io.junix.xia.metrics;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.enc.Ed25519;
+import io.junix.xia.enc.NodeIdentity;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SignatureException;
+
+/**
+ * 指标登记、文本输出与内置端点测试类
+ */
+public class MetricsTest {
+
+    private Server server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSnapshotAndText() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter requests = registry.counter("requests_total", "Requests served");
+        assertSame(requests, registry.counter("requests_total", "Requests served"));
+        requests.increment();
+        requests.add(41);
+        Histogram latency = registry.histogram("latency_nanos", "Request latency");
+        latency.record(100);
+        latency.record(300);
+        registry.gauge("connections", "Open connections", () -> 7);
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        assertEquals(42, snapshot.counter("requests_total"));
+        assertEquals(2, snapshot.histogram("latency_nanos").count());
+        assertEquals(7, snapshot.gauges().get("connections").value());
+
+        String text = snapshot.toText();
+        assertTrue(text.contains("# TYPE requests_total counter\nrequests_total 42\n"), text);
+        assertTrue(text.contains("# HELP connections Open connections\n# TYPE connections gauge\nconnections 7\n"), text);
+        assertTrue(text.contains("latency_nanos{quantile=\"0.5\"} 100\n"), text);
+        assertTrue(text.contains("latency_nanos_sum 400\nlatency_nanos_count 2\n"), text);
+    }
+
+    @Test
+    public void testInvalidOrConflictingNames() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("events", "");
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("events", ""));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("events", "", () -> 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("bad name", ""));
+    }
+
+    @Test
+    public void testHotPathsRecorded() throws Exception {
+        assertTrue(Metrics.ENABLED);
+        // 埋点随所在类加载而登记，先各走一遍再取基线
+        NodeIdentity identity = NodeIdentity.generate();
+        assertTrue(Ed25519.verify(bytes("payload"), identity.publicKey(), signed(identity, "payload")));
+        startEndpoint();
+        get("/metrics");
+
+        MetricsSnapshot before = Metrics.registry().snapshot();
+        assertTrue(Ed25519.verify(bytes("payload"), identity.publicKey(), signed(identity, "payload")));
+        String response = get("/metrics");
+
+        MetricsSnapshot after = Metrics.registry().snapshot();
+        assertTrue(after.histogram("xia_sign_nanos").count() > before.histogram("xia_sign_nanos").count());
+        assertTrue(after.histogram("xia_verify_nanos").count() > before.histogram("xia_verify_nanos").count());
+        assertTrue(after.counter("xia_accept_total") > before.counter("xia_accept_total"));
+        assertTrue(after.counter("xia_read_bytes_total") > before.counter("xia_read_bytes_total"));
+        assertTrue(after.histogram("xia_read_nanos").count() > before.histogram("xia_read_nanos").count());
+        assertTrue(response.contains("# TYPE xia_accept_total counter"), response);
+    }
+
+    @Test
+    public void testUninstrumentedEndpointKeepsOutOfTrafficMetrics() throws Exception {
+        ServerConfig config = new ServerConfig().setPort(0).setWorkerThreads(1).setInstrumented(false)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+        server = new Server(config, () -> new MetricsEndpoint(Metrics.registry()));
+        server.start();
+        get("/metrics");
+
+        MetricsSnapshot before = Metrics.registry().snapshot();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(get("/metrics").startsWith("HTTP/1.1 200 OK\r\n"));
+        }
+        MetricsSnapshot after = Metrics.registry().snapshot();
+        assertEquals(before.counter("xia_accept_total"), after.counter("xia_accept_total"));
+        assertEquals(before.counter("xia_read_bytes_total"), after.counter("xia_read_bytes_total"));
+        assertEquals(before.counter("xia_write_bytes_total"), after.counter("xia_write_bytes_total"));
+    }
+
+    @Test
+    public void testEndpointServesPlainText() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("scrapes_total", "").add(3);
+        startEndpoint(registry);
+
+        try (Socket socket = new Socket("localhost", server.localAddress().getPort())) {
+            // 同一连接上连续抓取两次
+            for (int i = 0; i < 2; i++) {
+                String response = exchange(socket, "GET /metrics HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+                assertTrue(response.contains("Content-Type: text/plain; version=0.0.4"), response);
+                assertTrue(response.endsWith("scrapes_total 3\n"), response);
+            }
+            assertTrue(exchange(socket, "GET /other HTTP/1.1\r\n\r\n").startsWith("HTTP/1.1 404 Not Found"));
+            assertTrue(exchange(socket, "POST /metrics HTTP/1.1\r\n\r\n").startsWith("HTTP/1.1 405"));
+        }
+    }
+
+    private void startEndpoint() throws IOException {
+        startEndpoint(Metrics.registry());
+    }
+
+    private void startEndpoint(MetricsRegistry registry) throws IOException {
+        ServerConfig config = new ServerConfig().setPort(0).setWorkerThreads(1)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+        server = new Server(config, () -> new MetricsEndpoint(registry));
+        server.start();
+    }
+
+    private String get(String path) throws IOException {
+        try (Socket socket = new Socket("localhost", server.localAddress().getPort())) {
+            return exchange(socket, "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        }
+    }
+
+    /**
+     * 发送请求并按 Content-Length 读完一个响应
+     */
+    private static String exchange(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        InputStream in = socket.getInputStream();
+        StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            assertTrue(b >= 0, "connection closed");
+            head.append((char) b);
+        }
+        String headers = head.toString();
+        int start = headers.indexOf("Content-Length: ") + "Content-Length: ".length();
+        int length = Integer.parseInt(headers.substring(start, headers.indexOf("\r\n", start)));
+        byte[] body = in.readNBytes(length);
+        return headers + new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] signed(NodeIdentity identity, String text) throws SignatureException {
+        return identity.signer().sign(ByteBuffer.wrap(bytes(text)));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,358 @@
+package io.junix.xia.mux;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.codec.FrameEncoder;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.net.Connection;
+import io.junix.xia.net.EventLoopGroup;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接多路复用、流控和优先级调度测试类
+ */
+public class MuxHandlerTest {
+
+    private static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+    private Server server;
+    private EventLoopGroup clientLoops;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (clientLoops != null) {
+            clientLoops.shutdown();
+            clientLoops.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testStreamsEchoBeyondWindows() throws Exception {
+        startServer(stream -> new StreamHandler() {
+            @Override
+            public void onData(MuxStream s, ByteBuffer data, boolean end) {
+                ByteBuffer copy = ByteBuffer.allocate(data.remaining()).put(data).flip();
+                s.write(copy, end);
+            }
+        });
+        MuxHandler client = connect(stream -> null);
+
+        // 每个流都远超流额度，三个流合计超过连接额度
+        int size = 3 * MuxHandler.STREAM_WINDOW + 12345;
+        List<CompletableFuture<byte[]>> echoes = new ArrayList<>();
+        for (StreamPriority priority : StreamPriority.values()) {
+            CompletableFuture<byte[]> echo = new CompletableFuture<>();
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            MuxStream stream = client.openStream(priority, new StreamHandler() {
+                @Override
+                public void onData(MuxStream s, ByteBuffer data, boolean end) {
+                    byte[] bytes = new byte[data.remaining()];
+                    data.get(bytes);
+                    received.writeBytes(bytes);
+                    if (end) {
+                        echo.complete(received.toByteArray());
+                    }
+                }
+
+                @Override
+                public void onReset(MuxStream s, int errorCode) {
+                    echo.completeExceptionally(new IOException("reset " + errorCode));
+                }
+            });
+            assertEquals(1, stream.id() % 2);
+            stream.write(ByteBuffer.wrap(pattern(size, priority.ordinal())), true);
+            echoes.add(echo);
+        }
+        for (int i = 0; i < echoes.size(); i++) {
+            assertArrayEquals(pattern(size, i), echoes.get(i).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testUrgentStreamCutsAheadOfBulk() throws Exception {
+        int bulkSize = 32 * 1024 * 1024;
+        startServer(stream -> (s, data, end) -> {
+            if (!end) {
+                return;
+            }
+            if (s.priority() == StreamPriority.BULK) {
+                for (int sent = 0; sent < bulkSize; sent += 1024 * 1024) {
+                    s.write(ByteBuffer.allocate(1024 * 1024));
+                }
+                s.end();
+            } else {
+                s.write(ByteBuffer.wrap("pong".getBytes(StandardCharsets.UTF_8)), true);
+            }
+        });
+        MuxHandler client = connect(stream -> null);
+
+        AtomicLong bulkReceived = new AtomicLong();
+        CompletableFuture<Void> bulkDone = new CompletableFuture<>();
+        CompletableFuture<Long> urgentAt = new CompletableFuture<>();
+        MuxStream bulk = client.openStream(StreamPriority.BULK, (s, data, end) -> {
+            bulkReceived.addAndGet(data.remaining());
+            if (end) {
+                bulkDone.complete(null);
+            }
+        });
+        bulk.write(ByteBuffer.wrap(new byte[]{1}), true);
+        // 等大响应开始传输后再发紧急请求
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkReceived.get() == 0) {
+            assertTrue(System.nanoTime() < deadline, "bulk transfer did not start");
+            Thread.sleep(1);
+        }
+        MuxStream urgent = client.openStream(StreamPriority.URGENT, (s, data, end) -> {
+            if (end) {
+                urgentAt.complete(bulkReceived.get());
+            }
+        });
+        urgent.write(ByteBuffer.wrap("ping".getBytes(StandardCharsets.UTF_8)), true);
+
+        long receivedWhenUrgentArrived = urgentAt.get(10, TimeUnit.SECONDS);
+        bulkDone.get(30, TimeUnit.SECONDS);
+        assertEquals(bulkSize, bulkReceived.get());
+        assertTrue(receivedWhenUrgentArrived < bulkSize / 2,
+                "urgent reply waited for " + receivedWhenUrgentArrived + " bulk bytes");
+    }
+
+    @Test
+    public void testStreamWindowLimitsSender() throws Exception {
+        InetSocketAddress address = startServer(stream -> (s, data, end) -> {
+            s.write(ByteBuffer.allocate(4 * MuxHandler.STREAM_WINDOW), true);
+        });
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            writeFrame(channel, MuxFrame.data(1, StreamPriority.NORMAL, false, ByteBuffer.wrap(new byte[]{1}), 1));
+
+            // 不归还额度时对端最多发出一个流窗口
+            assertEquals(MuxHandler.STREAM_WINDOW, readData(channel, 1, MuxHandler.STREAM_WINDOW));
+            channel.configureBlocking(false);
+            Thread.sleep(200);
+            assertEquals(0, channel.read(ByteBuffer.allocate(1)));
+            channel.configureBlocking(true);
+
+            writeFrame(channel, MuxFrame.windowUpdate(1, 1000));
+            assertEquals(1000, readData(channel, 1, 1000));
+        }
+    }
+
+    @Test
+    public void testExceedingWindowClosesConnection() throws Exception {
+        InetSocketAddress address = startServer(stream -> (s, data, end) -> {
+        });
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            // 单个数据帧就超出了新流的额度
+            byte[] oversized = new byte[MuxHandler.STREAM_WINDOW + 1];
+            writeFrame(channel, MuxFrame.data(1, StreamPriority.NORMAL, false, ByteBuffer.wrap(oversized),
+                    oversized.length));
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            int read;
+            do {
+                buffer.clear();
+                read = channel.read(buffer);
+            } while (read > 0);
+            assertEquals(-1, read);
+        } catch (IOException expected) {
+            // 连接被对端重置
+        }
+    }
+
+    @Test
+    public void testRefusedStreamIsReset() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        startServer(stream -> {
+            accepted.incrementAndGet();
+            return null;
+        });
+        MuxHandler client = connect(stream -> null);
+
+        CompletableFuture<Integer> reset = new CompletableFuture<>();
+        MuxStream stream = client.openStream(StreamPriority.NORMAL, new StreamHandler() {
+            @Override
+            public void onData(MuxStream s, ByteBuffer data, boolean end) {
+            }
+
+            @Override
+            public void onReset(MuxStream s, int errorCode) {
+                reset.complete(errorCode);
+            }
+        });
+        stream.write(ByteBuffer.wrap(new byte[]{1}));
+        assertEquals(MuxStream.REFUSED, reset.get(5, TimeUnit.SECONDS));
+        assertEquals(1, accepted.get());
+    }
+
+    @Test
+    public void testEndFrameSentWhileConnectionWindowExhausted() throws Exception {
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress("localhost", 0));
+            clientLoops = new EventLoopGroup(1, "mux-test", new BufferPool(64, 64 * 1024, 1024 * 1024, false));
+            clientLoops.start();
+            MuxHandler client = new MuxHandler(true, stream -> null);
+            clientLoops.next().connect(listener.getLocalAddress(), new FramingHandler(client, MAX_FRAME_SIZE))
+                    .get(5, TimeUnit.SECONDS);
+            try (SocketChannel peer = listener.accept()) {
+                // 四个流各发满流额度，正好用尽连接额度；对端从不归还
+                int streams = MuxHandler.CONNECTION_WINDOW / MuxHandler.STREAM_WINDOW;
+                for (int i = 0; i < streams; i++) {
+                    client.openStream(StreamPriority.NORMAL, (s, data, end) -> {
+                    }).write(ByteBuffer.allocate(MuxHandler.STREAM_WINDOW));
+                }
+                MuxStream urgent = client.openStream(StreamPriority.URGENT, (s, data, end) -> {
+                });
+                MuxStream bulk = client.openStream(StreamPriority.BULK, (s, data, end) -> {
+                });
+                // 各流轮转交错发出，按连接累计
+                int received = 0;
+                while (received < MuxHandler.CONNECTION_WINDOW) {
+                    ByteBuffer frame = readFrame(peer);
+                    if (frame.get() == MuxFrame.TYPE_DATA) {
+                        int flags = frame.get();
+                        readVarint(frame);
+                        if ((flags & MuxFrame.FLAG_OPEN) != 0) {
+                            // 打开帧带优先级字节
+                            frame.get();
+                        }
+                        received += frame.remaining();
+                    }
+                }
+                assertEquals(MuxHandler.CONNECTION_WINDOW, received);
+
+                // 紧急流的数据等待额度，但不能挡住只需发出结束标志的流
+                urgent.write(ByteBuffer.wrap(new byte[]{1}));
+                bulk.end();
+                CompletableFuture<Integer> ended = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        while (true) {
+                            ByteBuffer frame = readFrame(peer);
+                            if (frame.get() != MuxFrame.TYPE_DATA) {
+                                continue;
+                            }
+                            int flags = frame.get();
+                            int id = readVarint(frame);
+                            assertNotEquals(urgent.id(), id, "urgent stream sent without credit");
+                            if ((flags & MuxFrame.FLAG_END) != 0) {
+                                return id;
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                assertEquals(bulk.id(), ended.get(5, TimeUnit.SECONDS));
+                assertEquals(1, urgent.queuedBytes());
+            }
+        }
+    }
+
+    private InetSocketAddress startServer(StreamAcceptor acceptor) throws IOException {
+        ServerConfig config = new ServerConfig().setPort(0).setWorkerThreads(1);
+        server = new Server(config, () -> new FramingHandler(new MuxHandler(false, acceptor), MAX_FRAME_SIZE));
+        server.start();
+        return new InetSocketAddress("localhost", ((InetSocketAddress) server.localAddress()).getPort());
+    }
+
+    private MuxHandler connect(StreamAcceptor acceptor) throws Exception {
+        clientLoops = new EventLoopGroup(1, "mux-test", new BufferPool(64, 64 * 1024, 1024 * 1024, false));
+        clientLoops.start();
+        MuxHandler mux = new MuxHandler(true, acceptor);
+        Connection connection = clientLoops.next()
+                .connect(server.localAddress(), new FramingHandler(mux, MAX_FRAME_SIZE))
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(connection.isOpen());
+        return mux;
+    }
+
+    private static byte[] pattern(int size, int seed) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31 + seed);
+        }
+        return bytes;
+    }
+
+    private static void writeFrame(SocketChannel channel, ByteBuffer payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(FrameEncoder.frameLength(payload.remaining()));
+        FrameEncoder.writeHeader(frame, payload.remaining());
+        frame.put(payload).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    /**
+     * 读取数据帧直到流 {@code streamId} 上累计收到 {@code expected} 字节，返回实际收到的字节数
+     */
+    private static int readData(SocketChannel channel, int streamId, int expected) throws IOException {
+        int received = 0;
+        while (received < expected) {
+            ByteBuffer frame = readFrame(channel);
+            if (frame.get() != MuxFrame.TYPE_DATA) {
+                continue;
+            }
+            frame.get();
+            if (readVarint(frame) == streamId) {
+                received += frame.remaining();
+            }
+        }
+        return received;
+    }
+
+    private static ByteBuffer readFrame(SocketChannel channel) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            readFully(channel, one);
+            byte b = one.get(0);
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        ByteBuffer frame = ByteBuffer.allocate(length);
+        readFully(channel, frame);
+        return frame.flip();
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+    }
+}
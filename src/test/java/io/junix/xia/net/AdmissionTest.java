@@ -0,0 +1,124 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 连接准入测试类：连接数上限与单个来源的建连速率
+ */
+public class AdmissionTest {
+
+    private Server server;
+    private final List<SocketChannel> clients = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testConnectionLimit() throws Exception {
+        start(new ServerConfig().setMaxConnections(2));
+        SocketChannel first = connect();
+        SocketChannel second = connect();
+        waitFor(() -> server.workers().connectionCount() == 2);
+
+        // 超出上限的连接被立即关闭
+        assertRejected(connect());
+        assertEquals(1, server.rejectedCount());
+        assertEchoes(first);
+        assertEchoes(second);
+
+        // 释放名额后可以再建立连接
+        first.close();
+        waitFor(() -> server.workers().connectionCount() == 1);
+        assertEchoes(connect());
+    }
+
+    @Test
+    public void testConnectionStormFromOnePeer() throws Exception {
+        start(new ServerConfig().setPeerConnectRate(1, 3));
+        List<SocketChannel> storm = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            storm.add(connect());
+        }
+        waitFor(() -> server.acceptedCount() == 10);
+
+        assertEquals(7, server.rejectedCount());
+        int served = 0;
+        for (SocketChannel channel : storm) {
+            if (echoes(channel)) {
+                served++;
+            }
+        }
+        assertEquals(3, served);
+        assertEquals(3, server.workers().connectionCount());
+    }
+
+    private void start(ServerConfig config) throws IOException {
+        config.setPort(0)
+                .setWorkerThreads(1)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+        server = new Server(config, () -> (connection, data) -> {
+            ByteBuffer echo = ByteBuffer.allocate(data.remaining());
+            echo.put(data).flip();
+            connection.write(echo);
+        });
+        server.start();
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(server.localAddress());
+        clients.add(channel);
+        return channel;
+    }
+
+    private static void assertEchoes(SocketChannel channel) {
+        assertTrue(echoes(channel));
+    }
+
+    private static void assertRejected(SocketChannel channel) {
+        assertFalse(echoes(channel));
+    }
+
+    /**
+     * 发送一个字节并等待回显，连接被拒绝时读到流结束或连接重置
+     */
+    private static boolean echoes(SocketChannel channel) {
+        try {
+            channel.write(ByteBuffer.wrap(new byte[]{42}));
+            ByteBuffer received = ByteBuffer.allocate(1);
+            if (channel.read(received) != 1) {
+                return false;
+            }
+            return received.get(0) == 42;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.rpc.Envelope;
+import io.junix.xia.rpc.RpcServerHandler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 连接空闲超时、握手超时和保活测试类
+ */
+public class ConnectionTimeoutTest {
+
+    private Server server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testIdleConnectionClosed() throws Exception {
+        start(new ServerConfig().setIdleTimeoutMillis(200), (connection, data) -> data.position(data.limit()));
+
+        try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+            long start = System.nanoTime();
+            // 读到流结束说明服务端关闭了连接
+            assertEquals(-1, channel.read(ByteBuffer.allocate(16)));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsed >= 150 && elapsed < 2_000, "closed after " + elapsed + " ms");
+        }
+        waitFor(() -> server.workers().connectionCount() == 0);
+    }
+
+    @Test
+    public void testReadsKeepConnectionOpen() throws Exception {
+        start(new ServerConfig().setIdleTimeoutMillis(300), (connection, data) -> data.position(data.limit()));
+
+        try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+            for (int i = 0; i < 10; i++) {
+                channel.write(ByteBuffer.wrap(new byte[]{1}));
+                Thread.sleep(100);
+            }
+            assertEquals(1, server.workers().connectionCount());
+        }
+    }
+
+    @Test
+    public void testHandshakeDeadline() throws Exception {
+        AtomicInteger inactive = new AtomicInteger();
+        start(new ServerConfig().setHandshakeTimeoutMillis(200), new ChannelHandler() {
+            @Override
+            public void channelRead(Connection connection, ByteBuffer data) {
+                // 收到握手字节 0x01 即完成握手
+                if (data.get() == 1) {
+                    connection.markEstablished();
+                }
+                data.position(data.limit());
+            }
+
+            @Override
+            public void channelInactive(Connection connection) {
+                inactive.incrementAndGet();
+            }
+        });
+
+        try (SocketChannel silent = SocketChannel.open(server.localAddress());
+             SocketChannel greeted = SocketChannel.open(server.localAddress())) {
+            greeted.write(ByteBuffer.wrap(new byte[]{1}));
+            assertEquals(-1, silent.read(ByteBuffer.allocate(16)));
+            Thread.sleep(300);
+            assertEquals(1, inactive.get());
+            assertEquals(1, server.workers().connectionCount());
+        }
+    }
+
+    @Test
+    public void testFirstRequestEstablishesConnection() throws Exception {
+        ServerConfig config = new ServerConfig().setHandshakeTimeoutMillis(200);
+        start(config, new FramingHandler(new RpcServerHandler((connection, request) ->
+                CompletableFuture.completedFuture(new byte[]{42})), config.getMaxFrameSize()));
+
+        try (SocketChannel silent = SocketChannel.open(server.localAddress());
+             SocketChannel active = SocketChannel.open(server.localAddress())) {
+            assertEquals(42, request(active, 1));
+            assertEquals(-1, silent.read(ByteBuffer.allocate(16)));
+            Thread.sleep(300);
+            assertEquals(1, server.workers().connectionCount());
+            assertEquals(42, request(active, 2));
+        }
+    }
+
+    @Test
+    public void testKeepaliveFramesSentWhenIdle() throws Exception {
+        AtomicInteger delivered = new AtomicInteger();
+        ServerConfig config = new ServerConfig().setKeepaliveIntervalMillis(50).setIdleTimeoutMillis(300);
+        start(config, new FramingHandler((connection, frame) -> delivered.incrementAndGet(), config.getMaxFrameSize()));
+
+        try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+            ByteBuffer received = ByteBuffer.allocate(3);
+            while (received.hasRemaining()) {
+                assertTrue(channel.read(received) >= 0);
+            }
+            // 心跳是长度为 0 的帧
+            assertArrayEquals(new byte[3], received.array());
+
+            // 客户端也只发送心跳，服务端据此保持连接，且不交给下游
+            for (int i = 0; i < 8; i++) {
+                channel.write(ByteBuffer.wrap(new byte[]{0}));
+                Thread.sleep(100);
+            }
+            assertEquals(1, server.workers().connectionCount());
+            assertEquals(0, delivered.get());
+        }
+    }
+
+    @Test
+    public void testScheduleFromForeignThread() throws Exception {
+        start(new ServerConfig(), (connection, data) -> data.position(data.limit()));
+        EventLoop loop = server.workers().next();
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedOn = new AtomicLong();
+        long start = System.nanoTime();
+        loop.schedule(() -> {
+            firedOn.set(Thread.currentThread().getId());
+            fired.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+        AtomicInteger cancelledRuns = new AtomicInteger();
+        Timeout cancelled = loop.schedule(cancelledRuns::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(loop.threadId(), firedOn.get());
+        waitFor(() -> loop.pendingTimers() == 0);
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    private void start(ServerConfig config, ChannelHandler handler) throws IOException {
+        config.setPort(0)
+                .setWorkerThreads(1)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+        server = new Server(config, () -> handler);
+        server.start();
+    }
+
+    /**
+     * 发出一个空请求体的请求，返回响应体的唯一字节；关联 ID 与响应体都只占一个字节
+     */
+    private static int request(SocketChannel channel, int correlationId) throws IOException {
+        channel.write(ByteBuffer.wrap(new byte[]{1, (byte) correlationId}));
+        ByteBuffer response = ByteBuffer.allocate(4);
+        while (response.hasRemaining()) {
+            assertTrue(channel.read(response) >= 0);
+        }
+        // 长度 3：关联 ID、状态、响应体
+        assertEquals(3, response.get(0));
+        assertEquals(correlationId, response.get(1));
+        assertEquals(Envelope.STATUS_OK, response.get(2));
+        return response.get(3);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
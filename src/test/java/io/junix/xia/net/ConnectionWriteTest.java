@@ -0,0 +1,147 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 连接发送队列、聚集写和水位反压测试类
+ */
+public class ConnectionWriteTest {
+
+    private Server server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testQueuedWritesDeliveredInOrder() throws Exception {
+        int frames = 500;
+        start(new ServerConfig(), (connection, data) -> {
+            while (data.hasRemaining()) {
+                data.get();
+                // 一次读取内写入的大量小缓冲在本轮结束时合并写出
+                for (int i = 0; i < frames; i++) {
+                    connection.write(ByteBuffer.allocate(4).putInt(0, i));
+                }
+            }
+        });
+
+        try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+            channel.write(ByteBuffer.wrap(new byte[]{1}));
+            ByteBuffer received = ByteBuffer.allocate(frames * 4);
+            while (received.hasRemaining()) {
+                assertTrue(channel.read(received) >= 0);
+            }
+            received.flip();
+            for (int i = 0; i < frames; i++) {
+                assertEquals(i, received.getInt());
+            }
+        }
+    }
+
+    @Test
+    public void testWriteFromForeignThread() throws Exception {
+        start(new ServerConfig(), (connection, data) -> {
+            byte[] echo = new byte[data.remaining()];
+            data.get(echo);
+            new Thread(() -> connection.write(ByteBuffer.wrap(echo))).start();
+        });
+
+        try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+            channel.write(ByteBuffer.wrap(new byte[]{7, 8, 9}));
+            ByteBuffer received = ByteBuffer.allocate(3);
+            while (received.hasRemaining()) {
+                assertTrue(channel.read(received) >= 0);
+            }
+            assertArrayEquals(new byte[]{7, 8, 9}, received.array());
+        }
+    }
+
+    @Test
+    public void testSlowPeerPausesReads() throws Exception {
+        // 远大于回环接口上内核收发缓冲之和，保证发送队列必然积压
+        int responseSize = 16 * 1024 * 1024;
+        AtomicLong requests = new AtomicLong();
+        List<Boolean> writability = new CopyOnWriteArrayList<>();
+        Connection[] serverSide = new Connection[1];
+        start(new ServerConfig().setWriteBufferWaterMark(16 * 1024, 64 * 1024), new ChannelHandler() {
+            @Override
+            public void channelActive(Connection connection) {
+                serverSide[0] = connection;
+            }
+
+            @Override
+            public void channelRead(Connection connection, ByteBuffer data) {
+                requests.addAndGet(data.remaining());
+                data.position(data.limit());
+                for (int i = 0; i < responseSize / 4096; i++) {
+                    connection.write(ByteBuffer.allocate(4096));
+                }
+            }
+
+            @Override
+            public void channelWritabilityChanged(Connection connection) {
+                writability.add(connection.isWritable());
+                connection.setAutoRead(connection.isWritable());
+            }
+        });
+
+        try (SocketChannel channel = SocketChannel.open()) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 8 * 1024);
+            channel.connect(server.localAddress());
+            channel.write(ByteBuffer.wrap(new byte[]{1}));
+            waitFor(() -> writability.contains(false));
+            assertFalse(serverSide[0].isWritable());
+
+            // 不可写期间服务端不再读取新请求
+            channel.write(ByteBuffer.wrap(new byte[]{2}));
+            Thread.sleep(200);
+            assertEquals(1, requests.get());
+
+            // 客户端读走积压的数据后恢复可写并处理第二个请求
+            ByteBuffer sink = ByteBuffer.allocate(64 * 1024);
+            long received = 0;
+            while (received < 2L * responseSize) {
+                int n = channel.read(sink.clear());
+                assertTrue(n >= 0);
+                received += n;
+            }
+            assertEquals(2, requests.get());
+            assertEquals(List.of(false, true, false, true), writability);
+        }
+    }
+
+    private void start(ServerConfig config, ChannelHandler handler) throws IOException {
+        config.setPort(0)
+                .setWorkerThreads(1)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+        server = new Server(config, () -> handler);
+        server.start();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 主从 Reactor 服务器测试类
+ */
+public class ServerTest {
+
+    private static final int WORKERS = 4;
+
+    private final AtomicLong received = new AtomicLong();
+    private final Set<String> workerThreads = ConcurrentHashMap.newKeySet();
+    private volatile CountDownLatch active;
+    private volatile CountDownLatch inactive;
+    private BufferPool bufferPool;
+    private Server server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        bufferPool = new BufferPool(256, 64 * 1024, 1024 * 1024, true);
+        ServerConfig config = new ServerConfig()
+                .setPort(0)
+                .setWorkerThreads(WORKERS)
+                .setReadBufferSize(1024)
+                .setBufferPool(bufferPool);
+        server = new Server(config, () -> new ChannelHandler() {
+            @Override
+            public void channelActive(Connection connection) {
+                workerThreads.add(Thread.currentThread().getName());
+                active.countDown();
+            }
+
+            @Override
+            public void channelRead(Connection connection, ByteBuffer data) {
+                received.addAndGet(data.remaining());
+            }
+
+            @Override
+            public void channelInactive(Connection connection) {
+                inactive.countDown();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testConnectionsSpreadAcrossWorkers() throws Exception {
+        int clients = WORKERS * 2;
+        active = new CountDownLatch(clients);
+        inactive = new CountDownLatch(clients);
+
+        List<SocketChannel> channels = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            channels.add(SocketChannel.open(server.localAddress()));
+        }
+        assertTrue(active.await(5, TimeUnit.SECONDS));
+
+        // 轮询分配，每个工作线程都应分到连接
+        assertEquals(WORKERS, workerThreads.size());
+        for (EventLoop loop : server.workers().loops()) {
+            assertEquals(2, loop.connectionCount());
+        }
+
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        assertTrue(inactive.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReadDispatchedToHandler() throws Exception {
+        active = new CountDownLatch(1);
+        inactive = new CountDownLatch(1);
+
+        try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+            channel.write(ByteBuffer.wrap(new byte[4096]));
+        }
+        assertTrue(inactive.await(5, TimeUnit.SECONDS));
+        assertEquals(4096, received.get());
+
+        // 读缓冲全部归还，且稳态下由缓存命中
+        assertEquals(0, bufferPool.leakDetector().outstandingCount());
+        assertTrue(bufferPool.metrics().hits() > 0);
+        assertEquals(1, bufferPool.metrics().misses());
+    }
+
+    @Test
+    public void testCloseClosesOpenConnections() throws Exception {
+        active = new CountDownLatch(1);
+        inactive = new CountDownLatch(1);
+
+        try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+            assertTrue(active.await(5, TimeUnit.SECONDS));
+            server.close();
+            assertTrue(inactive.await(5, TimeUnit.SECONDS));
+            // 服务端已关闭连接，客户端读到流结束
+            assertEquals(-1, channel.read(ByteBuffer.allocate(16)));
+        }
+    }
+}
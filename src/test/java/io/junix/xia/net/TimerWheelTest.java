@@ -0,0 +1,140 @@
+package io.junix.xia.net;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮测试类，时间由测试显式推进
+ */
+public class TimerWheelTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testFiresWithinOneTick() {
+        TimerWheel wheel = new TimerWheel(null, 10, TimeUnit.MILLISECONDS, 16, 0);
+        List<Long> fired = new ArrayList<>();
+        long[] now = {0};
+        wheel.schedule(() -> fired.add(now[0]), 35 * MS);
+
+        for (now[0] = 0; now[0] <= 100 * MS; now[0] += MS) {
+            wheel.advance(now[0]);
+        }
+        assertEquals(1, fired.size());
+        // 不会提前执行，最多晚一个刻度
+        assertTrue(fired.get(0) >= 35 * MS && fired.get(0) <= 45 * MS, "fired at " + fired.get(0));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testDeadlinesBeyondOneRevolution() {
+        TimerWheel wheel = new TimerWheel(null, 10, TimeUnit.MILLISECONDS, 8, 0);
+        List<Integer> order = new ArrayList<>();
+        // 一圈 80 毫秒，三个任务落在同一个槽位的不同轮次
+        wheel.schedule(() -> order.add(3), 250 * MS);
+        wheel.schedule(() -> order.add(1), 10 * MS);
+        wheel.schedule(() -> order.add(2), 90 * MS);
+
+        wheel.advance(85 * MS);
+        assertEquals(List.of(1), order);
+        wheel.advance(245 * MS);
+        assertEquals(List.of(1, 2), order);
+        wheel.advance(250 * MS);
+        assertEquals(List.of(1, 2, 3), order);
+    }
+
+    @Test
+    public void testCancelRemovesImmediately() {
+        TimerWheel wheel = new TimerWheel(null, 10, TimeUnit.MILLISECONDS, 16, 0);
+        AtomicInteger fired = new AtomicInteger();
+        Timeout first = wheel.schedule(fired::incrementAndGet, 50 * MS);
+        Timeout second = wheel.schedule(fired::incrementAndGet, 50 * MS);
+        assertEquals(2, wheel.size());
+
+        assertTrue(first.cancel());
+        assertFalse(first.cancel());
+        assertEquals(1, wheel.size());
+        wheel.advance(100 * MS);
+        assertEquals(1, fired.get());
+        assertTrue(first.isCancelled());
+        assertTrue(second.isExpired());
+        assertFalse(second.cancel());
+    }
+
+    @Test
+    public void testCancelFromForeignThreadIsLazy() throws InterruptedException {
+        TimerWheel wheel = new TimerWheel(Thread.currentThread(), 10, TimeUnit.MILLISECONDS, 16, 0);
+        AtomicInteger fired = new AtomicInteger();
+        Timeout timeout = wheel.schedule(fired::incrementAndGet, 50 * MS);
+
+        Thread canceller = new Thread(timeout::cancel);
+        canceller.start();
+        canceller.join();
+        // 其他线程只做标记，扫描到该槽位时摘除
+        assertEquals(1, wheel.size());
+        wheel.advance(100 * MS);
+        assertEquals(0, fired.get());
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testTasksMayRescheduleAndCancelOthers() {
+        TimerWheel wheel = new TimerWheel(null, 10, TimeUnit.MILLISECONDS, 4, 0);
+        AtomicInteger fired = new AtomicInteger();
+        Timeout[] victim = new Timeout[1];
+        wheel.schedule(() -> {
+            fired.incrementAndGet();
+            // 同一刻度到期的任务被取消，另挂一个一圈之后的任务
+            victim[0].cancel();
+            wheel.schedule(fired::incrementAndGet, 20 * MS + 40 * MS);
+        }, 20 * MS);
+        victim[0] = wheel.schedule(() -> fail("cancelled task ran"), 20 * MS);
+
+        wheel.advance(20 * MS);
+        assertEquals(1, fired.get());
+        assertEquals(1, wheel.size());
+        wheel.advance(59 * MS);
+        assertEquals(1, fired.get());
+        wheel.advance(60 * MS);
+        assertEquals(2, fired.get());
+    }
+
+    @Test
+    public void testOverdueTaskRunsOnNextTick() {
+        TimerWheel wheel = new TimerWheel(null, 10, TimeUnit.MILLISECONDS, 16, 0);
+        wheel.advance(500 * MS);
+        AtomicInteger fired = new AtomicInteger();
+        wheel.schedule(fired::incrementAndGet, 100 * MS);
+        assertTrue(wheel.nanosUntilNextTick(505 * MS) <= 5 * MS);
+        wheel.advance(505 * MS);
+        assertEquals(0, fired.get());
+        wheel.advance(510 * MS);
+        assertEquals(1, fired.get());
+    }
+
+    @Test
+    public void testManyTimersScheduledAndCancelled() {
+        TimerWheel wheel = new TimerWheel(null, 10, TimeUnit.MILLISECONDS, 512, 0);
+        AtomicInteger fired = new AtomicInteger();
+        List<Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            timeouts.add(wheel.schedule(fired::incrementAndGet, (i % 30_000) * MS + MS));
+        }
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            timeouts.get(i).cancel();
+        }
+        assertEquals(50_000, wheel.size());
+        assertTrue(wheel.nanosUntilNextTick(0) <= 10 * MS);
+
+        wheel.advance(30_000 * MS);
+        assertEquals(50_000, fired.get());
+        assertTrue(wheel.isEmpty());
+        assertEquals(-1, wheel.nanosUntilNextTick(30_000 * MS));
+    }
+}
@@ -0,0 +1,174 @@
+package io.junix.xia.net;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.client.ClientConfig;
+import io.junix.xia.client.RpcClient;
+import io.junix.xia.codec.FrameEncoder;
+import io.junix.xia.rpc.Envelope;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 虚拟线程服务器模式测试类
+ */
+public class VirtualThreadServerTest {
+
+    private static final String SUPPORTED = "io.junix.xia.net.VirtualThreadServer#isSupported";
+
+    private VirtualThreadServer server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testModeParsedFromConfigValue() {
+        assertEquals(ServerMode.VIRTUAL_THREAD, ServerMode.parse("virtual-thread"));
+        assertEquals(ServerMode.REACTOR, ServerMode.parse(" Reactor "));
+        assertThrows(IllegalArgumentException.class, () -> ServerMode.parse("threads"));
+    }
+
+    @Test
+    @EnabledIf(SUPPORTED)
+    public void testPipelinedRequestsFromRpcClient() throws Exception {
+        InetSocketAddress address = start(VirtualThreadServerTest::echo, 64);
+        ClientConfig config = new ClientConfig()
+                .setIoThreads(1)
+                .setMaxConnectionsPerPeer(2)
+                .setMaxPendingPerConnection(16)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+        try (RpcClient client = new RpcClient(config)) {
+            List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                // 部分请求超过读缓冲大小，需要扩容
+                String body = "rider-" + i + "x".repeat(i % 3 == 0 ? 500 : 0);
+                responses.add(client.request(address, body.getBytes(StandardCharsets.UTF_8)));
+            }
+            for (int i = 0; i < responses.size(); i++) {
+                String body = new String(responses.get(i).get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8);
+                assertTrue(body.startsWith("rider-" + i));
+            }
+        }
+    }
+
+    @Test
+    @EnabledIf(SUPPORTED)
+    public void testOversizedFrameClosesConnection() throws Exception {
+        InetSocketAddress address = start(VirtualThreadServerTest::echo, 64);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            FrameEncoder.writeHeader(header, 2048);
+            channel.write(header.flip());
+            assertEquals(-1, channel.read(ByteBuffer.allocate(16)));
+        }
+    }
+
+    @Test
+    @EnabledIf(SUPPORTED)
+    public void testCloseClosesIdleConnections() throws Exception {
+        InetSocketAddress address = start(VirtualThreadServerTest::echo, 64);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (server.connectionCount() == 0) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+            server.close();
+            assertEquals(0, server.connectionCount());
+            assertEquals(-1, channel.read(ByteBuffer.allocate(16)));
+        }
+    }
+
+    @Test
+    @EnabledIf(SUPPORTED)
+    public void testConnectionLimitRejectsExtraConnections() throws Exception {
+        InetSocketAddress address = start(VirtualThreadServerTest::echo, new ServerConfig().setMaxConnections(2));
+        try (SocketChannel first = SocketChannel.open(address);
+             SocketChannel second = SocketChannel.open(address)) {
+            waitFor(() -> server.connectionCount() == 2);
+            try (SocketChannel third = SocketChannel.open(address)) {
+                assertEquals(-1, third.read(ByteBuffer.allocate(16)));
+            } catch (IOException expected) {
+                // 超出上限的连接以 RST 关闭
+            }
+            waitFor(() -> server.rejectedCount() == 1);
+            assertEquals(2, server.connectionCount());
+            assertTrue(first.isConnected() && second.isConnected());
+        }
+    }
+
+    @Test
+    @EnabledIf(SUPPORTED)
+    public void testSilentConnectionTimesOut() throws Exception {
+        InetSocketAddress address = start(VirtualThreadServerTest::echo,
+                new ServerConfig().setHandshakeTimeoutMillis(200).setIdleTimeoutMillis(300));
+        try (SocketChannel silent = SocketChannel.open(address);
+             SocketChannel active = SocketChannel.open(address)) {
+            // 第一个请求使连接建立，之后只受空闲超时限制
+            ByteBuffer response = ByteBuffer.allocate(16);
+            for (int i = 0; i < 5; i++) {
+                active.write(Envelope.encodeRequest(i, new byte[]{1}));
+                response.clear().limit(4);
+                while (response.hasRemaining()) {
+                    assertTrue(active.read(response) >= 0);
+                }
+                Thread.sleep(100);
+            }
+            long start = System.nanoTime();
+            assertEquals(-1, silent.read(ByteBuffer.allocate(16)));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+            assertEquals(-1, active.read(ByteBuffer.allocate(16)));
+        }
+        waitFor(() -> server.connectionCount() == 0);
+    }
+
+    private InetSocketAddress start(BlockingHandler handler, int readBufferSize) throws IOException {
+        return start(handler, new ServerConfig().setReadBufferSize(readBufferSize));
+    }
+
+    private InetSocketAddress start(BlockingHandler handler, ServerConfig config) throws IOException {
+        config.setPort(0)
+                .setMode(ServerMode.VIRTUAL_THREAD)
+                .setMaxFrameSize(1024);
+        server = new VirtualThreadServer(config, handler);
+        server.start();
+        return new InetSocketAddress("localhost", server.localAddress().getPort());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void echo(BlockingConnection connection) throws IOException {
+        ByteBuffer frame;
+        while ((frame = connection.readFrame()) != null) {
+            int correlationId = Envelope.readCorrelationId(frame);
+            connection.markEstablished();
+            byte[] body = new byte[frame.remaining()];
+            frame.get(body);
+            connection.write(Envelope.encodeResponse(correlationId, Envelope.STATUS_OK, body));
+        }
+    }
+}
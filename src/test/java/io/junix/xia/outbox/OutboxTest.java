@@ -0,0 +1,173 @@
+package io.junix.xia.outbox;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.client.ClientConfig;
+import io.junix.xia.client.RpcClient;
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+import io.junix.xia.rpc.RpcServerHandler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * 存储转发发件箱测试类
+ */
+public class OutboxTest {
+
+    @TempDir
+    Path directory;
+
+    private final Queue<String> received = new ConcurrentLinkedQueue<>();
+    private Server server;
+    private RpcClient client;
+
+    @AfterEach
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testDeliversAndCompactsSegments() throws Exception {
+        InetSocketAddress address = startServer(0);
+        client = new RpcClient(config());
+        try (Outbox outbox = new Outbox(directory, client, 512)) {
+            sendAll(outbox, address, "order-", 200);
+            waitFor(() -> received.size() >= 200 && outbox.pending() == 0, 10);
+            assertEquals(expected("order-", 200), new HashSet<>(received));
+            assertEquals(200, received.size());
+
+            // 检查点之后送达的分段被删除，只留当前写入的一个
+            waitFor(() -> segmentCount() == 1, 5);
+        }
+        assertTrue(Files.exists(directory.resolve("cursors")));
+    }
+
+    @Test
+    public void testReplaysWhenPeerComesOnline() throws Exception {
+        int port = freePort();
+        InetSocketAddress address = new InetSocketAddress("localhost", port);
+        client = new RpcClient(config().setConnectTimeoutMillis(500));
+        try (Outbox outbox = new Outbox(directory, client)) {
+            sendAll(outbox, address, "offline-", 50);
+            waitFor(() -> outbox.pending(address) == 50, 5);
+            Thread.sleep(300);
+            assertEquals(50, outbox.pending(address));
+            assertTrue(received.isEmpty());
+
+            startServer(port);
+            waitFor(() -> outbox.pending(address) == 0, 15);
+            assertEquals(expected("offline-", 50), new HashSet<>(received));
+        }
+    }
+
+    @Test
+    public void testReplaysAfterReopen() throws Exception {
+        int port = freePort();
+        InetSocketAddress address = new InetSocketAddress("localhost", port);
+        client = new RpcClient(config().setConnectTimeoutMillis(500));
+        try (Outbox outbox = new Outbox(directory, client)) {
+            sendAll(outbox, address, "stored-", 20);
+        }
+
+        startServer(port);
+        try (Outbox outbox = new Outbox(directory, client)) {
+            waitFor(() -> received.size() >= 20, 15);
+            waitFor(() -> outbox.pending() == 0, 5);
+            assertEquals(expected("stored-", 20), new HashSet<>(received));
+
+            // 送达的消息在检查点之后不会在下次打开时重放
+            sendAll(outbox, address, "fresh-", 5);
+            waitFor(() -> received.size() >= 25 && outbox.pending() == 0, 5);
+        }
+        received.clear();
+        try (Outbox outbox = new Outbox(directory, client)) {
+            Thread.sleep(300);
+            assertEquals(0, outbox.pending());
+            assertTrue(received.isEmpty(), "delivered messages replayed: " + received);
+        }
+    }
+
+    private static void sendAll(Outbox outbox, InetSocketAddress address, String prefix, int count)
+            throws Exception {
+        List<CompletableFuture<Long>> stored = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            stored.add(outbox.send(address, (prefix + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        CompletableFuture.allOf(stored.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+    }
+
+    private static Set<String> expected(String prefix, int count) {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            expected.add(prefix + i);
+        }
+        return expected;
+    }
+
+    private InetSocketAddress startServer(int port) throws IOException {
+        ServerConfig config = new ServerConfig().setPort(port).setWorkerThreads(2);
+        server = new Server(config, () -> new FramingHandler(new RpcServerHandler((connection, request) -> {
+            byte[] body = new byte[request.remaining()];
+            request.get(body);
+            received.add(new String(body, StandardCharsets.UTF_8));
+            return CompletableFuture.completedFuture(new byte[0]);
+        }), config.getMaxFrameSize()));
+        server.start();
+        return new InetSocketAddress("localhost", ((InetSocketAddress) server.localAddress()).getPort());
+    }
+
+    private int segmentCount() {
+        try (Stream<Path> files = Files.list(directory.resolve("log"))) {
+            return (int) files.count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static ClientConfig config() {
+        return new ClientConfig()
+                .setIoThreads(2)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+    }
+
+    private static void waitFor(BooleanSupplier condition, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.junix.xia.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 分段日志测试类
+ */
+public class SegmentedLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testAppendAndReadAcrossSegments() throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        try (SegmentedLog log = new SegmentedLog(directory, 256)) {
+            for (int i = 0; i < 100; i++) {
+                offsets.add(log.append(bytes("record-" + i)).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(0, log.startOffset());
+            assertTrue(segmentCount() > 1, "log should have rolled");
+
+            long offset = log.startOffset();
+            for (int i = 0; i < 100; i++) {
+                SegmentedLog.LogRecord record = log.read(offset);
+                assertEquals(offsets.get(i), record.offset());
+                assertEquals("record-" + i, string(record.payload()));
+                offset = record.nextOffset();
+            }
+            assertEquals(log.endOffset(), offset);
+            assertNull(log.read(offset));
+        }
+    }
+
+    @Test
+    public void testReopenTruncatesTornTail() throws Exception {
+        long end;
+        try (SegmentedLog log = new SegmentedLog(directory, 1024 * 1024)) {
+            for (int i = 0; i < 3; i++) {
+                log.append(bytes("record-" + i)).get(5, TimeUnit.SECONDS);
+            }
+            end = log.endOffset();
+        }
+        // 模拟崩溃时写了一半的记录：长度字段声称的负载比文件中剩下的多
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        try (SegmentedLog log = new SegmentedLog(directory, 1024 * 1024)) {
+            assertEquals(end, log.endOffset());
+            assertEquals(end, Files.size(segment));
+            assertEquals(end, log.append(bytes("after-crash")).get(5, TimeUnit.SECONDS));
+            assertEquals("after-crash", string(log.read(end).payload()));
+            assertEquals("record-0", string(log.read(0).payload()));
+        }
+    }
+
+    @Test
+    public void testDeleteSegmentsBefore() throws Exception {
+        try (SegmentedLog log = new SegmentedLog(directory, 128)) {
+            List<Long> offsets = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                offsets.add(log.append(bytes("record-" + i)).get(5, TimeUnit.SECONDS));
+            }
+            int before = segmentCount();
+            long keep = offsets.get(30);
+
+            int deleted = log.deleteSegmentsBefore(keep);
+            assertTrue(deleted > 0);
+            assertEquals(before - deleted, segmentCount());
+            assertTrue(log.startOffset() <= keep);
+            assertEquals("record-30", string(log.read(keep).payload()));
+            assertThrows(IOException.class, () -> log.read(0));
+
+            // 当前写入的分段不会被删除
+            log.deleteSegmentsBefore(Long.MAX_VALUE);
+            assertEquals(1, segmentCount());
+            long next = log.append(bytes("tail")).get(5, TimeUnit.SECONDS);
+            assertEquals("tail", string(log.read(next).payload()));
+        }
+    }
+
+    @Test
+    public void testConcurrentAppendsAreAllDurable() throws Exception {
+        int threads = 8;
+        int perThread = 2000;
+        Set<Long> offsets = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (SegmentedLog log = new SegmentedLog(directory, 64 * 1024)) {
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                done.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        offsets.add(log.append(bytes(thread + "-" + i)).join());
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+            assertEquals(threads * perThread, offsets.size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (SegmentedLog log = new SegmentedLog(directory, 64 * 1024)) {
+            int count = 0;
+            long offset = log.startOffset();
+            for (SegmentedLog.LogRecord record; (record = log.read(offset)) != null; offset = record.nextOffset()) {
+                assertTrue(offsets.contains(record.offset()));
+                count++;
+            }
+            assertEquals(threads * perThread, count);
+        }
+    }
+
+    @Test
+    public void testClosedLogRejectsAppends() throws Exception {
+        SegmentedLog log = new SegmentedLog(directory, 1024);
+        log.close();
+        assertTrue(log.append(bytes("late")).isCompletedExceptionally());
+        try (SegmentedLog reopened = new SegmentedLog(directory, 1024)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> reopened.append(new byte[SegmentedLog.MAX_RECORD_SIZE + 1]));
+        }
+    }
+
+    private int segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return (int) files.count();
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,233 @@
+package io.junix.xia.peer;
+
+import io.junix.xia.enc.NodeIdentity;
+import io.junix.xia.enc.PeerKeyCache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 内存映射对端登记表测试类
+ */
+public class PeerRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    private static InetSocketAddress address(String host, int port) {
+        return InetSocketAddress.createUnresolved(host, port);
+    }
+
+    private static byte[] fingerprint(NodeIdentity identity) {
+        return PeerKeyCache.fingerprint(identity.encodedPublicKey());
+    }
+
+    @Test
+    public void testRegisterLookupAndUpdate() throws IOException {
+        NodeIdentity alice = NodeIdentity.generate();
+        NodeIdentity bob = NodeIdentity.generate();
+        try (PeerRegistry registry = PeerRegistry.open(directory.resolve("peers.db"), 100)) {
+            assertNull(registry.get(fingerprint(alice)));
+            assertEquals(Trust.UNKNOWN, registry.trust(alice.publicKey()));
+
+            PeerRecord record = registry.register(alice.encodedPublicKey(),
+                    List.of(address("10.0.0.1", 7000), address("node-a.example", 7001)), 1000);
+            assertArrayEquals(alice.encodedPublicKey(), record.encodedKey());
+            assertArrayEquals(fingerprint(alice), record.fingerprint());
+            assertEquals(List.of(address("10.0.0.1", 7000), address("node-a.example", 7001)), record.addresses());
+            assertEquals(1000, record.lastSeenMillis());
+            assertEquals(Trust.UNKNOWN, record.trust());
+            registry.register(bob.encodedPublicKey(), List.of(address("10.0.0.2", 7000)), 1500);
+
+            assertTrue(registry.setTrust(fingerprint(alice), Trust.TRUSTED));
+            assertTrue(registry.touch(fingerprint(alice), 2000));
+            // 重复登记只更新地址和在线时间，保留信任级别
+            record = registry.register(alice.encodedPublicKey(), List.of(address("10.0.0.9", 7000)), 3000);
+            assertEquals(List.of(address("10.0.0.9", 7000)), record.addresses());
+            assertEquals(3000, record.lastSeenMillis());
+            assertEquals(Trust.TRUSTED, registry.trust(alice.publicKey()));
+            assertEquals(2, registry.size());
+            assertFalse(registry.touch(new byte[32], 1));
+
+            List<PeerRecord> peers = registry.peers();
+            assertEquals(2, peers.size());
+            assertArrayEquals(fingerprint(alice), peers.get(0).fingerprint());
+            assertArrayEquals(fingerprint(bob), peers.get(1).fingerprint());
+        }
+    }
+
+    @Test
+    public void testReopenAfterCleanClose() throws IOException {
+        Path file = directory.resolve("peers.db");
+        List<NodeIdentity> identities = new ArrayList<>();
+        try (PeerRegistry registry = PeerRegistry.open(file, 1000)) {
+            for (int i = 0; i < 200; i++) {
+                NodeIdentity identity = NodeIdentity.generate();
+                identities.add(identity);
+                registry.register(identity.encodedPublicKey(), List.of(address("10.0.1." + i, 7000)), i);
+            }
+            registry.setTrust(fingerprint(identities.get(7)), Trust.BLOCKED);
+        }
+        // 已有文件的容量以文件头为准
+        try (PeerRegistry registry = PeerRegistry.open(file, 5)) {
+            assertEquals(1000, registry.capacity());
+            assertEquals(200, registry.size());
+            for (int i = 0; i < 200; i++) {
+                PeerRecord record = registry.get(fingerprint(identities.get(i)));
+                assertEquals(List.of(address("10.0.1." + i, 7000)), record.addresses());
+                assertEquals(i, record.lastSeenMillis());
+            }
+            assertEquals(Trust.BLOCKED, registry.trust(identities.get(7).publicKey()));
+        }
+    }
+
+    @Test
+    public void testRecoveryAfterCrash() throws IOException {
+        Path file = directory.resolve("peers.db");
+        Path crashed = directory.resolve("crashed.db");
+        NodeIdentity kept = NodeIdentity.generate();
+        NodeIdentity torn = NodeIdentity.generate();
+        NodeIdentity uncommitted = NodeIdentity.generate();
+        try (PeerRegistry registry = PeerRegistry.open(file, 16)) {
+            registry.register(kept.encodedPublicKey(), List.of(address("10.0.0.1", 7000)), 1);
+            registry.register(torn.encodedPublicKey(), List.of(address("10.0.0.2", 7000)), 2);
+            registry.register(uncommitted.encodedPublicKey(), List.of(address("10.0.0.3", 7000)), 3);
+            // 在未正常关闭的状态下取得文件内容，相当于进程在此时崩溃
+            byte[] image = Files.readAllBytes(file);
+            // 第三条记录已写入并发布了索引槽，但记录数尚未提交
+            ByteBuffer.wrap(image).putInt(PeerRegistry.H_COUNT, 2);
+            // 第二条记录的公钥在掉电时被撕裂
+            image[indexOf(image, fingerprint(torn)) + 40] ^= 1;
+            Files.write(crashed, image);
+        }
+        try (PeerRegistry registry = PeerRegistry.open(crashed, 16)) {
+            assertEquals(Trust.UNKNOWN, registry.get(fingerprint(kept)).trust());
+            // 损坏的记录按指纹封禁，不再带有地址
+            assertEquals(Trust.BLOCKED, registry.trust(fingerprint(torn)));
+            assertEquals(List.of(), registry.get(fingerprint(torn)).addresses());
+            assertNull(registry.get(fingerprint(uncommitted)));
+            assertEquals(2, registry.peers().size());
+            // 恢复后可继续登记，未提交的记录位置被复用
+            registry.register(uncommitted.encodedPublicKey(), List.of(address("10.0.0.4", 7000)), 4);
+            assertEquals(List.of(address("10.0.0.4", 7000)), registry.get(fingerprint(uncommitted)).addresses());
+        }
+    }
+
+    @Test
+    public void testTornBlockedRecordStaysBlocked() throws IOException {
+        Path file = directory.resolve("peers.db");
+        Path crashed = directory.resolve("crashed.db");
+        NodeIdentity trusted = NodeIdentity.generate();
+        NodeIdentity blocked = NodeIdentity.generate();
+        NodeIdentity flipped = NodeIdentity.generate();
+        try (PeerRegistry registry = PeerRegistry.open(file, 16)) {
+            registry.register(trusted.encodedPublicKey(), List.of(address("10.0.0.1", 7000)), 1);
+            registry.setTrust(fingerprint(trusted), Trust.TRUSTED);
+            for (NodeIdentity identity : List.of(blocked, flipped)) {
+                registry.register(identity.encodedPublicKey(), List.of(address("10.0.0.2", 7000)), 2);
+                registry.setTrust(fingerprint(identity), Trust.BLOCKED);
+            }
+            byte[] image = Files.readAllBytes(file);
+            ByteBuffer view = ByteBuffer.wrap(image);
+            // 崩溃在更新在线时间的中途：序号停在奇数
+            int blockedRecord = indexOf(image, fingerprint(blocked)) - 8;
+            view.putInt(blockedRecord, view.getInt(blockedRecord) + 1);
+            // 掉电撕裂了信任级别所在的字节，校验和不再相符
+            image[indexOf(image, fingerprint(flipped)) + 147] ^= 2;
+            Files.write(crashed, image);
+        }
+        try (PeerRegistry registry = PeerRegistry.open(crashed, 16)) {
+            assertEquals(Trust.TRUSTED, registry.trust(trusted.publicKey()));
+            assertEquals(Trust.BLOCKED, registry.trust(blocked.publicKey()));
+            assertEquals(Trust.BLOCKED, registry.trust(flipped.publicKey()));
+            assertEquals(3, registry.peers().size());
+        }
+        // 修复已落盘，正常关闭后再次打开仍是封禁
+        try (PeerRegistry registry = PeerRegistry.open(crashed, 16)) {
+            assertEquals(Trust.BLOCKED, registry.trust(blocked.publicKey()));
+            assertEquals(Trust.BLOCKED, registry.trust(flipped.publicKey()));
+        }
+    }
+
+    @Test
+    public void testLimits() throws IOException {
+        try (PeerRegistry registry = PeerRegistry.open(directory.resolve("peers.db"), 2)) {
+            registry.register(NodeIdentity.generate().encodedPublicKey(), List.of(), 0);
+            registry.register(NodeIdentity.generate().encodedPublicKey(), List.of(), 0);
+            byte[] key = NodeIdentity.generate().encodedPublicKey();
+            assertThrows(IllegalStateException.class, () -> registry.register(key, List.of(), 0));
+            List<InetSocketAddress> tooMany = List.of(address("a", 1), address("b", 1), address("c", 1),
+                    address("d", 1), address("e", 1));
+            assertThrows(IllegalArgumentException.class, () -> registry.register(key, tooMany, 0));
+            assertThrows(IllegalArgumentException.class,
+                    () -> registry.register(key, List.of(address("h".repeat(62), 1)), 0));
+            assertThrows(IllegalArgumentException.class, () -> registry.register(new byte[97], List.of(), 0));
+        }
+        Path notRegistry = directory.resolve("other.db");
+        Files.write(notRegistry, new byte[128]);
+        assertThrows(IOException.class, () -> PeerRegistry.open(notRegistry, 10));
+    }
+
+    @Test
+    public void testReadersNeverSeeTornUpdates() throws Exception {
+        NodeIdentity peer = NodeIdentity.generate();
+        byte[] fingerprint = fingerprint(peer);
+        try (PeerRegistry registry = PeerRegistry.open(directory.resolve("peers.db"), 16)) {
+            registry.register(peer.encodedPublicKey(), List.of(address("h0", 0)), 0);
+            AtomicReference<String> failure = new AtomicReference<>();
+            List<Thread> readers = new ArrayList<>();
+            Thread writer = new Thread(() -> {
+                for (int i = 1; i <= 20_000; i++) {
+                    registry.register(peer.encodedPublicKey(),
+                            List.of(address("h" + i, i & 0xFFFF), address("host-" + i, 1)), i);
+                }
+            });
+            for (int t = 0; t < 3; t++) {
+                Thread reader = new Thread(() -> {
+                    while (writer.isAlive()) {
+                        PeerRecord record = registry.get(fingerprint);
+                        long seen = record.lastSeenMillis();
+                        String expected = "h" + seen;
+                        if (!expected.equals(record.addresses().get(0).getHostString())
+                                || record.addresses().get(0).getPort() != (seen & 0xFFFF)) {
+                            failure.compareAndSet(null, seen + " -> " + record.addresses());
+                        }
+                    }
+                });
+                readers.add(reader);
+            }
+            writer.start();
+            readers.forEach(Thread::start);
+            writer.join();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertNull(failure.get());
+            assertEquals(20_000, registry.get(fingerprint).lastSeenMillis());
+        }
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("not found");
+    }
+}
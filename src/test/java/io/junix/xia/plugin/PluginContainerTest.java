@@ -0,0 +1,285 @@
+package io.junix.xia.plugin;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * 插件容器测试类，测试插件在运行时编译打包，保证只存在于各自的 jar 中
+ */
+public class PluginContainerTest {
+
+    /**
+     * 测试插件挂起的请求，由测试决定何时完成
+     */
+    public static final Queue<CompletableFuture<byte[]>> HELD = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 已停止的插件版本
+     */
+    public static final Queue<String> STOPPED = new ConcurrentLinkedQueue<>();
+
+    @TempDir
+    Path workDirectory;
+
+    private PluginContainer container;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        HELD.clear();
+        STOPPED.clear();
+        container = new PluginContainer(5000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        HELD.forEach(future -> future.complete(new byte[0]));
+        container.close();
+    }
+
+    @Test
+    public void testDeployAndDispatch() throws Exception {
+        assertEquals("merchant", container.deploy(buildPlugin("merchant", "v1", "order.dispatch")));
+        assertEquals("v1:hello", call("order.dispatch", "hello"));
+        assertEquals(List.of("merchant"), List.copyOf(container.plugins()));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> call("order.cancel", "hello"));
+        assertInstanceOf(PluginException.class, e.getCause());
+    }
+
+    @Test
+    public void testPluginsIsolatedInOwnClassLoaders() throws Exception {
+        container.deploy(buildPlugin("merchant", "v1", "order.dispatch"));
+        container.deploy(buildPlugin("rider", "v1", "rider.accept"));
+
+        ClassLoader merchant = container.plugin("merchant").loader();
+        ClassLoader rider = container.plugin("rider").loader();
+        assertNotSame(merchant, rider);
+        // 两个插件的实现类同名，但分别由各自的类加载器定义
+        assertNotSame(merchant.loadClass("testplugin.TestPlugin"), rider.loadClass("testplugin.TestPlugin"));
+        assertThrows(ClassNotFoundException.class,
+                () -> PluginContainerTest.class.getClassLoader().loadClass("testplugin.TestPlugin"));
+    }
+
+    @Test
+    public void testRedeployDrainsOldVersion() throws Exception {
+        container.deploy(buildPlugin("merchant", "v1", "order.dispatch"));
+        CompletableFuture<byte[]> inFlight = dispatch("order.dispatch.hold", "slow").toCompletableFuture();
+        assertEquals(1, HELD.size());
+
+        container.deploy(buildPlugin("merchant", "v2", "order.dispatch"));
+        // 新请求立即由新版本处理，旧版本等待进行中的请求
+        assertEquals("v2:hello", call("order.dispatch", "hello"));
+        assertEquals(1, container.retiringCount());
+        assertTrue(STOPPED.isEmpty());
+
+        HELD.poll().complete("done".getBytes(StandardCharsets.UTF_8));
+        assertEquals("done", new String(inFlight.get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        waitFor(() -> container.retiringCount() == 0);
+        assertEquals(List.of("merchant:v1"), List.copyOf(STOPPED));
+    }
+
+    @Test
+    public void testRetiredClassLoaderCollected() throws Exception {
+        container.deploy(buildPlugin("merchant", "v1", "order.dispatch"));
+        assertEquals("v1:hello", call("order.dispatch", "hello"));
+        WeakReference<ClassLoader> old = new WeakReference<>(container.plugin("merchant").loader());
+
+        container.deploy(buildPlugin("merchant", "v2", "order.dispatch"));
+        waitFor(() -> container.retiringCount() == 0);
+        for (int i = 0; i < 50 && old.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(old.get(), "old plugin class loader leaked");
+    }
+
+    @Test
+    public void testDrainTimeoutStopsStuckVersion() throws Exception {
+        container.close();
+        container = new PluginContainer(100);
+        container.deploy(buildPlugin("merchant", "v1", "order.dispatch"));
+        dispatch("order.dispatch.hold", "never");
+        container.deploy(buildPlugin("merchant", "v2", "order.dispatch"));
+
+        waitFor(() -> container.retiringCount() == 0);
+        assertEquals(List.of("merchant:v1"), List.copyOf(STOPPED));
+    }
+
+    @Test
+    public void testFailedDeployKeepsPreviousVersion() throws Exception {
+        container.deploy(buildPlugin("merchant", "v1", "order.dispatch"));
+        container.deploy(buildPlugin("rider", "v1", "rider.accept"));
+
+        // 路由与其他插件冲突
+        assertThrows(PluginException.class,
+                () -> container.deploy(buildPlugin("merchant", "v2", "rider.accept")));
+        // 注册时抛出异常
+        assertThrows(PluginException.class, () -> container.deploy(buildPlugin("merchant", "v3", "")));
+        // 未声明插件实现
+        Path empty = workDirectory.resolve("empty.jar");
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(empty))) {
+            jar.putNextEntry(new JarEntry("README"));
+        }
+        assertThrows(PluginException.class, () -> container.deploy(empty));
+
+        assertEquals("v1:hello", call("order.dispatch", "hello"));
+        assertEquals(0, container.retiringCount());
+    }
+
+    @Test
+    public void testUndeploy() throws Exception {
+        container.deploy(buildPlugin("merchant", "v1", "order.dispatch"));
+        assertTrue(container.undeploy("merchant"));
+        assertFalse(container.undeploy("merchant"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> call("order.dispatch", "hello"));
+        assertInstanceOf(PluginException.class, e.getCause());
+        waitFor(() -> STOPPED.contains("merchant:v1"));
+    }
+
+    @Test
+    public void testMalformedRouteHeaderRejected() {
+        CompletionStage<byte[]> response = container.dispatcher().handle(null, ByteBuffer.wrap(new byte[]{10, 'a'}));
+        assertThrows(ExecutionException.class, () -> response.toCompletableFuture().get());
+    }
+
+    @Test
+    public void testWatcherHotDeploys() throws Exception {
+        Path directory = Files.createDirectory(workDirectory.resolve("plugins"));
+        PluginWatcher watcher = new PluginWatcher(container, directory);
+        Path jar = directory.resolve("merchant.jar");
+        Files.copy(buildPlugin("merchant", "v1", "order.dispatch"), jar);
+
+        // 第一次扫描只记录文件状态，状态保持不变的第二次扫描才部署
+        watcher.scan();
+        assertTrue(container.plugins().isEmpty());
+        watcher.scan();
+        assertEquals("v1:hello", call("order.dispatch", "hello"));
+
+        Files.copy(buildPlugin("merchant", "v2", "order.dispatch"), jar,
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        watcher.scan();
+        watcher.scan();
+        assertEquals("v2:hello", call("order.dispatch", "hello"));
+
+        Files.delete(jar);
+        watcher.scan();
+        assertTrue(container.plugins().isEmpty());
+        watcher.close();
+    }
+
+    private CompletionStage<byte[]> dispatch(String route, String body) {
+        byte[] request = PluginDispatcher.request(route, body.getBytes(StandardCharsets.UTF_8));
+        return container.dispatcher().handle(null, ByteBuffer.wrap(request));
+    }
+
+    private String call(String route, String body) throws Exception {
+        byte[] response = dispatch(route, body).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        return new String(response, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 编译并打包一个插件：{@code route} 返回带版本前缀的请求体，{@code route.hold} 的请求挂起到 {@link #HELD}；
+     * {@code route} 为空时注册阶段抛出异常
+     */
+    private Path buildPlugin(String name, String version, String route) throws IOException, URISyntaxException {
+        Path root = Files.createTempDirectory(workDirectory, name + "-" + version);
+        Path source = root.resolve("src/testplugin/TestPlugin.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, """
+                package testplugin;
+
+                import io.junix.xia.plugin.PluginContainerTest;
+                import io.junix.xia.plugin.RouteRegistry;
+                import io.junix.xia.plugin.ServicePlugin;
+
+                import java.nio.charset.StandardCharsets;
+                import java.util.concurrent.CompletableFuture;
+
+                public class TestPlugin implements ServicePlugin {
+
+                    public String name() {
+                        return "%1$s";
+                    }
+
+                    public void register(RouteRegistry routes) {
+                        if ("%3$s".isEmpty()) {
+                            throw new IllegalStateException("broken plugin");
+                        }
+                        routes.route("%3$s", (connection, request) -> {
+                            byte[] body = new byte[request.remaining()];
+                            request.get(body);
+                            String reply = "%2$s:" + new String(body, StandardCharsets.UTF_8);
+                            return CompletableFuture.completedFuture(reply.getBytes(StandardCharsets.UTF_8));
+                        });
+                        routes.route("%3$s.hold", (connection, request) -> {
+                            CompletableFuture<byte[]> response = new CompletableFuture<>();
+                            PluginContainerTest.HELD.add(response);
+                            return response;
+                        });
+                    }
+
+                    public void stop() {
+                        PluginContainerTest.STOPPED.add("%1$s:%2$s");
+                    }
+                }
+                """.formatted(name, version, route));
+
+        Path classes = Files.createDirectories(root.resolve("classes"));
+        String classpath = Path.of(ServicePlugin.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                + File.pathSeparator
+                + Path.of(PluginContainerTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, "-d", classes.toString(), "-cp", classpath,
+                source.toString()));
+
+        Path jar = root.resolve(name + ".jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> files = Files.walk(classes)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace('\\', '/')));
+                Files.copy(file, out);
+            }
+            out.putNextEntry(new JarEntry("META-INF/services/" + ServicePlugin.class.getName()));
+            out.write("testplugin.TestPlugin\n".getBytes(StandardCharsets.UTF_8));
+        }
+        return jar;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
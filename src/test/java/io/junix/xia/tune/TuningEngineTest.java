@@ -0,0 +1,205 @@
+package io.junix.xia.tune;
+
+import io.junix.xia.buffer.BufferPool;
+import io.junix.xia.compress.Compression;
+import io.junix.xia.compress.CompressionPolicy;
+import io.junix.xia.net.Server;
+import io.junix.xia.net.ServerConfig;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 负载自适应调优测试类，以构造的采样驱动调优规则
+ */
+public class TuningEngineTest {
+
+    private Server server;
+    private ServerConfig config;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testWorkersFollowLoad() throws IOException {
+        TuningEngine engine = start(new CompressionPolicy(Compression.NONE));
+        assertEquals(4, server.workers().activeCount());
+
+        // 空闲连续三轮后减少一个工作线程
+        for (int round = 0; round < 2; round++) {
+            assertTrue(engine.tick(sample(0.05, 0.01, 0.3, 10, 0, 0, 0, 0)).isEmpty());
+        }
+        assertEquals(List.of("workers"), knobs(engine.tick(sample(0.05, 0.01, 0.3, 10, 0, 0, 0, 0))));
+        assertEquals(3, server.workers().activeCount());
+
+        // 任务积压时立即增加
+        engine.tick(sample(0.05, 0.01, 0.3, 10, 1000, 0, 0, 0));
+        assertEquals(4, server.workers().activeCount());
+        // 已达上限后不再增加
+        assertTrue(engine.tick(sample(0.05, 0.9, 0.3, 10, 1000, 0, 0, 0)).isEmpty());
+    }
+
+    @Test
+    public void testBusyWorkersGrowOnlyWithSpareCores() throws IOException {
+        TuningEngine engine = start(new CompressionPolicy(Compression.NONE));
+        server.workers().setActiveCount(1);
+
+        // 进程 CPU 已饱和，增加线程无益
+        engine.tick(sample(0.9, 0.95, 0.3, 10, 0, 0, 0, 0));
+        assertEquals(1, server.workers().activeCount());
+
+        TuningEngine fresh = new TuningEngine(server, config);
+        fresh.tick(sample(0.2, 0.95, 0.3, 10, 0, 0, 0, 0));
+        assertEquals(2, server.workers().activeCount());
+    }
+
+    @Test
+    public void testReadBufferFollowsReadSizes() throws IOException {
+        TuningEngine engine = start(new CompressionPolicy(Compression.NONE));
+        assertEquals(List.of("readBufferSize"), knobs(engine.tick(sample(0.2, 0.2, 0.3, 10, 0, 0, 0.8, 0))));
+        engine.tick(sample(0.2, 0.2, 0.3, 10, 0, 0, 0.8, 0));
+        assertEquals(16 * 1024, engine.readBufferSize());
+
+        // 读取不再填满缓冲后逐步回落到初始值
+        engine.tick(sample(0.2, 0.2, 0.3, 10, 0, 0, 0.01, 0));
+        engine.tick(sample(0.2, 0.2, 0.3, 10, 0, 0, 0.01, 0));
+        engine.tick(sample(0.2, 0.2, 0.3, 10, 0, 0, 0.01, 0));
+        assertEquals(4096, engine.readBufferSize());
+    }
+
+    @Test
+    public void testMemoryPressureShrinksBuffers() throws IOException {
+        TuningEngine engine = start(new CompressionPolicy(Compression.NONE));
+        BufferPool pool = config.getBufferPool();
+        int initialBudget = pool.maxCachedBytesPerClass();
+
+        List<TuningEngine.Change> changes = engine.tick(sample(0.2, 0.2, 0.9, 10, 0, 0, 0, 0));
+        assertTrue(knobs(changes).containsAll(List.of("readBufferSize", "maxCachedBytesPerClass")));
+        assertEquals(2048, engine.readBufferSize());
+        assertEquals(initialBudget / 2, pool.maxCachedBytesPerClass());
+
+        // 内存回落后缓存上限恢复，但不超过初始值
+        for (int round = 0; round < 5; round++) {
+            engine.tick(sample(0.2, 0.2, 0.1, 10, 0, 0, 0, 0));
+        }
+        assertEquals(initialBudget, pool.maxCachedBytesPerClass());
+    }
+
+    @Test
+    public void testDeflateLevelTradesCpuForBandwidth() throws IOException {
+        CompressionPolicy policy = new CompressionPolicy(Compression.ADAPTIVE);
+        TuningEngine engine = start(policy);
+        int level = policy.deflateLevel();
+
+        engine.tick(sample(0.9, 0.2, 0.3, 10, 0, 0, 0, 0));
+        assertEquals(level - 1, policy.deflateLevel());
+
+        TuningEngine idle = new TuningEngine(server, config);
+        idle.tick(sample(0.1, 0.05, 0.3, 10, 0, 10 * 1024 * 1024, 0, 0));
+        assertEquals(level, policy.deflateLevel());
+    }
+
+    @Test
+    public void testCompressionUntouchedWhenDisabled() throws IOException {
+        CompressionPolicy policy = new CompressionPolicy(Compression.NONE);
+        TuningEngine engine = start(policy);
+        assertFalse(knobs(engine.tick(sample(0.9, 0.2, 0.3, 10, 0, 0, 0, 0))).contains("deflateLevel"));
+        assertEquals(CompressionPolicy.DEFAULT_DEFLATE_LEVEL, policy.deflateLevel());
+    }
+
+    @Test
+    public void testAcceptRateLimitedWhenSaturated() throws IOException {
+        TuningEngine engine = start(new CompressionPolicy(Compression.NONE));
+        engine.tick(sample(0.99, 0.99, 0.3, 10, 0, 0, 0, 400));
+        assertEquals(200, server.acceptRateLimit());
+        engine.tick(sample(0.99, 0.99, 0.3, 10, 0, 0, 0, 100));
+        assertEquals(50, server.acceptRateLimit());
+
+        // 负载回落后逐步放开直到不限制
+        for (int round = 0; round < 20 && server.acceptRateLimit() != 0; round++) {
+            engine.tick(sample(0.1, 0.1, 0.3, 10, 0, 0, 0, 0));
+        }
+        assertEquals(0, server.acceptRateLimit());
+    }
+
+    @Test
+    public void testAcceptorHonoursRateLimit() throws Exception {
+        start(new CompressionPolicy(Compression.NONE));
+        server.setAcceptRateLimit(2);
+        List<Socket> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5; i++) {
+                clients.add(new Socket("localhost", server.localAddress().getPort()));
+            }
+            // 超出配额的连接留在 backlog 中，之后每秒接受两个
+            waitFor(() -> server.acceptedCount() == 2);
+            Thread.sleep(300);
+            assertEquals(2, server.acceptedCount());
+            waitFor(() -> server.acceptedCount() == 4);
+
+            server.setAcceptRateLimit(0);
+            waitFor(() -> server.acceptedCount() == 5);
+        } finally {
+            for (Socket client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSamplerReportsServerState() throws Exception {
+        start(new CompressionPolicy(Compression.NONE));
+        LoadSampler sampler = new LoadSampler(server);
+        try (Socket client = new Socket("localhost", server.localAddress().getPort())) {
+            waitFor(() -> server.workers().connectionCount() == 1);
+            LoadSample sample = sampler.sample();
+            assertEquals(1, sample.connections());
+            assertTrue(sample.acceptsPerSecond() > 0);
+            assertTrue(sample.memoryLoad() > 0 && sample.memoryLoad() <= 1);
+        }
+    }
+
+    private TuningEngine start(CompressionPolicy compression) throws IOException {
+        config = new ServerConfig()
+                .setPort(0)
+                .setWorkerThreads(4)
+                .setCompression(compression)
+                .setBufferPool(new BufferPool(256, 64 * 1024, 1024 * 1024, false));
+        server = new Server(config, () -> (connection, data) -> {
+        });
+        server.start();
+        return new TuningEngine(server, config);
+    }
+
+    private static LoadSample sample(double cpu, double workerLoad, double memory, int connections, int pendingTasks,
+                                     long pendingWriteBytes, double fullReadRatio, double acceptsPerSecond) {
+        return new LoadSample(cpu, workerLoad, memory, connections, pendingTasks, pendingWriteBytes, fullReadRatio,
+                acceptsPerSecond);
+    }
+
+    private static List<String> knobs(List<TuningEngine.Change> changes) {
+        return changes.stream().map(TuningEngine.Change::knob).toList();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
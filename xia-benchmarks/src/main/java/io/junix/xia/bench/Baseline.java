@@ -0,0 +1,111 @@
+package io.junix.xia.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 将一次 JMH 运行的结果与基线逐项比较
+ * <p>
+ * 以基准方法、模式和参数为键配对。吞吐模式越高越好，其余模式（平均时间、采样时间、单次时间）越低越好；
+ * 只有变慢的幅度同时超过容差比例和两次结果误差之和时才算退化，避免测量噪声导致误报。
+ * 基线中没有的结果视为新增，只记录不比较；本次未运行的基线项忽略，便于只运行部分基准。
+ *
+ * @author wulogn
+ */
+final class Baseline {
+
+    private Baseline() {
+    }
+
+    /**
+     * 读取 JMH 的 JSON 结果文件，按键索引
+     */
+    static Map<String, Score> read(Path file) throws IOException {
+        return parse(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    static Map<String, Score> parse(String json) {
+        Map<String, Score> scores = new TreeMap<>();
+        if (!(Json.parse(json) instanceof List<?> results)) {
+            throw new IllegalArgumentException("JMH result must be a JSON array");
+        }
+        for (Object element : results) {
+            Map<?, ?> result = (Map<?, ?>) element;
+            Map<?, ?> metric = (Map<?, ?>) result.get("primaryMetric");
+            String mode = (String) result.get("mode");
+            StringBuilder key = new StringBuilder((String) result.get("benchmark")).append(" [").append(mode);
+            if (result.get("params") instanceof Map<?, ?> params) {
+                new TreeMap<>(params).forEach((name, value) -> key.append(", ").append(name).append('=').append(value));
+            }
+            key.append(']');
+            double p99 = Double.NaN;
+            if ("sample".equals(mode) && metric.get("scorePercentiles") instanceof Map<?, ?> percentiles) {
+                p99 = Json.number(percentiles.get("99.0"));
+            }
+            scores.put(key.toString(), new Score("thrpt".equals(mode), Json.number(metric.get("score")),
+                    Json.number(metric.get("scoreError")), p99, (String) metric.get("scoreUnit")));
+        }
+        return scores;
+    }
+
+    /**
+     * 比较本次结果与基线，逐项写出报告行，返回退化项的报告行
+     *
+     * @param tolerance 允许变慢的比例，如 0.1 表示 10%
+     */
+    static List<String> compare(Map<String, Score> baseline, Map<String, Score> current, double tolerance,
+                                List<String> report) {
+        List<String> regressions = new ArrayList<>();
+        current.forEach((key, score) -> {
+            Score previous = baseline.get(key);
+            if (previous == null) {
+                report.add(String.format("NEW        %s: %s", key, score));
+                return;
+            }
+            if (!previous.unit().equals(score.unit())) {
+                report.add(String.format("SKIPPED    %s: unit changed from %s to %s", key, previous.unit(), score.unit()));
+                return;
+            }
+            // 统一为正值表示变慢
+            double slowdown = score.higherIsBetter()
+                    ? (previous.score() - score.score()) / previous.score()
+                    : (score.score() - previous.score()) / previous.score();
+            double noise = errorOf(previous) + errorOf(score);
+            boolean regressed = slowdown > tolerance
+                    && Math.abs(score.score() - previous.score()) > noise;
+            String line = String.format("%-10s %s: %s -> %s (%+.1f%% slower)",
+                    regressed ? "REGRESSED" : "OK", key, previous, score, slowdown * 100);
+            report.add(line);
+            if (regressed) {
+                regressions.add(line);
+            }
+        });
+        return regressions;
+    }
+
+    private static double errorOf(Score score) {
+        return Double.isNaN(score.error()) ? 0 : score.error();
+    }
+
+    /**
+     * 一项基准结果
+     *
+     * @param higherIsBetter 吞吐模式为 {@code true}
+     * @param error          99.9% 置信区间的半宽，迭代次数不足时为 {@code NaN}
+     * @param p99            采样时间模式下的 99 分位，其余模式为 {@code NaN}
+     */
+    record Score(boolean higherIsBetter, double score, double error, double p99, String unit) {
+
+        @Override
+        public String toString() {
+            String text = String.format("%.3f ± %.3f %s", score, errorOf(this), unit);
+            return Double.isNaN(p99) ? text : text + String.format(" (p99 %.3f)", p99);
+        }
+    }
+}
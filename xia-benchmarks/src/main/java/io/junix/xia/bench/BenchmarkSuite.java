@@ -0,0 +1,68 @@
+package io.junix.xia.bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行全部（或按正则选出的）基准，同时以吞吐和采样时间两种模式测量，结果写成 JSON；指定基线时与之比较，变慢则以非零状态退出
+ * <p>
+ * 参数为基准选择正则，默认全部。系统属性：
+ * <ul>
+ *     <li>{@code xia.bench.result}：结果文件，默认 {@code target/jmh-result.json}；</li>
+ *     <li>{@code xia.bench.baseline}：基线文件，不存在时以本次结果创建；</li>
+ *     <li>{@code xia.bench.tolerance}：允许变慢的比例，默认 0.10。</li>
+ * </ul>
+ * 基线与机器相关，应在固定的基准机器上生成并提交。
+ *
+ * @author wulogn
+ */
+public final class BenchmarkSuite {
+
+    private BenchmarkSuite() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : ".*";
+        Path result = Path.of(System.getProperty("xia.bench.result", "target/jmh-result.json")).toAbsolutePath();
+        Files.createDirectories(result.getParent());
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .mode(Mode.Throughput)
+                .mode(Mode.SampleTime)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build()).run();
+
+        String baselineProperty = System.getProperty("xia.bench.baseline");
+        if (baselineProperty == null) {
+            return;
+        }
+        Path baseline = Path.of(baselineProperty);
+        if (!Files.exists(baseline)) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("No baseline found, recorded current results as " + baseline);
+            return;
+        }
+        double tolerance = Double.parseDouble(System.getProperty("xia.bench.tolerance", "0.10"));
+        List<String> report = new ArrayList<>();
+        Map<String, Baseline.Score> current = Baseline.read(result);
+        List<String> regressions = Baseline.compare(Baseline.read(baseline), current, tolerance, report);
+        System.out.println();
+        System.out.printf("Comparison against %s (tolerance %.0f%%):%n", baseline, tolerance * 100);
+        report.forEach(System.out::println);
+        if (!regressions.isEmpty()) {
+            System.out.printf("%d of %d benchmark(s) regressed%n", regressions.size(), current.size());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.junix.xia.cluster;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一致性哈希路由基准：查找吞吐（单线程与多线程，固定归属与有界负载），以及节点变动时的键迁移量
+ * <p>
+ * {@link #churn} 每次加入再移除一个节点，辅助计数器 {@code movedKeys / sampledKeys} 即每次变动的迁移比例，
+ * 理想值约为 {@code 1 / (nodes + 1)}。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsistentHashBenchmark {
+
+    private static final int KEY_COUNT = 4096;
+
+    @Param({"10", "100", "1000"})
+    public int nodes;
+
+    @Param({"160"})
+    public int virtualNodes;
+
+    private ConsistentHashRouter router;
+    private byte[][] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        router = new ConsistentHashRouter(virtualNodes, ConsistentHashRouter.DEFAULT_LOAD_EPSILON);
+        for (int i = 0; i < nodes; i++) {
+            router.addNode("node-" + i, InetSocketAddress.createUnresolved("node-" + i, 7000));
+        }
+        keys = new byte[KEY_COUNT][];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = ("order-" + i).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+
+        byte[] key(ConsistentHashBenchmark benchmark) {
+            return benchmark.keys[next++ & (KEY_COUNT - 1)];
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Movement {
+
+        public long movedKeys;
+        public long sampledKeys;
+        String[] owners;
+        int round;
+    }
+
+    @Benchmark
+    public RouteNode route(Cursor cursor) {
+        return router.route(cursor.key(this));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RouteNode routeContended(Cursor cursor) {
+        return router.route(cursor.key(this));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RouteNode acquireRelease(Cursor cursor) {
+        RouteNode node = router.acquire(cursor.key(this));
+        router.release(node);
+        return node;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int churn(Movement movement) {
+        if (movement.owners == null) {
+            movement.owners = owners();
+        }
+        String id = "churn-" + movement.round++;
+        router.addNode(id, InetSocketAddress.createUnresolved(id, 7000));
+        String[] added = owners();
+        int moved = count(movement.owners, added);
+        router.removeNode(id);
+        moved += count(added, owners());
+        movement.movedKeys += moved;
+        movement.sampledKeys += 2L * KEY_COUNT;
+        return moved;
+    }
+
+    private String[] owners() {
+        String[] owners = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            owners[i] = router.route(keys[i]).id();
+        }
+        return owners;
+    }
+
+    private static int count(String[] baseline, String[] current) {
+        int moved = 0;
+        for (int i = 0; i < baseline.length; i++) {
+            if (!baseline[i].equals(current[i])) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConsistentHashBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package io.junix.xia.codec;
+
+import io.junix.xia.buffer.BufferPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 帧解码吞吐基准：一次读取包含多个完整帧，以及帧被拆分到固定大小读取块中的两种情况
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameDecoderBenchmark {
+
+    private static final int READ_SIZE = 4096;
+
+    @Param({"32", "512", "8192"})
+    public int payloadSize;
+
+    private ByteBuffer stream;
+    private FrameDecoder decoder;
+    private Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        BufferPool pool = new BufferPool(256, 64 * 1024, 1024 * 1024, false);
+        decoder = new FrameDecoder(pool.newArena(Thread.currentThread()), 1024 * 1024,
+                frame -> this.blackhole.consume(frame.remaining()));
+
+        int frames = Math.max(1, 64 * 1024 / FrameEncoder.frameLength(payloadSize));
+        stream = ByteBuffer.allocateDirect(frames * FrameEncoder.frameLength(payloadSize));
+        ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+        for (int i = 0; i < frames; i++) {
+            FrameEncoder.encode(payload.clear(), stream);
+        }
+        stream.flip();
+    }
+
+    @Benchmark
+    public void decodeWholeBuffer() throws Exception {
+        decoder.decode(stream.duplicate());
+    }
+
+    @Benchmark
+    public void decodeInReadSizedChunks() throws Exception {
+        ByteBuffer chunk = stream.duplicate();
+        int end = chunk.limit();
+        for (int position = 0; position < end; position += READ_SIZE) {
+            chunk.limit(Math.min(end, position + READ_SIZE)).position(position);
+            decoder.decode(chunk);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FrameDecoderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package io.junix.xia.enc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量验签基准，用于确定 {@link Ed25519#PARALLEL_THRESHOLD}：比较各批量大小下顺序与并行路径的耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Ed25519BatchBenchmark {
+
+    @Param({"4", "16", "32", "64", "256", "1024"})
+    public int batchSize;
+
+    private List<Ed25519.BatchItem> items;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        items = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            KeyPair keyPair = Ed25519.generateKeyPair();
+            byte[] message = ("gossip " + i).getBytes();
+            items.add(new Ed25519.BatchItem(message, keyPair.getPublic(), Ed25519.sign(message, keyPair.getPrivate())));
+        }
+    }
+
+    @Benchmark
+    public BitSet sequential() {
+        return Ed25519.verifyBatchSequential(items);
+    }
+
+    @Benchmark
+    public BitSet parallel() {
+        return Ed25519.verifyBatchParallel(items);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Ed25519BatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,94 @@
+package io.junix.xia.enc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密钥生成与签名/验签基准：签名和验签各对比每次 {@code Signature.getInstance} 的旧路径、线程缓存引擎、绑定密钥的签名器三者
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Ed25519Benchmark {
+
+    private KeyPair keyPair;
+    private byte[] message;
+    private byte[] signature;
+    private Ed25519Signer signer;
+    private Ed25519Verifier verifier;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        keyPair = Ed25519.generateKeyPair();
+        message = new byte[128];
+        signature = Ed25519.sign(message, keyPair.getPrivate());
+        signer = Ed25519.newSigner(keyPair.getPrivate());
+        verifier = Ed25519.newVerifier(keyPair.getPublic());
+    }
+
+    @Benchmark
+    public KeyPair generateKeyPair() {
+        return Ed25519.generateKeyPair();
+    }
+
+    @Benchmark
+    public byte[] signUncached() throws GeneralSecurityException {
+        Signature sig = Signature.getInstance("Ed25519");
+        sig.initSign(keyPair.getPrivate());
+        sig.update(message);
+        return sig.sign();
+    }
+
+    @Benchmark
+    public byte[] signThreadLocal() throws GeneralSecurityException {
+        return Ed25519.sign(message, keyPair.getPrivate());
+    }
+
+    @Benchmark
+    public byte[] signBoundKey() throws GeneralSecurityException {
+        return signer.sign(message);
+    }
+
+    @Benchmark
+    public boolean verifyUncached() throws GeneralSecurityException {
+        Signature sig = Signature.getInstance("Ed25519");
+        sig.initVerify(keyPair.getPublic());
+        sig.update(message);
+        return sig.verify(signature);
+    }
+
+    @Benchmark
+    public boolean verifyThreadLocal() {
+        return Ed25519.verify(message, keyPair.getPublic(), signature);
+    }
+
+    @Benchmark
+    public boolean verifyBoundKey() {
+        return verifier.verify(message, signature);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Ed25519Benchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
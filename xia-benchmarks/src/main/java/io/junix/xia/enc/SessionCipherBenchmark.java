@@ -0,0 +1,61 @@
+package io.junix.xia.enc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话加解密基准：小帧场景下一次加密加一次解密的吞吐
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionCipherBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int frameSize;
+
+    private SessionCipher sender;
+    private SessionCipher receiver;
+    private ByteBuffer frame;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        byte[] key = new byte[SessionCipher.KEY_LENGTH];
+        sender = new SessionCipher(key, key);
+        receiver = new SessionCipher(key, key);
+        frame = ByteBuffer.allocateDirect(frameSize + SessionCipher.TAG_LENGTH);
+    }
+
+    @Benchmark
+    public int encryptDecrypt() throws GeneralSecurityException {
+        frame.clear().limit(frameSize);
+        sender.encrypt(frame);
+        receiver.decrypt(frame);
+        return frame.remaining();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SessionCipherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,75 @@
+package io.junix.xia.limit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限速判断开销基准：单个令牌桶在多线程争用下的吞吐（有令牌与已耗尽两种情况），以及按对端查找后取令牌
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int PEERS = 1024;
+
+    private TokenBucket open;
+    private TokenBucket exhausted;
+    private PeerRateLimiter<Integer> peers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        open = new TokenBucket(1e9, Integer.MAX_VALUE / 2);
+        exhausted = new TokenBucket(1e-3, 1);
+        exhausted.tryAcquire();
+        peers = new PeerRateLimiter<>(1e9, 1_000_000, PEERS * 2);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean acquireContended() {
+        return open.tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean rejectContended() {
+        return exhausted.tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean perPeer(Cursor cursor) {
+        return peers.tryAcquire(cursor.next++ & (PEERS - 1));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
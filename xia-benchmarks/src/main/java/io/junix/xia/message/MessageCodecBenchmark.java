@@ -0,0 +1,156 @@
+package io.junix.xia.message;
+
+import io.junix.xia.buffer.BufferArena;
+import io.junix.xia.buffer.BufferPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 派单消息编解码基准：池化直接缓冲 + 复用消息对象，对比每条消息新建对象、经 {@code byte[]} 序列化的朴素做法
+ * <p>
+ * 每条消息的分配量通过 GC 分析器的 {@code gc.alloc.rate.norm} 指标查看，{@link #main} 已默认启用。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageCodecBenchmark {
+
+    private BufferArena arena;
+    private OrderDispatch order;
+    private OrderDispatch reuse;
+    private ByteBuffer encoded;
+    private NaiveOrder naiveOrder;
+    private byte[] naiveEncoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        arena = new BufferPool(256, 64 * 1024, 1024 * 1024, false).newArena(Thread.currentThread());
+        order = new OrderDispatch()
+                .setOrderId(9_000_000_001L)
+                .setMerchant("老王面馆")
+                .setAmount(2599)
+                .setCreatedAt(1_760_000_000_000L)
+                .setPriority(2)
+                .setNote("多放辣");
+        order.pickup().mutable().setLatitude(31.2304).setLongitude(121.4737).setAddress("南京东路 1 号");
+        order.dropoff().mutable().setLatitude(31.2397).setLongitude(121.4998).setAddress("陆家嘴环路 1000 号");
+        reuse = new OrderDispatch();
+        encoded = ByteBuffer.allocateDirect(order.serializedSize());
+        order.writeTo(encoded);
+        encoded.flip();
+
+        naiveOrder = new NaiveOrder(9_000_000_001L, "老王面馆", 2599, 1_760_000_000_000L, 2, "多放辣",
+                new NaiveLocation(31.2304, 121.4737, "南京东路 1 号"),
+                new NaiveLocation(31.2397, 121.4998, "陆家嘴环路 1000 号"));
+        naiveEncoded = naiveOrder.toBytes();
+    }
+
+    @Benchmark
+    public int encodePooled() {
+        ByteBuffer out = MessageCodec.encode(order, arena);
+        int size = out.remaining();
+        arena.release(out);
+        return size;
+    }
+
+    @Benchmark
+    public int encodeNaive() throws IOException {
+        return naiveOrder.toBytes().length;
+    }
+
+    /**
+     * 派单路由只看订单号、商家和优先级，取送货地点不解码
+     */
+    @Benchmark
+    public long decodeReused() throws MalformedMessageException {
+        OrderDispatch decoded = MessageCodec.decode(encoded.duplicate(), reuse);
+        return decoded.orderId() + decoded.priority() + decoded.merchant().encodedLength();
+    }
+
+    @Benchmark
+    public long decodeNaive() throws IOException {
+        NaiveOrder decoded = NaiveOrder.fromBytes(naiveEncoded);
+        return decoded.orderId + decoded.priority + decoded.merchant.length();
+    }
+
+    @Benchmark
+    public double decodeReusedWithLocations() throws MalformedMessageException {
+        OrderDispatch decoded = MessageCodec.decode(encoded.duplicate(), reuse);
+        return decoded.orderId() + decoded.pickup().get().latitude() + decoded.dropoff().get().longitude();
+    }
+
+    @Benchmark
+    public double decodeNaiveWithLocations() throws IOException {
+        NaiveOrder decoded = NaiveOrder.fromBytes(naiveEncoded);
+        return decoded.orderId + decoded.pickup.latitude + decoded.dropoff.longitude;
+    }
+
+    private record NaiveLocation(double latitude, double longitude, String address) {
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeDouble(latitude);
+            out.writeDouble(longitude);
+            out.writeUTF(address);
+        }
+
+        static NaiveLocation read(DataInputStream in) throws IOException {
+            return new NaiveLocation(in.readDouble(), in.readDouble(), in.readUTF());
+        }
+    }
+
+    private record NaiveOrder(long orderId, String merchant, long amount, long createdAt, int priority, String note,
+                              NaiveLocation pickup, NaiveLocation dropoff) {
+
+        byte[] toBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(orderId);
+            out.writeUTF(merchant);
+            out.writeLong(amount);
+            out.writeLong(createdAt);
+            out.writeInt(priority);
+            out.writeUTF(note);
+            pickup.write(out);
+            dropoff.write(out);
+            return bytes.toByteArray();
+        }
+
+        static NaiveOrder fromBytes(byte[] bytes) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            return new NaiveOrder(in.readLong(), in.readUTF(), in.readLong(), in.readLong(), in.readInt(),
+                    in.readUTF(), NaiveLocation.read(in), NaiveLocation.read(in));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessageCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,63 @@
+package io.junix.xia.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热路径埋点开销基准：多线程累加计数器、记录直方图和完整的计时记录
+ * <p>
+ * 以 {@code -Dxia.metrics=false} 运行（见 {@link #main}）可对比关闭时的开销，此时各方法应退化为空操作。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final Counter counter = registry.counter("bench_total", "");
+    private final Histogram histogram = registry.histogram("bench_nanos", "");
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(12_345);
+    }
+
+    @Benchmark
+    public void timedSection() {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (Metrics.ENABLED) {
+            histogram.recordSince(start);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (String enabled : new String[]{"true", "false"}) {
+            new Runner(new OptionsBuilder()
+                    .include(MetricsBenchmark.class.getSimpleName())
+                    .jvmArgsAppend("-Dxia.metrics=" + enabled)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package io.junix.xia.net;
+
+import io.junix.xia.codec.FrameEncoder;
+import io.junix.xia.codec.FramingHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 选择器接受与读取路径基准，服务端与 {@link io.junix.xia.Main} 相同，是一个带分帧层的 Reactor 服务器
+ * <p>
+ * {@link #connect} 建立连接并等到服务端在 {@code channelActive} 中写出的确认帧后关闭，覆盖接受、准入闸门与注册；
+ * {@link #readFrames} 一次写入一批小帧，服务端逐帧解码、分发，收齐整批后回一个确认帧，覆盖读取、分帧与分发。
+ * 以 {@link Mode#SampleTime} 运行可得到每次操作的延迟分位数。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AcceptReadBenchmark {
+
+    private static final int PAYLOAD_SIZE = 64;
+
+    /**
+     * 确认帧：长度前缀 1 加一个字节的负载
+     */
+    private static final byte[] ACK = {1};
+    private static final int ACK_FRAME_SIZE = 2;
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        @Param({"16", "256"})
+        public int batch;
+
+        Server server;
+        InetSocketAddress address;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            ServerConfig config = new ServerConfig().setPort(0);
+            int frames = batch;
+            server = new Server(config, () -> new FramingHandler(new BatchSink(frames), config.getMaxFrameSize()));
+            server.start();
+            address = new InetSocketAddress("localhost", server.localAddress().getPort());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        SocketChannel channel;
+        ByteBuffer frames;
+        ByteBuffer ack = ByteBuffer.allocate(ACK_FRAME_SIZE);
+
+        @Setup(Level.Trial)
+        public void setUp(ServerState state) throws IOException {
+            channel = SocketChannel.open(state.address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            awaitAck(channel, ack);
+            frames = ByteBuffer.allocate(state.batch * FrameEncoder.frameLength(PAYLOAD_SIZE));
+            ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_SIZE);
+            for (int i = 0; i < state.batch; i++) {
+                FrameEncoder.encode(payload.clear(), frames);
+            }
+            frames.flip();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            channel.close();
+        }
+    }
+
+    @Benchmark
+    public int connect(ServerState state) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(state.address)) {
+            // 以 RST 关闭，避免大量 TIME_WAIT 耗尽本地端口
+            channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+            ByteBuffer ack = ByteBuffer.allocate(ACK_FRAME_SIZE);
+            awaitAck(channel, ack);
+            return ack.get(1);
+        }
+    }
+
+    @Benchmark
+    public int readFrames(ClientState client) throws IOException {
+        client.frames.rewind();
+        while (client.frames.hasRemaining()) {
+            client.channel.write(client.frames);
+        }
+        awaitAck(client.channel, client.ack);
+        return client.ack.get(1);
+    }
+
+    private static void awaitAck(SocketChannel channel, ByteBuffer ack) throws IOException {
+        ack.clear();
+        while (ack.hasRemaining()) {
+            if (channel.read(ack) < 0) {
+                throw new IOException("Server closed connection");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AcceptReadBenchmark.class.getSimpleName())
+                .mode(Mode.Throughput)
+                .mode(Mode.SampleTime)
+                .build()).run();
+    }
+
+    /**
+     * 连接建立时确认一次，此后每收齐 {@code batch} 帧确认一次
+     */
+    private static final class BatchSink implements ChannelHandler {
+
+        private final int batch;
+        private int received;
+
+        BatchSink(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void channelActive(Connection connection) {
+            FramingHandler.of(connection).writeFrame(connection, ByteBuffer.wrap(ACK));
+        }
+
+        @Override
+        public void channelRead(Connection connection, ByteBuffer frame) {
+            if (++received == batch) {
+                received = 0;
+                FramingHandler.of(connection).writeFrame(connection, ByteBuffer.wrap(ACK));
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package io.junix.xia.net;
+
+import io.junix.xia.codec.FramingHandler;
+import io.junix.xia.rpc.Envelope;
+import io.junix.xia.rpc.RpcServerHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Reactor 与虚拟线程两种服务器模式的对比基准
+ * <p>
+ * JMH 部分测量多个客户端线程各自在一条连接上做请求/响应往返的吞吐；{@link #main} 另外测量每 1 万条空闲连接的堆内存占用。
+ * 虚拟线程模式需要在 Java 21 上运行。空闲连接数可通过 {@code -Dxia.bench.idleConnections} 调整，
+ * 客户端和服务端各占一个文件描述符，需保证进程的文件描述符上限足够。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ServerModeBenchmark {
+
+    private static final int PAYLOAD_SIZE = 64;
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        @Param({"REACTOR", "VIRTUAL_THREAD"})
+        public ServerMode mode;
+
+        RunningServer server;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            server = RunningServer.start(mode);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        SocketChannel channel;
+        ByteBuffer request;
+        ByteBuffer response;
+
+        @Setup(Level.Trial)
+        public void setUp(ServerState state) throws IOException {
+            channel = SocketChannel.open(state.server.address());
+            request = Envelope.encodeRequest(1, new byte[PAYLOAD_SIZE]);
+            response = ByteBuffer.allocate(request.remaining() + 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            channel.close();
+        }
+    }
+
+    @Benchmark
+    public int roundTrip(ClientState client) throws IOException {
+        client.request.rewind();
+        while (client.request.hasRemaining()) {
+            client.channel.write(client.request);
+        }
+        // 响应比请求多一个状态字节，负载较小时长度前缀同为一个字节
+        client.response.clear();
+        while (client.response.hasRemaining()) {
+            if (client.channel.read(client.response) < 0) {
+                throw new IOException("Server closed connection");
+            }
+        }
+        return client.response.get(0);
+    }
+
+    /**
+     * 依次测量两种模式下空闲连接的堆内存和线程占用，再运行吞吐基准
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = Integer.getInteger("xia.bench.idleConnections", 10_000);
+        for (ServerMode mode : ServerMode.values()) {
+            if (mode == ServerMode.VIRTUAL_THREAD && !VirtualThreadServer.isSupported()) {
+                System.out.println(mode + ": skipped, requires Java 21");
+                continue;
+            }
+            measureIdleFootprint(mode, connections);
+        }
+        runThroughput();
+    }
+
+    private static void runThroughput() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ServerModeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static void measureIdleFootprint(ServerMode mode, int connections) throws Exception {
+        try (RunningServer server = RunningServer.start(mode)) {
+            long heapBefore = usedHeapAfterGc();
+            int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+            List<SocketChannel> channels = new ArrayList<>(connections);
+            try {
+                for (int i = 0; i < connections; i++) {
+                    channels.add(SocketChannel.open(server.address()));
+                }
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+                while (server.connectionCount() < connections && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                long heapAfter = usedHeapAfterGc();
+                int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+                // 两种模式下客户端套接字的开销相同，差值即可用于横向比较
+                double perTenThousand = (heapAfter - heapBefore) * 10_000.0 / connections;
+                System.out.printf("%s: %d idle connections, heap %.1f MiB per 10k, platform threads +%d%n",
+                        mode, server.connectionCount(), perTenThousand / (1024 * 1024), threadsAfter - threadsBefore);
+            } finally {
+                for (SocketChannel channel : channels) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 以回显协议启动的任一模式服务器
+     */
+    private record RunningServer(InetSocketAddress address, IntSupplier counter, Closeable closer)
+            implements Closeable {
+
+        static RunningServer start(ServerMode mode) throws IOException {
+            ServerConfig config = new ServerConfig().setPort(0).setMode(mode);
+            if (mode == ServerMode.VIRTUAL_THREAD) {
+                VirtualThreadServer server = new VirtualThreadServer(config, connection -> {
+                    ByteBuffer frame;
+                    while ((frame = connection.readFrame()) != null) {
+                        int correlationId = Envelope.readCorrelationId(frame);
+                        byte[] body = new byte[frame.remaining()];
+                        frame.get(body);
+                        connection.write(Envelope.encodeResponse(correlationId, Envelope.STATUS_OK, body));
+                    }
+                });
+                server.start();
+                return new RunningServer(loopback(server.localAddress()), server::connectionCount, server::close);
+            }
+            Server server = new Server(config, () -> new FramingHandler(new RpcServerHandler((connection, request) -> {
+                byte[] body = new byte[request.remaining()];
+                request.get(body);
+                return CompletableFuture.completedFuture(body);
+            }), config.getMaxFrameSize()));
+            server.start();
+            IntSupplier count = () -> server.workers().loops().stream().mapToInt(EventLoop::connectionCount).sum();
+            return new RunningServer(loopback(server.localAddress()), count, server::close);
+        }
+
+        int connectionCount() {
+            return counter.getAsInt();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closer.close();
+        }
+
+        private static InetSocketAddress loopback(InetSocketAddress address) {
+            return new InetSocketAddress("localhost", address.getPort());
+        }
+    }
+}
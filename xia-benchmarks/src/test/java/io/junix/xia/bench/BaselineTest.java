@@ -0,0 +1,72 @@
+package io.junix.xia.bench;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基线比较测试类
+ */
+public class BaselineTest {
+
+    private static String result(String benchmark, String mode, double score, String error, String params) {
+        return "{\"benchmark\": \"" + benchmark + "\", \"mode\": \"" + mode + "\", \"threads\": 1,"
+                + (params == null ? "" : " \"params\": " + params + ",")
+                + " \"primaryMetric\": {\"score\": " + score + ", \"scoreError\": " + error + ","
+                + " \"scorePercentiles\": {\"50.0\": " + score + ", \"99.0\": " + score * 2 + "},"
+                + " \"scoreUnit\": \"" + ("thrpt".equals(mode) ? "ops/ms" : "ms/op") + "\","
+                + " \"rawData\": [[1.0, 2.0e-3]]}, \"secondaryMetrics\": {}}";
+    }
+
+    @Test
+    public void testParseKeysAndScores() {
+        Map<String, Baseline.Score> scores = Baseline.parse("[" + result("a.B.sign", "thrpt", 100, "\"NaN\"",
+                "{\"size\": \"64\", \"mode\": \"x\\\"y\"}") + ", " + result("a.B.sign", "sample", 0.5, "0.01", null) + "]");
+        assertEquals(2, scores.size());
+        Baseline.Score throughput = scores.get("a.B.sign [thrpt, mode=x\"y, size=64]");
+        assertTrue(throughput.higherIsBetter());
+        assertEquals(100, throughput.score());
+        assertTrue(Double.isNaN(throughput.error()));
+        assertTrue(Double.isNaN(throughput.p99()));
+        Baseline.Score sample = scores.get("a.B.sign [sample]");
+        assertFalse(sample.higherIsBetter());
+        assertEquals(1.0, sample.p99());
+    }
+
+    @Test
+    public void testSlowerBeyondToleranceAndNoiseRegresses() {
+        Map<String, Baseline.Score> baseline = Baseline.parse("[" + result("a.B.sign", "thrpt", 100, "2", null)
+                + ", " + result("a.B.verify", "sample", 1.0, "0.01", null)
+                + ", " + result("a.B.noisy", "thrpt", 100, "30", null) + "]");
+        Map<String, Baseline.Score> current = Baseline.parse("[" + result("a.B.sign", "thrpt", 85, "2", null)
+                + ", " + result("a.B.verify", "sample", 1.05, "0.01", null)
+                + ", " + result("a.B.noisy", "thrpt", 80, "30", null)
+                + ", " + result("a.B.keygen", "thrpt", 10, "1", null) + "]");
+        List<String> report = new ArrayList<>();
+        List<String> regressions = Baseline.compare(baseline, current, 0.10, report);
+        assertEquals(1, regressions.size(), String.join("\n", report));
+        assertTrue(regressions.get(0).contains("a.B.sign"));
+        assertEquals(4, report.size());
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("NEW") && line.contains("a.B.keygen")));
+    }
+
+    @Test
+    public void testLatencyIncreaseRegresses() {
+        Map<String, Baseline.Score> baseline = Baseline.parse("[" + result("a.B.read", "sample", 1.0, "0.01", null) + "]");
+        Map<String, Baseline.Score> faster = Baseline.parse("[" + result("a.B.read", "sample", 0.5, "0.01", null) + "]");
+        Map<String, Baseline.Score> slower = Baseline.parse("[" + result("a.B.read", "sample", 1.5, "0.01", null) + "]");
+        assertTrue(Baseline.compare(baseline, faster, 0.10, new ArrayList<>()).isEmpty());
+        assertEquals(1, Baseline.compare(baseline, slower, 0.10, new ArrayList<>()).size());
+    }
+
+    @Test
+    public void testMalformedInputRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Baseline.parse("{\"benchmark\": 1}"));
+        assertThrows(IllegalArgumentException.class, () -> Baseline.parse("[{\"a\": }]"));
+        assertThrows(IllegalArgumentException.class, () -> Baseline.parse("[] x"));
+    }
+}